@@ -0,0 +1,72 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.benchmarks;
+
+
+/**
+ * Base class of the benchmarks run by BenchmarksMain.
+ * An operation is the smallest measured unit (e.g. one genAllMoves call or one doMove/undoMove pair),
+ * iteration() performs a fixed count of operations and returns it.
+ * The results of the operations must be added to sink, so that the JIT cannot remove them as dead code.
+ */
+public abstract class Benchmark {
+	
+	
+	private String name;
+	
+	protected long sink;
+	
+	
+	public Benchmark(String _name) {
+		name = _name;
+	}
+	
+	
+	public String getName() {
+		return name;
+	}
+	
+	
+	public long getSink() {
+		return sink;
+	}
+	
+	
+	/**
+	 * Called once before the warm up.
+	 */
+	public abstract void setup();
+	
+	
+	/**
+	 * @return the count of the performed operations
+	 */
+	public abstract long iteration();
+	
+	
+	/**
+	 * Called once after the measurement, to release the used memory.
+	 */
+	public void tearDown() {
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.benchmarks;
+
+
+/**
+ * Fixed set of positions used by all benchmarks.
+ * Do not change it, otherwise the results are not comparable with the saved baselines.
+ */
+public class BenchmarkPositions {
+	
+	
+	public static final String[] FENS = new String[] {
+		
+		//Opening
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+		"r1bqkbnr/pppp1ppp/2n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3",
+		"rnbqkb1r/pp2pppp/3p1n2/8/3NP3/2N5/PPP2PPP/R1BQKB1R b KQkq - 2 5",
+		
+		//Middlegame
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+		"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+		"r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2NB1N2/PP3PPP/R1BQ1RK1 w - - 0 9",
+		"2rq1rk1/pb1nbppp/1p2pn2/2pp4/2PP4/1PNBPN2/PB3PPP/2RQ1RK1 w - - 0 11",
+		"r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1",
+		"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+		
+		//Endgame
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+		"8/5pk1/6p1/4P3/1r6/5PK1/R7/8 w - - 0 40",
+		"8/8/4kpp1/3p1b2/p6P/2B5/6P1/6K1 b - - 0 47",
+		"6k1/5p2/6p1/8/7p/8/6PP/6K1 b - - 0 1",
+		"8/8/8/4k3/8/8/3QK3/8 w - - 0 1",
+	};
+}
@@ -0,0 +1,244 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.benchmarks;
+
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import bagaturchess.benchmarks.impl.Board_GenAllMoves;
+import bagaturchess.benchmarks.impl.Board_MakeUnmakeMove;
+import bagaturchess.benchmarks.impl.ChessBoard_DoUndoMove;
+import bagaturchess.benchmarks.impl.ChessBoard_GenerateMoves;
+import bagaturchess.benchmarks.impl.ChessBoard_SEE;
+import bagaturchess.benchmarks.impl.EvalCache_PutGet;
+import bagaturchess.benchmarks.impl.Evaluator_FullEval;
+import bagaturchess.benchmarks.impl.TTable_PutGet;
+
+
+/**
+ * Runs the benchmarks with warm up and measurement iterations of fixed time and prints the average time per operation.
+ * The results could be saved and compared with the results of a previous build, see readme.txt for the arguments.
+ */
+public class BenchmarksMain {
+	
+	
+	private static final int WARMUP_ITERATIONS 			= 5;
+	private static final int MEASUREMENT_ITERATIONS 	= 10;
+	private static final long ITERATION_TIME_MS 		= 1000;
+	
+	
+	public static void main(String[] args) {
+		
+		String filter = null;
+		String outFile = null;
+		String baselineFile = null;
+		double threshold = 10;
+		
+		for (int i = 0; i < args.length - 1; i += 2) {
+			if ("-filter".equals(args[i])) {
+				filter = args[i + 1];
+			} else if ("-out".equals(args[i])) {
+				outFile = args[i + 1];
+			} else if ("-baseline".equals(args[i])) {
+				baselineFile = args[i + 1];
+			} else if ("-threshold".equals(args[i])) {
+				threshold = Double.parseDouble(args[i + 1]);
+			} else {
+				throw new IllegalArgumentException("Unknown argument " + args[i]);
+			}
+		}
+		
+		try {
+			
+			Map<String, Double> baseline = baselineFile == null ? new HashMap<String, Double>() : load(baselineFile);
+			Map<String, Double> results = new HashMap<String, Double>();
+			List<String> names = new ArrayList<String>();
+			
+			int regressions = 0;
+			
+			for (Benchmark benchmark: createBenchmarks()) {
+				
+				if (filter != null && !benchmark.getName().contains(filter)) {
+					continue;
+				}
+				
+				double[] ns_per_op = run(benchmark);
+				
+				double mean = 0;
+				for (int i = 0; i < ns_per_op.length; i++) {
+					mean += ns_per_op[i];
+				}
+				mean /= ns_per_op.length;
+				
+				double deviation = 0;
+				for (int i = 0; i < ns_per_op.length; i++) {
+					deviation += (ns_per_op[i] - mean) * (ns_per_op[i] - mean);
+				}
+				deviation = Math.sqrt(deviation / ns_per_op.length);
+				
+				results.put(benchmark.getName(), mean);
+				names.add(benchmark.getName());
+				
+				String line = String.format("%-40s %12.1f ns/op  +- %5.1f%%", benchmark.getName(), mean, 100 * deviation / mean);
+				
+				Double base = baseline.get(benchmark.getName());
+				if (base != null) {
+					double change = 100 * (mean - base) / base;
+					line += String.format("  baseline %12.1f ns/op  %+6.1f%%", base, change);
+					if (change > threshold) {
+						line += "  REGRESSION";
+						regressions++;
+					}
+				}
+				
+				System.out.println(line + "  (sink " + benchmark.getSink() + ")");
+			}
+			
+			if (outFile != null) {
+				save(outFile, names, results);
+			}
+			
+			if (baselineFile != null) {
+				System.out.println("Regressions: " + regressions);
+			}
+			
+			System.exit(regressions == 0 ? 0 : 1);
+			
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(2);
+		}
+	}
+	
+	
+	private static List<Benchmark> createBenchmarks() {
+		
+		List<Benchmark> result = new ArrayList<Benchmark>();
+		
+		result.add(new Board_GenAllMoves());
+		result.add(new Board_MakeUnmakeMove());
+		result.add(new ChessBoard_GenerateMoves());
+		result.add(new ChessBoard_DoUndoMove());
+		result.add(new ChessBoard_SEE());
+		
+		result.add(new Evaluator_FullEval("Evaluator_Bagatur_V20",
+				bagaturchess.learning.goldmiddle.impl4.cfg.BoardConfigImpl_V20.class.getName(),
+				bagaturchess.learning.goldmiddle.impl4.cfg.EvaluationConfig_V20.class.getName(), true));
+		result.add(new Evaluator_FullEval("Evaluator_Chess22k",
+				bagaturchess.engines.evaladapters.chess22k.cfg.BoardConfigImpl_Chess22k.class.getName(),
+				bagaturchess.engines.evaladapters.chess22k.cfg.EvaluationConfg_Chess22k.class.getName(), true));
+		result.add(new Evaluator_FullEval("Evaluator_Carballo",
+				bagaturchess.engines.evaladapters.carballo.cfg.BoardConfigImpl_Carbalo.class.getName(),
+				bagaturchess.engines.evaladapters.carballo.cfg.EvaluationConfg_Carbalo.class.getName(), false));
+		result.add(new Evaluator_FullEval("Evaluator_Cuckoo",
+				bagaturchess.engines.evaladapters.cuckoochess.cfg.BoardConfigImpl_Cuckoo.class.getName(),
+				bagaturchess.engines.evaladapters.cuckoochess.cfg.EvaluationConfg_Cuckoo.class.getName(), false));
+		
+		result.add(new TTable_PutGet());
+		result.add(new EvalCache_PutGet("EvalCache_Impl2_PutGet", 0));
+		result.add(new EvalCache_PutGet("EvalCache_Impl3_PutGet_2way", 2));
+		result.add(new EvalCache_PutGet("EvalCache_Impl3_PutGet_4way", 4));
+		
+		return result;
+	}
+	
+	
+	private static double[] run(Benchmark benchmark) {
+		
+		benchmark.setup();
+		
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			iteration(benchmark);
+		}
+		
+		double[] result = new double[MEASUREMENT_ITERATIONS];
+		for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+			result[i] = iteration(benchmark);
+		}
+		
+		benchmark.tearDown();
+		
+		return result;
+	}
+	
+	
+	/**
+	 * @return nanoseconds per operation
+	 */
+	private static double iteration(Benchmark benchmark) {
+		
+		long ops = 0;
+		long start = System.nanoTime();
+		long end = start + ITERATION_TIME_MS * 1000000L;
+		long now;
+		
+		do {
+			ops += benchmark.iteration();
+			now = System.nanoTime();
+		} while (now < end);
+		
+		return (now - start) / (double) ops;
+	}
+	
+	
+	private static Map<String, Double> load(String fileName) throws IOException {
+		
+		Map<String, Double> result = new HashMap<String, Double>();
+		
+		BufferedReader reader = new BufferedReader(new FileReader(fileName));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] parts = line.trim().split("\t");
+				if (parts.length == 2) {
+					result.put(parts[0], Double.parseDouble(parts[1]));
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		
+		return result;
+	}
+	
+	
+	private static void save(String fileName, List<String> names, Map<String, Double> results) throws IOException {
+		
+		PrintWriter writer = new PrintWriter(new FileWriter(fileName));
+		try {
+			for (String name: names) {
+				writer.println(name + "\t" + results.get(name));
+			}
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.benchmarks.impl;
+
+
+import bagaturchess.benchmarks.Benchmark;
+import bagaturchess.benchmarks.BenchmarkPositions;
+import bagaturchess.bitboard.api.BoardUtils;
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.bitboard.api.IInternalMoveList;
+import bagaturchess.bitboard.impl.movelist.BaseMoveList;
+
+
+/**
+ * genAllMoves of the Board (impl), one operation is the generation of all moves of one position.
+ */
+public class Board_GenAllMoves extends Benchmark {
+	
+	
+	private IBitBoard[] boards;
+	private IInternalMoveList list;
+	
+	
+	public Board_GenAllMoves() {
+		super("Board_GenAllMoves");
+	}
+	
+	
+	static IBitBoard[] createBoards() {
+		IBitBoard[] result = new IBitBoard[BenchmarkPositions.FENS.length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = BoardUtils.createBoard_WithPawnsCache(BenchmarkPositions.FENS[i],
+					bagaturchess.bitboard.impl.eval.pawns.model.PawnsModelEvalFactory.class.getName(), null, 1000, false);
+		}
+		return result;
+	}
+	
+	
+	@Override
+	public void setup() {
+		boards = createBoards();
+		list = new BaseMoveList();
+	}
+	
+	
+	@Override
+	public long iteration() {
+		for (int i = 0; i < boards.length; i++) {
+			list.reserved_clear();
+			sink += boards[i].genAllMoves(list);
+		}
+		return boards.length;
+	}
+}
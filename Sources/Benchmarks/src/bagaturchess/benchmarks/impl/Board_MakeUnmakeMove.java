@@ -0,0 +1,81 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.benchmarks.impl;
+
+
+import bagaturchess.benchmarks.Benchmark;
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.bitboard.api.IInternalMoveList;
+import bagaturchess.bitboard.impl.movelist.BaseMoveList;
+
+
+/**
+ * makeMoveForward and makeMoveBackward of the Board (impl), one operation is one pair of calls.
+ */
+public class Board_MakeUnmakeMove extends Benchmark {
+	
+	
+	private IBitBoard[] boards;
+	private int[][] moves;
+	
+	
+	public Board_MakeUnmakeMove() {
+		super("Board_MakeUnmakeMove");
+	}
+	
+	
+	@Override
+	public void setup() {
+		
+		boards = Board_GenAllMoves.createBoards();
+		moves = new int[boards.length][];
+		
+		IInternalMoveList list = new BaseMoveList();
+		for (int i = 0; i < boards.length; i++) {
+			list.reserved_clear();
+			int count = boards[i].genAllMoves(list);
+			moves[i] = new int[count];
+			System.arraycopy(list.reserved_getMovesBuffer(), 0, moves[i], 0, count);
+		}
+	}
+	
+	
+	@Override
+	public long iteration() {
+		
+		long ops = 0;
+		
+		for (int i = 0; i < boards.length; i++) {
+			IBitBoard board = boards[i];
+			int[] cur_moves = moves[i];
+			for (int j = 0; j < cur_moves.length; j++) {
+				board.makeMoveForward(cur_moves[j]);
+				sink += board.getHashKey();
+				board.makeMoveBackward(cur_moves[j]);
+			}
+			ops += cur_moves.length;
+		}
+		
+		return ops;
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.benchmarks.impl;
+
+
+import bagaturchess.benchmarks.Benchmark;
+import bagaturchess.bitboard.impl1.internal.ChessBoard;
+import bagaturchess.bitboard.impl1.internal.MoveGenerator;
+
+
+/**
+ * doMove and undoMove of the ChessBoard (impl1), one operation is one pair of calls.
+ */
+public class ChessBoard_DoUndoMove extends Benchmark {
+	
+	
+	private ChessBoard[] boards;
+	private int[][] moves;
+	
+	
+	public ChessBoard_DoUndoMove() {
+		super("ChessBoard_DoUndoMove");
+	}
+	
+	
+	@Override
+	public void setup() {
+		
+		boards = ChessBoard_GenerateMoves.createBoards();
+		moves = getLegalMoves(boards, false);
+	}
+	
+	
+	static int[][] getLegalMoves(ChessBoard[] boards, boolean attacksOnly) {
+		
+		int[][] result = new int[boards.length][];
+		
+		MoveGenerator moveGen = new MoveGenerator();
+		for (int i = 0; i < boards.length; i++) {
+			
+			moveGen.startPly();
+			moveGen.generateAttacks(boards[i]);
+			if (!attacksOnly) {
+				moveGen.generateMoves(boards[i]);
+			}
+			
+			int[] buffer = new int[moveGen.getCountMoves()];
+			int count = 0;
+			while (moveGen.hasNext()) {
+				int move = moveGen.next();
+				if (boards[i].isLegal(move)) {
+					buffer[count++] = move;
+				}
+			}
+			moveGen.endPly();
+			
+			result[i] = new int[count];
+			System.arraycopy(buffer, 0, result[i], 0, count);
+		}
+		
+		return result;
+	}
+	
+	
+	@Override
+	public long iteration() {
+		
+		long ops = 0;
+		
+		for (int i = 0; i < boards.length; i++) {
+			ChessBoard cb = boards[i];
+			int[] cur_moves = moves[i];
+			for (int j = 0; j < cur_moves.length; j++) {
+				cb.doMove(cur_moves[j]);
+				sink += cb.zobristKey;
+				cb.undoMove(cur_moves[j]);
+			}
+			ops += cur_moves.length;
+		}
+		
+		return ops;
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.benchmarks.impl;
+
+
+import bagaturchess.benchmarks.Benchmark;
+import bagaturchess.benchmarks.BenchmarkPositions;
+import bagaturchess.bitboard.impl1.internal.ChessBoard;
+import bagaturchess.bitboard.impl1.internal.ChessBoardUtil;
+import bagaturchess.bitboard.impl1.internal.MoveGenerator;
+
+
+/**
+ * generateMoves and generateAttacks of the MoveGenerator (impl1), one operation is the generation of all moves of one position.
+ */
+public class ChessBoard_GenerateMoves extends Benchmark {
+	
+	
+	private ChessBoard[] boards;
+	private MoveGenerator moveGen;
+	
+	
+	public ChessBoard_GenerateMoves() {
+		super("ChessBoard_GenerateMoves");
+	}
+	
+	
+	static ChessBoard[] createBoards() {
+		ChessBoard[] result = new ChessBoard[BenchmarkPositions.FENS.length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = ChessBoardUtil.getNewCB(BenchmarkPositions.FENS[i]);
+		}
+		return result;
+	}
+	
+	
+	@Override
+	public void setup() {
+		boards = createBoards();
+		moveGen = new MoveGenerator();
+	}
+	
+	
+	@Override
+	public long iteration() {
+		for (int i = 0; i < boards.length; i++) {
+			moveGen.startPly();
+			moveGen.generateAttacks(boards[i]);
+			moveGen.generateMoves(boards[i]);
+			sink += moveGen.getCountMoves();
+			moveGen.endPly();
+		}
+		return boards.length;
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.benchmarks.impl;
+
+
+import bagaturchess.benchmarks.Benchmark;
+import bagaturchess.bitboard.impl1.internal.ChessBoard;
+import bagaturchess.bitboard.impl1.internal.SEEUtil;
+
+
+/**
+ * SEEUtil.getSeeCaptureScore of the ChessBoard (impl1), one operation is the SEE of one legal capture.
+ */
+public class ChessBoard_SEE extends Benchmark {
+	
+	
+	private ChessBoard[] boards;
+	private int[][] captures;
+	
+	
+	public ChessBoard_SEE() {
+		super("ChessBoard_SEE");
+	}
+	
+	
+	@Override
+	public void setup() {
+		boards = ChessBoard_GenerateMoves.createBoards();
+		captures = ChessBoard_DoUndoMove.getLegalMoves(boards, true);
+	}
+	
+	
+	@Override
+	public long iteration() {
+		
+		long ops = 0;
+		
+		for (int i = 0; i < boards.length; i++) {
+			ChessBoard cb = boards[i];
+			int[] cur_captures = captures[i];
+			for (int j = 0; j < cur_captures.length; j++) {
+				sink += SEEUtil.getSeeCaptureScore(cb, cur_captures[j]);
+			}
+			ops += cur_captures.length;
+		}
+		
+		//Guards against a set of positions without captures
+		return Math.max(1, ops);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.benchmarks.impl;
+
+
+import bagaturchess.benchmarks.Benchmark;
+import bagaturchess.search.impl.eval.cache.EvalCache_Impl2;
+import bagaturchess.search.impl.eval.cache.EvalCache_Impl3;
+import bagaturchess.search.impl.eval.cache.EvalEntry_BaseImpl;
+import bagaturchess.search.impl.eval.cache.IEvalCache;
+import bagaturchess.search.impl.eval.cache.IEvalEntry;
+
+
+/**
+ * put and get of EvalCache_Impl2 or EvalCache_Impl3 (bucketSize > 0) with random keys, half of the gets are for keys which are put before.
+ * One operation is one pair of put and get.
+ */
+public class EvalCache_PutGet extends Benchmark {
+	
+	
+	private final int bucketSize;
+	
+	private IEvalCache cache;
+	private IEvalEntry entry;
+	private long[] keys;
+	private int counter;
+	
+	
+	public EvalCache_PutGet(String name, int _bucketSize) {
+		super(name);
+		bucketSize = _bucketSize;
+	}
+	
+	
+	@Override
+	public void setup() {
+		cache = bucketSize == 0 ? new EvalCache_Impl2(TTable_PutGet.SIZE_IN_MB) : new EvalCache_Impl3(TTable_PutGet.SIZE_IN_MB, bucketSize);
+		entry = new EvalEntry_BaseImpl();
+		keys = TTable_PutGet.createKeys();
+	}
+	
+	
+	@Override
+	public long iteration() {
+		
+		for (int i = 0; i < keys.length; i++) {
+			
+			long key = keys[i] + counter;
+			cache.put(key, 5, i & 1023);
+			
+			cache.get((i & 1) == 0 ? key : ~key, entry);
+			sink += entry.getEval();
+		}
+		
+		counter++;
+		
+		return keys.length;
+	}
+	
+	
+	@Override
+	public void tearDown() {
+		cache = null;
+	}
+}
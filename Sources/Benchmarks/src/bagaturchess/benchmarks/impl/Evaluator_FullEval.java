@@ -0,0 +1,110 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.benchmarks.impl;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import bagaturchess.benchmarks.Benchmark;
+import bagaturchess.benchmarks.BenchmarkPositions;
+import bagaturchess.bitboard.api.BoardUtils;
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.bitboard.api.IBoardConfig;
+import bagaturchess.bitboard.impl.utils.ReflectionUtils;
+import bagaturchess.search.api.IEvalConfig;
+import bagaturchess.search.api.IEvaluator;
+import bagaturchess.search.api.IEvaluatorFactory;
+import bagaturchess.search.api.internal.ISearch;
+
+
+/**
+ * fullEval of the evaluator created by the given board and evaluation configurations, without evaluation cache.
+ * One operation is the evaluation of one position.
+ * Positions on which the evaluator fails are reported and skipped.
+ */
+public class Evaluator_FullEval extends Benchmark {
+	
+	
+	private String boardConfigClassName;
+	private String evalConfigClassName;
+	private boolean impl1;
+	
+	private IBitBoard[] boards;
+	private IEvaluator[] evaluators;
+	
+	
+	/**
+	 * @param _impl1 - true for BoardImpl (impl1), false for Board (impl)
+	 */
+	public Evaluator_FullEval(String name, String _boardConfigClassName, String _evalConfigClassName, boolean _impl1) {
+		super(name);
+		boardConfigClassName = _boardConfigClassName;
+		evalConfigClassName = _evalConfigClassName;
+		impl1 = _impl1;
+	}
+	
+	
+	@Override
+	public void setup() {
+		
+		IBoardConfig boardConfig = (IBoardConfig) ReflectionUtils.createObjectByClassName_NoArgsConstructor(boardConfigClassName);
+		IEvalConfig evalConfig = (IEvalConfig) ReflectionUtils.createObjectByClassName_NoArgsConstructor(evalConfigClassName);
+		IEvaluatorFactory factory = (IEvaluatorFactory) ReflectionUtils.createObjectByClassName_NoArgsConstructor(evalConfig.getEvaluatorFactoryClassName());
+		
+		List<IBitBoard> boards_list = new ArrayList<IBitBoard>();
+		List<IEvaluator> evaluators_list = new ArrayList<IEvaluator>();
+		
+		for (int i = 0; i < BenchmarkPositions.FENS.length; i++) {
+			
+			IBitBoard board = BoardUtils.createBoard_WithPawnsCache(BenchmarkPositions.FENS[i], evalConfig.getPawnsCacheFactoryClassName(), boardConfig, 1000, impl1);
+			IEvaluator evaluator = factory.create(board, null, evalConfig);
+			
+			try {
+				evaluator.fullEval(0, ISearch.MIN, ISearch.MAX, board.getColourToMove());
+			} catch (RuntimeException e) {
+				System.out.println(getName() + ": skipped position " + BenchmarkPositions.FENS[i] + " because of " + e);
+				continue;
+			}
+			
+			boards_list.add(board);
+			evaluators_list.add(evaluator);
+		}
+		
+		if (boards_list.size() == 0) {
+			throw new IllegalStateException(getName() + ": all positions are skipped");
+		}
+		
+		boards = boards_list.toArray(new IBitBoard[boards_list.size()]);
+		evaluators = evaluators_list.toArray(new IEvaluator[evaluators_list.size()]);
+	}
+	
+	
+	@Override
+	public long iteration() {
+		for (int i = 0; i < evaluators.length; i++) {
+			sink += (long) evaluators[i].fullEval(0, ISearch.MIN, ISearch.MAX, boards[i].getColourToMove());
+		}
+		return evaluators.length;
+	}
+}
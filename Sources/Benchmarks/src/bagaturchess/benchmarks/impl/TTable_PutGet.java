@@ -0,0 +1,97 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.benchmarks.impl;
+
+
+import java.util.Random;
+
+import bagaturchess.benchmarks.Benchmark;
+import bagaturchess.search.impl.tpt.ITTEntry;
+import bagaturchess.search.impl.tpt.TTEntry_BaseImpl;
+import bagaturchess.search.impl.tpt.TTable_Impl2;
+
+
+/**
+ * put and get of TTable_Impl2 with random keys, half of the gets are for keys which are put before.
+ * One operation is one pair of put and get.
+ */
+public class TTable_PutGet extends Benchmark {
+	
+	
+	static final int SIZE_IN_MB 	= 64;
+	static final int KEYS_COUNT 	= 1 << 16;
+	
+	
+	private TTable_Impl2 table;
+	private ITTEntry entry;
+	private long[] keys;
+	private int counter;
+	
+	
+	public TTable_PutGet() {
+		super("TTable_Impl2_PutGet");
+	}
+	
+	
+	static long[] createKeys() {
+		long[] result = new long[KEYS_COUNT];
+		Random rand = new Random(1);
+		for (int i = 0; i < result.length; i++) {
+			result[i] = rand.nextLong();
+		}
+		return result;
+	}
+	
+	
+	@Override
+	public void setup() {
+		table = new TTable_Impl2(SIZE_IN_MB);
+		entry = new TTEntry_BaseImpl();
+		keys = createKeys();
+	}
+	
+	
+	@Override
+	public long iteration() {
+		
+		for (int i = 0; i < keys.length; i++) {
+			
+			//Each pass puts the keys with different offset, so the table is filled with more than KEYS_COUNT entries
+			long key = keys[i] + counter;
+			table.put(key, 1 + (i & 15), i & 1023, -1000, 1000, 1 + i);
+			
+			table.get((i & 1) == 0 ? key : ~key, entry);
+			sink += entry.getEval();
+		}
+		
+		counter++;
+		
+		return keys.length;
+	}
+	
+	
+	@Override
+	public void tearDown() {
+		table = null;
+	}
+}
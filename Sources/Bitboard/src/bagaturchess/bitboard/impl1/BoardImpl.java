@@ -578,8 +578,25 @@ public class BoardImpl implements IBitBoard {
 	 * @see bagaturchess.bitboard.api.IBoard#genNonCaptureNonPromotionMoves(bagaturchess.bitboard.api.IInternalMoveList)
 	 */
 	@Override
-	public int genNonCaptureNonPromotionMoves(IInternalMoveList list) {
-		throw new UnsupportedOperationException();
+	public synchronized int genNonCaptureNonPromotionMoves(IInternalMoveList list) {
+		
+		generator.startPly();
+		
+		generator.generateMoves(chessBoard);
+		
+		int counter = 0;
+		while (generator.hasNext()) {
+			int cur_move = generator.next();
+			if (!chessBoard.isLegal(cur_move)) {
+				continue;
+			}
+			list.reserved_add(cur_move);
+			counter++;
+		}
+		
+		generator.endPly();
+		
+		return counter;
 	}
 
 	/* (non-Javadoc)
@@ -596,7 +613,7 @@ public class BoardImpl implements IBitBoard {
 	 */
 	@Override
 	public long getPawnsHashKey() {
-		throw new UnsupportedOperationException();
+		return chessBoard.pawnZobristKey;
 	}
 
 	/* (non-Javadoc)
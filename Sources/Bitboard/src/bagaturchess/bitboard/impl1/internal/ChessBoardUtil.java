@@ -198,6 +198,35 @@ public class ChessBoardUtil {
 	}
 	
 	
+	/**
+	 * Sets a new position into an existing board without allocations (used by the readers of training positions).
+	 * The board must not have played moves (call revert before).
+	 */
+	public static void setPosition(ChessBoard cb, long[][] pieces, int colorToMove, int castlingRights, int epIndex) {
+		
+		if (cb.playedMovesCount != 0) {
+			throw new IllegalStateException("playedMovesCount=" + cb.playedMovesCount);
+		}
+		
+		//Remove the current position, init adds the new one
+		cb.playedBoardStates.dec(cb.zobristKey);
+		
+		for (int color = 0; color < 2; color++) {
+			for (int pieceIndex = 1; pieceIndex <= KING; pieceIndex++) {
+				cb.pieces[color][pieceIndex] = pieces[color][pieceIndex];
+			}
+		}
+		
+		cb.colorToMove = colorToMove;
+		cb.castlingRights = castlingRights;
+		cb.epIndex = epIndex;
+		cb.moveCounter = 0;
+		cb.lastCaptureOrPawnMoveBefore = 0;
+		
+		init(cb);
+	}
+	
+	
 	public static void init(ChessBoard cb) {
 
 		calculateMaterialZobrist(cb);
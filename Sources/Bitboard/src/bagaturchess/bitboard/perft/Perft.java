@@ -0,0 +1,224 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.bitboard.perft;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * Multi-threaded perft over a ForkJoinPool.
+ * The root moves and their replies are split in separate tasks, the deeper plies are counted sequentially
+ * with bulk counting on the last ply (the count of the legal moves, without making them)
+ * and with the shared PerftHash (optional).
+ * Each thread of the pool has its own PerftBoard, which is in the root position between the tasks.
+ */
+public class Perft {
+	
+	
+	//Tasks are created for the first SPLIT_PLIES plies only, if the remaining depth is at least MIN_SPLIT_DEPTH
+	private static final int SPLIT_PLIES 		= 2;
+	private static final int MIN_SPLIT_DEPTH 	= 3;
+	
+	
+	private final int impl;
+	private final String fen;
+	private final PerftHash hash;
+	private final ForkJoinPool pool;
+	
+	private final ThreadLocal<PerftBoard> boards;
+	
+	
+	/**
+	 * @param _hash - could be null. Must not be shared between different implementations, because their zobrist keys are different.
+	 */
+	public Perft(int _impl, String _fen, int threads, PerftHash _hash) {
+		
+		impl = _impl;
+		fen = _fen;
+		hash = _hash;
+		pool = new ForkJoinPool(threads);
+		
+		boards = new ThreadLocal<PerftBoard>() {
+			@Override
+			protected PerftBoard initialValue() {
+				return PerftBoard.create(impl, fen);
+			}
+		};
+	}
+	
+	
+	/**
+	 * @return the nodes count of each root move (divide), ordered by the move in UCI notation
+	 */
+	public Map<String, Long> divide(int depth) {
+		
+		if (depth < 1) {
+			throw new IllegalArgumentException("depth=" + depth);
+		}
+		
+		PerftBoard root = PerftBoard.create(impl, fen);
+		int count = root.genLegalMoves(0);
+		
+		List<ForkJoinTask<Long>> tasks = new ArrayList<ForkJoinTask<Long>>();
+		for (int i = 0; i < count; i++) {
+			tasks.add(pool.submit(new PerftTask(new int[] {root.getMove(0, i)}, depth - 1)));
+		}
+		
+		Map<String, Long> result = new TreeMap<String, Long>();
+		for (int i = 0; i < count; i++) {
+			result.put(root.moveToString(root.getMove(0, i)), tasks.get(i).join());
+		}
+		
+		return result;
+	}
+	
+	
+	public long perft(int depth) {
+		
+		if (depth == 0) {
+			return 1;
+		}
+		
+		long nodes = 0;
+		for (Long cur: divide(depth).values()) {
+			nodes += cur;
+		}
+		
+		return nodes;
+	}
+	
+	
+	public void shutDown() {
+		pool.shutdown();
+	}
+	
+	
+	private long perft(PerftBoard board, int depth, int ply) {
+		
+		long key = 0;
+		if (hash != null && depth >= 2) {
+			key = board.getHashKey();
+			long nodes = hash.get(key, depth);
+			if (nodes != -1) {
+				return nodes;
+			}
+		}
+		
+		int count = board.genLegalMoves(ply);
+		
+		//Bulk counting
+		if (depth == 1) {
+			return count;
+		}
+		
+		long nodes = 0;
+		for (int i = 0; i < count; i++) {
+			int move = board.getMove(ply, i);
+			board.makeMove(move);
+			nodes += perft(board, depth - 1, ply + 1);
+			board.unmakeMove(move);
+		}
+		
+		if (hash != null) {
+			hash.put(key, depth, nodes);
+		}
+		
+		return nodes;
+	}
+	
+	
+	private class PerftTask extends RecursiveTask<Long> {
+		
+		
+		private static final long serialVersionUID = 1L;
+		
+		
+		private final int[] path;
+		private final int depth;
+		
+		
+		PerftTask(int[] _path, int _depth) {
+			path = _path;
+			depth = _depth;
+		}
+		
+		
+		@Override
+		protected Long compute() {
+			
+			if (depth == 0) {
+				return 1L;
+			}
+			
+			PerftBoard board = boards.get();
+			
+			for (int i = 0; i < path.length; i++) {
+				board.makeMove(path[i]);
+			}
+			
+			List<PerftTask> subtasks = null;
+			long nodes = 0;
+			
+			try {
+				
+				if (path.length < SPLIT_PLIES && depth >= MIN_SPLIT_DEPTH) {
+					
+					int count = board.genLegalMoves(path.length);
+					
+					subtasks = new ArrayList<PerftTask>(count);
+					for (int i = 0; i < count; i++) {
+						int[] subpath = new int[path.length + 1];
+						System.arraycopy(path, 0, subpath, 0, path.length);
+						subpath[path.length] = board.getMove(path.length, i);
+						subtasks.add(new PerftTask(subpath, depth - 1));
+					}
+					
+				} else {
+					
+					nodes = perft(board, depth, path.length);
+				}
+				
+			} finally {
+				//The board must be in the root position, before this thread joins (and possibly executes) other tasks
+				for (int i = path.length - 1; i >= 0; i--) {
+					board.unmakeMove(path[i]);
+				}
+			}
+			
+			if (subtasks != null) {
+				for (PerftTask subtask: invokeAll(subtasks)) {
+					nodes += subtask.join();
+				}
+			}
+			
+			return nodes;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.bitboard.perft;
+
+
+/**
+ * Minimal board interface needed by Perft, implemented over the two board representations.
+ * The moves are kept in one buffer per ply, so the recursion does not allocate.
+ * Not thread safe, Perft uses one instance per thread.
+ */
+public abstract class PerftBoard {
+	
+	
+	public static final int IMPL_BOARD 			= 0;
+	public static final int IMPL_CHESSBOARD 	= 1;
+	
+	public static final String[] IMPL_NAMES 	= new String[] {"Board (impl)", "ChessBoard (impl1)"};
+	
+	protected static final int MAX_PLIES 		= 64;
+	
+	
+	public static PerftBoard create(int impl, String fen) {
+		switch (impl) {
+			case IMPL_BOARD:
+				return new PerftBoard_Board(fen);
+			case IMPL_CHESSBOARD:
+				return new PerftBoard_ChessBoard(fen);
+			default:
+				throw new IllegalArgumentException("impl=" + impl);
+		}
+	}
+	
+	
+	public abstract long getHashKey();
+	
+	
+	/**
+	 * Generates the legal moves of the current position in the buffer of the ply.
+	 * @return the count of the legal moves
+	 */
+	public abstract int genLegalMoves(int ply);
+	
+	
+	public abstract int getMove(int ply, int index);
+	
+	
+	public abstract void makeMove(int move);
+	
+	
+	public abstract void unmakeMove(int move);
+	
+	
+	/**
+	 * @return the move in UCI notation
+	 */
+	public abstract String moveToString(int move);
+}
@@ -0,0 +1,113 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.bitboard.perft;
+
+
+import java.util.Random;
+
+import bagaturchess.bitboard.api.IInternalMoveList;
+import bagaturchess.bitboard.impl.Board;
+import bagaturchess.bitboard.impl.movelist.BaseMoveList;
+
+
+public class PerftBoard_Board extends PerftBoard {
+	
+	
+	//The hash key of the Board has only a flag for the enpassant, but not the pawn which could be captured
+	private static final long[] ENPASSANT_KEYS = new long[64];
+	
+	static {
+		Random rand = new Random(2);
+		for (int i = 0; i < ENPASSANT_KEYS.length; i++) {
+			ENPASSANT_KEYS[i] = rand.nextLong();
+		}
+	}
+	
+	
+	private PerftBoardImpl board;
+	private IInternalMoveList[] lists;
+	
+	
+	public PerftBoard_Board(String fen) {
+		
+		board = new PerftBoardImpl(fen);
+		
+		lists = new IInternalMoveList[MAX_PLIES];
+		for (int i = 0; i < lists.length; i++) {
+			lists[i] = new BaseMoveList();
+		}
+	}
+	
+	
+	@Override
+	public long getHashKey() {
+		long enpassantPawn = board.getEnpassantPawnBitboard();
+		return enpassantPawn == 0 ? board.getHashKey() : board.getHashKey() ^ ENPASSANT_KEYS[Long.numberOfTrailingZeros(enpassantPawn)];
+	}
+	
+	
+	@Override
+	public int genLegalMoves(int ply) {
+		IInternalMoveList list = lists[ply];
+		list.reserved_clear();
+		return board.isInCheck() ? board.genKingEscapes(list) : board.genAllMoves(list);
+	}
+	
+	
+	@Override
+	public int getMove(int ply, int index) {
+		return lists[ply].reserved_getMovesBuffer()[index];
+	}
+	
+	
+	@Override
+	public void makeMove(int move) {
+		board.makeMoveForward(move);
+	}
+	
+	
+	@Override
+	public void unmakeMove(int move) {
+		board.makeMoveBackward(move);
+	}
+	
+	
+	@Override
+	public String moveToString(int move) {
+		return board.getMoveOps().moveToString(move);
+	}
+	
+	
+	private static class PerftBoardImpl extends Board {
+		
+		
+		PerftBoardImpl(String fen) {
+			super(fen, null, null);
+		}
+		
+		
+		long getEnpassantPawnBitboard() {
+			return backupInfo[playedMovesCount].enpassantPawnBitboard;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.bitboard.perft;
+
+
+import bagaturchess.bitboard.impl1.internal.ChessBoard;
+import bagaturchess.bitboard.impl1.internal.ChessBoardUtil;
+import bagaturchess.bitboard.impl1.internal.MoveGenerator;
+import bagaturchess.bitboard.impl1.internal.MoveWrapper;
+
+
+public class PerftBoard_ChessBoard extends PerftBoard {
+	
+	
+	private static final int MAX_MOVES 	= 256;
+	
+	
+	private ChessBoard cb;
+	private MoveGenerator moveGen;
+	private int[][] moves;
+	
+	
+	public PerftBoard_ChessBoard(String fen) {
+		
+		cb = ChessBoardUtil.getNewCB(fen);
+		moveGen = new MoveGenerator();
+		
+		moves = new int[MAX_PLIES][MAX_MOVES];
+	}
+	
+	
+	@Override
+	public long getHashKey() {
+		return cb.zobristKey;
+	}
+	
+	
+	@Override
+	public int genLegalMoves(int ply) {
+		
+		int[] buffer = moves[ply];
+		int count = 0;
+		
+		//The generator gives pseudo-legal moves
+		moveGen.startPly();
+		moveGen.generateAttacks(cb);
+		moveGen.generateMoves(cb);
+		while (moveGen.hasNext()) {
+			int move = moveGen.next();
+			if (cb.isLegal(move)) {
+				buffer[count++] = move;
+			}
+		}
+		moveGen.endPly();
+		
+		return count;
+	}
+	
+	
+	@Override
+	public int getMove(int ply, int index) {
+		return moves[ply][index];
+	}
+	
+	
+	@Override
+	public void makeMove(int move) {
+		cb.doMove(move);
+	}
+	
+	
+	@Override
+	public void unmakeMove(int move) {
+		cb.undoMove(move);
+	}
+	
+	
+	@Override
+	public String moveToString(int move) {
+		return new MoveWrapper(move).toString();
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.bitboard.perft;
+
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Lock-free hash of perft subtree counts, shared by all Perft threads.
+ * Each entry is a pair of longs [key ^ data, data] where data is (nodes << 8) | depth.
+ * A torn entry (written by two threads at the same time) does not pass the key check and is a miss.
+ * The buckets have 2 entries: the first keeps the deeper subtree, the second is always replaced.
+ */
+public class PerftHash {
+	
+	
+	private static final int DEPTH_BITS 	= 8;
+	private static final long DEPTH_MASK 	= (1L << DEPTH_BITS) - 1;
+	
+	private static final long[] DEPTH_KEYS 	= new long[1 << DEPTH_BITS];
+	
+	static {
+		Random rand = new Random(1);
+		for (int i = 0; i < DEPTH_KEYS.length; i++) {
+			DEPTH_KEYS[i] = rand.nextLong();
+		}
+	}
+	
+	
+	private AtomicLongArray entries;
+	private int bucketsMask;
+	
+	
+	public PerftHash(int sizeInMB) {
+		
+		//4 longs per bucket
+		long buckets = Long.highestOneBit(Math.max(1, (sizeInMB * 1024L * 1024L) / 32));
+		buckets = Math.min(buckets, 1 << 28);
+		
+		entries = new AtomicLongArray((int) (4 * buckets));
+		bucketsMask = (int) (buckets - 1);
+	}
+	
+	
+	/**
+	 * The key must include the side to move, which is true for the zobrist keys of both boards.
+	 * @return the count of the nodes or -1 if there is no such entry
+	 */
+	public long get(long key, int depth) {
+		
+		long hkey = key ^ DEPTH_KEYS[depth];
+		int index = getIndex(hkey);
+		
+		for (int i = index; i < index + 4; i += 2) {
+			long data = entries.get(i + 1);
+			if ((entries.get(i) ^ data) == hkey && (data & DEPTH_MASK) == depth) {
+				return data >>> DEPTH_BITS;
+			}
+		}
+		
+		return -1;
+	}
+	
+	
+	public void put(long key, int depth, long nodes) {
+		
+		long hkey = key ^ DEPTH_KEYS[depth];
+		int index = getIndex(hkey);
+		
+		long data = (nodes << DEPTH_BITS) | depth;
+		
+		if (depth < (entries.get(index + 1) & DEPTH_MASK)) {
+			index += 2;
+		}
+		
+		entries.lazySet(index, hkey ^ data);
+		entries.lazySet(index + 1, data);
+	}
+	
+	
+	private int getIndex(long hkey) {
+		return ((int) (hkey >>> 32) & bucketsMask) << 2;
+	}
+}
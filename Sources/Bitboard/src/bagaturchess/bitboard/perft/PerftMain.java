@@ -0,0 +1,162 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.bitboard.perft;
+
+
+import java.util.Map;
+import java.util.TreeSet;
+
+
+/**
+ * Runs Perft with both board implementations on the standard perft positions
+ * and checks the results against each other and against the known counts.
+ * Arguments (all are optional):
+ *   -depth <n>      (default 6)
+ *   -threads <n>    (default the count of the available processors)
+ *   -hash <MB>      size of the perft hash of each implementation, 0 disables it (default 256)
+ *   -fen <fen>      runs only the given position
+ *   -divide         prints the count of each root move
+ * The exit code is 1 if there is a mismatch.
+ */
+public class PerftMain {
+	
+	
+	private static final Object[][] POSITIONS = new Object[][] {
+		{"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+			new long[] {1, 20, 400, 8902, 197281, 4865609, 119060324, 3195901860L}},
+		{"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			new long[] {1, 48, 2039, 97862, 4085603, 193690690, 8031647685L}},
+		{"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+			new long[] {1, 14, 191, 2812, 43238, 674624, 11030083, 178633661}},
+		{"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+			new long[] {1, 6, 264, 9467, 422333, 15833292, 706045033}},
+		{"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+			new long[] {1, 44, 1486, 62379, 2103487, 89941194}},
+		{"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+			new long[] {1, 46, 2079, 89890, 3894594, 164075551, 6923051137L}},
+	};
+	
+	
+	public static void main(String[] args) {
+		
+		int depth = 6;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int hashMB = 256;
+		String fen = null;
+		boolean divide = false;
+		
+		for (int i = 0; i < args.length; i++) {
+			if ("-depth".equals(args[i])) {
+				depth = Integer.parseInt(args[++i]);
+			} else if ("-threads".equals(args[i])) {
+				threads = Integer.parseInt(args[++i]);
+			} else if ("-hash".equals(args[i])) {
+				hashMB = Integer.parseInt(args[++i]);
+			} else if ("-fen".equals(args[i])) {
+				fen = args[++i];
+			} else if ("-divide".equals(args[i])) {
+				divide = true;
+			} else {
+				throw new IllegalArgumentException("Unknown argument " + args[i]);
+			}
+		}
+		
+		System.out.println("PerftMain: depth " + depth + ", threads " + threads + ", hash " + hashMB + "MB");
+		
+		boolean ok = true;
+		
+		if (fen != null) {
+			ok = check(fen, -1, depth, threads, hashMB, divide);
+		} else {
+			for (int i = 0; i < POSITIONS.length; i++) {
+				long[] expected = (long[]) POSITIONS[i][1];
+				ok &= check((String) POSITIONS[i][0], depth < expected.length ? expected[depth] : -1, depth, threads, hashMB, divide);
+			}
+		}
+		
+		System.out.println(ok ? "OK" : "FAILED");
+		
+		System.exit(ok ? 0 : 1);
+	}
+	
+	
+	private static boolean check(String fen, long expected, int depth, int threads, int hashMB, boolean divide) {
+		
+		System.out.println(fen);
+		
+		Map<String, Long> divide_board = run(PerftBoard.IMPL_BOARD, fen, depth, threads, hashMB);
+		Map<String, Long> divide_chessboard = run(PerftBoard.IMPL_CHESSBOARD, fen, depth, threads, hashMB);
+		
+		long nodes_board = sum(divide_board);
+		long nodes_chessboard = sum(divide_chessboard);
+		
+		boolean ok = nodes_board == nodes_chessboard && (expected == -1 || nodes_board == expected);
+		
+		if (!ok) {
+			System.out.println("	MISMATCH: " + PerftBoard.IMPL_NAMES[PerftBoard.IMPL_BOARD] + " " + nodes_board
+					+ ", " + PerftBoard.IMPL_NAMES[PerftBoard.IMPL_CHESSBOARD] + " " + nodes_chessboard
+					+ ", expected " + (expected == -1 ? "unknown" : String.valueOf(expected)));
+		}
+		
+		if (divide || !ok) {
+			
+			TreeSet<String> moves = new TreeSet<String>(divide_board.keySet());
+			moves.addAll(divide_chessboard.keySet());
+			
+			for (String move: moves) {
+				Long cur_board = divide_board.get(move);
+				Long cur_chessboard = divide_chessboard.get(move);
+				System.out.println("	" + move + ": " + cur_board + " " + cur_chessboard
+						+ (cur_board == null || !cur_board.equals(cur_chessboard) ? "	<- differs" : ""));
+			}
+		}
+		
+		return ok;
+	}
+	
+	
+	private static Map<String, Long> run(int impl, String fen, int depth, int threads, int hashMB) {
+		
+		Perft perft = new Perft(impl, fen, threads, hashMB == 0 ? null : new PerftHash(hashMB));
+		
+		long start = System.currentTimeMillis();
+		Map<String, Long> result = perft.divide(depth);
+		long time = Math.max(1, System.currentTimeMillis() - start);
+		
+		perft.shutDown();
+		
+		long nodes = sum(result);
+		System.out.println("	" + PerftBoard.IMPL_NAMES[impl] + ": nodes " + nodes + ", time " + time + "ms, nps " + (1000 * nodes / time));
+		
+		return result;
+	}
+	
+	
+	private static long sum(Map<String, Long> divide) {
+		long result = 0;
+		for (Long nodes: divide.values()) {
+			result += nodes;
+		}
+		return result;
+	}
+}
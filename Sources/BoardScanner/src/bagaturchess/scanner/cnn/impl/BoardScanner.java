@@ -22,8 +22,11 @@ package bagaturchess.scanner.cnn.impl;
 
 import java.io.IOException;
 
+import bagaturchess.bitboard.impl.Constants;
 import bagaturchess.scanner.cnn.impl.model.NetworkModel;
+import bagaturchess.scanner.common.BoardUtils;
 import deepnetts.net.NeuralNetwork;
+import deepnetts.util.Tensor;
 
 
 public abstract class BoardScanner {
@@ -32,6 +35,12 @@ public abstract class BoardScanner {
 	protected NetworkModel networkModel;
 	protected NeuralNetwork<?> network;
 	
+	//Reused across the scans: the whole board converted once to floats and the inputs of the current square.
+	//The network's input layer takes the values array of the tensor, so filling squareInputs is enough to change the input.
+	private float[] boardInputs;
+	private float[] squareInputs;
+	private Tensor squareTensor;
+	
 	
 	public BoardScanner(NetworkModel _networkModel) throws ClassNotFoundException, IOException {
 		networkModel = _networkModel;
@@ -39,5 +48,85 @@ public abstract class BoardScanner {
 	}
 	
 	
-	public abstract String scan(Object image);
+	/**
+	 * @return the count of floats per pixel
+	 */
+	protected abstract int getChannels();
+	
+	
+	/**
+	 * Converts the board image to floats, row by row and pixel by pixel, in the same order as the network's input tensors.
+	 */
+	protected abstract void convertToInputs(Object image, float[] result);
+	
+	
+	protected abstract int getImageSize(Object image);
+	
+	
+	public String scan(Object image) {
+		
+		int imageSize = getImageSize(image);
+		int squareSize = imageSize / 8;
+		int channels = getChannels();
+		
+		if (boardInputs == null || boardInputs.length != imageSize * imageSize * channels) {
+			boardInputs = new float[imageSize * imageSize * channels];
+			squareInputs = new float[squareSize * squareSize * channels];
+			squareTensor = new Tensor(squareInputs);
+		}
+		
+		convertToInputs(image, boardInputs);
+		
+		int rowLength = squareSize * channels;
+		
+		int[] pids = new int[64];
+		for (int file = 0; file < 8; file++) {
+			for (int rank = 0; rank < 8; rank++) {
+				
+				int fieldID = 63 - (file + 8 * rank);
+				
+				for (int row = 0; row < squareSize; row++) {
+					System.arraycopy(boardInputs, ((file * squareSize + row) * imageSize + rank * squareSize) * channels,
+							squareInputs, row * rowLength, rowLength);
+				}
+				
+				//Runs the forward pass as well
+				network.setInput(squareTensor);
+				
+				pids[fieldID] = getPID(network.getOutput());
+			}
+		}
+		
+		return BoardUtils.createFENFromPIDs(pids);
+	}
+	
+	
+	/**
+	 * Scans a batch of boards with the same size, reusing the inputs buffers and tensor for all of them.
+	 */
+	public String[] scanBatch(Object[] images) {
+		
+		String[] result = new String[images.length];
+		
+		for (int i = 0; i < images.length; i++) {
+			result[i] = scan(images[i]);
+		}
+		
+		return result;
+	}
+	
+	
+	private static int getPID(float[] output) {
+		
+		float maxValue = 0;
+		int maxIndex = 0;
+		for (int j = 0; j < output.length; j++) {
+			if (maxValue < output[j]) {
+				maxValue = output[j];
+				maxIndex = j;
+			}
+		}
+		
+		return (maxIndex == 13 ? Constants.PID_NONE : maxIndex);
+	}
 }
@@ -22,10 +22,7 @@ package bagaturchess.scanner.cnn.impl;
 
 import java.io.IOException;
 
-import bagaturchess.bitboard.impl.Constants;
 import bagaturchess.scanner.cnn.impl.model.NetworkModel;
-import bagaturchess.scanner.common.BoardUtils;
-import bagaturchess.scanner.common.MatrixUtils;
 
 
 public class BoardScanner_Gray extends BoardScanner {
@@ -36,45 +33,28 @@ public class BoardScanner_Gray extends BoardScanner {
 	}
 	
 	
-	public String scan(Object imageObj) {
-		
-		int[][] grayImage = (int[][]) imageObj;
-		
-		int[] pids = new int[64];
-		for (int i = 0; i < grayImage.length; i += grayImage.length / 8) {
-			for (int j = 0; j < grayImage.length; j += grayImage.length / 8) {
-				int file = i / (grayImage.length / 8);
-				int rank = j / (grayImage.length / 8);
-				int fieldID = 63 - (file + 8 * rank);
-				int pid = getPID(grayImage, i, j, fieldID);
-				pids[fieldID] = pid;
-			}
-		}
-		
-		return BoardUtils.createFENFromPIDs(pids);
+	@Override
+	protected int getChannels() {
+		return 1;
 	}
 	
 	
-	private int getPID(int[][] matrix, int i1, int j1, int filedID) {
-		
-		int[][] squareMatrix = MatrixUtils.getSquarePixelsMatrix(matrix, i1, j1);
-		
-		networkModel.setInputs(networkModel.createInput(squareMatrix));
+	@Override
+	protected int getImageSize(Object image) {
+		return ((int[][]) image).length;
+	}
+	
+	
+	@Override
+	protected void convertToInputs(Object image, float[] result) {
 		
-		network.forward();
-		float[] output = network.getOutput();
+		int[][] grayImage = (int[][]) image;
 		
-		float maxValue = 0;
-		int maxIndex = 0;
-		for (int j = 0; j < output.length; j++) {
-			if (maxValue < output[j]) {
-				maxValue = output[j];
-				maxIndex = j;
+		int index = 0;
+		for (int i = 0; i < grayImage.length; i++) {
+			for (int j = 0; j < grayImage.length; j++) {
+				result[index++] = grayImage[i][j];
 			}
 		}
-		
-		int pid = (maxIndex == 13 ? Constants.PID_NONE : maxIndex);
-		
-		return pid;
 	}
 }
@@ -22,10 +22,7 @@ package bagaturchess.scanner.cnn.impl;
 
 import java.io.IOException;
 
-import bagaturchess.bitboard.impl.Constants;
 import bagaturchess.scanner.cnn.impl.model.NetworkModel;
-import bagaturchess.scanner.common.BoardUtils;
-import bagaturchess.scanner.common.MatrixUtils;
 
 
 public class BoardScanner_RGB extends BoardScanner {
@@ -36,45 +33,30 @@ public class BoardScanner_RGB extends BoardScanner {
 	}
 	
 	
-	public String scan(Object imageObj) {
-		
-		int[][][] grayImage = (int[][][]) imageObj;
-		
-		int[] pids = new int[64];
-		for (int i = 0; i < grayImage.length; i += grayImage.length / 8) {
-			for (int j = 0; j < grayImage.length; j += grayImage.length / 8) {
-				int file = i / (grayImage.length / 8);
-				int rank = j / (grayImage.length / 8);
-				int fieldID = 63 - (file + 8 * rank);
-				int pid = getPID(grayImage, i, j, fieldID);
-				pids[fieldID] = pid;
-			}
-		}
-		
-		return BoardUtils.createFENFromPIDs(pids);
+	@Override
+	protected int getChannels() {
+		return 3;
 	}
 	
 	
-	private int getPID(int[][][] matrix, int i1, int j1, int filedID) {
-		
-		int[][][] squareMatrix = MatrixUtils.getSquarePixelsMatrix(matrix, i1, j1);
-		
-		networkModel.setInputs(networkModel.createInput(squareMatrix));
+	@Override
+	protected int getImageSize(Object image) {
+		return ((int[][][]) image).length;
+	}
+	
+	
+	@Override
+	protected void convertToInputs(Object image, float[] result) {
 		
-		network.forward();
-		float[] output = network.getOutput();
+		int[][][] rgbImage = (int[][][]) image;
 		
-		float maxValue = 0;
-		int maxIndex = 0;
-		for (int j = 0; j < output.length; j++) {
-			if (maxValue < output[j]) {
-				maxValue = output[j];
-				maxIndex = j;
+		int index = 0;
+		for (int i = 0; i < rgbImage.length; i++) {
+			for (int j = 0; j < rgbImage.length; j++) {
+				for (int k = 0; k < 3; k++) {
+					result[index++] = rgbImage[i][j][k];
+				}
 			}
 		}
-		
-		int pid = (maxIndex == 13 ? Constants.PID_NONE : maxIndex);
-		
-		return pid;
 	}
 }
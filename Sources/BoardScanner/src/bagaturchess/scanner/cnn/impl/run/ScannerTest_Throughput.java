@@ -0,0 +1,81 @@
+/**
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package bagaturchess.scanner.cnn.impl.run;
+
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+import bagaturchess.scanner.cnn.impl.BoardScanner;
+import bagaturchess.scanner.cnn.impl.BoardScanner_RGB;
+import bagaturchess.scanner.cnn.impl.model.NetworkModel;
+import bagaturchess.scanner.cnn.impl.model.NetworkModel_RGB;
+import bagaturchess.scanner.cnn.impl.utils.ScannerUtils;
+import bagaturchess.scanner.common.BoardProperties;
+import bagaturchess.scanner.patterns.api.ImageHandlerSingleton;
+
+
+public class ScannerTest_Throughput {
+	
+	
+	private static final String NET_FILE = "scanner.cnn.set1.bin";
+	
+	private static final int BATCH_SIZE = 100;
+	
+	private static final int ITERATIONS = 5;
+	
+	private static final String[] FENS = new String[] {
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+			"r1bq1rk1/ppp2ppp/2np1n2/2b1p3/2B1P3/2NP1N2/PPP2PPP/R1BQ1RK1 w - - 0 1",
+			"8/5k2/3p4/1p1Pp2p/pP2Pp1P/P4P1K/8/8 w - - 0 1",
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+	};
+	
+	
+	public static void main(String[] args) {
+		try {
+			
+			BoardProperties boardProperties = new BoardProperties(192, "set1");
+			
+			Object[] images = new Object[BATCH_SIZE];
+			for (int i = 0; i < images.length; i++) {
+				BufferedImage boardImage = (BufferedImage) ImageHandlerSingleton.getInstance().createBoardImage(boardProperties, FENS[i % FENS.length], new Color(220, 220, 220), new Color(120, 120, 120));
+				images[i] = ScannerUtils.convertToRGBMatrix(boardImage);
+			}
+			
+			NetworkModel netmodel = new NetworkModel_RGB(NET_FILE, boardProperties);
+			BoardScanner scanner = new BoardScanner_RGB(netmodel);
+			
+			for (int iteration = 1; iteration <= ITERATIONS; iteration++) {
+				
+				long startTime = System.currentTimeMillis();
+				
+				scanner.scanBatch(images);
+				
+				long time = Math.max(1, System.currentTimeMillis() - startTime);
+				
+				System.out.println("Iteration " + iteration + ": " + images.length + " boards in " + time + "ms, " + (1000 * images.length / (double) time) + " boards/sec");
+			}
+			
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -20,17 +20,15 @@
 package bagaturchess.scanner.patterns.impl1.matchers;
 
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import bagaturchess.bitboard.impl.Constants;
 import bagaturchess.scanner.common.BoardProperties;
 import bagaturchess.scanner.common.BoardUtils;
 import bagaturchess.scanner.common.MatrixUtils;
 import bagaturchess.scanner.common.ResultPair;
-import bagaturchess.scanner.patterns.api.ImageHandlerSingleton;
 import bagaturchess.scanner.patterns.api.MatchingStatistics;
 
 
@@ -39,12 +37,34 @@ public abstract class Matcher_Base {
 	
 	private static final float SIZE_DELTA_PERCENT = 0.25f;
 	
+	private static final int[] PIDS_ALL = new int[] {Constants.PID_NONE,
+			Constants.PID_W_PAWN, Constants.PID_W_KNIGHT, Constants.PID_W_BISHOP, Constants.PID_W_ROOK, Constants.PID_W_QUEEN, Constants.PID_W_KING,
+			Constants.PID_B_PAWN, Constants.PID_B_KNIGHT, Constants.PID_B_BISHOP, Constants.PID_B_ROOK, Constants.PID_B_QUEEN, Constants.PID_B_KING};
+	
+	private static final int[] PIDS_WITHOUT_PAWNS = new int[] {Constants.PID_NONE,
+			Constants.PID_W_KNIGHT, Constants.PID_W_BISHOP, Constants.PID_W_ROOK, Constants.PID_W_QUEEN, Constants.PID_W_KING,
+			Constants.PID_B_KNIGHT, Constants.PID_B_BISHOP, Constants.PID_B_ROOK, Constants.PID_B_QUEEN, Constants.PID_B_KING};
+	
+	//Squares per task, below this count the squares are matched in the current thread
+	private static final int SQUARES_PER_TASK = 4;
+	
+	private static final ForkJoinPool squaresPool = new ForkJoinPool();
+	
 	
 	protected BoardProperties boardProperties;
 	
+	private PiecesTemplates templates;
+	
 	
 	protected Matcher_Base(BoardProperties _imageProperties) {
+		
 		boardProperties = _imageProperties;
+		
+		//The images handler is not thread safe, so the templates are created here and only read during the scan
+		//Composite matchers have no own properties and delegate the scan
+		if (boardProperties != null) {
+			templates = PiecesTemplates.getInstance(boardProperties, (int) ((1 - SIZE_DELTA_PERCENT) * boardProperties.getSquareSize()));
+		}
 	}
 	
 	
@@ -65,103 +85,173 @@ public abstract class Matcher_Base {
 		ResultPair<Integer, Integer> bgcolorsOfSquares = MatrixUtils.getSquaresColor(grayBoard, emptySquares);
 		
 		int[] pids = new int[64];
-		int countPIDs = 0;
-		for (int i = 0; i < grayBoard.length; i += grayBoard.length / 8) {
-			for (int j = 0; j < grayBoard.length; j += grayBoard.length / 8) {
-				
-				int file = i / (grayBoard.length / 8);
-				int rank = j / (grayBoard.length / 8);
-				int fieldID = 63 - (file + 8 * rank);
-				
-				int[][] squareMatrix = MatrixUtils.getSquarePixelsMatrix(grayBoard, i, j);
-				//int bgcolor_avg = (int) MatrixUtils.calculateColorStats(squareMatrix).getEntropy();
-				
-				MatrixUtils.PatternMatchingData bestPatternData = new MatrixUtils.PatternMatchingData();
-				bestPatternData.x = 0;
-				bestPatternData.y = 0;
-				bestPatternData.size = squareMatrix.length;
-				//ImageHandlerSingleton.getInstance().printInfo(squareMatrix, bestPatternData, "" + fieldID + "_square");
-				
-				Set<Integer> pidsToSearch = new HashSet<Integer>();
-				pidsToSearch.add(Constants.PID_NONE);
-				if (fieldID >= 8 && fieldID <= 56) pidsToSearch.add(Constants.PID_W_PAWN);
-				pidsToSearch.add(Constants.PID_W_KNIGHT);
-				pidsToSearch.add(Constants.PID_W_BISHOP);
-				pidsToSearch.add(Constants.PID_W_ROOK);
-				pidsToSearch.add(Constants.PID_W_QUEEN);
-				pidsToSearch.add(Constants.PID_W_KING);
-				if (fieldID >= 8 && fieldID <= 56) pidsToSearch.add(Constants.PID_B_PAWN);
-				pidsToSearch.add(Constants.PID_B_KNIGHT);
-				pidsToSearch.add(Constants.PID_B_BISHOP);
-				pidsToSearch.add(Constants.PID_B_ROOK);
-				pidsToSearch.add(Constants.PID_B_QUEEN);
-				pidsToSearch.add(Constants.PID_B_KING);
-				
-				List<Integer> bgcolors = new ArrayList<Integer>();
-				//bgcolors.add(bgcolor_avg);
-				bgcolors.add((file + rank) % 2 == 0 ? bgcolorsOfSquares.getFirst() : bgcolorsOfSquares.getSecond());
-				
-				ResultPair<Integer, MatrixUtils.PatternMatchingData> pidAndData
-					= getPID(squareMatrix, true, bgcolors, pidsToSearch, fieldID);
-				pids[fieldID] = pidAndData.getFirst();
-				MatrixUtils.PatternMatchingData data = pidAndData.getSecond();
-				result.totalDelta += data.delta;
-				
-				//if (pids[fieldID] != Constants.PID_NONE) {
-					countPIDs++;
-				//}
-			}
+		double[] deltas = new double[64];
+		
+		squaresPool.invoke(new SquaresTask(grayBoard, bgcolorsOfSquares, pids, deltas, 0, 64));
+		
+		for (int fieldID = 0; fieldID < 64; fieldID++) {
+			result.totalDelta += deltas[fieldID];
 		}
 		
-		result.totalDelta = result.totalDelta / (double) (countPIDs);
+		result.totalDelta = result.totalDelta / (double) (64);
 		//result.totalDelta *= boardProperties.getSquareSize() * Math.sqrt(boardProperties.getSquareSize());
 		
 		return new ResultPair<String, MatchingStatistics> (BoardUtils.createFENFromPIDs(pids), result);
 	}
 	
 	
-	private ResultPair<Integer, MatrixUtils.PatternMatchingData> getPID(int[][] graySquareMatrix, boolean iterateSize,
-			List<Integer> bgcolors, Set<Integer> pids, int fieldID) {
+	private void scanSquare(int[][] grayBoard, ResultPair<Integer, Integer> bgcolorsOfSquares, int[] pids, double[] deltas, int squareIndex) {
+		
+		int squareSize = grayBoard.length / 8;
+		
+		int file = squareIndex / 8;
+		int rank = squareIndex % 8;
+		int fieldID = 63 - (file + 8 * rank);
+		
+		int[][] squareMatrix = MatrixUtils.getSquarePixelsMatrix(grayBoard, file * squareSize, rank * squareSize);
+		
+		int bgcolor = (file + rank) % 2 == 0 ? bgcolorsOfSquares.getFirst() : bgcolorsOfSquares.getSecond();
+		
+		int[] pidsToSearch = (fieldID >= 8 && fieldID <= 56) ? PIDS_ALL : PIDS_WITHOUT_PAWNS;
+		
+		ResultPair<Integer, MatrixUtils.PatternMatchingData> pidAndData = getPID(squareMatrix, bgcolor, pidsToSearch);
+		
+		pids[fieldID] = pidAndData.getFirst();
+		deltas[fieldID] = pidAndData.getSecond().delta;
+	}
+	
+	
+	/**
+	 * For each template size and offset, the delta is the root mean square of the differences between the square's window and the pattern.
+	 * The pattern is foreground + bgcolor * background, so the sum of squared differences expands to
+	 * sum(S^2) - 2 * (sum(S * foreground) + bgcolor * sum(S * background)) + sum(pattern^2),
+	 * where sum(S^2) comes from an integral image and sum(pattern^2) from the template's precomputed sums.
+	 */
+	private ResultPair<Integer, MatrixUtils.PatternMatchingData> getPID(int[][] graySquareMatrix, int bgcolor, int[] pids) {
 		
-		MatrixUtils.PatternMatchingData bestData = null;
+		int n = graySquareMatrix.length;
+		
+		float[] source = new float[n * n];
+		long[] integralSquares = new long[(n + 1) * (n + 1)];
+		for (int i = 0; i < n; i++) {
+			long rowSum = 0;
+			for (int j = 0; j < n; j++) {
+				int pixel = graySquareMatrix[i][j];
+				source[i * n + j] = pixel;
+				rowSum += pixel * pixel;
+				integralSquares[(i + 1) * (n + 1) + j + 1] = integralSquares[i * (n + 1) + j + 1] + rowSum;
+			}
+		}
+		
+		double bestSSD = Double.MAX_VALUE;
 		int bestPID = -1;
+		int bestSize = 0;
+		int bestX = 0;
+		int bestY = 0;
 		
-		int counter = 0;
+		int maxSize = Math.min(n, templates.getMaxSize());
 		
-		int maxSize = graySquareMatrix.length;
-		int startSize = iterateSize ? (int) ((1 - SIZE_DELTA_PERCENT) * maxSize) : maxSize;
-				
-		for (int size = startSize; size <= maxSize; size++) {
+		for (int size = templates.getMinSize(); size <= maxSize; size++) {
 			
-			MatrixUtils.PatternMatchingData curData_best  = null;
+			int offsets = n - size + 1;
+			double pixelsCount = size * size;
 			
-			for (Integer pid : pids) {
+			for (int pid_index = 0; pid_index < pids.length; pid_index++) {
 				
-				for (int i = 0; i < bgcolors.size(); i++) {
-					
-					int bgcolor = bgcolors.get(i);
-					
-					int[][] grayPattern = pid == Constants.PID_NONE ?
-							ImageHandlerSingleton.getInstance().createSquareImage(bgcolor, size)
-							: ImageHandlerSingleton.getInstance().createPieceImage(boardProperties.getPiecesSetFileNamePrefix(), pid, bgcolor, size);
-					MatrixUtils.PatternMatchingData curData = MatrixUtils.matchImages(graySquareMatrix, grayPattern);
-					
-					if (curData_best == null || curData_best.delta > curData.delta) {
-						curData_best = curData;
-					}
-				}
+				int pid = pids[pid_index];
 				
-				if (bestData == null || bestData.delta > curData_best.delta) {
-					bestData = curData_best;
-					bestPID = pid;
-					
-					//ImageHandlerSingleton.getInstance().printInfo(bestData, "" + fieldID + "_best" + (counter++));
+				PiecesTemplates.Template template = templates.getTemplate(pid, size);
+				float[] foreground = template.foreground;
+				float[] background = template.background;
+				
+				double patternSquares = template.foreground_foreground
+						+ 2 * bgcolor * template.foreground_background
+						+ bgcolor * (double) bgcolor * template.background_background;
+				
+				for (int x = 0; x < offsets; x++) {
+					for (int y = 0; y < offsets; y++) {
+						
+						long windowSquares = integralSquares[(x + size) * (n + 1) + y + size]
+								- integralSquares[x * (n + 1) + y + size]
+								- integralSquares[(x + size) * (n + 1) + y]
+								+ integralSquares[x * (n + 1) + y];
+						
+						float crossForeground = 0;
+						float crossBackground = 0;
+						for (int i = 0; i < size; i++) {
+							int sourceIndex = (x + i) * n + y;
+							int templateIndex = i * size;
+							for (int j = 0; j < size; j++) {
+								float pixel = source[sourceIndex + j];
+								crossForeground += pixel * foreground[templateIndex + j];
+								crossBackground += pixel * background[templateIndex + j];
+							}
+						}
+						
+						double ssd = (windowSquares - 2 * (crossForeground + bgcolor * (double) crossBackground) + patternSquares) / pixelsCount;
+						
+						if (ssd < bestSSD) {
+							bestSSD = ssd;
+							bestPID = pid;
+							bestSize = size;
+							bestX = x;
+							bestY = y;
+						}
+					}
 				}
 			}
 		}
 		
+		MatrixUtils.PatternMatchingData bestData = new MatrixUtils.PatternMatchingData();
+		bestData.x = bestX;
+		bestData.y = bestY;
+		bestData.size = bestSize;
+		bestData.color = bgcolor;
+		bestData.delta = Math.sqrt(Math.max(0, bestSSD));
+		bestData.pattern = templates.getTemplate(bestPID, bestSize).createPattern(bgcolor);
+		
 		//ImageHandlerSingleton.getInstance().printInfo(graySquareMatrix, bestData, "" + fieldID + "_matching");
 		
 		return new ResultPair<Integer, MatrixUtils.PatternMatchingData>(bestPID, bestData);
 	}
+	
+	
+	private class SquaresTask extends RecursiveAction {
+		
+		
+		private static final long serialVersionUID = 4907513623453245390L;
+		
+		private final int[][] grayBoard;
+		private final ResultPair<Integer, Integer> bgcolorsOfSquares;
+		private final int[] pids;
+		private double[] deltas;
+		private final int from;
+		private final int to;
+		
+		
+		SquaresTask(int[][] _grayBoard, ResultPair<Integer, Integer> _bgcolorsOfSquares, int[] _pids, double[] _deltas, int _from, int _to) {
+			grayBoard = _grayBoard;
+			bgcolorsOfSquares = _bgcolorsOfSquares;
+			pids = _pids;
+			deltas = _deltas;
+			from = _from;
+			to = _to;
+		}
+		
+		
+		@Override
+		protected void compute() {
+			
+			if (to - from <= SQUARES_PER_TASK) {
+				for (int squareIndex = from; squareIndex < to; squareIndex++) {
+					scanSquare(grayBoard, bgcolorsOfSquares, pids, deltas, squareIndex);
+				}
+				return;
+			}
+			
+			int middle = (from + to) >>> 1;
+			invokeAll(new SquaresTask(grayBoard, bgcolorsOfSquares, pids, deltas, from, middle),
+					new SquaresTask(grayBoard, bgcolorsOfSquares, pids, deltas, middle, to));
+		}
+	}
 }
@@ -0,0 +1,174 @@
+/**
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package bagaturchess.scanner.patterns.impl1.matchers;
+
+
+import java.util.HashMap;
+import java.util.Map;
+
+import bagaturchess.bitboard.impl.Constants;
+import bagaturchess.scanner.common.BoardProperties;
+import bagaturchess.scanner.patterns.api.ImageHandlerSingleton;
+
+
+/**
+ * Scaled gray templates of all pieces of a set, precomputed once per pieces set and square size.
+ * 
+ * A piece drawn over a background with gray color bgcolor is alpha * piece + (1 - alpha) * bgcolor,
+ * so each template is stored as two matrices: foreground = alpha * piece and background = 1 - alpha.
+ * They are extracted from the piece drawn over black and over white background.
+ * This way the same template is used for all background colors: pattern = foreground + bgcolor * background.
+ */
+public class PiecesTemplates {
+	
+	
+	private static final Map<String, PiecesTemplates> cache = new HashMap<String, PiecesTemplates>();
+	
+	
+	private final int minSize;
+	private final int maxSize;
+	
+	//[pid][size - minSize]
+	private final Template[][] templates;
+	
+	
+	private PiecesTemplates(String piecesSetName, int _minSize, int _maxSize) {
+		
+		minSize = _minSize;
+		maxSize = _maxSize;
+		
+		templates = new Template[Constants.PID_B_KING + 1][maxSize - minSize + 1];
+		
+		for (int size = minSize; size <= maxSize; size++) {
+			
+			templates[Constants.PID_NONE][size - minSize] = createEmptySquareTemplate(size);
+			
+			for (int pid = Constants.PID_W_PAWN; pid <= Constants.PID_B_KING; pid++) {
+				int[][] overBlack = ImageHandlerSingleton.getInstance().createPieceImage(piecesSetName, pid, 0, size);
+				int[][] overWhite = ImageHandlerSingleton.getInstance().createPieceImage(piecesSetName, pid, 255, size);
+				templates[pid][size - minSize] = new Template(size, overBlack, overWhite);
+			}
+		}
+	}
+	
+	
+	/**
+	 * The templates are created at the first call for the given pieces set and sizes and are shared by all matchers after that.
+	 */
+	public static PiecesTemplates getInstance(BoardProperties boardProperties, int minSize) {
+		
+		String key = boardProperties.getPiecesSetFileNamePrefix() + "_" + minSize + "_" + boardProperties.getSquareSize();
+		
+		synchronized (cache) {
+			PiecesTemplates result = cache.get(key);
+			if (result == null) {
+				result = new PiecesTemplates(boardProperties.getPiecesSetFileNamePrefix(), minSize, boardProperties.getSquareSize());
+				cache.put(key, result);
+			}
+			return result;
+		}
+	}
+	
+	
+	public int getMinSize() {
+		return minSize;
+	}
+	
+	
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	
+	public Template getTemplate(int pid, int size) {
+		return templates[pid][size - minSize];
+	}
+	
+	
+	private static Template createEmptySquareTemplate(int size) {
+		int[][] overBlack = new int[size][size];
+		int[][] overWhite = new int[size][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				overWhite[i][j] = 255;
+			}
+		}
+		return new Template(size, overBlack, overWhite);
+	}
+	
+	
+	public static final class Template {
+		
+		
+		final int size;
+		
+		//Row by row, index is i * size + j
+		final float[] foreground;
+		final float[] background;
+		
+		//Sums of the products, used for the squared norm of the pattern for a given background color
+		final double foreground_foreground;
+		final double foreground_background;
+		final double background_background;
+		
+		
+		private Template(int _size, int[][] overBlack, int[][] overWhite) {
+			
+			size = _size;
+			foreground = new float[size * size];
+			background = new float[size * size];
+			
+			double ff = 0;
+			double fb = 0;
+			double bb = 0;
+			for (int i = 0; i < size; i++) {
+				for (int j = 0; j < size; j++) {
+					float f = overBlack[i][j];
+					float b = Math.max(0, overWhite[i][j] - overBlack[i][j]) / 255f;
+					foreground[i * size + j] = f;
+					background[i * size + j] = b;
+					ff += f * f;
+					fb += f * b;
+					bb += b * b;
+				}
+			}
+			
+			foreground_foreground = ff;
+			foreground_background = fb;
+			background_background = bb;
+		}
+		
+		
+		public int getSize() {
+			return size;
+		}
+		
+		
+		public int[][] createPattern(int bgcolor) {
+			int[][] result = new int[size][size];
+			for (int i = 0; i < size; i++) {
+				for (int j = 0; j < size; j++) {
+					result[i][j] = Math.round(foreground[i * size + j] + bgcolor * background[i * size + j]);
+				}
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package bagaturchess.egtb.syzygy;
+
+
+/**
+ * Fixed size cache of Syzygy probe results, shared by all search threads without locking.
+ * Each entry is two longs: the key xor-ed with the value and the value itself.
+ * An entry overwritten concurrently by another thread fails the key check and is treated as a miss.
+ */
+public class SyzygyTBCache {
+	
+	
+	//Marks the entry as used, so that a zero result can be cached as well
+	private static final long VALUE_USED_BIT = 1L << 32;
+	
+	//Each stripe is on its own cache line (8 longs), in order to avoid false sharing between the threads
+	private static final int STRIPES = 64;
+	private static final int STRIPE_PADDING = 8;
+	
+	
+	private final int keyShifts;
+	
+	private final long[] entries;
+	
+	//The counters are not atomic. Two threads with the same stripe may lose some counts, which is acceptable for statistics.
+	private final long[] counters_hits;
+	private final long[] counters_misses;
+	private final long[] probes_time;
+	
+	
+	public SyzygyTBCache(int power2Entries) {
+		keyShifts = 64 - power2Entries;
+		entries = new long[2 * (1 << power2Entries)];
+		counters_hits = new long[STRIPES * STRIPE_PADDING];
+		counters_misses = new long[STRIPES * STRIPE_PADDING];
+		probes_time = new long[STRIPES * STRIPE_PADDING];
+	}
+	
+	
+	/**
+	 * @return the cached entry, its lower 32 bits are the result of the probe, or 0 if the key is not in the cache
+	 */
+	public long get(long key) {
+		
+		final int index = getIndex(key);
+		final long storedKey = entries[index];
+		final long value = entries[index + 1];
+		
+		if (value != 0 && (storedKey ^ value) == key) {
+			counters_hits[getStripe()]++;
+			return value;
+		}
+		
+		counters_misses[getStripe()]++;
+		return 0;
+	}
+	
+	
+	public void put(long key, int result, long probeTimeNanos) {
+		
+		final int index = getIndex(key);
+		final long value = (result & 0xFFFFFFFFL) | VALUE_USED_BIT;
+		
+		entries[index] = key ^ value;
+		entries[index + 1] = value;
+		
+		probes_time[getStripe()] += probeTimeNanos;
+	}
+	
+	
+	public long getHits() {
+		return sum(counters_hits);
+	}
+	
+	
+	public long getMisses() {
+		return sum(counters_misses);
+	}
+	
+	
+	public int getHitRate() {
+		long tries = getHits() + getMisses();
+		return tries == 0 ? 0 : (int) (100 * getHits() / tries);
+	}
+	
+	
+	/**
+	 * @return the average time in nanoseconds of the native probes, done for the misses
+	 */
+	public long getAverageProbeTime() {
+		long misses = getMisses();
+		return misses == 0 ? 0 : sum(probes_time) / misses;
+	}
+	
+	
+	@Override
+	public String toString() {
+		return "hits=" + getHits() + ", misses=" + getMisses() + ", hitrate=" + getHitRate() + "%, avg probe time=" + getAverageProbeTime() + "ns";
+	}
+	
+	
+	private int getIndex(final long key) {
+		return 2 * (int) (key >>> keyShifts);
+	}
+	
+	
+	private static long sum(long[] counters) {
+		long result = 0;
+		for (int i = 0; i < STRIPES; i++) {
+			result += counters[i * STRIPE_PADDING];
+		}
+		return result;
+	}
+	
+	
+	private static int getStripe() {
+		return (int) (Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_PADDING;
+	}
+}
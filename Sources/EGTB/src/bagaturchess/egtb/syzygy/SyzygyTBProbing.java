@@ -21,11 +21,14 @@ package bagaturchess.egtb.syzygy;
 import bagaturchess.bitboard.api.IBitBoard;
 import bagaturchess.bitboard.impl.Constants;
 
+import bagaturchess.egtb.syzygy.impl.SyzygyTablebases;
+
 import com.winkelhagen.chess.syzygy.SyzygyBridge;
 
 
 /**
- * converter class to fit the FrankWalter board representation on the SyzygyBridge
+ * converter class to fit the FrankWalter board representation on the SyzygyBridge.
+ * If the native library can not be loaded, the tables are probed by the pure Java reader instead.
  */
 public class SyzygyTBProbing {
 	
@@ -33,6 +36,20 @@ public class SyzygyTBProbing {
 	private static boolean loadingInitiated;
 	private static SyzygyTBProbing instance;
 	
+	private static final int CACHE_POWER_2_ENTRIES = 16;
+	
+	//Mixes the 50 moves counter into the zobrist key of the DTZ entries
+	private static final long RULE50_KEY_MULTIPLIER = 0x9E3779B97F4A7C15L;
+	
+	//The native DTZ probe goes through the root probing of Fathom, which is not reentrant. The WDL probe is.
+	private static final Object native_dtz_lock = new Object();
+	
+	
+	private final SyzygyTBCache cache_wdl = new SyzygyTBCache(CACHE_POWER_2_ENTRIES);
+	private final SyzygyTBCache cache_dtz = new SyzygyTBCache(CACHE_POWER_2_ENTRIES);
+	
+	private boolean nativeLibraryLoaded;
+	
 	
     private SyzygyTBProbing() {
     	loadingInitiated = false;
@@ -47,8 +64,9 @@ public class SyzygyTBProbing {
     public static final SyzygyTBProbing getSingleton() {
     	if (instance == null && !loadingInitiated) {
     		instance = new SyzygyTBProbing();
-    		if (!instance.loadNativeLibrary()) {
-    			instance = null;
+    		instance.nativeLibraryLoaded = instance.loadNativeLibrary();
+    		if (!instance.nativeLibraryLoaded) {
+    			System.out.println("Syzygy tablebases will be probed by the java implementation");
     		}
     		loadingInitiated = true;
     	}
@@ -56,16 +74,26 @@ public class SyzygyTBProbing {
     }
     
     public final void load(String path) {
-    	SyzygyBridge.load(path);
+    	if (nativeLibraryLoaded) {
+    		SyzygyBridge.load(path);
+    	} else {
+    		SyzygyTablebases.load(path);
+    	}
+    }
+    
+    
+    public boolean isNativeLibraryLoaded() {
+    	return nativeLibraryLoaded;
     }
     
+    
     /**
      * wrapper for {@link com.winkelhagen.chess.syzygy.SyzygyBridge#isAvailable(int)}
      * @param piecesLeft the number of pieces left on the board
      * @return true iff there is a Syzygy result to be expected, given the number of pieces currently on the board
      */
     public boolean isAvailable(int piecesLeft){
-        return SyzygyBridge.isAvailable(piecesLeft);
+        return nativeLibraryLoaded ? SyzygyBridge.isAvailable(piecesLeft) : SyzygyTablebases.isAvailable(piecesLeft);
     }
     
     
@@ -75,22 +103,39 @@ public class SyzygyTBProbing {
      * @return a WDL result (see {@link #getWDLScore(int, int)})
      */
     public int probeWDL(IBitBoard board){
-        if (board.hasRightsToKingCastle(Constants.COLOUR_WHITE) || board.hasRightsToQueenCastle(Constants.COLOUR_WHITE)
-        		|| board.hasRightsToKingCastle(Constants.COLOUR_BLACK) || board.hasRightsToQueenCastle(Constants.COLOUR_BLACK)){
+        if (hasCastlingRights(board)){
             return -1;
         }
-        return SyzygyBridge.probeSyzygyWDL(
-        		convertBB(board.getFiguresBitboardByColour(Constants.COLOUR_WHITE)),
-        		convertBB(board.getFiguresBitboardByColour(Constants.COLOUR_BLACK)),
-        		convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_WHITE, Constants.TYPE_KING)) | convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_BLACK, Constants.TYPE_KING)),
-        		convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_WHITE, Constants.TYPE_QUEEN)) | convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_BLACK, Constants.TYPE_QUEEN)),
-        		convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_WHITE, Constants.TYPE_ROOK)) | convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_BLACK, Constants.TYPE_ROOK)),
-        		convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_WHITE, Constants.TYPE_BISHOP)) | convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_BLACK, Constants.TYPE_BISHOP)),
-        		convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_WHITE, Constants.TYPE_KNIGHT)) | convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_BLACK, Constants.TYPE_KNIGHT)),
-        		convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_WHITE, Constants.TYPE_PAWN)) | convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_BLACK, Constants.TYPE_PAWN)),
-                0,//board.getEpSquare()==-1?0:board.getEpSquare(),
-                board.getColourToMove() == Constants.COLOUR_WHITE
-        );
+        
+        long key = board.getHashKey();
+        long entry = cache_wdl.get(key);
+        if (entry != 0) {
+            return (int) entry;
+        }
+        
+        long white = convertBB(board.getFiguresBitboardByColour(Constants.COLOUR_WHITE));
+        long black = convertBB(board.getFiguresBitboardByColour(Constants.COLOUR_BLACK));
+        long kings = getPiecesBitboard(board, Constants.TYPE_KING);
+        long queens = getPiecesBitboard(board, Constants.TYPE_QUEEN);
+        long rooks = getPiecesBitboard(board, Constants.TYPE_ROOK);
+        long bishops = getPiecesBitboard(board, Constants.TYPE_BISHOP);
+        long knights = getPiecesBitboard(board, Constants.TYPE_KNIGHT);
+        long pawns = getPiecesBitboard(board, Constants.TYPE_PAWN);
+        boolean whiteToMove = board.getColourToMove() == Constants.COLOUR_WHITE;
+        
+        long startTime = System.nanoTime();
+        int result;
+        if (nativeLibraryLoaded) {
+            result = SyzygyBridge.probeSyzygyWDL(white, black, kings, queens, rooks, bishops, knights, pawns,
+                    0,//board.getEpSquare()==-1?0:board.getEpSquare(),
+                    whiteToMove
+            );
+        } else {
+            result = SyzygyTablebases.probeSyzygyWDL(white, black, kings, queens, rooks, bishops, knights, pawns, 0, whiteToMove);
+        }
+        cache_wdl.put(key, result, System.nanoTime() - startTime);
+        
+        return result;
     }
     
 
@@ -100,24 +145,56 @@ public class SyzygyTBProbing {
      * @param board the FrankWalter board representation
      * @return a WDL result (see {@link #toXBoardScore(int)} and {@link #toMove(int)})
      */
-    public synchronized int probeDTZ(IBitBoard board){
-        if (board.hasRightsToKingCastle(Constants.COLOUR_WHITE) || board.hasRightsToQueenCastle(Constants.COLOUR_WHITE)
-        		|| board.hasRightsToKingCastle(Constants.COLOUR_BLACK) || board.hasRightsToQueenCastle(Constants.COLOUR_BLACK)){
+    public int probeDTZ(IBitBoard board){
+        if (hasCastlingRights(board)){
             return -1;
         }
-        return SyzygyBridge.probeSyzygyDTZ(
-        		convertBB(board.getFiguresBitboardByColour(Constants.COLOUR_WHITE)),
-        		convertBB(board.getFiguresBitboardByColour(Constants.COLOUR_BLACK)),
-        		convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_WHITE, Constants.TYPE_KING)) | convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_BLACK, Constants.TYPE_KING)),
-        		convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_WHITE, Constants.TYPE_QUEEN)) | convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_BLACK, Constants.TYPE_QUEEN)),
-        		convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_WHITE, Constants.TYPE_ROOK)) | convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_BLACK, Constants.TYPE_ROOK)),
-        		convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_WHITE, Constants.TYPE_BISHOP)) | convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_BLACK, Constants.TYPE_BISHOP)),
-        		convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_WHITE, Constants.TYPE_KNIGHT)) | convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_BLACK, Constants.TYPE_KNIGHT)),
-        		convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_WHITE, Constants.TYPE_PAWN)) | convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_BLACK, Constants.TYPE_PAWN)),
-                board.getDraw50movesRule(),
-                0,//board.getEpSquare()==-1?0:board.getEpSquare(),
-                board.getColourToMove() == Constants.COLOUR_WHITE
-        );
+        
+        //The DTZ result depends on the 50 moves counter
+        long key = board.getHashKey() ^ (board.getDraw50movesRule() * RULE50_KEY_MULTIPLIER);
+        long entry = cache_dtz.get(key);
+        if (entry != 0) {
+            return (int) entry;
+        }
+        
+        long white = convertBB(board.getFiguresBitboardByColour(Constants.COLOUR_WHITE));
+        long black = convertBB(board.getFiguresBitboardByColour(Constants.COLOUR_BLACK));
+        long kings = getPiecesBitboard(board, Constants.TYPE_KING);
+        long queens = getPiecesBitboard(board, Constants.TYPE_QUEEN);
+        long rooks = getPiecesBitboard(board, Constants.TYPE_ROOK);
+        long bishops = getPiecesBitboard(board, Constants.TYPE_BISHOP);
+        long knights = getPiecesBitboard(board, Constants.TYPE_KNIGHT);
+        long pawns = getPiecesBitboard(board, Constants.TYPE_PAWN);
+        boolean whiteToMove = board.getColourToMove() == Constants.COLOUR_WHITE;
+        
+        long startTime = System.nanoTime();
+        int result;
+        if (nativeLibraryLoaded) {
+            synchronized (native_dtz_lock) {
+                result = SyzygyBridge.probeSyzygyDTZ(white, black, kings, queens, rooks, bishops, knights, pawns,
+                        board.getDraw50movesRule(),
+                        0,//board.getEpSquare()==-1?0:board.getEpSquare(),
+                        whiteToMove
+                );
+            }
+        } else {
+            //The java implementation keeps its state per thread
+            result = SyzygyTablebases.probeSyzygyDTZ(white, black, kings, queens, rooks, bishops, knights, pawns,
+                    board.getDraw50movesRule(), 0, whiteToMove);
+        }
+        cache_dtz.put(key, result, System.nanoTime() - startTime);
+        
+        return result;
+    }
+    
+    
+    public SyzygyTBCache getWDLCache() {
+        return cache_wdl;
+    }
+    
+    
+    public SyzygyTBCache getDTZCache() {
+        return cache_dtz;
     }
 
 
@@ -165,7 +242,7 @@ public class SyzygyTBProbing {
      * @param depth the depth of the current search
      * @return the score associated with this position
      */
-    public synchronized int getWDLScore(int wdl, int depth) {
+    public int getWDLScore(int wdl, int depth) {
         switch (wdl){
             case SyzygyConstants.TB_LOSS:
                 return -28000 + depth;
@@ -185,4 +262,16 @@ public class SyzygyTBProbing {
 	private static long convertBB(long figures) {
 		return figures;
 	}
+	
+	
+	private static long getPiecesBitboard(IBitBoard board, int type) {
+		return convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_WHITE, type))
+				| convertBB(board.getFiguresBitboardByColourAndType(Constants.COLOUR_BLACK, type));
+	}
+	
+	
+	private static boolean hasCastlingRights(IBitBoard board) {
+		return board.hasRightsToKingCastle(Constants.COLOUR_WHITE) || board.hasRightsToQueenCastle(Constants.COLOUR_WHITE)
+        		|| board.hasRightsToKingCastle(Constants.COLOUR_BLACK) || board.hasRightsToQueenCastle(Constants.COLOUR_BLACK);
+	}
 }
\ No newline at end of file
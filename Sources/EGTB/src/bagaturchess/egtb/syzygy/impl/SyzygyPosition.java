@@ -0,0 +1,415 @@
+package bagaturchess.egtb.syzygy.impl;
+
+
+/**
+ * Minimal copy-make position used while probing, with pseudo legal moves generation.
+ * The squares are the bit indexes of the bitboards, the white pawns move towards the higher bits.
+ * A move is encoded as from | to << 6 | promotes << 12, the same way as in the results of the DTZ probing.
+ */
+final class SyzygyPosition {
+	
+	
+	static final int TYPE_NONE = 0;
+	static final int TYPE_PAWN = 1;
+	static final int TYPE_KNIGHT = 2;
+	static final int TYPE_BISHOP = 3;
+	static final int TYPE_ROOK = 4;
+	static final int TYPE_QUEEN = 5;
+	static final int TYPE_KING = 6;
+	
+	static final int PROMOTES_NONE = 0;
+	static final int PROMOTES_QUEEN = 1;
+	static final int PROMOTES_ROOK = 2;
+	static final int PROMOTES_BISHOP = 3;
+	static final int PROMOTES_KNIGHT = 4;
+	
+	//Indexed by the promotes part of the move
+	private static final int[] PROMOTION_TYPES = new int[] {TYPE_NONE, TYPE_QUEEN, TYPE_ROOK, TYPE_BISHOP, TYPE_KNIGHT};
+	
+	private static final long[] KNIGHT_ATTACKS = new long[64];
+	private static final long[] KING_ATTACKS = new long[64];
+	//[0 - white, 1 - black][square]
+	private static final long[][] PAWN_ATTACKS = new long[2][64];
+	
+	//The first 4 directions go to higher squares, the last 4 to lower ones
+	private static final int[][] DIRECTIONS = new int[][] {{1, 0}, {0, 1}, {1, 1}, {-1, 1}, {-1, 0}, {0, -1}, {-1, -1}, {1, -1}};
+	//[direction][square], the squares on the empty board
+	private static final long[][] RAYS = new long[8][64];
+	
+	private static final long[] ROOK_ATTACKS_EMPTY = new long[64];
+	private static final long[] BISHOP_ATTACKS_EMPTY = new long[64];
+	
+	
+	static {
+		int[][] knight_steps = new int[][] {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+		for (int square = 0; square < 64; square++) {
+			for (int i = 0; i < knight_steps.length; i++) {
+				KNIGHT_ATTACKS[square] |= getBit(square, knight_steps[i][0], knight_steps[i][1]);
+			}
+			for (int file_delta = -1; file_delta <= 1; file_delta++) {
+				for (int rank_delta = -1; rank_delta <= 1; rank_delta++) {
+					if (file_delta != 0 || rank_delta != 0) {
+						KING_ATTACKS[square] |= getBit(square, file_delta, rank_delta);
+					}
+				}
+			}
+			PAWN_ATTACKS[0][square] = getBit(square, -1, 1) | getBit(square, 1, 1);
+			PAWN_ATTACKS[1][square] = getBit(square, -1, -1) | getBit(square, 1, -1);
+			for (int dir = 0; dir < DIRECTIONS.length; dir++) {
+				for (int distance = 1; distance < 8; distance++) {
+					RAYS[dir][square] |= getBit(square, distance * DIRECTIONS[dir][0], distance * DIRECTIONS[dir][1]);
+				}
+			}
+			ROOK_ATTACKS_EMPTY[square] = RAYS[0][square] | RAYS[1][square] | RAYS[4][square] | RAYS[5][square];
+			BISHOP_ATTACKS_EMPTY[square] = RAYS[2][square] | RAYS[3][square] | RAYS[6][square] | RAYS[7][square];
+		}
+	}
+	
+	
+	long white;
+	long black;
+	long kings;
+	long queens;
+	long rooks;
+	long bishops;
+	long knights;
+	long pawns;
+	
+	//The en passant square or 0 if there is no en passant capture
+	int ep;
+	int rule50;
+	boolean whiteToMove;
+	
+	
+	void set(long _white, long _black, long _kings, long _queens, long _rooks, long _bishops, long _knights, long _pawns,
+			int _rule50, int _ep, boolean _whiteToMove) {
+		white = _white;
+		black = _black;
+		kings = _kings;
+		queens = _queens;
+		rooks = _rooks;
+		bishops = _bishops;
+		knights = _knights;
+		pawns = _pawns;
+		rule50 = _rule50;
+		ep = _ep;
+		whiteToMove = _whiteToMove;
+	}
+	
+	
+	void set(SyzygyPosition other) {
+		set(other.white, other.black, other.kings, other.queens, other.rooks, other.bishops, other.knights, other.pawns,
+				other.rule50, other.ep, other.whiteToMove);
+	}
+	
+	
+	long getOccupied() {
+		return white | black;
+	}
+	
+	
+	long getPieces(boolean whiteColour, int type) {
+		return (whiteColour ? white : black) & getPiecesByType(type);
+	}
+	
+	
+	long getPiecesByType(int type) {
+		switch (type) {
+			case TYPE_PAWN: return pawns;
+			case TYPE_KNIGHT: return knights;
+			case TYPE_BISHOP: return bishops;
+			case TYPE_ROOK: return rooks;
+			case TYPE_QUEEN: return queens;
+			case TYPE_KING: return kings;
+			default: throw new IllegalStateException("type=" + type);
+		}
+	}
+	
+	
+	int getType(int square) {
+		long bit = 1L << square;
+		if ((pawns & bit) != 0) return TYPE_PAWN;
+		if ((knights & bit) != 0) return TYPE_KNIGHT;
+		if ((bishops & bit) != 0) return TYPE_BISHOP;
+		if ((rooks & bit) != 0) return TYPE_ROOK;
+		if ((queens & bit) != 0) return TYPE_QUEEN;
+		if ((kings & bit) != 0) return TYPE_KING;
+		return TYPE_NONE;
+	}
+	
+	
+	/**
+	 * @return the piece on the square, encoded as in the tables: the type plus 8 for black pieces
+	 */
+	int getPiece(int square) {
+		return getType(square) | ((black & (1L << square)) != 0 ? 8 : 0);
+	}
+	
+	
+	boolean isCapture(int move) {
+		int to = getTo(move);
+		long them = whiteToMove ? black : white;
+		return (them & (1L << to)) != 0 || isEnpassant(move);
+	}
+	
+	
+	boolean isEnpassant(int move) {
+		return ep != 0 && getTo(move) == ep && (pawns & (1L << getFrom(move))) != 0;
+	}
+	
+	
+	boolean isPawnMove(int move) {
+		return (pawns & (1L << getFrom(move))) != 0;
+	}
+	
+	
+	boolean isInCheck() {
+		long us = whiteToMove ? white : black;
+		return isAttacked(Long.numberOfTrailingZeros(kings & us), !whiteToMove);
+	}
+	
+	
+	/**
+	 * Generates all pseudo legal moves, the positions in the tablebases have no castling rights.
+	 * @return the count of the moves
+	 */
+	int generateMoves(int[] moves) {
+		
+		int count = 0;
+		
+		long us = whiteToMove ? white : black;
+		long them = whiteToMove ? black : white;
+		long occupied = white | black;
+		
+		long pieces = us & ~pawns;
+		while (pieces != 0) {
+			int from = Long.numberOfTrailingZeros(pieces);
+			long targets = getAttacks(from, getType(from), occupied) & ~us;
+			while (targets != 0) {
+				moves[count++] = createMove(from, Long.numberOfTrailingZeros(targets), PROMOTES_NONE);
+				targets &= targets - 1;
+			}
+			pieces &= pieces - 1;
+		}
+		
+		int colour = whiteToMove ? 0 : 1;
+		int push = whiteToMove ? 8 : -8;
+		int startRank = whiteToMove ? 1 : 6;
+		int promotionRank = whiteToMove ? 7 : 0;
+		
+		long ourPawns = us & pawns;
+		while (ourPawns != 0) {
+			int from = Long.numberOfTrailingZeros(ourPawns);
+			
+			long targets = PAWN_ATTACKS[colour][from] & them;
+			if (ep != 0 && (PAWN_ATTACKS[colour][from] & (1L << ep)) != 0) {
+				targets |= 1L << ep;
+			}
+			int to = from + push;
+			if ((occupied & (1L << to)) == 0) {
+				targets |= 1L << to;
+				if ((from >>> 3) == startRank && (occupied & (1L << (to + push))) == 0) {
+					targets |= 1L << (to + push);
+				}
+			}
+			
+			while (targets != 0) {
+				to = Long.numberOfTrailingZeros(targets);
+				if ((to >>> 3) == promotionRank) {
+					moves[count++] = createMove(from, to, PROMOTES_QUEEN);
+					moves[count++] = createMove(from, to, PROMOTES_ROOK);
+					moves[count++] = createMove(from, to, PROMOTES_BISHOP);
+					moves[count++] = createMove(from, to, PROMOTES_KNIGHT);
+				} else {
+					moves[count++] = createMove(from, to, PROMOTES_NONE);
+				}
+				targets &= targets - 1;
+			}
+			
+			ourPawns &= ourPawns - 1;
+		}
+		
+		return count;
+	}
+	
+	
+	/**
+	 * Makes the move from the given position into this one.
+	 * @return false if the move is not legal, i.e. leaves the king of the moving side in check
+	 */
+	boolean makeMove(SyzygyPosition from_position, int move) {
+		
+		set(from_position);
+		
+		int from = getFrom(move);
+		int to = getTo(move);
+		long from_bit = 1L << from;
+		long to_bit = 1L << to;
+		
+		boolean capture = ((white | black) & to_bit) != 0;
+		int type = getType(from);
+		
+		if (capture) {
+			removePiece(to_bit);
+		}
+		
+		removePiece(from_bit);
+		
+		if (type == TYPE_PAWN) {
+			
+			rule50 = 0;
+			
+			if (from_position.ep != 0 && to == from_position.ep) {
+				removePiece(1L << (whiteToMove ? to - 8 : to + 8));
+			}
+			
+			int promotes = getPromotes(move);
+			if (promotes != PROMOTES_NONE) {
+				type = PROMOTION_TYPES[promotes];
+			}
+			
+		} else if (capture) {
+			rule50 = 0;
+		} else {
+			rule50++;
+		}
+		
+		addPiece(to_bit, type, whiteToMove);
+		
+		ep = 0;
+		if (type == TYPE_PAWN && (from ^ to) == 16) {
+			int ep_square = (from + to) >>> 1;
+			long theirPawns = pawns & (whiteToMove ? black : white);
+			if ((PAWN_ATTACKS[whiteToMove ? 0 : 1][ep_square] & theirPawns) != 0) {
+				ep = ep_square;
+			}
+		}
+		
+		whiteToMove = !whiteToMove;
+		
+		long mover = whiteToMove ? black : white;
+		return !isAttacked(Long.numberOfTrailingZeros(kings & mover), whiteToMove);
+	}
+	
+	
+	/**
+	 * @return true if the square is attacked by the pieces of the given side
+	 */
+	boolean isAttacked(int square, boolean byWhite) {
+		
+		long attackers = byWhite ? white : black;
+		long occupied = white | black;
+		
+		if ((KNIGHT_ATTACKS[square] & knights & attackers) != 0) return true;
+		if ((KING_ATTACKS[square] & kings & attackers) != 0) return true;
+		//A pawn of the attacker attacks the square if a pawn of the other side on the square would attack the pawn
+		if ((PAWN_ATTACKS[byWhite ? 1 : 0][square] & pawns & attackers) != 0) return true;
+		
+		//The sliding attacks are calculated only if there is a slider on the same line
+		long rooksQueens = (rooks | queens) & attackers;
+		if ((ROOK_ATTACKS_EMPTY[square] & rooksQueens) != 0 && (getRookAttacks(square, occupied) & rooksQueens) != 0) return true;
+		long bishopsQueens = (bishops | queens) & attackers;
+		if ((BISHOP_ATTACKS_EMPTY[square] & bishopsQueens) != 0 && (getBishopAttacks(square, occupied) & bishopsQueens) != 0) return true;
+		
+		return false;
+	}
+	
+	
+	static int createMove(int from, int to, int promotes) {
+		return from | (to << 6) | (promotes << 12);
+	}
+	
+	
+	static int getFrom(int move) {
+		return move & 63;
+	}
+	
+	
+	static int getTo(int move) {
+		return (move >>> 6) & 63;
+	}
+	
+	
+	static int getPromotes(int move) {
+		return (move >>> 12) & 7;
+	}
+	
+	
+	private void removePiece(long bit) {
+		long mask = ~bit;
+		white &= mask;
+		black &= mask;
+		kings &= mask;
+		queens &= mask;
+		rooks &= mask;
+		bishops &= mask;
+		knights &= mask;
+		pawns &= mask;
+	}
+	
+	
+	private void addPiece(long bit, int type, boolean whiteColour) {
+		if (whiteColour) {
+			white |= bit;
+		} else {
+			black |= bit;
+		}
+		switch (type) {
+			case TYPE_PAWN: pawns |= bit; break;
+			case TYPE_KNIGHT: knights |= bit; break;
+			case TYPE_BISHOP: bishops |= bit; break;
+			case TYPE_ROOK: rooks |= bit; break;
+			case TYPE_QUEEN: queens |= bit; break;
+			case TYPE_KING: kings |= bit; break;
+			default: throw new IllegalStateException("type=" + type);
+		}
+	}
+	
+	
+	private static long getAttacks(int square, int type, long occupied) {
+		switch (type) {
+			case TYPE_KNIGHT: return KNIGHT_ATTACKS[square];
+			case TYPE_BISHOP: return getBishopAttacks(square, occupied);
+			case TYPE_ROOK: return getRookAttacks(square, occupied);
+			case TYPE_QUEEN: return getBishopAttacks(square, occupied) | getRookAttacks(square, occupied);
+			case TYPE_KING: return KING_ATTACKS[square];
+			default: throw new IllegalStateException("type=" + type);
+		}
+	}
+	
+	
+	private static long getRookAttacks(int square, long occupied) {
+		return getRayAttacks(0, square, occupied) | getRayAttacks(1, square, occupied)
+				| getRayAttacks(4, square, occupied) | getRayAttacks(5, square, occupied);
+	}
+	
+	
+	private static long getBishopAttacks(int square, long occupied) {
+		return getRayAttacks(2, square, occupied) | getRayAttacks(3, square, occupied)
+				| getRayAttacks(6, square, occupied) | getRayAttacks(7, square, occupied);
+	}
+	
+	
+	/**
+	 * The ray stops at the first blocker, which is the nearest one in the direction of the ray.
+	 */
+	private static long getRayAttacks(int dir, int square, long occupied) {
+		long ray = RAYS[dir][square];
+		long blockers = ray & occupied;
+		if (blockers == 0) {
+			return ray;
+		}
+		int blocker = dir < 4 ? Long.numberOfTrailingZeros(blockers) : 63 - Long.numberOfLeadingZeros(blockers);
+		return ray ^ RAYS[dir][blocker];
+	}
+	
+	
+	private static long getBit(int square, int file_delta, int rank_delta) {
+		int file = (square & 7) + file_delta;
+		int rank = (square >>> 3) + rank_delta;
+		if (file < 0 || file > 7 || rank < 0 || rank > 7) {
+			return 0;
+		}
+		return 1L << (file + 8 * rank);
+	}
+}
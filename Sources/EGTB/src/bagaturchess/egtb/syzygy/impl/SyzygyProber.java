@@ -0,0 +1,391 @@
+package bagaturchess.egtb.syzygy.impl;
+
+
+import bagaturchess.egtb.syzygy.SyzygyConstants;
+
+
+/**
+ * Probes the tables for the positions of one thread.
+ * The positions and the move lists of the nested probes are preallocated, one per ply.
+ */
+final class SyzygyProber {
+	
+	
+	private static final int MAX_PLY = 64;
+	private static final int MAX_MOVES = 256;
+	
+	private static final int RESULT_FAILED = 0xFFFFFFFF;
+	private static final int RESULT_CHECKMATE = SyzygyConstants.TB_WIN << SyzygyConstants.TB_RESULT_WDL_SHIFT;
+	private static final int RESULT_STALEMATE = SyzygyConstants.TB_DRAW << SyzygyConstants.TB_RESULT_WDL_SHIFT;
+	private static final int RESULT_EP_BIT = 1 << 19;
+	
+	private static final int[] WDL_TO_DTZ = new int[] {-1, -101, 0, 101, 1};
+	
+	
+	private final SyzygyPosition[] positions = new SyzygyPosition[MAX_PLY];
+	private final int[][] moves = new int[MAX_PLY][MAX_MOVES];
+	private final int[] scores = new int[MAX_MOVES];
+	
+	private final int[] state = new int[1];
+	
+	//Buffers of the table probes
+	private final int[] squares = new int[SyzygyTable.MAX_PIECES];
+	private final int[] pieces = new int[SyzygyTable.MAX_PIECES];
+	
+	
+	SyzygyProber() {
+		for (int i = 0; i < MAX_PLY; i++) {
+			positions[i] = new SyzygyPosition();
+		}
+	}
+	
+	
+	SyzygyPosition getRootPosition() {
+		return positions[0];
+	}
+	
+	
+	/**
+	 * @return the WDL value of the root position, shifted to 0 .. 4, or the failed result
+	 */
+	int probeWDL() {
+		state[0] = SyzygyTable.PROBE_OK;
+		int wdl = search(0);
+		return state[0] == SyzygyTable.PROBE_FAIL ? RESULT_FAILED : wdl + 2;
+	}
+	
+	
+	/**
+	 * Same as the root probe of Fathom: the DTZ of the root position together with the best move to play.
+	 * Of the drawing moves the first one is returned.
+	 */
+	int probeRoot() {
+		
+		SyzygyPosition pos = positions[0];
+		
+		int dtz = probeDTZ(0);
+		if (state[0] == SyzygyTable.PROBE_FAIL) {
+			return RESULT_FAILED;
+		}
+		
+		int[] list = moves[0];
+		int count = pos.generateMoves(list);
+		int drawsCount = 0;
+		
+		SyzygyPosition next = positions[1];
+		for (int i = 0; i < count; i++) {
+			
+			if (!next.makeMove(pos, list[i])) {
+				scores[i] = Integer.MIN_VALUE;
+				continue;
+			}
+			
+			int v;
+			if (dtz > 0 && next.isInCheck() && !hasLegalMove(1)) {
+				v = 1;
+			} else if (next.rule50 != 0) {
+				v = -probeDTZ(1);
+				if (v > 0) {
+					v++;
+				} else if (v < 0) {
+					v--;
+				}
+			} else {
+				state[0] = SyzygyTable.PROBE_OK;
+				v = WDL_TO_DTZ[-search(1) + 2];
+			}
+			
+			if (state[0] == SyzygyTable.PROBE_FAIL) {
+				return RESULT_FAILED;
+			}
+			
+			if (v == 0) {
+				drawsCount++;
+			}
+			scores[i] = v;
+		}
+		
+		int best_index = -1;
+		
+		if (dtz > 0) {
+			int best = Integer.MAX_VALUE;
+			for (int i = 0; i < count; i++) {
+				int v = scores[i];
+				if (v != Integer.MIN_VALUE && v > 0 && v < best) {
+					best = v;
+					best_index = i;
+				}
+			}
+		} else if (dtz < 0) {
+			int best = 0;
+			for (int i = 0; i < count; i++) {
+				int v = scores[i];
+				if (v != Integer.MIN_VALUE && v < best) {
+					best = v;
+					best_index = i;
+				}
+			}
+			if (best_index == -1) {
+				return RESULT_CHECKMATE;
+			}
+		} else {
+			if (drawsCount == 0) {
+				return RESULT_STALEMATE;
+			}
+			for (int i = 0; i < count; i++) {
+				if (scores[i] == 0) {
+					best_index = i;
+					break;
+				}
+			}
+		}
+		
+		if (best_index == -1) {
+			return RESULT_FAILED;
+		}
+		
+		int move = list[best_index];
+		
+		int result = toWDL(pos.rule50, dtz) << SyzygyConstants.TB_RESULT_WDL_SHIFT;
+		result |= Math.abs(dtz) << SyzygyConstants.TB_RESULT_DTZ_SHIFT;
+		result |= SyzygyPosition.getFrom(move) << SyzygyConstants.TB_RESULT_FROM_SHIFT;
+		result |= SyzygyPosition.getTo(move) << SyzygyConstants.TB_RESULT_TO_SHIFT;
+		result |= SyzygyPosition.getPromotes(move) << SyzygyConstants.TB_RESULT_PROMOTES_SHIFT;
+		if (pos.isEnpassant(move)) {
+			result |= RESULT_EP_BIT;
+		}
+		
+		return result;
+	}
+	
+	
+	private static int toWDL(int rule50, int dtz) {
+		if (dtz > 0) {
+			return dtz + rule50 <= 100 ? SyzygyConstants.TB_WIN : SyzygyConstants.TB_CURSED_WIN;
+		} else if (dtz < 0) {
+			return -dtz + rule50 <= 100 ? SyzygyConstants.TB_LOSS : SyzygyConstants.TB_BLESSED_LOSS;
+		}
+		return SyzygyConstants.TB_DRAW;
+	}
+	
+	
+	/**
+	 * The tables do not store the positions with en passant rights and
+	 * the best move may be a capture, so the captures are searched before the table is probed.
+	 * The state becomes PROBE_ZEROING_BEST_MOVE if the best move is a capture.
+	 */
+	private int search(int ply) {
+		
+		SyzygyPosition pos = positions[ply];
+		SyzygyPosition next = positions[ply + 1];
+		int[] list = moves[ply];
+		
+		int count = pos.generateMoves(list);
+		int legalCount = 0;
+		int searchedCount = 0;
+		int best = SyzygyTable.WDL_LOSS;
+		
+		for (int i = 0; i < count; i++) {
+			
+			int move = list[i];
+			boolean capture = pos.isCapture(move);
+			
+			if (!next.makeMove(pos, move)) {
+				continue;
+			}
+			
+			legalCount++;
+			
+			if (!capture) {
+				continue;
+			}
+			
+			searchedCount++;
+			
+			int value = -search(ply + 1);
+			
+			if (state[0] == SyzygyTable.PROBE_FAIL) {
+				return SyzygyTable.WDL_DRAW;
+			}
+			
+			if (value > best) {
+				best = value;
+				if (value >= SyzygyTable.WDL_WIN) {
+					state[0] = SyzygyTable.PROBE_ZEROING_BEST_MOVE;
+					return value;
+				}
+			}
+		}
+		
+		//All the legal moves are already searched, the table value may be wrong in this case
+		boolean noMoreMoves = searchedCount != 0 && searchedCount == legalCount;
+		
+		int value;
+		if (noMoreMoves) {
+			value = best;
+		} else {
+			value = probeTable(pos, false, 0);
+			if (state[0] == SyzygyTable.PROBE_FAIL) {
+				return SyzygyTable.WDL_DRAW;
+			}
+		}
+		
+		//The DTZ tables store a "don't care" value if the best value is a win
+		if (best >= value) {
+			state[0] = (best > SyzygyTable.WDL_DRAW || noMoreMoves) ? SyzygyTable.PROBE_ZEROING_BEST_MOVE : SyzygyTable.PROBE_OK;
+			return best;
+		}
+		
+		state[0] = SyzygyTable.PROBE_OK;
+		return value;
+	}
+	
+	
+	/**
+	 * @return the DTZ value in plies, positive for the winning side and with 100 added for the cursed wins and blessed losses
+	 */
+	private int probeDTZ(int ply) {
+		
+		state[0] = SyzygyTable.PROBE_OK;
+		int wdl = search(ply);
+		
+		//The DTZ tables do not store draws
+		if (state[0] == SyzygyTable.PROBE_FAIL || wdl == SyzygyTable.WDL_DRAW) {
+			return 0;
+		}
+		
+		//The DTZ table stores a "don't care" value in this case
+		if (state[0] == SyzygyTable.PROBE_ZEROING_BEST_MOVE) {
+			return getDTZBeforeZeroing(wdl);
+		}
+		
+		SyzygyPosition pos = positions[ply];
+		SyzygyPosition next = positions[ply + 1];
+		int[] list = moves[ply];
+		
+		//The pawn moves are searched only if winning, as in Fathom, so that less tables are needed for the draws
+		if (wdl > 0) {
+			int count = pos.generateMoves(list);
+			for (int i = 0; i < count; i++) {
+				
+				int move = list[i];
+				if (!pos.isPawnMove(move) || pos.isCapture(move) || !next.makeMove(pos, move)) {
+					continue;
+				}
+				
+				state[0] = SyzygyTable.PROBE_OK;
+				int value = -search(ply + 1);
+				
+				if (state[0] == SyzygyTable.PROBE_FAIL) {
+					return 0;
+				}
+				
+				if (value == wdl) {
+					return getDTZBeforeZeroing(wdl);
+				}
+			}
+		}
+		
+		int dtz = probeTable(pos, true, wdl);
+		if (state[0] == SyzygyTable.PROBE_FAIL) {
+			return 0;
+		}
+		
+		if (state[0] != SyzygyTable.PROBE_CHANGE_STM) {
+			boolean cursed = wdl == SyzygyTable.WDL_BLESSED_LOSS || wdl == SyzygyTable.WDL_CURSED_WIN;
+			return (dtz + (cursed ? 100 : 0)) * Integer.signum(wdl);
+		}
+		
+		//The table stores the other side to move, so the best move is found with 1 ply search
+		int count = pos.generateMoves(list);
+		int minDTZ = 0xFFFF;
+		
+		for (int i = 0; i < count; i++) {
+			
+			int move = list[i];
+			boolean zeroing = pos.isCapture(move) || pos.isPawnMove(move);
+			
+			if (!next.makeMove(pos, move)) {
+				continue;
+			}
+			
+			//For the zeroing moves the DTZ is the one before the move
+			if (zeroing) {
+				state[0] = SyzygyTable.PROBE_OK;
+				dtz = -getDTZBeforeZeroing(search(ply + 1));
+			} else {
+				dtz = -probeDTZ(ply + 1);
+			}
+			
+			if (state[0] == SyzygyTable.PROBE_FAIL) {
+				return 0;
+			}
+			
+			if (dtz == 1 && next.isInCheck() && !hasLegalMove(ply + 1)) {
+				minDTZ = 1;
+			}
+			
+			if (!zeroing) {
+				dtz += Integer.signum(dtz);
+			}
+			
+			//Skip the draws and if winning pick only the positive DTZ values
+			if (dtz < minDTZ && Integer.signum(dtz) == Integer.signum(wdl)) {
+				minDTZ = dtz;
+			}
+		}
+		
+		state[0] = SyzygyTable.PROBE_OK;
+		
+		//Without legal moves the position is mate
+		return minDTZ == 0xFFFF ? -1 : minDTZ;
+	}
+	
+	
+	private static int getDTZBeforeZeroing(int wdl) {
+		switch (wdl) {
+			case SyzygyTable.WDL_WIN: return 1;
+			case SyzygyTable.WDL_CURSED_WIN: return 101;
+			case SyzygyTable.WDL_BLESSED_LOSS: return -101;
+			case SyzygyTable.WDL_LOSS: return -1;
+			default: return 0;
+		}
+	}
+	
+	
+	private boolean hasLegalMove(int ply) {
+		
+		SyzygyPosition pos = positions[ply];
+		SyzygyPosition next = positions[ply + 1];
+		int[] list = moves[ply];
+		
+		int count = pos.generateMoves(list);
+		for (int i = 0; i < count; i++) {
+			if (next.makeMove(pos, list[i])) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	
+	private int probeTable(SyzygyPosition pos, boolean dtz, int wdl) {
+		
+		//Only the two kings or a minor piece left, these are draws and the 3 pieces tables may be missing
+		int piecesCount = Long.bitCount(pos.getOccupied());
+		if (piecesCount == 2 || (piecesCount == 3 && (pos.bishops | pos.knights) != 0)) {
+			state[0] = SyzygyTable.PROBE_OK;
+			return SyzygyTable.WDL_DRAW;
+		}
+		
+		SyzygyTablebases.Registry registry = SyzygyTablebases.getRegistry();
+		SyzygyTable table = registry == null ? null : registry.get(SyzygyTable.getMaterialKey(pos), dtz);
+		if (table == null) {
+			state[0] = SyzygyTable.PROBE_FAIL;
+			return 0;
+		}
+		
+		return table.probe(pos, wdl, state, squares, pieces);
+	}
+}
@@ -0,0 +1,919 @@
+package bagaturchess.egtb.syzygy.impl;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * One Syzygy table file (.rtbw or .rtbz) for a given material.
+ * The file is memory mapped at the first probe and its header is parsed then.
+ * 
+ * The format and the positions encoding follow the original probing code of Ronald de Man,
+ * as found in Stockfish and Fathom.
+ */
+final class SyzygyTable {
+	
+	
+	static final int WDL_LOSS = -2;
+	static final int WDL_BLESSED_LOSS = -1;
+	static final int WDL_DRAW = 0;
+	static final int WDL_CURSED_WIN = 1;
+	static final int WDL_WIN = 2;
+	
+	static final int PROBE_FAIL = 0;
+	static final int PROBE_OK = 1;
+	static final int PROBE_CHANGE_STM = -1;
+	static final int PROBE_ZEROING_BEST_MOVE = 2;
+	
+	static final String EXTENSION_WDL = ".rtbw";
+	static final String EXTENSION_DTZ = ".rtbz";
+	
+	private static final int[] MAGIC_WDL = new int[] {0x71, 0xE8, 0x23, 0x5D};
+	private static final int[] MAGIC_DTZ = new int[] {0xD7, 0x66, 0x0C, 0xA5};
+	
+	private static final int FLAG_STM = 1;
+	private static final int FLAG_MAPPED = 2;
+	private static final int FLAG_WIN_PLIES = 4;
+	private static final int FLAG_LOSS_PLIES = 8;
+	private static final int FLAG_WIDE = 16;
+	private static final int FLAG_SINGLE_VALUE = 128;
+	
+	private static final int[] WDL_MAP = new int[] {1, 3, 0, 2, 0};
+	
+	static final int MAX_PIECES = 7;
+	
+	private static final int[] MAP_PAWNS = new int[64];
+	private static final int[] MAP_B1H1H7 = new int[64];
+	private static final int[] MAP_A1D1D4 = new int[64];
+	private static final int[][] MAP_KK = new int[10][64];
+	private static final long[][] BINOMIAL = new long[MAX_PIECES - 1][64];
+	private static final int[][] LEAD_PAWN_IDX = new int[MAX_PIECES - 1][64];
+	private static final int[][] LEAD_PAWNS_SIZE = new int[MAX_PIECES - 1][4];
+	
+	
+	static {
+		
+		int code = 0;
+		for (int square = 0; square < 64; square++) {
+			if (offA1H8(square) < 0) {
+				MAP_B1H1H7[square] = code++;
+			}
+		}
+		
+		code = 0;
+		int[] diagonal = new int[4];
+		int diagonal_count = 0;
+		for (int square = 0; square <= 27; square++) {
+			if (offA1H8(square) < 0 && (square & 7) <= 3) {
+				MAP_A1D1D4[square] = code++;
+			} else if (offA1H8(square) == 0 && (square & 7) <= 3) {
+				diagonal[diagonal_count++] = square;
+			}
+		}
+		for (int i = 0; i < diagonal_count; i++) {
+			MAP_A1D1D4[diagonal[i]] = code++;
+		}
+		
+		//All the legal placements of two kings with the first one in the a1-d1-d4 triangle
+		int[][] bothOnDiagonal = new int[64][2];
+		int bothOnDiagonal_count = 0;
+		code = 0;
+		for (int idx = 0; idx < 10; idx++) {
+			for (int s1 = 0; s1 <= 27; s1++) {
+				if (MAP_A1D1D4[s1] == idx && (idx != 0 || s1 == 1)) {
+					for (int s2 = 0; s2 < 64; s2++) {
+						if (Math.abs((s1 & 7) - (s2 & 7)) <= 1 && Math.abs((s1 >>> 3) - (s2 >>> 3)) <= 1) {
+							continue;
+						} else if (offA1H8(s1) == 0 && offA1H8(s2) > 0) {
+							continue;
+						} else if (offA1H8(s1) == 0 && offA1H8(s2) == 0) {
+							bothOnDiagonal[bothOnDiagonal_count][0] = idx;
+							bothOnDiagonal[bothOnDiagonal_count][1] = s2;
+							bothOnDiagonal_count++;
+						} else {
+							MAP_KK[idx][s2] = code++;
+						}
+					}
+				}
+			}
+		}
+		for (int i = 0; i < bothOnDiagonal_count; i++) {
+			MAP_KK[bothOnDiagonal[i][0]][bothOnDiagonal[i][1]] = code++;
+		}
+		
+		BINOMIAL[0][0] = 1;
+		for (int n = 1; n < 64; n++) {
+			for (int k = 0; k < MAX_PIECES - 1 && k <= n; k++) {
+				BINOMIAL[k][n] = (k > 0 ? BINOMIAL[k - 1][n - 1] : 0) + (k < n ? BINOMIAL[k][n - 1] : 0);
+			}
+		}
+		
+		int availableSquares = 47;
+		for (int leadPawnsCount = 1; leadPawnsCount < MAX_PIECES - 1; leadPawnsCount++) {
+			for (int file = 0; file < 4; file++) {
+				int idx = 0;
+				for (int rank = 1; rank <= 6; rank++) {
+					int square = file + 8 * rank;
+					if (leadPawnsCount == 1) {
+						MAP_PAWNS[square] = availableSquares--;
+						MAP_PAWNS[square ^ 7] = availableSquares--;
+					}
+					LEAD_PAWN_IDX[leadPawnsCount][square] = idx;
+					idx += BINOMIAL[leadPawnsCount - 1][MAP_PAWNS[square]];
+				}
+				LEAD_PAWNS_SIZE[leadPawnsCount][file] = idx;
+			}
+		}
+	}
+	
+	
+	private final File file;
+	private final boolean dtz;
+	
+	final String name;
+	final long key;
+	final long key2;
+	final int pieceCount;
+	final boolean hasPawns;
+	private final boolean hasUniquePieces;
+	//Pawns of the leading colour and of the other one
+	private final int[] pawnCount = new int[2];
+	
+	private volatile boolean initialized;
+	private boolean ready;
+	
+	private MappedByteBuffer data;
+	//[side to move][file of the leading pawn]
+	private PairsData[][] items;
+	private int mapOffset;
+	
+	
+	SyzygyTable(File _file, String _name, boolean _dtz) {
+		
+		file = _file;
+		name = _name;
+		dtz = _dtz;
+		
+		String[] sides = name.split("v");
+		int[][] counts = new int[2][SyzygyPosition.TYPE_KING + 1];
+		for (int side = 0; side < 2; side++) {
+			for (int i = 0; i < sides[side].length(); i++) {
+				counts[side][getType(sides[side].charAt(i))]++;
+			}
+		}
+		
+		key = getMaterialKey(counts[0], counts[1]);
+		key2 = getMaterialKey(counts[1], counts[0]);
+		
+		int pieces = 0;
+		boolean unique = false;
+		for (int side = 0; side < 2; side++) {
+			for (int type = SyzygyPosition.TYPE_PAWN; type <= SyzygyPosition.TYPE_KING; type++) {
+				pieces += counts[side][type];
+				if (type != SyzygyPosition.TYPE_KING && counts[side][type] == 1) {
+					unique = true;
+				}
+			}
+		}
+		pieceCount = pieces;
+		hasUniquePieces = unique;
+		
+		int whitePawns = counts[0][SyzygyPosition.TYPE_PAWN];
+		int blackPawns = counts[1][SyzygyPosition.TYPE_PAWN];
+		hasPawns = whitePawns + blackPawns > 0;
+		
+		//The leading colour is the side with less pawns, because this leads to better compression
+		boolean whiteLeads = blackPawns == 0 || (whitePawns != 0 && blackPawns >= whitePawns);
+		pawnCount[0] = whiteLeads ? whitePawns : blackPawns;
+		pawnCount[1] = whiteLeads ? blackPawns : whitePawns;
+	}
+	
+	
+	static int getType(char piece) {
+		switch (piece) {
+			case 'P': return SyzygyPosition.TYPE_PAWN;
+			case 'N': return SyzygyPosition.TYPE_KNIGHT;
+			case 'B': return SyzygyPosition.TYPE_BISHOP;
+			case 'R': return SyzygyPosition.TYPE_ROOK;
+			case 'Q': return SyzygyPosition.TYPE_QUEEN;
+			case 'K': return SyzygyPosition.TYPE_KING;
+			default: throw new IllegalArgumentException("piece=" + piece);
+		}
+	}
+	
+	
+	/**
+	 * @return the material key of the pieces counts of both sides, 4 bits per colour and type
+	 */
+	static long getMaterialKey(int[] whiteCounts, int[] blackCounts) {
+		long result = 0;
+		for (int type = SyzygyPosition.TYPE_PAWN; type <= SyzygyPosition.TYPE_KING; type++) {
+			result |= ((long) whiteCounts[type]) << (4 * type);
+			result |= ((long) blackCounts[type]) << (32 + 4 * type);
+		}
+		return result;
+	}
+	
+	
+	static long getMaterialKey(SyzygyPosition pos) {
+		long result = 0;
+		for (int type = SyzygyPosition.TYPE_PAWN; type <= SyzygyPosition.TYPE_KING; type++) {
+			result |= ((long) Long.bitCount(pos.getPieces(true, type))) << (4 * type);
+			result |= ((long) Long.bitCount(pos.getPieces(false, type))) << (32 + 4 * type);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Maps the file and parses its header at the first call.
+	 * @return false if the file could not be mapped or has a wrong format
+	 */
+	boolean init() {
+		
+		if (initialized) {
+			return ready;
+		}
+		
+		synchronized (this) {
+			
+			if (!initialized) {
+				try {
+					
+					data = map(file);
+					
+					int[] magic = dtz ? MAGIC_DTZ : MAGIC_WDL;
+					for (int i = 0; i < magic.length; i++) {
+						if (getByte(i) != magic[i]) {
+							throw new IOException("Corrupted table " + file);
+						}
+					}
+					
+					parse(4);
+					
+					ready = true;
+					
+				} catch (Exception e) {
+					System.out.println("Unable to load syzygy table " + file + ": " + e);
+					data = null;
+				}
+				
+				initialized = true;
+			}
+			
+			return ready;
+		}
+	}
+	
+	
+	private static MappedByteBuffer map(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Table is too big " + file);
+			}
+			MappedByteBuffer result = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			result.order(ByteOrder.LITTLE_ENDIAN);
+			return result;
+		} finally {
+			//The mapping stays valid after the file is closed
+			raf.close();
+		}
+	}
+	
+	
+	private void parse(int offset) {
+		
+		boolean split = key != key2;
+		
+		//WDL tables of different material store both sides to move
+		int sides = (!dtz && split) ? 2 : 1;
+		int maxFile = hasPawns ? 3 : 0;
+		
+		//Pawns on both sides
+		boolean pp = hasPawns && pawnCount[1] != 0;
+		
+		items = new PairsData[sides][maxFile + 1];
+		
+		//The first byte stores flags
+		offset++;
+		
+		for (int f = 0; f <= maxFile; f++) {
+			
+			for (int i = 0; i < sides; i++) {
+				items[i][f] = new PairsData();
+			}
+			
+			int[][] order = new int[][] {
+					{getByte(offset) & 0xF, pp ? getByte(offset + 1) & 0xF : 0xF},
+					{getByte(offset) >>> 4, pp ? getByte(offset + 1) >>> 4 : 0xF}};
+			offset += 1 + (pp ? 1 : 0);
+			
+			for (int k = 0; k < pieceCount; k++, offset++) {
+				for (int i = 0; i < sides; i++) {
+					items[i][f].pieces[k] = i != 0 ? getByte(offset) >>> 4 : getByte(offset) & 0xF;
+				}
+			}
+			
+			for (int i = 0; i < sides; i++) {
+				setGroups(items[i][f], order[i], f);
+			}
+		}
+		
+		//Word alignment
+		offset += offset & 1;
+		
+		for (int f = 0; f <= maxFile; f++) {
+			for (int i = 0; i < sides; i++) {
+				offset = setSizes(items[i][f], offset);
+			}
+		}
+		
+		if (dtz) {
+			offset = setDTZMap(offset, maxFile);
+		}
+		
+		for (int f = 0; f <= maxFile; f++) {
+			for (int i = 0; i < sides; i++) {
+				items[i][f].sparseIndexOffset = offset;
+				offset += items[i][f].sparseIndexSize * 6;
+			}
+		}
+		
+		for (int f = 0; f <= maxFile; f++) {
+			for (int i = 0; i < sides; i++) {
+				items[i][f].blockLengthOffset = offset;
+				offset += items[i][f].blockLengthSize * 2;
+			}
+		}
+		
+		for (int f = 0; f <= maxFile; f++) {
+			for (int i = 0; i < sides; i++) {
+				//64 bytes alignment
+				offset = (offset + 0x3F) & ~0x3F;
+				items[i][f].dataOffset = offset;
+				offset += items[i][f].blocksNum * items[i][f].sizeofBlock;
+			}
+		}
+	}
+	
+	
+	/**
+	 * The pieces sequence defines the groups, but not the order in which they are encoded.
+	 * If the pieces of a group g can be placed on the board in N(g) ways, the position is encoded as
+	 * g1 * N(g2) * N(g3) + g2 * N(g3) + g3, with the order of the groups stored in the table.
+	 */
+	private void setGroups(PairsData d, int[] order, int f) {
+		
+		int n = 0;
+		int firstLen = hasPawns ? 0 : (hasUniquePieces ? 3 : 2);
+		d.groupLen[n] = 1;
+		
+		for (int i = 1; i < pieceCount; i++) {
+			if (--firstLen > 0 || d.pieces[i] == d.pieces[i - 1]) {
+				d.groupLen[n]++;
+			} else {
+				d.groupLen[++n] = 1;
+			}
+		}
+		
+		d.groupLen[++n] = 0;
+		
+		boolean pp = hasPawns && pawnCount[1] != 0;
+		int next = pp ? 2 : 1;
+		int freeSquares = 64 - d.groupLen[0] - (pp ? d.groupLen[1] : 0);
+		long idx = 1;
+		
+		for (int k = 0; next < n || k == order[0] || k == order[1]; k++) {
+			if (k == order[0]) {
+				//Leading pawns or pieces
+				d.groupIdx[0] = idx;
+				idx *= hasPawns ? LEAD_PAWNS_SIZE[d.groupLen[0]][f] : (hasUniquePieces ? 31332 : 462);
+			} else if (k == order[1]) {
+				//Remaining pawns
+				d.groupIdx[1] = idx;
+				idx *= BINOMIAL[d.groupLen[1]][48 - d.groupLen[0]];
+			} else {
+				//Remaining pieces
+				d.groupIdx[next] = idx;
+				idx *= BINOMIAL[d.groupLen[next]][freeSquares];
+				freeSquares -= d.groupLen[next++];
+			}
+		}
+		
+		d.groupIdx[n] = idx;
+	}
+	
+	
+	private int setSizes(PairsData d, int offset) {
+		
+		d.flags = getByte(offset++);
+		
+		if ((d.flags & FLAG_SINGLE_VALUE) != 0) {
+			d.blocksNum = 0;
+			d.blockLengthSize = 0;
+			d.span = 0;
+			d.sparseIndexSize = 0;
+			//The single value
+			d.minSymLen = getByte(offset++);
+			return offset;
+		}
+		
+		int groups = 0;
+		while (d.groupLen[groups] != 0) {
+			groups++;
+		}
+		long tbSize = d.groupIdx[groups];
+		
+		d.sizeofBlock = 1 << getByte(offset++);
+		d.span = 1L << getByte(offset++);
+		d.sparseIndexSize = (int) ((tbSize + d.span - 1) / d.span);
+		int padding = getByte(offset++);
+		d.blocksNum = data.getInt(offset);
+		offset += 4;
+		//Padded to ensure the sparse index does not point out of range
+		d.blockLengthSize = d.blocksNum + padding;
+		d.maxSymLen = getByte(offset++);
+		d.minSymLen = getByte(offset++);
+		d.lowestSymOffset = offset;
+		
+		//The canonical code is ordered such that longer symbols have lower numeric value.
+		//base64[] is indexed by symbol length and each value is right padded to 64 bits,
+		//so that base64[l - 1] >= s64 >= base64[l] holds for any symbol s64 of length l.
+		int base64Size = d.maxSymLen - d.minSymLen + 1;
+		d.base64 = new long[base64Size];
+		for (int i = base64Size - 2; i >= 0; i--) {
+			d.base64[i] = (d.base64[i + 1] + getShort(d.lowestSymOffset + 2 * i) - getShort(d.lowestSymOffset + 2 * (i + 1))) / 2;
+		}
+		for (int i = 0; i < base64Size; i++) {
+			d.base64[i] <<= 64 - i - d.minSymLen;
+		}
+		
+		offset += base64Size * 2;
+		int symlenSize = getShort(offset);
+		offset += 2;
+		d.btreeOffset = offset;
+		
+		//Recursive Pairing replaces the most frequent adjacent pair of symbols by a new symbol,
+		//symlen[] is the count of the original symbols expanded from a symbol, minus one.
+		d.symlen = new int[symlenSize];
+		boolean[] visited = new boolean[symlenSize];
+		for (int sym = 0; sym < symlenSize; sym++) {
+			if (!visited[sym]) {
+				d.symlen[sym] = setSymlen(d, sym, visited);
+			}
+		}
+		
+		return offset + symlenSize * 3 + (symlenSize & 1);
+	}
+	
+	
+	private int setSymlen(PairsData d, int sym, boolean[] visited) {
+		
+		visited[sym] = true;
+		
+		int sr = getRight(d, sym);
+		if (sr == 0xFFF) {
+			return 0;
+		}
+		
+		int sl = getLeft(d, sym);
+		
+		if (!visited[sl]) {
+			d.symlen[sl] = setSymlen(d, sl, visited);
+		}
+		
+		if (!visited[sr]) {
+			d.symlen[sr] = setSymlen(d, sr, visited);
+		}
+		
+		return d.symlen[sl] + d.symlen[sr] + 1;
+	}
+	
+	
+	private int setDTZMap(int offset, int maxFile) {
+		
+		mapOffset = offset;
+		
+		for (int f = 0; f <= maxFile; f++) {
+			PairsData d = items[0][f];
+			if ((d.flags & FLAG_MAPPED) != 0) {
+				if ((d.flags & FLAG_WIDE) != 0) {
+					//Word alignment, the table may be mixed
+					offset += offset & 1;
+					for (int i = 0; i < 4; i++) {
+						d.mapIdx[i] = (offset - mapOffset) / 2 + 1;
+						offset += 2 * getShort(offset) + 2;
+					}
+				} else {
+					for (int i = 0; i < 4; i++) {
+						d.mapIdx[i] = offset - mapOffset + 1;
+						offset += getByte(offset) + 1;
+					}
+				}
+			}
+		}
+		
+		//Word alignment
+		return offset + (offset & 1);
+	}
+	
+	
+	/**
+	 * @param wdl the WDL score of the position, used only by the DTZ tables
+	 * @param state state[0] becomes PROBE_FAIL if the table can not be used, or PROBE_CHANGE_STM if this DTZ table stores the other side to move
+	 * @param squares buffer for the squares of the pieces, with length at least MAX_PIECES
+	 * @param pieces buffer for the pieces, with length at least MAX_PIECES
+	 * @return the WDL score (-2 .. 2) or the DTZ value of the position
+	 */
+	int probe(SyzygyPosition pos, int wdl, int[] state, int[] squares, int[] pieces) {
+		
+		if (!init()) {
+			state[0] = PROBE_FAIL;
+			return 0;
+		}
+		
+		int size = 0;
+		int leadPawnsCnt = 0;
+		long leadPawns = 0;
+		int tbFile = 0;
+		
+		//Symmetric tables store only the white to move case
+		boolean symmetricBlackToMove = key == key2 && !pos.whiteToMove;
+		
+		//The tables are calculated for white as the stronger side
+		boolean blackStronger = getMaterialKey(pos) != key;
+		
+		boolean flip = symmetricBlackToMove || blackStronger;
+		int flipColour = flip ? 8 : 0;
+		int flipSquares = flip ? 56 : 0;
+		int stm = (flip ? 1 : 0) ^ (pos.whiteToMove ? 0 : 1);
+		
+		//The tables with pawns are split in 4 parts, depending on the file of the leading pawn.
+		//The leading pawn is the one with maximum MAP_PAWNS[] value.
+		if (hasPawns) {
+			
+			int pc = items[0][0].pieces[0] ^ flipColour;
+			
+			long b = pos.getPieces((pc & 8) == 0, SyzygyPosition.TYPE_PAWN);
+			leadPawns = b;
+			do {
+				squares[size++] = Long.numberOfTrailingZeros(b) ^ flipSquares;
+				b &= b - 1;
+			} while (b != 0);
+			
+			leadPawnsCnt = size;
+			
+			int max = 0;
+			for (int i = 1; i < leadPawnsCnt; i++) {
+				if (MAP_PAWNS[squares[i]] > MAP_PAWNS[squares[max]]) {
+					max = i;
+				}
+			}
+			swap(squares, 0, max);
+			
+			tbFile = squares[0] & 7;
+			if (tbFile > 3) {
+				tbFile = (squares[0] ^ 7) & 7;
+			}
+		}
+		
+		//The DTZ tables store only one side to move
+		if (dtz) {
+			int flags = items[0][hasPawns ? tbFile : 0].flags;
+			if ((flags & FLAG_STM) != stm && !(key == key2 && !hasPawns)) {
+				state[0] = PROBE_CHANGE_STM;
+				return 0;
+			}
+		}
+		
+		long b = pos.getOccupied() ^ leadPawns;
+		do {
+			int square = Long.numberOfTrailingZeros(b);
+			squares[size] = square ^ flipSquares;
+			pieces[size++] = pos.getPiece(square) ^ flipColour;
+			b &= b - 1;
+		} while (b != 0);
+		
+		PairsData d = items[dtz ? 0 : stm][hasPawns ? tbFile : 0];
+		
+		//Reorder the pieces to the sequence stored in the table
+		for (int i = leadPawnsCnt; i < size - 1; i++) {
+			for (int j = i + 1; j < size; j++) {
+				if (d.pieces[i] == pieces[j]) {
+					swap(pieces, i, j);
+					swap(squares, i, j);
+					break;
+				}
+			}
+		}
+		
+		//The leading piece is mapped to the a1-d1-d4 triangle
+		if ((squares[0] & 7) > 3) {
+			for (int i = 0; i < size; i++) {
+				squares[i] ^= 7;
+			}
+		}
+		
+		long idx;
+		
+		if (hasPawns) {
+			
+			idx = LEAD_PAWN_IDX[leadPawnsCnt][squares[0]];
+			
+			sortByMapPawns(squares, 1, leadPawnsCnt);
+			
+			for (int i = 1; i < leadPawnsCnt; i++) {
+				idx += BINOMIAL[i][MAP_PAWNS[squares[i]]];
+			}
+			
+		} else {
+			
+			if ((squares[0] >>> 3) > 3) {
+				for (int i = 0; i < size; i++) {
+					squares[i] ^= 56;
+				}
+			}
+			
+			//The first piece of the leading group not on the a1-h8 diagonal is mapped below it
+			for (int i = 0; i < d.groupLen[0]; i++) {
+				if (offA1H8(squares[i]) == 0) {
+					continue;
+				}
+				if (offA1H8(squares[i]) > 0) {
+					for (int j = i; j < size; j++) {
+						squares[j] = ((squares[j] >>> 3) | (squares[j] << 3)) & 63;
+					}
+				}
+				break;
+			}
+			
+			if (hasUniquePieces) {
+				
+				int adjust1 = squares[1] > squares[0] ? 1 : 0;
+				int adjust2 = (squares[2] > squares[0] ? 1 : 0) + (squares[2] > squares[1] ? 1 : 0);
+				
+				if (offA1H8(squares[0]) != 0) {
+					idx = (MAP_A1D1D4[squares[0]] * 63 + (squares[1] - adjust1)) * 62 + squares[2] - adjust2;
+				} else if (offA1H8(squares[1]) != 0) {
+					idx = (6 * 63 + (squares[0] >>> 3) * 28 + MAP_B1H1H7[squares[1]]) * 62 + squares[2] - adjust2;
+				} else if (offA1H8(squares[2]) != 0) {
+					idx = 6 * 63 * 62 + 4 * 28 * 62
+							+ (squares[0] >>> 3) * 7 * 28
+							+ ((squares[1] >>> 3) - adjust1) * 28
+							+ MAP_B1H1H7[squares[2]];
+				} else {
+					idx = 6 * 63 * 62 + 4 * 28 * 62 + 4 * 7 * 28
+							+ (squares[0] >>> 3) * 7 * 6
+							+ ((squares[1] >>> 3) - adjust1) * 6
+							+ ((squares[2] >>> 3) - adjust2);
+				}
+				
+			} else {
+				idx = MAP_KK[MAP_A1D1D4[squares[0]]][squares[1]];
+			}
+		}
+		
+		//Encode the remaining pawns and then the pieces, in ascending order of the squares
+		idx *= d.groupIdx[0];
+		int groupStart = d.groupLen[0];
+		
+		boolean remainingPawns = hasPawns && pawnCount[1] != 0;
+		
+		int next = 0;
+		while (d.groupLen[++next] != 0) {
+			
+			int groupEnd = groupStart + d.groupLen[next];
+			sortAscending(squares, groupStart, groupEnd);
+			
+			long n = 0;
+			for (int i = 0; i < d.groupLen[next]; i++) {
+				int square = squares[groupStart + i];
+				int adjust = 0;
+				for (int j = 0; j < groupStart; j++) {
+					if (square > squares[j]) {
+						adjust++;
+					}
+				}
+				n += BINOMIAL[i + 1][square - adjust - (remainingPawns ? 8 : 0)];
+			}
+			
+			remainingPawns = false;
+			idx += n * d.groupIdx[next];
+			groupStart = groupEnd;
+		}
+		
+		int value = decompressPairs(d, idx);
+		
+		state[0] = PROBE_OK;
+		
+		return dtz ? mapDTZScore(hasPawns ? tbFile : 0, value, wdl) : value - 2;
+	}
+	
+	
+	/**
+	 * The DTZ tables store the distance to zero in moves or plies, the result is always in plies.
+	 */
+	private int mapDTZScore(int f, int value, int wdl) {
+		
+		PairsData d = items[0][f];
+		int flags = d.flags;
+		
+		if ((flags & FLAG_MAPPED) != 0) {
+			if ((flags & FLAG_WIDE) != 0) {
+				value = getShort(mapOffset + 2 * (d.mapIdx[WDL_MAP[wdl + 2]] + value));
+			} else {
+				value = getByte(mapOffset + d.mapIdx[WDL_MAP[wdl + 2]] + value);
+			}
+		}
+		
+		if ((wdl == WDL_WIN && (flags & FLAG_WIN_PLIES) == 0)
+				|| (wdl == WDL_LOSS && (flags & FLAG_LOSS_PLIES) == 0)
+				|| wdl == WDL_CURSED_WIN
+				|| wdl == WDL_BLESSED_LOSS) {
+			value *= 2;
+		}
+		
+		return value + 1;
+	}
+	
+	
+	private int decompressPairs(PairsData d, long idx) {
+		
+		//All the positions of the table have the same value
+		if ((d.flags & FLAG_SINGLE_VALUE) != 0) {
+			return d.minSymLen;
+		}
+		
+		//The sparse index entry k stores the block and the offset in it of the value with index k * span + span / 2
+		int k = (int) (idx / d.span);
+		
+		int block = data.getInt(d.sparseIndexOffset + 6 * k);
+		int offset = getShort(d.sparseIndexOffset + 6 * k + 4);
+		
+		offset += (int) (idx % d.span - d.span / 2);
+		
+		//Each block n stores blockLength[n] + 1 values
+		while (offset < 0) {
+			offset += getShort(d.blockLengthOffset + 2 * (--block)) + 1;
+		}
+		
+		while (offset > getShort(d.blockLengthOffset + 2 * block)) {
+			offset -= getShort(d.blockLengthOffset + 2 * (block++)) + 1;
+		}
+		
+		int ptr = d.dataOffset + block * d.sizeofBlock;
+		
+		long buf64 = ((long) getIntBigEndian(ptr) << 32) | (getIntBigEndian(ptr + 4) & 0xFFFFFFFFL);
+		ptr += 8;
+		int buf64Size = 64;
+		int sym;
+		
+		while (true) {
+			
+			int len = 0;
+			
+			//Unsigned comparison
+			while (buf64 + Long.MIN_VALUE < d.base64[len] + Long.MIN_VALUE) {
+				len++;
+			}
+			
+			//All the symbols of a given length are consecutive integers
+			sym = (int) ((buf64 - d.base64[len]) >>> (64 - len - d.minSymLen));
+			sym += getShort(d.lowestSymOffset + 2 * len);
+			
+			if (offset < d.symlen[sym] + 1) {
+				break;
+			}
+			
+			offset -= d.symlen[sym] + 1;
+			len += d.minSymLen;
+			buf64 <<= len;
+			buf64Size -= len;
+			
+			if (buf64Size <= 32) {
+				buf64Size += 32;
+				buf64 |= (getIntBigEndian(ptr) & 0xFFFFFFFFL) << (64 - buf64Size);
+				ptr += 4;
+			}
+		}
+		
+		//The symbol expands into symlen[sym] + 1 values, find ours by expanding the left and right child symbols
+		while (d.symlen[sym] != 0) {
+			int left = getLeft(d, sym);
+			if (offset < d.symlen[left] + 1) {
+				sym = left;
+			} else {
+				offset -= d.symlen[left] + 1;
+				sym = getRight(d, sym);
+			}
+		}
+		
+		return getLeft(d, sym);
+	}
+	
+	
+	private int getLeft(PairsData d, int sym) {
+		int offset = d.btreeOffset + 3 * sym;
+		return ((getByte(offset + 1) & 0xF) << 8) | getByte(offset);
+	}
+	
+	
+	private int getRight(PairsData d, int sym) {
+		int offset = d.btreeOffset + 3 * sym;
+		return (getByte(offset + 2) << 4) | (getByte(offset + 1) >>> 4);
+	}
+	
+	
+	private int getByte(int offset) {
+		return data.get(offset) & 0xFF;
+	}
+	
+	
+	private int getShort(int offset) {
+		return data.getShort(offset) & 0xFFFF;
+	}
+	
+	
+	private int getIntBigEndian(int offset) {
+		//The decoder may read ahead past the end of the last block
+		if (offset + 4 > data.limit()) {
+			return 0;
+		}
+		return Integer.reverseBytes(data.getInt(offset));
+	}
+	
+	
+	private static int offA1H8(int square) {
+		return (square >>> 3) - (square & 7);
+	}
+	
+	
+	private static void swap(int[] array, int i, int j) {
+		int tmp = array[i];
+		array[i] = array[j];
+		array[j] = tmp;
+	}
+	
+	
+	//Insertion sorts, stable and enough for up to 7 pieces
+	private static void sortByMapPawns(int[] squares, int from, int to) {
+		for (int i = from + 1; i < to; i++) {
+			int square = squares[i];
+			int j = i - 1;
+			while (j >= from && MAP_PAWNS[squares[j]] > MAP_PAWNS[square]) {
+				squares[j + 1] = squares[j];
+				j--;
+			}
+			squares[j + 1] = square;
+		}
+	}
+	
+	
+	private static void sortAscending(int[] squares, int from, int to) {
+		for (int i = from + 1; i < to; i++) {
+			int square = squares[i];
+			int j = i - 1;
+			while (j >= from && squares[j] > square) {
+				squares[j + 1] = squares[j];
+				j--;
+			}
+			squares[j + 1] = square;
+		}
+	}
+	
+	
+	private static final class PairsData {
+		
+		int flags;
+		int[] pieces = new int[MAX_PIECES];
+		//Zero terminated list of the lengths of the groups
+		int[] groupLen = new int[MAX_PIECES + 1];
+		long[] groupIdx = new long[MAX_PIECES + 1];
+		
+		int sizeofBlock;
+		long span;
+		int sparseIndexSize;
+		int blocksNum;
+		int blockLengthSize;
+		int maxSymLen;
+		int minSymLen;
+		long[] base64;
+		int[] symlen;
+		
+		//Offsets in the file
+		int lowestSymOffset;
+		int btreeOffset;
+		int sparseIndexOffset;
+		int blockLengthOffset;
+		int dataOffset;
+		
+		int[] mapIdx = new int[4];
+	}
+}
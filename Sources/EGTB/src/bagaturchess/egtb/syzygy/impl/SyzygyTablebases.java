@@ -0,0 +1,156 @@
+package bagaturchess.egtb.syzygy.impl;
+
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Pure Java reader of the Syzygy tablebases, with the same static API as the JNI bridge.
+ * The loading only scans the directories for table files, each file is memory mapped at the first probe of its material.
+ */
+public class SyzygyTablebases {
+	
+	
+	private static volatile Registry registry;
+	
+	private static int tbLargest = 0;
+	
+	private static final ThreadLocal<SyzygyProber> probers = new ThreadLocal<SyzygyProber>() {
+		@Override
+		protected SyzygyProber initialValue() {
+			return new SyzygyProber();
+		}
+	};
+	
+	
+	private SyzygyTablebases() {}
+	
+	
+	/**
+	 * @param path one or more directories, separated by the platform path separator
+	 * @return the largest pieces count of the found tables or -1 if there are no tables
+	 */
+	public static synchronized int load(String path) {
+		
+		System.out.println("Loading syzygy tablebases (java) from " + path);
+		
+		if (tbLargest > 0) {
+			System.out.println("Syzygy tablebases are already loaded");
+			return tbLargest;
+		}
+		
+		Registry new_registry = new Registry();
+		
+		String[] dirs = path.split(File.pathSeparator);
+		for (int i = 0; i < dirs.length; i++) {
+			File[] files = new File(dirs[i]).listFiles();
+			if (files == null) {
+				continue;
+			}
+			for (int j = 0; j < files.length; j++) {
+				new_registry.add(files[j]);
+			}
+		}
+		
+		if (new_registry.largest > 0) {
+			registry = new_registry;
+			tbLargest = new_registry.largest;
+			System.out.println("Syzygy tablebases loaded: " + new_registry.wdl_tables.size() + " WDL and "
+					+ new_registry.dtz_tables.size() + " DTZ entries, up to " + tbLargest + " pieces");
+		} else {
+			tbLargest = -1;
+			System.out.println("Syzygy tablebases NOT loaded");
+		}
+		
+		return tbLargest;
+	}
+	
+	
+	static Registry getRegistry() {
+		return registry;
+	}
+	
+	
+	public static boolean isAvailable(int piecesLeft) {
+		return piecesLeft <= tbLargest;
+	}
+	
+	
+	public static int getSupportedSize() {
+		return tbLargest;
+	}
+	
+	
+	/**
+	 * @return the WDL value (see SyzygyConstants) or the failed result
+	 */
+	public static int probeSyzygyWDL(long white, long black, long kings, long queens, long rooks, long bishops, long knights, long pawns, int ep, boolean turn) {
+		SyzygyProber prober = probers.get();
+		prober.getRootPosition().set(white, black, kings, queens, rooks, bishops, knights, pawns, 0, ep, turn);
+		return prober.probeWDL();
+	}
+	
+	
+	/**
+	 * @return the DTZ result with the best move (see SyzygyConstants) or the failed result
+	 */
+	public static int probeSyzygyDTZ(long white, long black, long kings, long queens, long rooks, long bishops, long knights, long pawns, int rule50, int ep, boolean turn) {
+		SyzygyProber prober = probers.get();
+		prober.getRootPosition().set(white, black, kings, queens, rooks, bishops, knights, pawns, rule50, ep, turn);
+		return prober.probeRoot();
+	}
+	
+	
+	/**
+	 * The tables by material key. Both the key and the key with swapped colours point to the same table.
+	 */
+	static final class Registry {
+		
+		
+		private final Map<Long, SyzygyTable> wdl_tables = new HashMap<Long, SyzygyTable>();
+		private final Map<Long, SyzygyTable> dtz_tables = new HashMap<Long, SyzygyTable>();
+		
+		private int largest;
+		
+		
+		private void add(File file) {
+			
+			String fileName = file.getName();
+			
+			boolean dtz;
+			if (fileName.endsWith(SyzygyTable.EXTENSION_WDL)) {
+				dtz = false;
+			} else if (fileName.endsWith(SyzygyTable.EXTENSION_DTZ)) {
+				dtz = true;
+			} else {
+				return;
+			}
+			
+			String name = fileName.substring(0, fileName.length() - SyzygyTable.EXTENSION_WDL.length());
+			if (!name.matches("K[QRBNP]*vK[QRBNP]*")) {
+				return;
+			}
+			
+			SyzygyTable table = new SyzygyTable(file, name, dtz);
+			
+			Map<Long, SyzygyTable> tables = dtz ? dtz_tables : wdl_tables;
+			if (tables.containsKey(table.key)) {
+				//Already found in another directory
+				return;
+			}
+			tables.put(table.key, table);
+			tables.put(table.key2, table);
+			
+			if (!dtz) {
+				largest = Math.max(largest, table.pieceCount);
+			}
+		}
+		
+		
+		SyzygyTable get(long materialKey, boolean dtz) {
+			return (dtz ? dtz_tables : wdl_tables).get(materialKey);
+		}
+	}
+}
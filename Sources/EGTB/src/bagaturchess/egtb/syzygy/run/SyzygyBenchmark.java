@@ -0,0 +1,162 @@
+package bagaturchess.egtb.syzygy.run;
+
+
+import com.winkelhagen.chess.syzygy.SyzygyBridge;
+
+import bagaturchess.bitboard.api.BoardUtils;
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.bitboard.impl.Constants;
+import bagaturchess.egtb.syzygy.SyzygyConstants;
+import bagaturchess.egtb.syzygy.impl.SyzygyTablebases;
+
+
+/**
+ * Compares the results and the probe latency of the pure Java reader against the JNI bridge.
+ * The first argument is the path to the tables.
+ */
+public class SyzygyBenchmark {
+	
+	
+	private static final String[] FENS = new String[] {
+		"3k4/8/8/8/8/8/3P4/3K4 w - -",
+		"8/8/8/8/8/7k/5Kp1/8 w - -",
+		"8/8/8/8/8/7k/5Kp1/8 b - -",
+		"8/8/8/4k3/8/8/8/KQ6 w - -",
+		"8/8/8/4k3/8/8/8/KQ6 b - -",
+		"8/8/3k4/8/8/8/8/KR6 w - -",
+		"8/8/8/3k4/8/8/8/K1BN4 w - -",
+		"4k3/8/8/8/8/8/2PPP3/4K3 w - -",
+		"4k3/8/8/8/8/2PP4/8/4K3 b - -",
+		"8/4k3/8/8/8/8/1P6/KR6 w - -",
+		"8/4k3/8/8/2P5/1P6/8/KR6 b - -",
+		"8/8/8/3k4/8/8/1q6/KQ6 w - -",
+		"8/3r4/8/3k4/8/8/8/KQ6 w - -",
+		"8/3r4/8/3k4/8/8/8/KQ6 b - -",
+		"3b4/8/8/3k4/8/8/8/KR6 w - -",
+		"3n4/8/8/3k4/8/8/8/KR6 b - -",
+		"8/8/8/3k4/8/8/2r5/KR6 w - -",
+		"8/8/8/3k4/3p4/8/8/KQ6 w - -",
+		"8/8/8/3k4/3p4/8/8/KR6 b - -",
+		"8/8/8/3k4/3p4/8/8/KB6 w - -",
+		"8/8/8/3k4/3p4/8/8/KN6 w - -",
+		"8/8/8/3k4/3p4/8/4P3/K7 w - -",
+	};
+	
+	private static final int ROUNDS = 1000;
+	
+	private static final int RESULT_FAILED = 0xFFFFFFFF;
+	
+	
+	public static void main(String[] args) {
+		
+		String path = args.length > 0 ? args[0] : "./egtb";
+		
+		boolean nativeLibrary = SyzygyBridge.loadNativeLibrary();
+		if (nativeLibrary) {
+			SyzygyBridge.load(path);
+		}
+		SyzygyTablebases.load(path);
+		
+		long[][] positions = new long[FENS.length][];
+		boolean[] whiteToMove = new boolean[FENS.length];
+		for (int i = 0; i < FENS.length; i++) {
+			IBitBoard board = BoardUtils.createBoard_WithPawnsCache(FENS[i]);
+			positions[i] = new long[] {
+					board.getFiguresBitboardByColour(Constants.COLOUR_WHITE),
+					board.getFiguresBitboardByColour(Constants.COLOUR_BLACK),
+					getPiecesBitboard(board, Constants.TYPE_KING),
+					getPiecesBitboard(board, Constants.TYPE_QUEEN),
+					getPiecesBitboard(board, Constants.TYPE_ROOK),
+					getPiecesBitboard(board, Constants.TYPE_BISHOP),
+					getPiecesBitboard(board, Constants.TYPE_KNIGHT),
+					getPiecesBitboard(board, Constants.TYPE_PAWN)};
+			whiteToMove[i] = board.getColourToMove() == Constants.COLOUR_WHITE;
+		}
+		
+		//Verification
+		int mismatches = 0;
+		for (int i = 0; i < FENS.length; i++) {
+			
+			int wdl_java = probeWDL(false, positions[i], whiteToMove[i]);
+			int dtz_java = probeDTZ(false, positions[i], whiteToMove[i]);
+			
+			String line = FENS[i] + "	java: wdl=" + wdl_java + " dtz=" + SyzygyConstants.distanceToZero(dtz_java);
+			
+			if (nativeLibrary) {
+				int wdl_native = probeWDL(true, positions[i], whiteToMove[i]);
+				int dtz_native = probeDTZ(true, positions[i], whiteToMove[i]);
+				line += "	native: wdl=" + wdl_native + " dtz=" + SyzygyConstants.distanceToZero(dtz_native);
+				//The best move may differ between equally good moves
+				int mask = SyzygyConstants.TB_RESULT_WDL_MASK | SyzygyConstants.TB_RESULT_DTZ_MASK;
+				if (wdl_native == RESULT_FAILED || dtz_native == RESULT_FAILED) {
+					//The native probe searches the promotions as captures and fails if the promoted material is missing
+					line += "	native failed";
+				} else if (wdl_java != wdl_native || (dtz_java & mask) != (dtz_native & mask)) {
+					line += "	MISMATCH";
+					mismatches++;
+				}
+			}
+			
+			System.out.println(line);
+		}
+		
+		System.out.println("Mismatches: " + mismatches);
+		
+		//Latency, the first rounds warm up the JIT and map the tables
+		for (int iteration = 0; iteration < 3; iteration++) {
+			System.out.println("Java   : " + benchmark(false, positions, whiteToMove));
+			if (nativeLibrary) {
+				System.out.println("Native : " + benchmark(true, positions, whiteToMove));
+			}
+		}
+	}
+	
+	
+	private static String benchmark(boolean nativeLibrary, long[][] positions, boolean[] whiteToMove) {
+		
+		long wdl_time = 0;
+		long dtz_time = 0;
+		
+		for (int round = 0; round < ROUNDS; round++) {
+			for (int i = 0; i < positions.length; i++) {
+				
+				long start = System.nanoTime();
+				probeWDL(nativeLibrary, positions[i], whiteToMove[i]);
+				long middle = System.nanoTime();
+				probeDTZ(nativeLibrary, positions[i], whiteToMove[i]);
+				long end = System.nanoTime();
+				
+				wdl_time += middle - start;
+				dtz_time += end - middle;
+			}
+		}
+		
+		long count = ROUNDS * (long) positions.length;
+		
+		return "WDL " + (wdl_time / count) + " ns/probe, DTZ " + (dtz_time / count) + " ns/probe";
+	}
+	
+	
+	private static int probeWDL(boolean nativeLibrary, long[] bb, boolean whiteToMove) {
+		if (nativeLibrary) {
+			return SyzygyBridge.probeSyzygyWDL(bb[0], bb[1], bb[2], bb[3], bb[4], bb[5], bb[6], bb[7], 0, whiteToMove);
+		} else {
+			return SyzygyTablebases.probeSyzygyWDL(bb[0], bb[1], bb[2], bb[3], bb[4], bb[5], bb[6], bb[7], 0, whiteToMove);
+		}
+	}
+	
+	
+	private static int probeDTZ(boolean nativeLibrary, long[] bb, boolean whiteToMove) {
+		if (nativeLibrary) {
+			return SyzygyBridge.probeSyzygyDTZ(bb[0], bb[1], bb[2], bb[3], bb[4], bb[5], bb[6], bb[7], 0, 0, whiteToMove);
+		} else {
+			return SyzygyTablebases.probeSyzygyDTZ(bb[0], bb[1], bb[2], bb[3], bb[4], bb[5], bb[6], bb[7], 0, 0, whiteToMove);
+		}
+	}
+	
+	
+	private static long getPiecesBitboard(IBitBoard board, int type) {
+		return board.getFiguresBitboardByColourAndType(Constants.COLOUR_WHITE, type)
+				| board.getFiguresBitboardByColourAndType(Constants.COLOUR_BLACK, type);
+	}
+}
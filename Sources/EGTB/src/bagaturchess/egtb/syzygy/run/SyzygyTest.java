@@ -45,6 +45,7 @@ public class SyzygyTest {
 				int wdl = (result2 & SyzygyConstants.TB_RESULT_WDL_MASK) >> SyzygyConstants.TB_RESULT_WDL_SHIFT;
 				System.out.println(dtz);
 				System.out.println(wdl);
+				System.out.println("DTZ cache: " + SyzygyTBProbing.getSingleton().getDTZCache());
 				//System.out.println(SyzygyTBProbing.getSingleton().toMove(result2));
 			}
 			
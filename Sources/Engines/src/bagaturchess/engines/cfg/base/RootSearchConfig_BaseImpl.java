@@ -29,6 +29,7 @@ public abstract class RootSearchConfig_BaseImpl implements IRootSearchConfig, IU
 	private UCIOption[] options = new UCIOption[] {
 			new UCIOptionSpin_Integer("MultiPV", new Integer(1), "type spin default 1 min 1 max 100"),
 			new UCIOptionString("SyzygyPath", DEFAULT_TbPath, "type string default " + DEFAULT_TbPath),
+			new UCIOption("Off-heap Hash", false, "type check default false"),
 			//new UCIOptionSpin_Integer("Hidden Depth", 0, "type spin default 0 min 0 max 10"),
 	};
 	
@@ -44,6 +45,8 @@ public abstract class RootSearchConfig_BaseImpl implements IRootSearchConfig, IU
 	
 	private int hiddenDepth = 0;
 	
+	private boolean tptOffHeap = false;
+	
 	
 	public RootSearchConfig_BaseImpl(String[] args) {
 		
@@ -187,6 +190,12 @@ public abstract class RootSearchConfig_BaseImpl implements IRootSearchConfig, IU
 	}
 	
 	
+	@Override
+	public boolean isTPTOffHeap() {
+		return tptOffHeap;
+	}
+	
+	
 	@Override
 	public int getMultiPVsCount() {
 		return multiPVsCount;
@@ -224,6 +233,10 @@ public abstract class RootSearchConfig_BaseImpl implements IRootSearchConfig, IU
 			TbPath = (String) option.getValue();
 			return true;
 			
+		} else if ("Off-heap Hash".equals(option.getName())) {
+			tptOffHeap = (Boolean) option.getValue();
+			return true;
+			
 		} else if ("Hidden Depth".equals(option.getName())) {
 			hiddenDepth = (Integer) option.getValue();
 			return true;
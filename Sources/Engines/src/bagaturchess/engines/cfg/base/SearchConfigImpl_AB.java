@@ -101,16 +101,10 @@ public class SearchConfigImpl_AB implements ISearchConfig_AB, IUCIOptionsProvide
 	
 	
 	public int orderingWeight_TPT_MOVE 				= 1;
-	public int orderingWeight_MATE_MOVE       		= 1;
 	public int orderingWeight_COUNTER         		= 1;
 	public int orderingWeight_WIN_CAP         		= 1;
 	public int orderingWeight_PREV_BEST_MOVE  		= 1;
 	public int orderingWeight_EQ_CAP          		= 1;
-	public int orderingWeight_MATE_KILLER     		= 1;
-	public int orderingWeight_PREVPV_MOVE     		= 1;
-	public int orderingWeight_CASTLING 	 	 		= 1;
-	public int orderingWeight_PASSER_PUSH 	 		= 1;
-	public int orderingWeight_KILLER          		= 1;
 	public int orderingWeight_LOSE_CAP        		= 1;
 	
 	
@@ -344,11 +338,6 @@ public class SearchConfigImpl_AB implements ISearchConfig_AB, IUCIOptionsProvide
 	}
 
 
-	public int getOrderingWeight_CASTLING() {
-		return orderingWeight_CASTLING;
-	}
-
-
 	public int getOrderingWeight_COUNTER() {
 		return orderingWeight_COUNTER;
 	}
@@ -359,41 +348,16 @@ public class SearchConfigImpl_AB implements ISearchConfig_AB, IUCIOptionsProvide
 	}
 
 
-	public int getOrderingWeight_KILLER() {
-		return orderingWeight_KILLER;
-	}
-
-
 	public int getOrderingWeight_LOSE_CAP() {
 		return orderingWeight_LOSE_CAP;
 	}
 
 
-	public int getOrderingWeight_MATE_KILLER() {
-		return orderingWeight_MATE_KILLER;
-	}
-
-
-	public int getOrderingWeight_MATE_MOVE() {
-		return orderingWeight_MATE_MOVE;
-	}
-
-
-	public int getOrderingWeight_PASSER_PUSH() {
-		return orderingWeight_PASSER_PUSH;
-	}
-
-
 	public int getOrderingWeight_PREV_BEST_MOVE() {
 		return orderingWeight_PREV_BEST_MOVE;
 	}
 
 
-	public int getOrderingWeight_PREVPV_MOVE() {
-		return orderingWeight_PREVPV_MOVE;
-	}
-
-
 	public int getOrderingWeight_TPT_MOVE() {
 		return orderingWeight_TPT_MOVE;
 	}
@@ -0,0 +1,155 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ *
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.engines.run;
+
+
+import java.util.concurrent.CountDownLatch;
+
+import bagaturchess.bitboard.api.BoardUtils;
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.engines.cfg.base.RootSearchConfig_BaseImpl_SMP_Threads;
+import bagaturchess.engines.cfg.base.TimeConfigImpl;
+import bagaturchess.search.api.internal.ISearchMediator;
+import bagaturchess.search.impl.env.SharedData;
+import bagaturchess.search.impl.rootsearch.parallel.LazySMPSearch_ThreadsImpl;
+import bagaturchess.search.impl.uci_adaptor.UCISearchMediatorImpl_NormalSearch;
+import bagaturchess.search.impl.uci_adaptor.timemanagement.ITimeController;
+import bagaturchess.search.impl.uci_adaptor.timemanagement.TimeControllerFactory;
+import bagaturchess.uci.api.BestMoveSender;
+import bagaturchess.uci.api.ChannelManager;
+import bagaturchess.uci.impl.Channel_Console;
+import bagaturchess.uci.impl.commands.Go;
+import bagaturchess.uci.impl.commands.options.UCIOptionSpin_Integer;
+
+
+/**
+ * Measures the NPS scaling of LazySMPSearch_ThreadsImpl for 1, 2, 4, 8, 16 and 32 threads.
+ * Each thread count searches the same positions for the same time (args[0] in milliseconds, default 10000).
+ * The positions are given as moves from the initial position, because the root search is setup only once (by createBoard).
+ */
+public class LazySMPScalingMain {
+
+
+	private static final int[] THREADS = new int[] {1, 2, 4, 8, 16, 32};
+
+	private static final String[] GAMES = new String[] {
+		"",
+		"e2e4 e7e5 g1f3 b8c6 f1b5 a7a6 b5a4 g8f6 e1g1 f8e7",
+		"d2d4 g8f6 c2c4 e7e6 b1c3 f8b4 e2e3 e8g8 f1d3 d7d5 g1f3 c7c5",
+		"e2e4 c7c5 g1f3 d7d6 d2d4 c5d4 f3d4 g8f6 b1c3 a7a6 c1e3 e7e5 d4b3 c8e6 f2f3",
+	};
+
+
+	public static void main(String[] args) {
+
+		long movetime = args.length > 0 ? Long.parseLong(args[0]) : 10000;
+
+		ChannelManager.setChannel(new Channel_Console(System.in, System.out, System.out));
+
+		long nps_1thread = 0;
+
+		for (int i = 0; i < THREADS.length; i++) {
+
+			int threadsCount = THREADS[i];
+
+			RootSearchConfig_BaseImpl_SMP_Threads cfg = new RootSearchConfig_BaseImpl_SMP_Threads(
+					new String[] {
+							bagaturchess.search.impl.alg.impl1.Search_PVS_NWS.class.getName(),
+							bagaturchess.engines.cfg.base.SearchConfigImpl_AB.class.getName(),
+							bagaturchess.learning.goldmiddle.impl4.cfg.BoardConfigImpl_V20.class.getName(),
+							bagaturchess.learning.goldmiddle.impl4.cfg.EvaluationConfig_V20.class.getName(),
+					}
+				);
+			cfg.applyOption(new UCIOptionSpin_Integer("SMP Threads", threadsCount, ""));
+
+			SharedData sharedData = new SharedData(ChannelManager.getChannel(), cfg);
+			LazySMPSearch_ThreadsImpl search = new LazySMPSearch_ThreadsImpl(new Object[] {cfg, sharedData});
+
+			long nodes = 0;
+			long time = 0;
+			long[] threads_nodes = new long[threadsCount];
+
+			IBitBoard bitboard = BoardUtils.createBoard_WithPawnsCache(cfg.getBoardConfig());
+			search.createBoard(bitboard);
+
+			for (int j = 0; j < GAMES.length; j++) {
+
+				bitboard.revert();
+				BoardUtils.playGameUCI(bitboard, GAMES[j]);
+
+				Go go = new Go(ChannelManager.getChannel(), "go movetime " + movetime);
+				ITimeController timeController = TimeControllerFactory.createTimeController(new TimeConfigImpl(), bitboard.getColourToMove(), go);
+
+				final CountDownLatch done = new CountDownLatch(1);
+
+				ISearchMediator mediator = new UCISearchMediatorImpl_NormalSearch(ChannelManager.getChannel(),
+						go,
+						timeController,
+						bitboard.getColourToMove(),
+						new BestMoveSender() {
+							@Override
+							public void sendBestMove() {
+								done.countDown();
+							}
+						},
+						search, false);
+
+				long start = System.currentTimeMillis();
+				search.negamax(bitboard, mediator, timeController, go);
+
+				try {
+					done.await();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+
+				time += System.currentTimeMillis() - start;
+				nodes += search.getSearchedNodes();
+
+				long[] cur_threads_nodes = search.getThreadsSearchedNodes();
+				for (int k = 0; k < threadsCount; k++) {
+					threads_nodes[k] += cur_threads_nodes[k];
+				}
+			}
+
+			search.shutDown();
+
+			long nps = 1000 * nodes / Math.max(1, time);
+			if (threadsCount == 1) {
+				nps_1thread = nps;
+			}
+
+			StringBuilder per_thread = new StringBuilder();
+			for (int k = 0; k < threadsCount; k++) {
+				per_thread.append(" ").append(1000 * threads_nodes[k] / Math.max(1, time));
+			}
+
+			System.out.println("LazySMPScalingMain: threads " + threadsCount
+					+ ", nps " + nps
+					+ ", speedup " + (nps_1thread == 0 ? "-" : String.valueOf(nps / (double) nps_1thread))
+					+ ", nps per thread" + per_thread);
+		}
+
+		System.exit(0);
+	}
+}
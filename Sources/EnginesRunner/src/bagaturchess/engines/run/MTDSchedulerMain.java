@@ -40,7 +40,6 @@ import bagaturchess.search.api.IRootSearchConfig;
 import bagaturchess.search.api.internal.ISearchMediator;
 import bagaturchess.search.impl.env.SharedData;
 import bagaturchess.search.impl.rootsearch.montecarlo.MonteCarloSearch;
-import bagaturchess.search.impl.rootsearch.multipv.MultiPVMediator;
 import bagaturchess.search.impl.rootsearch.multipv.MultiPVRootSearch;
 import bagaturchess.search.impl.rootsearch.parallel.MTDParallelSearch_ProcessesImpl;
 import bagaturchess.search.impl.rootsearch.parallel.MTDParallelSearch_ThreadsImpl;
@@ -519,8 +518,6 @@ public class MTDSchedulerMain {
 		
 		search.negamax(bitboard, mediator1, timeController, go);
 		
-		//MultiPVMediator multipvMediator = new MultiPVMediator(cfg, search, bitboard, mediator1, go);
-		//multipvMediator.ready();
 				
 	}
 }
@@ -7,4 +7,9 @@ public interface IAdjustableFeature extends IFeature {
 	public void adjust(ISignal signal, double amount, double openningPart);
 	public void applyChanges();
 	public void clear();
+	
+	//Direct access to the weights for the gradient based tuners, subid is 0 for the single features
+	public int getWeightsCount();
+	public double getWeight(int subid, boolean opening);
+	public void setWeight(int subid, boolean opening, double weight);
 }
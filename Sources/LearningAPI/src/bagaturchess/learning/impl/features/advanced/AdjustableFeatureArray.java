@@ -157,6 +157,28 @@ public class AdjustableFeatureArray extends AdjustableFeature {
 				+ (1 - openningPart) * e_weights[fieldID].getWeight();
 	}
 	
+	
+	@Override
+	public int getWeightsCount() {
+		return o_weights.length;
+	}
+	
+	
+	@Override
+	public double getWeight(int subid, boolean opening) {
+		return opening ? o_weights[subid].getWeight() : e_weights[subid].getWeight();
+	}
+	
+	
+	@Override
+	public void setWeight(int subid, boolean opening, double weight) {
+		if (opening) {
+			o_weights[subid].setWeight(weight);
+		} else {
+			e_weights[subid].setWeight(weight);
+		}
+	}
+	
 	public ISignal createNewSignal() {
 		return new SignalArray(2 * o_weights.length);
 	}
@@ -61,6 +61,30 @@ public class AdjustableFeatureSingle extends AdjustableFeature {
 	}
 	
 	
+	@Override
+	public int getWeightsCount() {
+		return 1;
+	}
+	
+	
+	@Override
+	public double getWeight(int subid, boolean opening) {
+		if (subid != 0) throw new IllegalStateException("subid=" + subid);
+		return opening ? openning.getWeight() : endgame.getWeight();
+	}
+	
+	
+	@Override
+	public void setWeight(int subid, boolean opening, double weight) {
+		if (subid != 0) throw new IllegalStateException("subid=" + subid);
+		if (opening) {
+			openning.setWeight(weight);
+		} else {
+			endgame.setWeight(weight);
+		}
+	}
+	
+	
 	private void createNewWeights(double omin, double omax, double oinitial,
 			double emin, double emax, double einitial) {	
 		openning = new Weight(omin, omax, oinitial);
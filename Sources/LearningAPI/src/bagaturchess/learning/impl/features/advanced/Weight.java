@@ -2,8 +2,6 @@ package bagaturchess.learning.impl.features.advanced;
 
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
 
 import bagaturchess.bitboard.impl.utils.StringUtils;
 import bagaturchess.bitboard.impl.utils.VarStatistic;
@@ -18,6 +16,9 @@ class Weight implements Serializable {
 	private static final double DELTA = 0.000001;
 	
 	private static final double MAX_ADJUSTMENT = 100;
+	
+	private static final int LAST_MULTIPLIERS_COUNT = 10;
+	
 	private boolean norm_adjustment = false;
 	
 	private double initialVal;
@@ -30,7 +31,10 @@ class Weight implements Serializable {
 	private double max_adjustment;
 	
 	private VarStatistic varstat;
-	private List<Double> appliedMultipliers;
+	//Ring buffer of the last applied multipliers, null after loading features stored by older versions
+	private double[] lastMultipliers;
+	private int lastMultipliers_count;
+	private int lastMultipliers_index;
 	
 	
 	public Weight(double min, double max, double _initialVal, boolean _norm_adjustment) {
@@ -69,7 +73,7 @@ class Weight implements Serializable {
 			varstat.setEntropy(min);
 		}
 		
-		appliedMultipliers = new ArrayList<Double>();
+		lastMultipliers = new double[LAST_MULTIPLIERS_COUNT];
 	}
 	
 	
@@ -92,16 +96,21 @@ class Weight implements Serializable {
 		
 		double multiplier = (varstat.getTotalDirection() / varstat.getTotalAmount());
 		
-		//Should be added before changing
-		appliedMultipliers.add(multiplier);
+		if (lastMultipliers == null) {
+			lastMultipliers = new double[LAST_MULTIPLIERS_COUNT];
+		}
 		
-		while (appliedMultipliers.size() > 10) {
-			appliedMultipliers.remove(0);
+		//Should be added before changing
+		lastMultipliers[lastMultipliers_index] = multiplier;
+		lastMultipliers_index = (lastMultipliers_index + 1) % LAST_MULTIPLIERS_COUNT;
+		if (lastMultipliers_count < LAST_MULTIPLIERS_COUNT) {
+			lastMultipliers_count++;
 		}
 		
 		double all = 0;
 		double dir = 0;
-		for (Double cur: appliedMultipliers) {
+		for (int i = 0; i < lastMultipliers_count; i++) {
+			double cur = lastMultipliers[i];
 			all += Math.abs(cur);
 			dir += cur;
 		}
@@ -158,6 +167,20 @@ class Weight implements Serializable {
 		//}
 	}
 	
+	public void setWeight(double weight) {
+		
+		cur_weight = weight;
+		
+		//Norm
+		if (cur_weight < min_weight) {
+			cur_weight = min_weight;
+		}
+		if (cur_weight > max_weight) {
+			cur_weight = max_weight;
+		}
+	}
+	
+	
 	strictfp void adjust(double amount) {
 		
 		/*if (amount != 1 && amount != -1) {
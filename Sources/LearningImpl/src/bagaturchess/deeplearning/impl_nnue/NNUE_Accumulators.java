@@ -0,0 +1,202 @@
+/**
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package bagaturchess.deeplearning.impl_nnue;
+
+
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.bitboard.impl.Constants;
+
+
+/**
+ * Per ply stack of the feature transformer accumulators of the two colours.
+ * Each slot remembers the pieces it was computed for. On evaluation the slot of the current ply is brought up to date
+ * from itself or from the slot of the previous ply (whichever differs less from the board), by adding and removing
+ * only the changed features. A full refresh is done only when the diff is more expensive or the king has moved (HalfKP).
+ * Working on the bitboards instead of move callbacks keeps it independent of the board implementation
+ * and correct also when the evaluation is not called on every ply.
+ * Not thread safe, one instance per evaluator.
+ */
+public class NNUE_Accumulators {
+	
+	
+	private static final int PLIES 		= 128;
+	private static final int PLIES_MASK = PLIES - 1;
+	
+	private static final int DIFF_MAX 	= Integer.MAX_VALUE;
+	
+	
+	private NNUE_Network network;
+	
+	//[colour][ply][hidden]
+	private short[][][] accumulators;
+	//[colour][ply][type], type is from Constants.TYPE_PAWN to Constants.TYPE_KING
+	private long[][][] pieces;
+	private boolean[][] valid;
+	
+	private long[] current = new long[Constants.TYPE_KING + 1];
+	private int[] features = new int[2];
+	private float[][] buffers;
+	
+	private long refreshes;
+	private long updates;
+	
+	
+	public NNUE_Accumulators(NNUE_Network _network) {
+		
+		network = _network;
+		
+		accumulators = new short[2][PLIES][network.getHiddenSize()];
+		pieces = new long[2][PLIES][Constants.TYPE_KING + 1];
+		valid = new boolean[2][PLIES];
+		
+		buffers = network.createBuffers();
+	}
+	
+	
+	public double evaluate(IBitBoard board) {
+		
+		int ply = board.getPlayedMovesCount() & PLIES_MASK;
+		
+		update(board, Constants.COLOUR_WHITE, ply);
+		update(board, Constants.COLOUR_BLACK, ply);
+		
+		return network.forward(accumulators[Constants.COLOUR_WHITE][ply], accumulators[Constants.COLOUR_BLACK][ply], buffers);
+	}
+	
+	
+	public long getRefreshes() {
+		return refreshes;
+	}
+	
+	
+	public long getUpdates() {
+		return updates;
+	}
+	
+	
+	private void update(IBitBoard board, int colour, int ply) {
+		
+		int refresh_cost = 0;
+		for (int type = Constants.TYPE_PAWN; type <= Constants.TYPE_KING; type++) {
+			current[type] = board.getFiguresBitboardByColourAndType(colour, type);
+			refresh_cost += Long.bitCount(current[type]);
+		}
+		
+		int diff_cur = getDiff(colour, ply);
+		if (diff_cur == 0) {
+			return;
+		}
+		
+		int prev = (ply - 1) & PLIES_MASK;
+		int diff_prev = getDiff(colour, prev);
+		
+		if (diff_cur <= diff_prev && diff_cur < refresh_cost) {
+			
+			applyDiff(colour, ply);
+			
+		} else if (diff_prev < refresh_cost) {
+			
+			System.arraycopy(accumulators[colour][prev], 0, accumulators[colour][ply], 0, network.getHiddenSize());
+			System.arraycopy(pieces[colour][prev], 0, pieces[colour][ply], 0, current.length);
+			valid[colour][ply] = true;
+			
+			applyDiff(colour, ply);
+			
+		} else {
+			
+			refresh(colour, ply);
+		}
+	}
+	
+	
+	private int getDiff(int colour, int ply) {
+		
+		if (!valid[colour][ply]) {
+			return DIFF_MAX;
+		}
+		
+		long[] old = pieces[colour][ply];
+		
+		if (network.isKingRelative() && old[Constants.TYPE_KING] != current[Constants.TYPE_KING]) {
+			return DIFF_MAX;
+		}
+		
+		int diff = 0;
+		for (int type = Constants.TYPE_PAWN; type <= Constants.TYPE_KING; type++) {
+			diff += Long.bitCount(old[type] ^ current[type]);
+		}
+		
+		return diff;
+	}
+	
+	
+	private void applyDiff(int colour, int ply) {
+		
+		updates++;
+		
+		short[] accumulator = accumulators[colour][ply];
+		long[] old = pieces[colour][ply];
+		int kingSquare = Long.numberOfTrailingZeros(current[Constants.TYPE_KING]);
+		
+		for (int type = Constants.TYPE_PAWN; type <= Constants.TYPE_KING; type++) {
+			
+			long removed = old[type] & ~current[type];
+			while (removed != 0) {
+				int count = network.getFeatures(colour, type, Long.numberOfTrailingZeros(removed), kingSquare, features);
+				for (int i = 0; i < count; i++) {
+					network.subFeature(accumulator, features[i]);
+				}
+				removed &= removed - 1;
+			}
+			
+			long added = current[type] & ~old[type];
+			while (added != 0) {
+				int count = network.getFeatures(colour, type, Long.numberOfTrailingZeros(added), kingSquare, features);
+				for (int i = 0; i < count; i++) {
+					network.addFeature(accumulator, features[i]);
+				}
+				added &= added - 1;
+			}
+			
+			old[type] = current[type];
+		}
+	}
+	
+	
+	private void refresh(int colour, int ply) {
+		
+		refreshes++;
+		
+		short[] accumulator = accumulators[colour][ply];
+		for (int i = 0; i < accumulator.length; i++) {
+			accumulator[i] = 0;
+		}
+		
+		long[] old = pieces[colour][ply];
+		for (int type = Constants.TYPE_PAWN; type <= Constants.TYPE_KING; type++) {
+			old[type] = 0;
+		}
+		valid[colour][ply] = true;
+		
+		applyDiff(colour, ply);
+		
+		updates--;
+	}
+}
@@ -0,0 +1,206 @@
+/**
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package bagaturchess.deeplearning.impl_nnue;
+
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.neuroph.core.Connection;
+import org.neuroph.core.Layer;
+import org.neuroph.core.Neuron;
+import org.neuroph.core.transfer.Linear;
+import org.neuroph.core.transfer.RectifiedLinear;
+import org.neuroph.core.transfer.TransferFunction;
+import org.neuroph.nnet.MultiLayerPerceptron;
+import org.neuroph.nnet.comp.neuron.BiasNeuron;
+
+import bagaturchess.deeplearning.api.NeuralNetworkUtils;
+
+
+/**
+ * Converts a Neuroph MultiLayerPerceptron (net.bin), trained with one of the NeuralNetworkUtils_NNUE* input layouts,
+ * to the quantised NNUE_Network format (nnue.bin).
+ * Only Linear and RectifiedLinear transfer functions are supported.
+ */
+public class NNUE_Converter {
+	
+	
+	public static void main(String[] args) {
+		
+		String fromFile = args.length > 0 ? args[0] : "net.bin";
+		String toFile = args.length > 1 ? args[1] : "nnue.bin";
+		
+		try {
+			
+			long startTime = System.currentTimeMillis();
+			
+			NNUE_Network network = convert(NeuralNetworkUtils.loadNetwork(fromFile));
+			network.save(toFile);
+			
+			System.out.println("NNUE_Converter: " + fromFile + " converted to " + toFile + " for " + (System.currentTimeMillis() - startTime) + "ms");
+			
+		} catch (Throwable t) {
+			t.printStackTrace();
+		}
+	}
+	
+	
+	public static NNUE_Network convert(MultiLayerPerceptron mlp) {
+		
+		List<Layer> layers = mlp.getLayers();
+		if (layers.size() < 2) {
+			throw new IllegalStateException("The network has " + layers.size() + " layers");
+		}
+		
+		int inputsSize = getNeurons(layers.get(0)).size();
+		int featureSet = NNUE_Network.getFeatureSetByInputsSize(inputsSize);
+		
+		//Feature transformer, transposed to feature by feature order
+		Layer ft_layer = layers.get(1);
+		int hiddenSize = getNeurons(ft_layer).size();
+		float[] ft_weights = new float[inputsSize * hiddenSize];
+		float[] ft_bias = new float[hiddenSize];
+		float[] ft_weights_neuron = new float[inputsSize];
+		Map<Neuron, Integer> inputsIndexes = getIndexes(layers.get(0));
+		
+		List<Neuron> ft_neurons = getNeurons(ft_layer);
+		for (int h = 0; h < hiddenSize; h++) {
+			ft_bias[h] = getWeights(ft_neurons.get(h), inputsIndexes, ft_weights_neuron);
+			for (int i = 0; i < inputsSize; i++) {
+				ft_weights[i * hiddenSize + h] = ft_weights_neuron[i];
+			}
+		}
+		
+		//Dense layers
+		int denseCount = layers.size() - 2;
+		float[][] dense_weights = new float[denseCount][];
+		float[][] dense_bias = new float[denseCount][];
+		int[] dense_activations = new int[denseCount];
+		float[] dense_slopes = new float[denseCount];
+		
+		for (int l = 0; l < denseCount; l++) {
+			
+			Layer layer = layers.get(l + 2);
+			Map<Neuron, Integer> indexes = getIndexes(layers.get(l + 1));
+			List<Neuron> neurons = getNeurons(layer);
+			int inSize = indexes.size();
+			
+			dense_weights[l] = new float[neurons.size() * inSize];
+			dense_bias[l] = new float[neurons.size()];
+			float[] weights_neuron = new float[inSize];
+			
+			for (int o = 0; o < neurons.size(); o++) {
+				dense_bias[l][o] = getWeights(neurons.get(o), indexes, weights_neuron);
+				System.arraycopy(weights_neuron, 0, dense_weights[l], o * inSize, inSize);
+			}
+			
+			dense_activations[l] = getActivation(layer);
+			dense_slopes[l] = getSlope(layer);
+		}
+		
+		return new NNUE_Network(featureSet, hiddenSize,
+				ft_weights, ft_bias, getActivation(ft_layer), getSlope(ft_layer),
+				dense_weights, dense_bias, dense_activations, dense_slopes);
+	}
+	
+	
+	private static List<Neuron> getNeurons(Layer layer) {
+		List<Neuron> result = new ArrayList<Neuron>();
+		for (Neuron neuron: layer.getNeurons()) {
+			if (!(neuron instanceof BiasNeuron)) {
+				result.add(neuron);
+			}
+		}
+		return result;
+	}
+	
+	
+	private static Map<Neuron, Integer> getIndexes(Layer layer) {
+		Map<Neuron, Integer> result = new IdentityHashMap<Neuron, Integer>();
+		List<Neuron> neurons = getNeurons(layer);
+		for (int i = 0; i < neurons.size(); i++) {
+			result.put(neurons.get(i), i);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Fills the weights of the input connections of the neuron and returns the weight of its bias.
+	 */
+	private static float getWeights(Neuron neuron, Map<Neuron, Integer> indexes, float[] weights) {
+		
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = 0;
+		}
+		
+		float bias = 0;
+		for (Connection connection: neuron.getInputConnections()) {
+			Neuron from = connection.getFromNeuron();
+			if (from instanceof BiasNeuron) {
+				bias += connection.getWeight().getValue();
+			} else {
+				weights[indexes.get(from)] += connection.getWeight().getValue();
+			}
+		}
+		
+		return bias;
+	}
+	
+	
+	private static int getActivation(Layer layer) {
+		TransferFunction function = getTransferFunction(layer);
+		if (function instanceof RectifiedLinear) {
+			return NNUE_Network.ACTIVATION_RELU;
+		} else if (function instanceof Linear) {
+			return NNUE_Network.ACTIVATION_LINEAR;
+		} else {
+			throw new IllegalStateException("Unsupported transfer function " + function.getClass().getName());
+		}
+	}
+	
+	
+	private static float getSlope(Layer layer) {
+		TransferFunction function = getTransferFunction(layer);
+		return function instanceof Linear ? (float) ((Linear) function).getSlope() : 1;
+	}
+	
+	
+	private static TransferFunction getTransferFunction(Layer layer) {
+		
+		List<Neuron> neurons = getNeurons(layer);
+		TransferFunction function = neurons.get(0).getTransferFunction();
+		
+		for (Neuron neuron: neurons) {
+			
+			TransferFunction cur = neuron.getTransferFunction();
+			
+			if (cur.getClass() != function.getClass()
+					|| (cur instanceof Linear && ((Linear) cur).getSlope() != ((Linear) function).getSlope())) {
+				throw new IllegalStateException("All neurons in a layer must have the same transfer function");
+			}
+		}
+		
+		return function;
+	}
+}
@@ -0,0 +1,437 @@
+/**
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package bagaturchess.deeplearning.impl_nnue;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import bagaturchess.bitboard.impl.Constants;
+import bagaturchess.deeplearning.api.NeuralNetworkUtils;
+
+
+/**
+ * Quantised NNUE network, evaluated on top of the accumulators kept by NNUE_Accumulators.
+ * The first layer (feature transformer) has int16 weights stored feature by feature,
+ * so adding or removing one feature is a single pass over a continuous block of shorts.
+ * The dense layers after it are small and stay in float.
+ * Instances are immutable and shared between all search threads.
+ */
+public class NNUE_Network {
+	
+	
+	public static final int FEATURES_PSQT 			= 1;
+	public static final int FEATURES_PSQT_MATERIAL 	= 2;
+	public static final int FEATURES_HALFKP 		= 3;
+	
+	public static final int ACTIVATION_LINEAR 		= 0;
+	public static final int ACTIVATION_RELU 		= 1;
+	
+	//Maximum count of features active at the same time for one colour (16 pieces plus 16 material counters).
+	//The quantisation scale is chosen so that this count of weights still fits in a short.
+	public static final int MAX_ACTIVE_FEATURES 	= 32;
+	
+	private static final int MAGIC 					= 0x4E4E5545; //"NNUE"
+	private static final int VERSION 				= 1;
+	
+	private static final Map<String, NNUE_Network> instances = new HashMap<String, NNUE_Network>();
+	
+	
+	private int featureSet;
+	private int inputsSize;
+	private int hiddenSize;
+	
+	private short[] ft_weights;
+	private int[] ft_bias;
+	private float ft_scale;
+	private int ft_activation;
+	private float ft_slope;
+	
+	private int[] dense_sizes;
+	private float[][] dense_weights;
+	private float[][] dense_bias;
+	private int[] dense_activations;
+	private float[] dense_slopes;
+	
+	
+	/**
+	 * @param _ft_weights - float weights of the feature transformer, feature by feature (inputsSize x hiddenSize)
+	 * @param _dense_weights - float weights of the dense layers, output neuron by output neuron (outSize x inSize)
+	 */
+	public NNUE_Network(int _featureSet, int _hiddenSize,
+			float[] _ft_weights, float[] _ft_bias, int _ft_activation, float _ft_slope,
+			float[][] _dense_weights, float[][] _dense_bias, int[] _dense_activations, float[] _dense_slopes) {
+		
+		featureSet = _featureSet;
+		inputsSize = getInputsSize(featureSet);
+		hiddenSize = _hiddenSize;
+		
+		if (_ft_weights.length != inputsSize * hiddenSize) {
+			throw new IllegalStateException("ft_weights.length=" + _ft_weights.length + ", expected " + inputsSize * hiddenSize);
+		}
+		
+		float max = 0;
+		for (int i = 0; i < _ft_weights.length; i++) {
+			max = Math.max(max, Math.abs(_ft_weights[i]));
+		}
+		ft_scale = max == 0 ? 1 : Short.MAX_VALUE / (MAX_ACTIVE_FEATURES * max);
+		
+		ft_weights = new short[_ft_weights.length];
+		for (int i = 0; i < _ft_weights.length; i++) {
+			ft_weights[i] = (short) Math.round(_ft_weights[i] * ft_scale);
+		}
+		
+		ft_bias = new int[hiddenSize];
+		for (int i = 0; i < hiddenSize; i++) {
+			ft_bias[i] = Math.round(_ft_bias[i] * ft_scale);
+		}
+		
+		ft_activation = _ft_activation;
+		ft_slope = _ft_slope;
+		
+		dense_weights = _dense_weights;
+		dense_bias = _dense_bias;
+		dense_activations = _dense_activations;
+		dense_slopes = _dense_slopes;
+		
+		dense_sizes = new int[dense_weights.length];
+		int inSize = hiddenSize;
+		for (int l = 0; l < dense_weights.length; l++) {
+			dense_sizes[l] = dense_bias[l].length;
+			if (dense_weights[l].length != dense_sizes[l] * inSize) {
+				throw new IllegalStateException("dense_weights[" + l + "].length=" + dense_weights[l].length + ", expected " + dense_sizes[l] * inSize);
+			}
+			inSize = dense_sizes[l];
+		}
+	}
+	
+	
+	private NNUE_Network() {
+	}
+	
+	
+	/**
+	 * Returns the shared network loaded from nnueFile.
+	 * If there is no such file, the Neuroph network in neurophFile is converted in memory.
+	 */
+	public static synchronized NNUE_Network getInstance(String nnueFile, String neurophFile) {
+		
+		NNUE_Network network = instances.get(nnueFile);
+		
+		if (network == null) {
+			
+			try {
+				
+				if (new File(nnueFile).exists()) {
+					network = load(nnueFile);
+				} else {
+					network = NNUE_Converter.convert(NeuralNetworkUtils.loadNetwork(neurophFile));
+				}
+				
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			
+			instances.put(nnueFile, network);
+		}
+		
+		return network;
+	}
+	
+	
+	public static int getInputsSize(int featureSet) {
+		switch (featureSet) {
+			case FEATURES_PSQT:
+				return NeuralNetworkUtils_NNUE_PSQT.getInputsSize();
+			case FEATURES_PSQT_MATERIAL:
+				return NeuralNetworkUtils_NNUE_PSQT_Material.getInputsSize();
+			case FEATURES_HALFKP:
+				return NeuralNetworkUtils_NNUE.getInputsSize();
+			default:
+				throw new IllegalStateException("featureSet=" + featureSet);
+		}
+	}
+	
+	
+	public static int getFeatureSetByInputsSize(int inputsSize) {
+		if (inputsSize == NeuralNetworkUtils_NNUE_PSQT.getInputsSize()) {
+			return FEATURES_PSQT;
+		} else if (inputsSize == NeuralNetworkUtils_NNUE_PSQT_Material.getInputsSize()) {
+			return FEATURES_PSQT_MATERIAL;
+		} else if (inputsSize == NeuralNetworkUtils_NNUE.getInputsSize()) {
+			return FEATURES_HALFKP;
+		} else {
+			throw new IllegalStateException("Unsupported inputs size " + inputsSize);
+		}
+	}
+	
+	
+	public int getHiddenSize() {
+		return hiddenSize;
+	}
+	
+	
+	/**
+	 * With HalfKP all features of a colour depend on its king square, so the accumulator must be refreshed after a king move.
+	 */
+	public boolean isKingRelative() {
+		return featureSet == FEATURES_HALFKP;
+	}
+	
+	
+	/**
+	 * Fills the indexes of the inputs, which are set by the given piece, in the same layout as the NeuralNetworkUtils_NNUE* classes.
+	 * @return the count of the indexes (0, 1 or 2)
+	 */
+	public int getFeatures(int colour, int type, int square, int kingSquare, int[] result) {
+		return getFeatures(featureSet, colour, type, square, kingSquare, result);
+	}
+	
+	
+	public static int getFeatures(int featureSet, int colour, int type, int square, int kingSquare, int[] result) {
+		
+		switch (featureSet) {
+			
+			case FEATURES_PSQT:
+			case FEATURES_PSQT_MATERIAL:
+				
+				//king 0, pawn 1, knight 2, bishop 3, rook 4, queen 5
+				result[0] = colour * 6 * 64 + (type == Constants.TYPE_KING ? 0 : type) * 64 + square;
+				
+				if (featureSet == FEATURES_PSQT) {
+					return 1;
+				}
+				
+				//pawn 0, king 1, knight 2, bishop 3, rook 4, queen 5
+				result[1] = 12 * 64 + colour * 6 + (type == Constants.TYPE_PAWN ? 0 : (type == Constants.TYPE_KING ? 1 : type));
+				
+				return 2;
+				
+			case FEATURES_HALFKP:
+				
+				if (type == Constants.TYPE_KING) {
+					return 0;
+				}
+				
+				//pawn 0, knight 1, bishop 2, rook 3, queen 4
+				result[0] = colour * 64 * 5 * 64 + kingSquare * 5 * 64 + (type - Constants.TYPE_PAWN) * 64 + square;
+				
+				return 1;
+				
+			default:
+				throw new IllegalStateException("featureSet=" + featureSet);
+		}
+	}
+	
+	
+	public void addFeature(short[] accumulator, int feature) {
+		short[] weights = ft_weights;
+		int offset = feature * hiddenSize;
+		for (int i = 0; i < hiddenSize; i++) {
+			accumulator[i] += weights[offset + i];
+		}
+	}
+	
+	
+	public void subFeature(short[] accumulator, int feature) {
+		short[] weights = ft_weights;
+		int offset = feature * hiddenSize;
+		for (int i = 0; i < hiddenSize; i++) {
+			accumulator[i] -= weights[offset + i];
+		}
+	}
+	
+	
+	public float[][] createBuffers() {
+		float[][] buffers = new float[1 + dense_sizes.length][];
+		buffers[0] = new float[hiddenSize];
+		for (int l = 0; l < dense_sizes.length; l++) {
+			buffers[l + 1] = new float[dense_sizes[l]];
+		}
+		return buffers;
+	}
+	
+	
+	/**
+	 * Computes the output of the network from the accumulators of the two colours.
+	 * The buffers are created with createBuffers() and must not be shared between threads.
+	 */
+	public float forward(short[] accumulator_white, short[] accumulator_black, float[][] buffers) {
+		
+		float[] hidden = buffers[0];
+		
+		float inv_scale = 1f / ft_scale;
+		for (int i = 0; i < hiddenSize; i++) {
+			hidden[i] = (ft_bias[i] + accumulator_white[i] + accumulator_black[i]) * inv_scale;
+		}
+		activate(hidden, ft_activation, ft_slope);
+		
+		float[] in = hidden;
+		for (int l = 0; l < dense_weights.length; l++) {
+			
+			float[] out = buffers[l + 1];
+			float[] weights = dense_weights[l];
+			float[] bias = dense_bias[l];
+			int inSize = in.length;
+			
+			for (int o = 0; o < out.length; o++) {
+				float sum = bias[o];
+				int offset = o * inSize;
+				for (int i = 0; i < inSize; i++) {
+					sum += weights[offset + i] * in[i];
+				}
+				out[o] = sum;
+			}
+			activate(out, dense_activations[l], dense_slopes[l]);
+			
+			in = out;
+		}
+		
+		return in[0];
+	}
+	
+	
+	private static void activate(float[] values, int activation, float slope) {
+		if (activation == ACTIVATION_RELU) {
+			for (int i = 0; i < values.length; i++) {
+				values[i] = Math.max(0, values[i]);
+			}
+		} else if (slope != 1) {
+			for (int i = 0; i < values.length; i++) {
+				values[i] *= slope;
+			}
+		}
+	}
+	
+	
+	public void save(String fileName) throws IOException {
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 20));
+		
+		try {
+			
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(featureSet);
+			out.writeInt(hiddenSize);
+			out.writeFloat(ft_scale);
+			out.writeInt(ft_activation);
+			out.writeFloat(ft_slope);
+			
+			for (int i = 0; i < hiddenSize; i++) {
+				out.writeInt(ft_bias[i]);
+			}
+			
+			ByteBuffer buffer = ByteBuffer.allocate(2 * ft_weights.length);
+			buffer.asShortBuffer().put(ft_weights);
+			out.write(buffer.array());
+			
+			out.writeInt(dense_weights.length);
+			for (int l = 0; l < dense_weights.length; l++) {
+				out.writeInt(dense_sizes[l]);
+				out.writeInt(dense_activations[l]);
+				out.writeFloat(dense_slopes[l]);
+				for (int i = 0; i < dense_bias[l].length; i++) {
+					out.writeFloat(dense_bias[l][i]);
+				}
+				for (int i = 0; i < dense_weights[l].length; i++) {
+					out.writeFloat(dense_weights[l][i]);
+				}
+			}
+			
+		} finally {
+			out.close();
+		}
+	}
+	
+	
+	public static NNUE_Network load(String fileName) throws IOException {
+		
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 20));
+		
+		try {
+			
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a NNUE file: " + fileName);
+			}
+			
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported NNUE file version " + version + ": " + fileName);
+			}
+			
+			NNUE_Network network = new NNUE_Network();
+			
+			network.featureSet = in.readInt();
+			network.inputsSize = getInputsSize(network.featureSet);
+			network.hiddenSize = in.readInt();
+			network.ft_scale = in.readFloat();
+			network.ft_activation = in.readInt();
+			network.ft_slope = in.readFloat();
+			
+			network.ft_bias = new int[network.hiddenSize];
+			for (int i = 0; i < network.hiddenSize; i++) {
+				network.ft_bias[i] = in.readInt();
+			}
+			
+			byte[] bytes = new byte[2 * network.inputsSize * network.hiddenSize];
+			in.readFully(bytes);
+			network.ft_weights = new short[network.inputsSize * network.hiddenSize];
+			ByteBuffer.wrap(bytes).asShortBuffer().get(network.ft_weights);
+			
+			int layers = in.readInt();
+			network.dense_sizes = new int[layers];
+			network.dense_activations = new int[layers];
+			network.dense_slopes = new float[layers];
+			network.dense_bias = new float[layers][];
+			network.dense_weights = new float[layers][];
+			
+			int inSize = network.hiddenSize;
+			for (int l = 0; l < layers; l++) {
+				network.dense_sizes[l] = in.readInt();
+				network.dense_activations[l] = in.readInt();
+				network.dense_slopes[l] = in.readFloat();
+				network.dense_bias[l] = new float[network.dense_sizes[l]];
+				for (int i = 0; i < network.dense_bias[l].length; i++) {
+					network.dense_bias[l][i] = in.readFloat();
+				}
+				network.dense_weights[l] = new float[network.dense_sizes[l] * inSize];
+				for (int i = 0; i < network.dense_weights[l].length; i++) {
+					network.dense_weights[l][i] = in.readFloat();
+				}
+				inSize = network.dense_sizes[l];
+			}
+			
+			return network;
+			
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,639 @@
+/**
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package bagaturchess.deeplearning.impl_nnue;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Float trainer of the NNUE_Network layout: sparse feature transformer with ReLU, ReLU dense layers and one linear output.
+ * 
+ * The inputs are never materialised. The feature transformer sums only the rows of the active features
+ * and its gradient is accumulated only into these rows, which are then updated by a lazy Adam (the moments of the other rows stay untouched).
+ * The samples of a mini-batch are split between the threads. After that the gradient of the feature transformer is reduced
+ * by splitting the hidden neurons between the threads, so no thread needs a private copy of the inputsSize x hiddenSize gradient.
+ * 
+ * The output is in units of EVAL_SCALE centipawns and the loss is (sigmoid(output) - sigmoid(target / EVAL_SCALE))^2,
+ * the same Texel loss as the one of the goldmiddle GradientTuner.
+ */
+public class NNUE_Trainer {
+	
+	
+	public static final float EVAL_SCALE = (float) (400 / Math.log(10));
+	
+	private static final float BETA1 = 0.9f;
+	private static final float BETA2 = 0.999f;
+	private static final float EPSILON = 1e-8f;
+	
+	private static final int MAGIC = 0x4E4E5554; //"NNUT"
+	
+	
+	private final int featureSet;
+	private final int inputsSize;
+	private final int hiddenSize;
+	private final int[] denseSizes;
+	
+	private final Param ft_weights;
+	private final Param ft_bias;
+	private final Param[] dense_weights;
+	private final Param[] dense_bias;
+	
+	private final ExecutorService executor;
+	private final Worker[] workers;
+	
+	private final boolean[] touched;
+	private final int[] touchedList;
+	private int touchedCount;
+	
+	private float[] deltas;
+	private int[] rows;
+	private final Random random;
+	private long steps;
+	
+	
+	/**
+	 * @param _denseSizes - sizes of the dense layers after the feature transformer, the last one must be 1
+	 */
+	public NNUE_Trainer(int _featureSet, int _hiddenSize, int[] _denseSizes, int threadsCount) {
+		
+		featureSet = _featureSet;
+		inputsSize = NNUE_Network.getInputsSize(featureSet);
+		hiddenSize = _hiddenSize;
+		denseSizes = _denseSizes;
+		
+		if (denseSizes.length == 0 || denseSizes[denseSizes.length - 1] != 1) {
+			throw new IllegalStateException("The last dense layer must have one neuron");
+		}
+		
+		random = new Random(777);
+		
+		//The sum of the active features should start with a variance close to 1
+		ft_weights = new Param(inputsSize * hiddenSize, (float) (1 / Math.sqrt(NNUE_Network.MAX_ACTIVE_FEATURES)), random);
+		ft_bias = new Param(hiddenSize, 0, random);
+		
+		dense_weights = new Param[denseSizes.length];
+		dense_bias = new Param[denseSizes.length];
+		int inSize = hiddenSize;
+		for (int l = 0; l < denseSizes.length; l++) {
+			//He initialisation for the ReLU inputs
+			dense_weights[l] = new Param(denseSizes[l] * inSize, (float) Math.sqrt(2.0 / inSize), random);
+			dense_bias[l] = new Param(denseSizes[l], 0, random);
+			inSize = denseSizes[l];
+		}
+		
+		executor = Executors.newFixedThreadPool(threadsCount);
+		workers = new Worker[threadsCount];
+		for (int i = 0; i < threadsCount; i++) {
+			workers[i] = new Worker();
+		}
+		
+		touched = new boolean[inputsSize];
+		touchedList = new int[inputsSize];
+	}
+	
+	
+	/**
+	 * Runs one pass over all positions in random order.
+	 * @return the statistics of the positions, computed with the weights of their batch
+	 */
+	public EpochStats epoch(NNUE_TrainingSet set, int batchSize, float learningRate) throws Exception {
+		
+		if (set.getFeatureSet() != featureSet) {
+			throw new IllegalStateException("set.getFeatureSet()=" + set.getFeatureSet() + ", featureSet=" + featureSet);
+		}
+		
+		if (rows == null || rows.length != set.getRowsCount()) {
+			rows = new int[set.getRowsCount()];
+			for (int i = 0; i < rows.length; i++) {
+				rows[i] = i;
+			}
+		}
+		
+		if (deltas == null || deltas.length < batchSize * hiddenSize) {
+			deltas = new float[batchSize * hiddenSize];
+		}
+		
+		for (int i = rows.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = rows[i];
+			rows[i] = rows[j];
+			rows[j] = tmp;
+		}
+		
+		EpochStats stats = new EpochStats();
+		
+		for (int from = 0; from < rows.length; from += batchSize) {
+			int to = Math.min(from + batchSize, rows.length);
+			batch(set, from, to, learningRate, stats);
+		}
+		
+		return stats;
+	}
+	
+	
+	private void batch(final NNUE_TrainingSet set, final int from, final int to, float learningRate, EpochStats stats) throws Exception {
+		
+		final int count = to - from;
+		
+		//Forward and backward pass, the samples are split between the workers
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (int w = 0; w < workers.length; w++) {
+			final Worker worker = workers[w];
+			final int worker_from = from + count * w / workers.length;
+			final int worker_to = from + count * (w + 1) / workers.length;
+			tasks.add(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					for (int i = worker_from; i < worker_to; i++) {
+						worker.train(set, rows[i], i - from);
+					}
+					return null;
+				}
+			});
+		}
+		invokeAll(tasks);
+		
+		//Rows of the feature transformer used by the batch
+		int[] features = set.getFeatures();
+		for (int i = from; i < to; i++) {
+			int row = rows[i];
+			for (int k = set.getRowStart(row); k < set.getRowEnd(row); k++) {
+				int feature = features[k];
+				if (!touched[feature]) {
+					touched[feature] = true;
+					touchedList[touchedCount++] = feature;
+				}
+			}
+		}
+		
+		steps++;
+		final float step = (float) (learningRate * Math.sqrt(1 - Math.pow(BETA2, steps)) / (1 - Math.pow(BETA1, steps)));
+		final float scale = 1f / count;
+		
+		//Gradient and update of the feature transformer, the hidden neurons are split between the workers
+		tasks.clear();
+		for (int w = 0; w < workers.length; w++) {
+			final int hidden_from = hiddenSize * w / workers.length;
+			final int hidden_to = hiddenSize * (w + 1) / workers.length;
+			tasks.add(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					updateFeatureTransformer(set, from, to, hidden_from, hidden_to, step, scale);
+					return null;
+				}
+			});
+		}
+		invokeAll(tasks);
+		
+		for (int i = 0; i < touchedCount; i++) {
+			touched[touchedList[i]] = false;
+		}
+		touchedCount = 0;
+		
+		//The other layers are small, their gradients are summed and updated by the current thread
+		for (int w = 0; w < workers.length; w++) {
+			Worker worker = workers[w];
+			ft_bias.addGradient(worker.ft_bias_grad);
+			for (int l = 0; l < denseSizes.length; l++) {
+				dense_weights[l].addGradient(worker.dense_weights_grad[l]);
+				dense_bias[l].addGradient(worker.dense_bias_grad[l]);
+			}
+			stats.add(worker);
+		}
+		
+		ft_bias.update(0, ft_bias.values.length, step, scale);
+		for (int l = 0; l < denseSizes.length; l++) {
+			dense_weights[l].update(0, dense_weights[l].values.length, step, scale);
+			dense_bias[l].update(0, dense_bias[l].values.length, step, scale);
+		}
+	}
+	
+	
+	private void updateFeatureTransformer(NNUE_TrainingSet set, int from, int to, int hidden_from, int hidden_to, float step, float scale) {
+		
+		int[] features = set.getFeatures();
+		float[] grad = ft_weights.grad;
+		
+		for (int i = from; i < to; i++) {
+			
+			int row = rows[i];
+			int delta_offset = (i - from) * hiddenSize;
+			
+			for (int k = set.getRowStart(row); k < set.getRowEnd(row); k++) {
+				int offset = features[k] * hiddenSize;
+				for (int h = hidden_from; h < hidden_to; h++) {
+					grad[offset + h] += deltas[delta_offset + h];
+				}
+			}
+		}
+		
+		for (int i = 0; i < touchedCount; i++) {
+			int offset = touchedList[i] * hiddenSize;
+			ft_weights.update(offset + hidden_from, offset + hidden_to, step, scale);
+		}
+	}
+	
+	
+	private void invokeAll(List<Callable<Object>> tasks) throws Exception {
+		List<Future<Object>> futures = executor.invokeAll(tasks);
+		for (Future<Object> future: futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof Exception) {
+					throw (Exception) cause;
+				}
+				throw e;
+			}
+		}
+	}
+	
+	
+	/**
+	 * @return the evaluation of the position in centipawns, white player's point of view
+	 */
+	public float evaluate(NNUE_TrainingSet set, int row) {
+		return workers[0].forward(set, row) * EVAL_SCALE;
+	}
+	
+	
+	/**
+	 * @return the quantised network for the engine, which could be saved as nnue.bin
+	 */
+	public NNUE_Network export() {
+		
+		float[][] weights = new float[denseSizes.length][];
+		float[][] bias = new float[denseSizes.length][];
+		int[] activations = new int[denseSizes.length];
+		float[] slopes = new float[denseSizes.length];
+		
+		for (int l = 0; l < denseSizes.length; l++) {
+			weights[l] = dense_weights[l].values.clone();
+			bias[l] = dense_bias[l].values.clone();
+			boolean output = l == denseSizes.length - 1;
+			activations[l] = output ? NNUE_Network.ACTIVATION_LINEAR : NNUE_Network.ACTIVATION_RELU;
+			slopes[l] = output ? EVAL_SCALE : 1;
+		}
+		
+		return new NNUE_Network(featureSet, hiddenSize,
+				ft_weights.values, ft_bias.values, NNUE_Network.ACTIVATION_RELU, 1,
+				weights, bias, activations, slopes);
+	}
+	
+	
+	/**
+	 * Saves the float weights, so the training could be continued later. The Adam moments are not saved.
+	 */
+	public void save(String fileName) throws IOException {
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 20));
+		
+		try {
+			
+			out.writeInt(MAGIC);
+			out.writeInt(featureSet);
+			out.writeInt(hiddenSize);
+			out.writeInt(denseSizes.length);
+			for (int l = 0; l < denseSizes.length; l++) {
+				out.writeInt(denseSizes[l]);
+			}
+			
+			writeFloats(out, ft_weights.values);
+			writeFloats(out, ft_bias.values);
+			for (int l = 0; l < denseSizes.length; l++) {
+				writeFloats(out, dense_weights[l].values);
+				writeFloats(out, dense_bias[l].values);
+			}
+			
+		} finally {
+			out.close();
+		}
+	}
+	
+	
+	public static NNUE_Trainer load(String fileName, int threadsCount) throws IOException {
+		
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 20));
+		
+		try {
+			
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a NNUE trainer file: " + fileName);
+			}
+			
+			int featureSet = in.readInt();
+			int hiddenSize = in.readInt();
+			int[] denseSizes = new int[in.readInt()];
+			for (int l = 0; l < denseSizes.length; l++) {
+				denseSizes[l] = in.readInt();
+			}
+			
+			NNUE_Trainer trainer = new NNUE_Trainer(featureSet, hiddenSize, denseSizes, threadsCount);
+			
+			readFloats(in, trainer.ft_weights.values);
+			readFloats(in, trainer.ft_bias.values);
+			for (int l = 0; l < denseSizes.length; l++) {
+				readFloats(in, trainer.dense_weights[l].values);
+				readFloats(in, trainer.dense_bias[l].values);
+			}
+			
+			return trainer;
+			
+		} finally {
+			in.close();
+		}
+	}
+	
+	
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+	
+	
+	private static void writeFloats(DataOutputStream out, float[] values) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(4 * values.length);
+		buffer.asFloatBuffer().put(values);
+		out.write(buffer.array());
+	}
+	
+	
+	private static void readFloats(DataInputStream in, float[] values) throws IOException {
+		byte[] bytes = new byte[4 * values.length];
+		in.readFully(bytes);
+		ByteBuffer.wrap(bytes).asFloatBuffer().get(values);
+	}
+	
+	
+	/**
+	 * Values of one weights array with their gradient and Adam moments.
+	 */
+	private static final class Param {
+		
+		
+		private final float[] values;
+		private final float[] grad;
+		private final float[] moments1;
+		private final float[] moments2;
+		
+		
+		private Param(int size, float deviation, Random random) {
+			values = new float[size];
+			grad = new float[size];
+			moments1 = new float[size];
+			moments2 = new float[size];
+			for (int i = 0; i < size; i++) {
+				values[i] = (float) (deviation * random.nextGaussian());
+			}
+		}
+		
+		
+		private void addGradient(float[] other) {
+			for (int i = 0; i < other.length; i++) {
+				grad[i] += other[i];
+				other[i] = 0;
+			}
+		}
+		
+		
+		/**
+		 * Adam update of [from, to) with the scaled gradient, which is cleared after that.
+		 */
+		private void update(int from, int to, float step, float scale) {
+			for (int i = from; i < to; i++) {
+				float g = grad[i] * scale;
+				grad[i] = 0;
+				moments1[i] = BETA1 * moments1[i] + (1 - BETA1) * g;
+				moments2[i] = BETA2 * moments2[i] + (1 - BETA2) * g * g;
+				values[i] -= step * moments1[i] / ((float) Math.sqrt(moments2[i]) + EPSILON);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Activations and gradients of the samples processed by one thread.
+	 */
+	private final class Worker {
+		
+		
+		//[0] is the feature transformer output, [l + 1] is the output of dense layer l
+		private final float[][] activations;
+		private final float[][] errors;
+		
+		private final float[] ft_bias_grad;
+		private final float[][] dense_weights_grad;
+		private final float[][] dense_bias_grad;
+		
+		private long count;
+		private double lossSum;
+		private double targetsSum;
+		private double diffsSum;
+		
+		
+		private Worker() {
+			
+			activations = new float[denseSizes.length + 1][];
+			errors = new float[denseSizes.length + 1][];
+			activations[0] = new float[hiddenSize];
+			errors[0] = new float[hiddenSize];
+			
+			ft_bias_grad = new float[hiddenSize];
+			dense_weights_grad = new float[denseSizes.length][];
+			dense_bias_grad = new float[denseSizes.length][];
+			
+			for (int l = 0; l < denseSizes.length; l++) {
+				activations[l + 1] = new float[denseSizes[l]];
+				errors[l + 1] = new float[denseSizes[l]];
+				dense_weights_grad[l] = new float[dense_weights[l].values.length];
+				dense_bias_grad[l] = new float[denseSizes[l]];
+			}
+		}
+		
+		
+		private float forward(NNUE_TrainingSet set, int row) {
+			
+			float[] hidden = activations[0];
+			System.arraycopy(ft_bias.values, 0, hidden, 0, hiddenSize);
+			
+			int[] features = set.getFeatures();
+			float[] weights = ft_weights.values;
+			for (int k = set.getRowStart(row); k < set.getRowEnd(row); k++) {
+				int offset = features[k] * hiddenSize;
+				for (int h = 0; h < hiddenSize; h++) {
+					hidden[h] += weights[offset + h];
+				}
+			}
+			relu(hidden);
+			
+			for (int l = 0; l < denseSizes.length; l++) {
+				
+				float[] in = activations[l];
+				float[] out = activations[l + 1];
+				float[] layer_weights = dense_weights[l].values;
+				float[] layer_bias = dense_bias[l].values;
+				int inSize = in.length;
+				
+				for (int o = 0; o < out.length; o++) {
+					float sum = layer_bias[o];
+					int offset = o * inSize;
+					for (int i = 0; i < inSize; i++) {
+						sum += layer_weights[offset + i] * in[i];
+					}
+					out[o] = sum;
+				}
+				
+				if (l < denseSizes.length - 1) {
+					relu(out);
+				}
+			}
+			
+			return activations[denseSizes.length][0];
+		}
+		
+		
+		/**
+		 * Accumulates the gradients of the sample and stores the error of the feature transformer output into deltas[index].
+		 */
+		private void train(NNUE_TrainingSet set, int row, int index) {
+			
+			float output = forward(set, row);
+			float target = set.getTarget(row);
+			
+			float sigmoid_output = sigmoid(output);
+			float sigmoid_target = sigmoid(target / EVAL_SCALE);
+			float error = sigmoid_output - sigmoid_target;
+			
+			count++;
+			lossSum += error * error;
+			targetsSum += Math.abs(target);
+			diffsSum += Math.abs(target - output * EVAL_SCALE);
+			
+			//d(error^2)/d(output)
+			errors[denseSizes.length][0] = 2 * error * sigmoid_output * (1 - sigmoid_output);
+			
+			for (int l = denseSizes.length - 1; l >= 0; l--) {
+				
+				float[] in = activations[l];
+				float[] in_errors = errors[l];
+				float[] out_errors = errors[l + 1];
+				float[] layer_weights = dense_weights[l].values;
+				float[] weights_grad = dense_weights_grad[l];
+				float[] bias_grad = dense_bias_grad[l];
+				int inSize = in.length;
+				
+				for (int i = 0; i < inSize; i++) {
+					in_errors[i] = 0;
+				}
+				
+				for (int o = 0; o < out_errors.length; o++) {
+					float out_error = out_errors[o];
+					if (out_error == 0) {
+						continue;
+					}
+					bias_grad[o] += out_error;
+					int offset = o * inSize;
+					for (int i = 0; i < inSize; i++) {
+						weights_grad[offset + i] += out_error * in[i];
+						in_errors[i] += out_error * layer_weights[offset + i];
+					}
+				}
+				
+				//ReLU derivative
+				for (int i = 0; i < inSize; i++) {
+					if (in[i] <= 0) {
+						in_errors[i] = 0;
+					}
+				}
+			}
+			
+			float[] hidden_errors = errors[0];
+			System.arraycopy(hidden_errors, 0, deltas, index * hiddenSize, hiddenSize);
+			for (int h = 0; h < hiddenSize; h++) {
+				ft_bias_grad[h] += hidden_errors[h];
+			}
+		}
+		
+		
+		private void relu(float[] values) {
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] < 0) {
+					values[i] = 0;
+				}
+			}
+		}
+		
+		
+		private float sigmoid(float x) {
+			return (float) (1 / (1 + Math.exp(-x)));
+		}
+	}
+	
+	
+	public static final class EpochStats {
+		
+		
+		private long count;
+		private double lossSum;
+		private double targetsSum;
+		private double diffsSum;
+		
+		
+		private void add(Worker worker) {
+			count += worker.count;
+			lossSum += worker.lossSum;
+			targetsSum += worker.targetsSum;
+			diffsSum += worker.diffsSum;
+			worker.count = 0;
+			worker.lossSum = 0;
+			worker.targetsSum = 0;
+			worker.diffsSum = 0;
+		}
+		
+		
+		public double getLoss() {
+			return count == 0 ? 0 : lossSum / count;
+		}
+		
+		
+		/**
+		 * @return the same measure as the one of DeepLearningVisitorImpl_NNUE, 100 * (1 - sum(|target - eval|) / sum(|target|))
+		 */
+		public double getSuccessPercent() {
+			return 100 * (1 - (diffsSum / targetsSum));
+		}
+	}
+}
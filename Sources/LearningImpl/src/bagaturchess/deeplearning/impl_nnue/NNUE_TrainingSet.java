@@ -0,0 +1,146 @@
+/**
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package bagaturchess.deeplearning.impl_nnue;
+
+
+import java.util.Arrays;
+
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.bitboard.impl.Constants;
+
+
+/**
+ * Training positions kept as the indexes of their active features (CSR layout) and their evaluations.
+ * The features are the ones of NNUE_Network.getFeatures, so the trained network could be evaluated by NNUE_Accumulators.
+ */
+public class NNUE_TrainingSet {
+	
+	
+	private static final int INITIAL_ROWS = 1024;
+	
+	
+	private final int featureSet;
+	
+	private int rowsCount;
+	private int[] rowsStart;
+	private float[] targets;
+	
+	private int featuresCount;
+	private int[] features;
+	
+	private int[] buffer = new int[2];
+	
+	
+	public NNUE_TrainingSet(int _featureSet) {
+		featureSet = _featureSet;
+		rowsStart = new int[INITIAL_ROWS + 1];
+		targets = new float[INITIAL_ROWS];
+		features = new int[INITIAL_ROWS * NNUE_Network.MAX_ACTIVE_FEATURES];
+	}
+	
+	
+	public int getFeatureSet() {
+		return featureSet;
+	}
+	
+	
+	public void add(IBitBoard board, int whitePlayerEval) {
+		
+		for (int colour = Constants.COLOUR_WHITE; colour <= Constants.COLOUR_BLACK; colour++) {
+			
+			int kingSquare = Long.numberOfTrailingZeros(board.getFiguresBitboardByColourAndType(colour, Constants.TYPE_KING));
+			
+			for (int type = Constants.TYPE_PAWN; type <= Constants.TYPE_KING; type++) {
+				
+				long bb = board.getFiguresBitboardByColourAndType(colour, type);
+				
+				while (bb != 0) {
+					int count = NNUE_Network.getFeatures(featureSet, colour, type, Long.numberOfTrailingZeros(bb), kingSquare, buffer);
+					for (int i = 0; i < count; i++) {
+						addFeature(buffer[i]);
+					}
+					bb &= bb - 1;
+				}
+			}
+		}
+		
+		endRow(whitePlayerEval);
+	}
+	
+	
+	public void append(NNUE_TrainingSet other) {
+		for (int row = 0; row < other.rowsCount; row++) {
+			for (int i = other.rowsStart[row]; i < other.rowsStart[row + 1]; i++) {
+				addFeature(other.features[i]);
+			}
+			endRow(other.targets[row]);
+		}
+	}
+	
+	
+	public int getRowsCount() {
+		return rowsCount;
+	}
+	
+	
+	int getRowStart(int row) {
+		return rowsStart[row];
+	}
+	
+	
+	int getRowEnd(int row) {
+		return rowsStart[row + 1];
+	}
+	
+	
+	int[] getFeatures() {
+		return features;
+	}
+	
+	
+	float getTarget(int row) {
+		return targets[row];
+	}
+	
+	
+	private void addFeature(int feature) {
+		
+		if (featuresCount == features.length) {
+			if (featuresCount == Integer.MAX_VALUE - 8) {
+				throw new IllegalStateException("Too many features, limit the positions count");
+			}
+			features = Arrays.copyOf(features, (int) Math.min(2L * featuresCount, Integer.MAX_VALUE - 8));
+		}
+		
+		features[featuresCount++] = feature;
+	}
+	
+	
+	private void endRow(float target) {
+		
+		if (rowsCount == targets.length) {
+			rowsStart = Arrays.copyOf(rowsStart, 2 * rowsCount + 1);
+			targets = Arrays.copyOf(targets, 2 * rowsCount);
+		}
+		
+		targets[rowsCount++] = target;
+		rowsStart[rowsCount] = featuresCount;
+	}
+}
@@ -18,7 +18,7 @@ public class EvaluationConfig implements IEvalConfig {
 	
 	@Override
 	public String getEvaluatorFactoryClassName() {
-		return NeuralNetworkEvaluatorFactory.class.getName();
+		return NNUEEvaluatorFactory.class.getName();
 	}
 	
 	@Override
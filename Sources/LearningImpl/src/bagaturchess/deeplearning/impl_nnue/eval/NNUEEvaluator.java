@@ -0,0 +1,76 @@
+package bagaturchess.deeplearning.impl_nnue.eval;
+
+
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.deeplearning.impl_nnue.NNUE_Accumulators;
+import bagaturchess.deeplearning.impl_nnue.NNUE_Network;
+import bagaturchess.search.api.IEvalConfig;
+import bagaturchess.search.impl.eval.BaseEvaluator;
+import bagaturchess.search.impl.eval.cache.IEvalCache;
+
+
+public class NNUEEvaluator extends BaseEvaluator {
+	
+	
+	private static final String NNUE_FILE = "nnue.bin";
+	private static final String NET_FILE = "net.bin";
+	
+	
+	private IBitBoard bitboard;
+	private NNUE_Accumulators accumulators;
+	
+	
+	NNUEEvaluator(IBitBoard _bitboard, IEvalCache _evalCache, IEvalConfig _evalConfig) {
+		
+		super(_bitboard, _evalCache, _evalConfig);
+		
+		bitboard = _bitboard;
+		
+		accumulators = new NNUE_Accumulators(NNUE_Network.getInstance(NNUE_FILE, NET_FILE));
+	}
+	
+	
+	@Override
+	protected double phase1() {
+		
+		double actualWhitePlayerEval = accumulators.evaluate(bitboard);
+		
+		return actualWhitePlayerEval;
+	}
+	
+	
+	@Override
+	protected double phase2() {
+
+		int eval = 0;
+		
+		return eval;
+	}
+	
+	
+	@Override
+	protected double phase3() {
+		
+		int eval = 0;
+				
+		return eval;
+	}
+	
+	
+	@Override
+	protected double phase4() {
+		
+		int eval = 0;
+		
+		return eval;
+	}
+	
+	
+	@Override
+	protected double phase5() {
+		
+		int eval = 0;
+		
+		return eval;
+	}
+}
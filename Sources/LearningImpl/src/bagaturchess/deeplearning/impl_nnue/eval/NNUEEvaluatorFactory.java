@@ -0,0 +1,24 @@
+package bagaturchess.deeplearning.impl_nnue.eval;
+
+
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.search.api.IEvalConfig;
+import bagaturchess.search.api.IEvaluator;
+import bagaturchess.search.api.IEvaluatorFactory;
+import bagaturchess.search.impl.eval.cache.IEvalCache;
+
+
+public class NNUEEvaluatorFactory implements IEvaluatorFactory {
+	
+	public NNUEEvaluatorFactory() {
+	}
+	
+	public IEvaluator create(IBitBoard bitboard, IEvalCache evalCache) {
+		return new NNUEEvaluator(bitboard, evalCache, null);
+	}
+	
+	public IEvaluator create(IBitBoard bitboard, IEvalCache evalCache, IEvalConfig evalConfig) {
+		return new NNUEEvaluator(bitboard, evalCache, evalConfig);
+	}
+	
+}
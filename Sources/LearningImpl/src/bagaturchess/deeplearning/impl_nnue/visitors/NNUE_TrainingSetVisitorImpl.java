@@ -0,0 +1,68 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.deeplearning.impl_nnue.visitors;
+
+
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.bitboard.api.IGameStatus;
+import bagaturchess.deeplearning.impl_nnue.NNUE_TrainingSet;
+import bagaturchess.ucitracker.api.PositionsVisitor;
+
+
+/**
+ * Collects the active features of the visited positions for NNUE_Trainer.
+ * Each instance fills its own set, so the positions could be traversed in parallel with one visitor per thread.
+ */
+public class NNUE_TrainingSetVisitorImpl implements PositionsVisitor {
+	
+	
+	private final NNUE_TrainingSet set;
+	
+	
+	public NNUE_TrainingSetVisitorImpl(NNUE_TrainingSet _set) {
+		set = _set;
+	}
+	
+	
+	@Override
+	public void visitPosition(IBitBoard bitboard, IGameStatus status, int expectedWhitePlayerEval) {
+		
+		if (status != IGameStatus.NONE) {
+			throw new IllegalStateException("status=" + status);
+		}
+		
+		set.add(bitboard, expectedWhitePlayerEval);
+	}
+	
+	
+	@Override
+	public void begin(IBitBoard bitboard) throws Exception {
+		//Do nothing
+	}
+	
+	
+	@Override
+	public void end() {
+		//Do nothing
+	}
+}
@@ -1,9 +1,12 @@
 package bagaturchess.deeplearning.run;
 
 
+import java.io.File;
+
 import bagaturchess.deeplearning.impl_nnue.visitors.DeepLearningVisitorImpl_NNUE;
 import bagaturchess.learning.goldmiddle.api.ILearningInput;
 import bagaturchess.learning.goldmiddle.api.LearningInputFactory;
+import bagaturchess.ucitracker.api.PackedPositionsTraverser;
 import bagaturchess.ucitracker.api.PositionsTraverser;
 
 
@@ -19,6 +22,8 @@ public class DeepLearningTraverser_NNUE {
 			//String filePath = "./Houdini.15a.cg";
 			//String filePath = "./Arasan13.1.cg";
 			String filePath = "./stockfish-12.cg";
+			//Created once from the .cg file by PackedPositionsConverter, much faster to traverse
+			String packedFilePath = "./stockfish-12.pp";
 			//String filePath = "./glaurung-2.2.cg";
 			
 			DeepLearningVisitorImpl_NNUE learning = new DeepLearningVisitorImpl_NNUE();
@@ -26,7 +31,11 @@ public class DeepLearningTraverser_NNUE {
 			ILearningInput input = LearningInputFactory.createDefaultInput();
 			
 			while (true) {
-				PositionsTraverser.traverseAll(filePath, learning, 999999999, input.createBoardConfig(), input.getPawnsEvalFactoryClassName());
+				if (new File(packedFilePath).exists()) {
+					PackedPositionsTraverser.traverseAll(packedFilePath, learning, 999999999, input.createBoardConfig(), input.getPawnsEvalFactoryClassName());
+				} else {
+					PositionsTraverser.traverseAll(filePath, learning, 999999999, input.createBoardConfig(), input.getPawnsEvalFactoryClassName());
+				}
 			}
 			
 		} catch (Exception e) {
@@ -0,0 +1,105 @@
+package bagaturchess.deeplearning.run;
+
+
+import java.io.File;
+
+import bagaturchess.deeplearning.impl_nnue.NNUE_Network;
+import bagaturchess.deeplearning.impl_nnue.NNUE_Trainer;
+import bagaturchess.deeplearning.impl_nnue.NNUE_TrainingSet;
+import bagaturchess.deeplearning.impl_nnue.visitors.NNUE_TrainingSetVisitorImpl;
+import bagaturchess.learning.goldmiddle.api.ILearningInput;
+import bagaturchess.learning.goldmiddle.api.LearningInputFactory;
+import bagaturchess.ucitracker.api.PackedPositionsTraverser;
+import bagaturchess.ucitracker.api.PositionsTraverser;
+import bagaturchess.ucitracker.api.PositionsVisitor;
+
+
+/**
+ * Trains a HalfKP network with NNUE_Trainer instead of the Neuroph MultiLayerPerceptron of DeepLearningTraverser_NNUE.
+ * After each epoch the float weights are saved in nnue_trainer.bin and the quantised network for the engine in nnue.bin.
+ */
+public class DeepLearningTraverser_NNUE_Trainer {
+	
+	
+	private static final String TRAINER_FILE = "nnue_trainer.bin";
+	private static final String NNUE_FILE = "nnue.bin";
+	
+	private static final int HIDDEN_SIZE = 512;
+	private static final int[] DENSE_SIZES = new int[] {32, 32, 1};
+	
+	private static final int BATCH_SIZE = 4096;
+	private static final float LEARNING_RATE = 0.001f;
+	
+	
+	public static void main(String[] args) {
+		
+		try {
+			
+			String filePath = "./stockfish-12.cg";
+			//Created once from the .cg file by PackedPositionsConverter, could be traversed in parallel
+			String packedFilePath = "./stockfish-12.pp";
+			
+			int threadsCount = Runtime.getRuntime().availableProcessors();
+			
+			ILearningInput input = LearningInputFactory.createDefaultInput();
+			
+			System.out.println("Reading positions ... ");
+			long startTime = System.currentTimeMillis();
+			
+			NNUE_TrainingSet set;
+			if (new File(packedFilePath).exists()) {
+				
+				NNUE_TrainingSet[] sets = new NNUE_TrainingSet[threadsCount];
+				PositionsVisitor[] visitors = new PositionsVisitor[threadsCount];
+				for (int i = 0; i < threadsCount; i++) {
+					sets[i] = new NNUE_TrainingSet(NNUE_Network.FEATURES_HALFKP);
+					visitors[i] = new NNUE_TrainingSetVisitorImpl(sets[i]);
+				}
+				
+				PackedPositionsTraverser.traverseAll(packedFilePath, visitors, Long.MAX_VALUE, input.createBoardConfig(), input.getPawnsEvalFactoryClassName());
+				
+				set = sets[0];
+				for (int i = 1; i < threadsCount; i++) {
+					set.append(sets[i]);
+					sets[i] = null;
+				}
+				
+			} else {
+				
+				set = new NNUE_TrainingSet(NNUE_Network.FEATURES_HALFKP);
+				PositionsTraverser.traverseAll(filePath, new NNUE_TrainingSetVisitorImpl(set), 999999999, input.createBoardConfig(), input.getPawnsEvalFactoryClassName());
+			}
+			
+			System.out.println("Positions " + set.getRowsCount() + ", time " + (System.currentTimeMillis() - startTime) + "ms");
+			
+			NNUE_Trainer trainer;
+			if (new File(TRAINER_FILE).exists()) {
+				trainer = NNUE_Trainer.load(TRAINER_FILE, threadsCount);
+			} else {
+				trainer = new NNUE_Trainer(NNUE_Network.FEATURES_HALFKP, HIDDEN_SIZE, DENSE_SIZES, threadsCount);
+			}
+			
+			try {
+				
+				for (int epoch = 1; ; epoch++) {
+					
+					long epochStartTime = System.currentTimeMillis();
+					
+					NNUE_Trainer.EpochStats stats = trainer.epoch(set, BATCH_SIZE, LEARNING_RATE);
+					
+					System.out.println("Epoch " + epoch + ": Time " + (System.currentTimeMillis() - epochStartTime) + "ms, Loss " + stats.getLoss()
+							+ ", Success: " + stats.getSuccessPercent() + "%");
+					
+					trainer.save(TRAINER_FILE);
+					trainer.export().save(NNUE_FILE);
+				}
+				
+			} finally {
+				trainer.shutdown();
+			}
+			
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
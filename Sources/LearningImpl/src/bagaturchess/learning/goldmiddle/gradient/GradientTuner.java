@@ -0,0 +1,257 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.learning.goldmiddle.gradient;
+
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * Mini-batch gradient descent with Adam over the rows of a SignalsMatrix.
+ * The loss of a row is the Texel one, (sigmoid(target) - sigmoid(eval))^2, where sigmoid(x) = 1 / (1 + 10^(-x / 400)).
+ * The gradient of each batch is computed by the tasks of a ForkJoinPool, each task over a part of the batch rows.
+ */
+public class GradientTuner {
+	
+	
+	private static final double SIGMOID_SCALE = Math.log(10) / 400;
+	
+	private static final double BETA1 = 0.9;
+	private static final double BETA2 = 0.999;
+	private static final double EPSILON = 1e-8;
+	
+	private static final int MIN_ROWS_PER_TASK = 1024;
+	
+	
+	private final SignalsMatrix matrix;
+	private final TunedWeights tunedWeights;
+	private final int batchSize;
+	private final double learningRate;
+	
+	private final ForkJoinPool pool;
+	
+	private final int[] rows;
+	private final Random random;
+	
+	private final double[] moments1;
+	private final double[] moments2;
+	private long steps;
+	
+	
+	public GradientTuner(SignalsMatrix _matrix, TunedWeights _tunedWeights, int _batchSize, double _learningRate, int threadsCount) {
+		
+		matrix = _matrix;
+		tunedWeights = _tunedWeights;
+		batchSize = _batchSize;
+		learningRate = _learningRate;
+		
+		pool = new ForkJoinPool(threadsCount);
+		
+		rows = new int[matrix.getRowsCount()];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = i;
+		}
+		random = new Random(0);
+		
+		moments1 = new double[tunedWeights.getWeights().length];
+		moments2 = new double[tunedWeights.getWeights().length];
+	}
+	
+	
+	/**
+	 * Runs one pass over all rows in random order and applies the new weights to the features after each batch.
+	 * @return the statistics of the rows, computed with the weights of their batch
+	 */
+	public EpochStats epoch() {
+		
+		shuffle();
+		
+		double[] weights = tunedWeights.getWeights();
+		
+		EpochStats stats = new EpochStats();
+		
+		for (int from = 0; from < rows.length; from += batchSize) {
+			
+			int to = Math.min(from + batchSize, rows.length);
+			
+			double[] result = pool.invoke(new BatchTask(weights, from, to));
+			
+			stats.add(result, weights.length, to - from);
+			
+			updateWeights(result, to - from);
+			
+			tunedWeights.apply();
+		}
+		
+		return stats;
+	}
+	
+	
+	public void shutdown() {
+		pool.shutdown();
+	}
+	
+	
+	private void shuffle() {
+		for (int i = rows.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = rows[i];
+			rows[i] = rows[j];
+			rows[j] = tmp;
+		}
+	}
+	
+	
+	private void updateWeights(double[] gradient, int rowsCount) {
+		
+		double[] weights = tunedWeights.getWeights();
+		
+		steps++;
+		double correction1 = 1 - Math.pow(BETA1, steps);
+		double correction2 = 1 - Math.pow(BETA2, steps);
+		
+		for (int i = 0; i < weights.length; i++) {
+			
+			double g = gradient[i] / rowsCount;
+			
+			moments1[i] = BETA1 * moments1[i] + (1 - BETA1) * g;
+			moments2[i] = BETA2 * moments2[i] + (1 - BETA2) * g * g;
+			
+			double m = moments1[i] / correction1;
+			double v = moments2[i] / correction2;
+			
+			weights[i] -= learningRate * m / (Math.sqrt(v) + EPSILON);
+		}
+	}
+	
+	
+	private static double sigmoid(double eval) {
+		return 1 / (1 + Math.exp(-SIGMOID_SCALE * eval));
+	}
+	
+	
+	/**
+	 * Computes the gradient of the loss sum over rows[from, to).
+	 * The result has the gradient at the weights indexes and the statistics of the rows after them.
+	 */
+	private final class BatchTask extends RecursiveTask<double[]> {
+		
+		
+		private static final long serialVersionUID = 5318862367540227951L;
+		
+		
+		private final double[] weights;
+		private final int from;
+		private final int to;
+		
+		
+		private BatchTask(double[] _weights, int _from, int _to) {
+			weights = _weights;
+			from = _from;
+			to = _to;
+		}
+		
+		
+		@Override
+		protected double[] compute() {
+			
+			if (to - from > MIN_ROWS_PER_TASK) {
+				
+				int middle = (from + to) >>> 1;
+				
+				BatchTask left = new BatchTask(weights, from, middle);
+				left.fork();
+				
+				double[] result = new BatchTask(weights, middle, to).compute();
+				double[] result_left = left.join();
+				
+				for (int i = 0; i < result.length; i++) {
+					result[i] += result_left[i];
+				}
+				
+				return result;
+			}
+			
+			double[] result = new double[weights.length + EpochStats.SIZE];
+			
+			for (int i = from; i < to; i++) {
+				
+				int row = rows[i];
+				
+				double target = matrix.getTarget(row);
+				double eval = matrix.eval(row, weights);
+				
+				double sigmoid_target = sigmoid(target);
+				double sigmoid_eval = sigmoid(eval);
+				double error = sigmoid_eval - sigmoid_target;
+				
+				//d(error^2)/d(eval)
+				double factor = 2 * error * sigmoid_eval * (1 - sigmoid_eval) * SIGMOID_SCALE;
+				
+				matrix.addGradient(row, factor, result);
+				
+				result[weights.length] += error * error;
+				result[weights.length + 1] += Math.abs(target);
+				result[weights.length + 2] += Math.abs(target - eval);
+			}
+			
+			return result;
+		}
+	}
+	
+	
+	public static final class EpochStats {
+		
+		
+		private static final int SIZE = 3;
+		
+		
+		private long rowsCount;
+		private double lossSum;
+		private double targetsSum;
+		private double diffsSum;
+		
+		
+		private void add(double[] result, int offset, int count) {
+			rowsCount += count;
+			lossSum += result[offset];
+			targetsSum += result[offset + 1];
+			diffsSum += result[offset + 2];
+		}
+		
+		
+		public double getLoss() {
+			return rowsCount == 0 ? 0 : lossSum / rowsCount;
+		}
+		
+		
+		/**
+		 * @return the same measure as the one of LearningVisitorImpl, 100 * (1 - sum(|target - eval|) / sum(|target|))
+		 */
+		public double getSuccessPercent() {
+			return 100 * (1 - (diffsSum / targetsSum));
+		}
+	}
+}
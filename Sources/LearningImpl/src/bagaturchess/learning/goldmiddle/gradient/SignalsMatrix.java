@@ -0,0 +1,159 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.learning.goldmiddle.gradient;
+
+
+import java.util.Arrays;
+
+
+/**
+ * Sparse matrix (CSR layout) with the signals of the training positions, extracted once and reused by each epoch.
+ * The row of a position keeps the non zero signal strengths by weights pair, the opening part, the target eval
+ * and the eval of the features which are not tuned.
+ */
+public class SignalsMatrix {
+	
+	
+	private static final int INITIAL_ROWS = 1024;
+	
+	
+	private int rowsCount;
+	private int[] rowsStart;
+	private float[] openingParts;
+	private float[] offsets;
+	private float[] targets;
+	
+	private int entriesCount;
+	private int[] pairs;
+	private float[] strengths;
+	
+	
+	public SignalsMatrix() {
+		rowsStart = new int[INITIAL_ROWS + 1];
+		openingParts = new float[INITIAL_ROWS];
+		offsets = new float[INITIAL_ROWS];
+		targets = new float[INITIAL_ROWS];
+		pairs = new int[INITIAL_ROWS * 32];
+		strengths = new float[INITIAL_ROWS * 32];
+	}
+	
+	
+	public void addEntry(int pair, double strength) {
+		
+		if (entriesCount == pairs.length) {
+			if (entriesCount == Integer.MAX_VALUE - 8) {
+				throw new IllegalStateException("Too many signals, limit the positions count");
+			}
+			int newLength = (int) Math.min(2L * entriesCount, Integer.MAX_VALUE - 8);
+			pairs = Arrays.copyOf(pairs, newLength);
+			strengths = Arrays.copyOf(strengths, newLength);
+		}
+		
+		pairs[entriesCount] = pair;
+		strengths[entriesCount] = (float) strength;
+		entriesCount++;
+	}
+	
+	
+	/**
+	 * Closes the row of the entries added after the previous call.
+	 */
+	public void endRow(double openingPart, double offset, double target) {
+		
+		if (rowsCount == targets.length) {
+			int newLength = 2 * rowsCount;
+			rowsStart = Arrays.copyOf(rowsStart, newLength + 1);
+			openingParts = Arrays.copyOf(openingParts, newLength);
+			offsets = Arrays.copyOf(offsets, newLength);
+			targets = Arrays.copyOf(targets, newLength);
+		}
+		
+		openingParts[rowsCount] = (float) openingPart;
+		offsets[rowsCount] = (float) offset;
+		targets[rowsCount] = (float) target;
+		rowsCount++;
+		rowsStart[rowsCount] = entriesCount;
+	}
+	
+	
+	public void append(SignalsMatrix other) {
+		for (int row = 0; row < other.rowsCount; row++) {
+			for (int i = other.rowsStart[row]; i < other.rowsStart[row + 1]; i++) {
+				addEntry(other.pairs[i], other.strengths[i]);
+			}
+			endRow(other.openingParts[row], other.offsets[row], other.targets[row]);
+		}
+	}
+	
+	
+	public int getRowsCount() {
+		return rowsCount;
+	}
+	
+	
+	public int getEntriesCount() {
+		return entriesCount;
+	}
+	
+	
+	/**
+	 * @return the eval of the row, white player's point of view, for weights stored as opening and endgame value of each pair
+	 */
+	double eval(int row, double[] weights) {
+		
+		double openingPart = openingParts[row];
+		
+		double eval_o = 0;
+		double eval_e = 0;
+		for (int i = rowsStart[row]; i < rowsStart[row + 1]; i++) {
+			int pair = pairs[i];
+			double strength = strengths[i];
+			eval_o += strength * weights[2 * pair];
+			eval_e += strength * weights[2 * pair + 1];
+		}
+		
+		return offsets[row] + openingPart * eval_o + (1 - openingPart) * eval_e;
+	}
+	
+	
+	/**
+	 * Adds to the gradient the derivatives of the eval of the row multiplied by the given factor.
+	 */
+	void addGradient(int row, double factor, double[] gradient) {
+		
+		double factor_o = factor * openingParts[row];
+		double factor_e = factor - factor_o;
+		
+		for (int i = rowsStart[row]; i < rowsStart[row + 1]; i++) {
+			int pair = pairs[i];
+			double strength = strengths[i];
+			gradient[2 * pair] += factor_o * strength;
+			gradient[2 * pair + 1] += factor_e * strength;
+		}
+	}
+	
+	
+	double getTarget(int row) {
+		return targets[row];
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.learning.goldmiddle.gradient;
+
+
+import bagaturchess.learning.api.IAdjustableFeature;
+import bagaturchess.learning.api.IFeature;
+import bagaturchess.learning.goldmiddle.visitors.LearningVisitorImpl.FeaturesFilter;
+
+
+/**
+ * Flat copy of the opening and endgame weights of the tuned features.
+ * Each weights pair gets an index, the weights array keeps the opening weight of pair p at 2 * p and the endgame weight at 2 * p + 1.
+ */
+public class TunedWeights {
+	
+	
+	private final IFeature[] features;
+	
+	//Index of the first weights pair of the feature or -1 if the feature is not tuned
+	private final int[] firstPairs;
+	
+	private final int pairsCount;
+	
+	private final double[] weights;
+	
+	
+	public TunedWeights(IFeature[] _features, FeaturesFilter filter) {
+		
+		features = _features;
+		firstPairs = new int[features.length];
+		
+		int count = 0;
+		for (int i = 0; i < features.length; i++) {
+			if (features[i] instanceof IAdjustableFeature && filter.isAdjustable(features[i].getId())) {
+				firstPairs[i] = count;
+				count += ((IAdjustableFeature) features[i]).getWeightsCount();
+			} else {
+				firstPairs[i] = -1;
+			}
+		}
+		
+		pairsCount = count;
+		weights = new double[2 * pairsCount];
+		
+		load();
+	}
+	
+	
+	public IFeature[] getFeatures() {
+		return features;
+	}
+	
+	
+	public int getFirstPair(int featureIndex) {
+		return firstPairs[featureIndex];
+	}
+	
+	
+	public int getPairsCount() {
+		return pairsCount;
+	}
+	
+	
+	double[] getWeights() {
+		return weights;
+	}
+	
+	
+	/**
+	 * Copies the weights of the features into the array.
+	 */
+	public void load() {
+		for (int i = 0; i < features.length; i++) {
+			if (firstPairs[i] != -1) {
+				IAdjustableFeature feature = (IAdjustableFeature) features[i];
+				for (int subid = 0; subid < feature.getWeightsCount(); subid++) {
+					int pair = firstPairs[i] + subid;
+					weights[2 * pair] = feature.getWeight(subid, true);
+					weights[2 * pair + 1] = feature.getWeight(subid, false);
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Copies the array into the weights of the features.
+	 * The features keep their weights in the configured bounds, so the array is loaded again with the bounded values.
+	 */
+	public void apply() {
+		for (int i = 0; i < features.length; i++) {
+			if (firstPairs[i] != -1) {
+				IAdjustableFeature feature = (IAdjustableFeature) features[i];
+				for (int subid = 0; subid < feature.getWeightsCount(); subid++) {
+					int pair = firstPairs[i] + subid;
+					feature.setWeight(subid, true, weights[2 * pair]);
+					feature.setWeight(subid, false, weights[2 * pair + 1]);
+				}
+			}
+		}
+		
+		load();
+	}
+}
@@ -22,6 +22,7 @@ import bagaturchess.bitboard.impl1.internal.MagicUtil;
 import bagaturchess.bitboard.impl1.internal.StaticMoves;
 import bagaturchess.bitboard.impl1.internal.Util;
 import bagaturchess.learning.goldmiddle.impl4.filler.Bagatur_V20_FeaturesConstants;
+import bagaturchess.search.impl.eval.cache.PawnsCache_Impl1;
 
 
 public class Evaluator implements Bagatur_V20_FeaturesConstants, FeatureWeights {
@@ -46,8 +47,38 @@ public class Evaluator implements Bagatur_V20_FeaturesConstants, FeatureWeights
 	
 	
 	public static int eval2(final ChessBoard cb, final EvalInfo evalInfo, final IEvalComponentsProcessor evalComponentsProcessor) {
+		return eval2(cb, evalInfo, evalComponentsProcessor, null);
+	}
+	
+	
+	//The pawns structure cache should be used always with the same evalComponentsProcessor
+	public static int eval2(final ChessBoard cb, final EvalInfo evalInfo, final IEvalComponentsProcessor evalComponentsProcessor, final PawnsCache_Impl1 pawnsCache) {
 		
-		calculatePawnScores(evalInfo, evalComponentsProcessor);
+		if (pawnsCache == null) {
+			
+			calculatePawnScores(evalInfo, evalComponentsProcessor);
+			
+		} else {
+			
+			int index = pawnsCache.get(cb.pawnZobristKey, evalInfo.bb_w_pawns, evalInfo.bb_b_pawns);
+			
+			if (index != -1) {
+				
+				evalInfo.eval_o_part2 += pawnsCache.getScore_o(index);
+				evalInfo.eval_e_part2 += pawnsCache.getScore_e(index);
+				evalInfo.passedPawnsAndOutposts = pawnsCache.getData(index);
+				
+			} else {
+				
+				double eval_o = evalInfo.eval_o_part2;
+				double eval_e = evalInfo.eval_e_part2;
+				
+				calculatePawnScores(evalInfo, evalComponentsProcessor);
+				
+				pawnsCache.put(cb.pawnZobristKey, evalInfo.bb_w_pawns, evalInfo.bb_b_pawns,
+						evalInfo.eval_o_part2 - eval_o, evalInfo.eval_e_part2 - eval_e, evalInfo.passedPawnsAndOutposts);
+			}
+		}
 		
 		evalInfo.clearAttacks();
 		evalInfo.updatePawnAttacks();
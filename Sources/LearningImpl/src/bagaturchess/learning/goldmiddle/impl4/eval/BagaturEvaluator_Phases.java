@@ -69,7 +69,9 @@ public class BagaturEvaluator_Phases extends BaseEvaluator {
 	@Override
 	protected double phase2() {
 		
-		return Evaluator.eval2(board, evalInfo, evalComponentsProcessor);
+		//The cached pawns scores are calculated with the ones processor
+		return Evaluator.eval2(board, evalInfo, evalComponentsProcessor,
+				evalComponentsProcessor == evalComponentsProcessor_ones ? getPawnsStructureCache() : null);
 	}
 	
 	
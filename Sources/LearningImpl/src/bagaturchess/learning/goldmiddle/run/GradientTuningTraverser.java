@@ -0,0 +1,129 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.learning.goldmiddle.run;
+
+
+import java.io.File;
+
+import bagaturchess.learning.goldmiddle.api.ILearningInput;
+import bagaturchess.learning.goldmiddle.api.LearningInputFactory;
+import bagaturchess.learning.goldmiddle.gradient.GradientTuner;
+import bagaturchess.learning.goldmiddle.gradient.SignalsMatrix;
+import bagaturchess.learning.goldmiddle.gradient.TunedWeights;
+import bagaturchess.learning.goldmiddle.visitors.LearningVisitorImpl.FeaturesFilter;
+import bagaturchess.learning.goldmiddle.visitors.SignalsMatrixVisitorImpl;
+import bagaturchess.learning.impl.features.advanced.FeaturesMerger;
+import bagaturchess.learning.impl.features.baseimpl.Features;
+import bagaturchess.ucitracker.api.PackedPositionsTraverser;
+import bagaturchess.ucitracker.api.PositionsTraverser;
+import bagaturchess.ucitracker.api.PositionsVisitor;
+
+
+/**
+ * Gradient based alternative of LearningTraverser.
+ * The positions are traversed only once, then each epoch runs over the extracted signals and stores the features.
+ */
+public class GradientTuningTraverser {
+	
+	
+	private static final int EPOCHS = 100;
+	private static final int BATCH_SIZE = 16384;
+	private static final double LEARNING_RATE = 0.01;
+	
+	
+	public static void main(String[] args) {
+		
+		try {
+			
+			String filePath = "./stockfish-12.cg";
+			//Created once from the .cg file by PackedPositionsConverter, could be traversed in parallel
+			String packedFilePath = "./stockfish-12.pp";
+			
+			int threadsCount = Runtime.getRuntime().availableProcessors();
+			
+			ILearningInput input = LearningInputFactory.createDefaultInput();
+			
+			Features features = Features.load(input.getFeaturesConfigurationClassName(), new FeaturesMerger());
+			
+			TunedWeights tunedWeights = new TunedWeights(features.getFeatures(), new FeaturesFilter() {
+				@Override
+				public boolean isAdjustable(int featureID) {
+					return true;
+				}
+			});
+			
+			System.out.println("Reading positions ... ");
+			long startTime = System.currentTimeMillis();
+			
+			SignalsMatrix matrix;
+			if (new File(packedFilePath).exists()) {
+				
+				SignalsMatrix[] matrixes = new SignalsMatrix[threadsCount];
+				PositionsVisitor[] visitors = new PositionsVisitor[threadsCount];
+				for (int i = 0; i < threadsCount; i++) {
+					matrixes[i] = new SignalsMatrix();
+					visitors[i] = new SignalsMatrixVisitorImpl(input, features, tunedWeights, matrixes[i]);
+				}
+				
+				PackedPositionsTraverser.traverseAll(packedFilePath, visitors, Long.MAX_VALUE, input.createBoardConfig(), input.getPawnsEvalFactoryClassName());
+				
+				matrix = matrixes[0];
+				for (int i = 1; i < threadsCount; i++) {
+					matrix.append(matrixes[i]);
+					matrixes[i] = null;
+				}
+				
+			} else {
+				
+				matrix = new SignalsMatrix();
+				PositionsTraverser.traverseAll(filePath, new SignalsMatrixVisitorImpl(input, features, tunedWeights, matrix), 999999999, input.createBoardConfig(), input.getPawnsEvalFactoryClassName());
+			}
+			
+			System.out.println("Positions " + matrix.getRowsCount() + ", signals " + matrix.getEntriesCount() + ", weights " + (2 * tunedWeights.getPairsCount())
+					+ ", time " + (System.currentTimeMillis() - startTime) + "ms");
+			
+			GradientTuner tuner = new GradientTuner(matrix, tunedWeights, BATCH_SIZE, LEARNING_RATE, threadsCount);
+			
+			try {
+				
+				for (int epoch = 1; epoch <= EPOCHS; epoch++) {
+					
+					long epochStartTime = System.currentTimeMillis();
+					
+					GradientTuner.EpochStats stats = tuner.epoch();
+					
+					System.out.println("Epoch " + epoch + ": Time " + (System.currentTimeMillis() - epochStartTime) + "ms, Loss " + stats.getLoss()
+							+ ", Success percent during this epoch: " + stats.getSuccessPercent() + "%");
+					
+					features.store();
+				}
+				
+			} finally {
+				tuner.shutdown();
+			}
+			
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -1,10 +1,13 @@
 package bagaturchess.learning.goldmiddle.run;
 
 
+import java.io.File;
+
 import bagaturchess.learning.goldmiddle.api.ILearningInput;
 import bagaturchess.learning.goldmiddle.api.LearningInputFactory;
 import bagaturchess.learning.goldmiddle.visitors.EvalDiffVisitorImpl;
 import bagaturchess.learning.goldmiddle.visitors.LearningVisitorImpl;
+import bagaturchess.ucitracker.api.PackedPositionsTraverser;
 import bagaturchess.ucitracker.api.PositionsTraverser;
 import bagaturchess.ucitracker.api.PositionsVisitor;
 
@@ -25,6 +28,8 @@ public class LearningTraverser {
 			//String filePath = "./texel-107.cg";
 			//String filePath = "./stockfish-10.cg";
 			String filePath = "./stockfish-12.cg";
+			//Created once from the .cg file by PackedPositionsConverter, much faster to traverse
+			String packedFilePath = "./stockfish-12.pp";
 			
 			PositionsVisitor learning = new LearningVisitorImpl();
 			//PositionsVisitor learning = new EvalDiffVisitorImpl();
@@ -32,7 +37,11 @@ public class LearningTraverser {
 			ILearningInput input = LearningInputFactory.createDefaultInput();
 			
 			while (true) {
-				PositionsTraverser.traverseAll(filePath, learning, 999999999, input.createBoardConfig(), input.getPawnsEvalFactoryClassName());
+				if (new File(packedFilePath).exists()) {
+					PackedPositionsTraverser.traverseAll(packedFilePath, learning, 999999999, input.createBoardConfig(), input.getPawnsEvalFactoryClassName());
+				} else {
+					PositionsTraverser.traverseAll(filePath, learning, 999999999, input.createBoardConfig(), input.getPawnsEvalFactoryClassName());
+				}
 			}
 			
 		} catch (Exception e) {
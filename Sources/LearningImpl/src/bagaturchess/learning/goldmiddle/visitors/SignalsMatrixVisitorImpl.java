@@ -0,0 +1,128 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.learning.goldmiddle.visitors;
+
+
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.bitboard.api.IGameStatus;
+import bagaturchess.learning.api.IFeature;
+import bagaturchess.learning.api.IFeatureComplexity;
+import bagaturchess.learning.api.ISignal;
+import bagaturchess.learning.api.ISignalFiller;
+import bagaturchess.learning.api.ISignals;
+import bagaturchess.learning.goldmiddle.api.ILearningInput;
+import bagaturchess.learning.goldmiddle.gradient.SignalsMatrix;
+import bagaturchess.learning.goldmiddle.gradient.TunedWeights;
+import bagaturchess.learning.impl.features.baseimpl.Features;
+import bagaturchess.learning.impl.signals.SignalArray;
+import bagaturchess.ucitracker.api.PositionsVisitor;
+
+
+/**
+ * Fills the signals of each visited position once and keeps them as a row of the matrix.
+ * Each instance has its own filler and signals, so the positions could be traversed in parallel with one visitor per thread.
+ */
+public class SignalsMatrixVisitorImpl implements PositionsVisitor {
+	
+	
+	private final ILearningInput input;
+	private final Features features;
+	private final TunedWeights tunedWeights;
+	private final SignalsMatrix matrix;
+	
+	private IFeature[] featuresArr;
+	private ISignalFiller filler;
+	private ISignals signals;
+	
+	
+	public SignalsMatrixVisitorImpl(ILearningInput _input, Features _features, TunedWeights _tunedWeights, SignalsMatrix _matrix) {
+		input = _input;
+		features = _features;
+		tunedWeights = _tunedWeights;
+		matrix = _matrix;
+	}
+	
+	
+	@Override
+	public void begin(IBitBoard bitboard) throws Exception {
+		filler = input.createFiller(bitboard);
+		signals = features.createSignals();
+		featuresArr = tunedWeights.getFeatures();
+	}
+	
+	
+	@Override
+	public void visitPosition(IBitBoard bitboard, IGameStatus status, int expectedWhitePlayerEval) {
+		
+		if (status != IGameStatus.NONE) {
+			throw new IllegalStateException("status=" + status);
+		}
+		
+		signals.clear();
+		for (int comp = 0; comp < IFeatureComplexity.MAX; comp++) {
+			filler.fillByComplexity(comp, signals);
+		}
+		
+		double openingPart = bitboard.getMaterialFactor().getOpenningPart();
+		
+		//Eval of the features which are not tuned
+		double offset = 0;
+		
+		for (int i = 0; i < featuresArr.length; i++) {
+			
+			IFeature feature = featuresArr[i];
+			ISignal signal = signals.getSignal(feature.getId());
+			
+			int firstPair = tunedWeights.getFirstPair(i);
+			
+			if (firstPair == -1) {
+				
+				offset += feature.eval(signal, openingPart);
+				
+			} else if (signal instanceof SignalArray) {
+				
+				SignalArray signalArray = (SignalArray) signal;
+				int count = signalArray.getSubsignalsCount();
+				int[] ids = signalArray.getSubIDs();
+				double[] strengths = signalArray.getSubsignals();
+				for (int j = 0; j < count; j++) {
+					if (strengths[j] != 0) {
+						matrix.addEntry(firstPair + ids[j], strengths[j]);
+					}
+				}
+				
+			} else if (signal.getStrength() != 0) {
+				
+				matrix.addEntry(firstPair, signal.getStrength());
+			}
+		}
+		
+		matrix.endRow(openingPart, offset, expectedWhitePlayerEval);
+	}
+	
+	
+	@Override
+	public void end() {
+		//Do nothing
+	}
+}
@@ -31,6 +31,7 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 
 import bagaturchess.bitboard.impl.Figures;
+import bagaturchess.opening.impl.model.OpeningBookImpl_Mapped;
 
 
 public class OpeningBookFactory {
@@ -62,6 +63,30 @@ public class OpeningBookFactory {
 		return ob;
 	}
 	
+	/**
+	 * Opens books in the format of OpeningBookImpl_Mapped (converted with MappedBookConverter).
+	 */
+	public static OpeningBook initBook_Mapped(String whiteFileName, String blackFileName) {
+		if (ob == null) {
+			synchronized (OpeningBookFactory.class) {
+				if (ob == null) {
+					try {
+						ob = OpeningBookFactory.load_Mapped(whiteFileName, blackFileName);
+					} catch (Throwable t) {
+						throw new IllegalStateException("No book", t);
+					}
+				}
+			}
+		}
+		return ob;
+	}
+	
+	
+	public static OpeningBook load_Mapped(String whiteFileName, String blackFileName) throws IOException {
+		return new OpeningBookWithBothPlayersImpl(new OpeningBookImpl_Mapped(whiteFileName), new OpeningBookImpl_Mapped(blackFileName));
+	}
+	
+	
 	public static OpeningBook load(String inFilePathName) throws FileNotFoundException, IOException, ClassNotFoundException {
 		ObjectInputStream is = new ObjectInputStream(new BufferedInputStream(new FileInputStream(inFilePathName), BUFFER_SIZE));
 		OpeningBook result = (OpeningBook) is.readObject();
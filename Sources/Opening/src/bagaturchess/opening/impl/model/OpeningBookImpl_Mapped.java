@@ -0,0 +1,332 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.opening.impl.model;
+
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import bagaturchess.opening.api.IOpeningEntry;
+import bagaturchess.opening.api.OpeningBook;
+
+
+/**
+ * Read only opening book, which is memory mapped from a binary file, so nothing is deserialized when the book is opened.
+ * The lookups are binary searches over the sorted hashkeys.
+ * 
+ * File format (big endian):
+ * header: int MAGIC, int VERSION, int entries count, int moves count
+ * long[entries count] - the sorted hashkeys
+ * int[entries count] - the weight (hits) of each entry
+ * int[entries count + 1] - the index of the first move of each entry, the last one is the moves count
+ * [int move, int count][moves count] - the moves and their counts
+ */
+public class OpeningBookImpl_Mapped implements OpeningBook {
+	
+	
+	private static final long serialVersionUID = -2874457237408271035L;
+	
+	private static final int MAGIC = 0x4F424D31;//OBM1
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	
+	
+	private transient MappedByteBuffer buffer;
+	
+	private int entriesCount;
+	private int offset_weights;
+	private int offset_firstMoves;
+	private int offset_moves;
+	
+	
+	public OpeningBookImpl_Mapped(String fileName) throws IOException {
+		
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		try {
+			//The mapping stays valid after the file is closed
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+		} finally {
+			file.close();
+		}
+		
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Not an opening book file (or unsupported version): " + fileName);
+		}
+		
+		entriesCount = buffer.getInt(8);
+		
+		offset_weights = HEADER_SIZE + 8 * entriesCount;
+		offset_firstMoves = offset_weights + 4 * entriesCount;
+		offset_moves = offset_firstMoves + 4 * (entriesCount + 1);
+	}
+	
+	
+	/**
+	 * Writes the entries of the given book in the format of this class.
+	 */
+	public static void write(OpeningBookImpl_FullEntries book, String outFileName) throws IOException {
+		
+		long[] hashkeys = book.entries.getAllKeys();
+		Arrays.sort(hashkeys);
+		
+		int movesCount = 0;
+		for (int i = 0; i < hashkeys.length; i++) {
+			movesCount += book.entries.get(hashkeys[i]).getMoves().length;
+		}
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outFileName), 1024 * 1024));
+		try {
+			
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(hashkeys.length);
+			out.writeInt(movesCount);
+			
+			for (int i = 0; i < hashkeys.length; i++) {
+				out.writeLong(hashkeys[i]);
+			}
+			
+			for (int i = 0; i < hashkeys.length; i++) {
+				out.writeInt(book.entries.get(hashkeys[i]).getWeight());
+			}
+			
+			int firstMove = 0;
+			for (int i = 0; i < hashkeys.length; i++) {
+				out.writeInt(firstMove);
+				firstMove += book.entries.get(hashkeys[i]).getMoves().length;
+			}
+			out.writeInt(firstMove);
+			
+			for (int i = 0; i < hashkeys.length; i++) {
+				Entry_BaseImpl entry = book.entries.get(hashkeys[i]);
+				int[] moves = entry.getMoves();
+				int[] counts = entry.getCounts();
+				for (int j = 0; j < moves.length; j++) {
+					out.writeInt(moves[j]);
+					out.writeInt(counts[j]);
+				}
+			}
+			
+		} finally {
+			out.close();
+		}
+	}
+	
+	
+	public int size() {
+		return entriesCount;
+	}
+	
+	
+	@Override
+	public int get(long hashkey, int colour) {
+		
+		int index = indexOf(hashkey);
+		if (index < 0) {
+			return 0;
+		}
+		
+		return getRandomMove(index, 0);
+	}
+	
+	
+	/**
+	 * The returned entry only points to the mapped data, the arrays are created on getMoves and getCounts.
+	 */
+	@Override
+	public IOpeningEntry getEntry(long hashkey, int colour) {
+		
+		int index = indexOf(hashkey);
+		if (index < 0) {
+			return null;
+		}
+		
+		return new MappedEntry(index);
+	}
+	
+	
+	@Override
+	public int[][] getAllMovesAndCounts(long hashkey, int colour) {
+		
+		int index = indexOf(hashkey);
+		if (index < 0) {
+			return null;
+		}
+		
+		return new int[][] {getMoves(index), getCounts(index)};
+	}
+	
+	
+	@Override
+	public void store(String outFileName) {
+		throw new UnsupportedOperationException();
+	}
+	
+	
+	@Override
+	public void add(long hashkey, int move) {
+		throw new UnsupportedOperationException();
+	}
+	
+	
+	@Override
+	public void add(long hashkey, int move, int result) {
+		throw new UnsupportedOperationException();
+	}
+	
+	
+	private int indexOf(long hashkey) {
+		
+		int low = 0;
+		int high = entriesCount - 1;
+		
+		while (low <= high) {
+			
+			int mid = (low + high) >>> 1;
+			long midKey = buffer.getLong(HEADER_SIZE + 8 * mid);
+			
+			if (midKey < hashkey) {
+				low = mid + 1;
+			} else if (midKey > hashkey) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		
+		return -1;
+	}
+	
+	
+	private int getWeight(int index) {
+		return buffer.getInt(offset_weights + 4 * index);
+	}
+	
+	
+	private int getFirstMove(int index) {
+		return buffer.getInt(offset_firstMoves + 4 * index);
+	}
+	
+	
+	private int getMove(int moveIndex) {
+		return buffer.getInt(offset_moves + 8 * moveIndex);
+	}
+	
+	
+	private int getCount(int moveIndex) {
+		return buffer.getInt(offset_moves + 8 * moveIndex + 4);
+	}
+	
+	
+	private int[] getMoves(int index) {
+		int from = getFirstMove(index);
+		int[] result = new int[getFirstMove(index + 1) - from];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = getMove(from + i);
+		}
+		return result;
+	}
+	
+	
+	private int[] getCounts(int index) {
+		int from = getFirstMove(index);
+		int[] result = new int[getFirstMove(index + 1) - from];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = getCount(from + i);
+		}
+		return result;
+	}
+	
+	
+	//Same as Entry_BaseImpl.getRandomEntry
+	private int getRandomMove(int index, int power) {
+		
+		int from = getFirstMove(index);
+		int to = getFirstMove(index + 1);
+		
+		int all_probs = 0;
+		for (int i = from; i < to; i++) {
+			all_probs += Math.pow(getCount(i), power);
+		}
+		
+		int prob_index = (int) Math.round((all_probs - 1) * Math.random());
+		
+		int cur_probs = 0;
+		for (int i = from; i < to; i++) {
+			cur_probs += Math.pow(getCount(i), power);
+			if (cur_probs > prob_index) {
+				return getMove(i);
+			}
+		}
+		
+		return getMove(from);
+	}
+	
+	
+	private class MappedEntry implements IOpeningEntry {
+		
+		
+		private final int index;
+		
+		
+		MappedEntry(int _index) {
+			index = _index;
+		}
+		
+		
+		@Override
+		public int getRandomEntry(int power) {
+			return getRandomMove(index, power);
+		}
+		
+		
+		@Override
+		public long getHashkey() {
+			return buffer.getLong(HEADER_SIZE + 8 * index);
+		}
+		
+		
+		@Override
+		public int getWeight() {
+			return OpeningBookImpl_Mapped.this.getWeight(index);
+		}
+		
+		
+		@Override
+		public int[] getMoves() {
+			return OpeningBookImpl_Mapped.this.getMoves(index);
+		}
+		
+		
+		@Override
+		public int[] getCounts() {
+			return OpeningBookImpl_Mapped.this.getCounts(index);
+		}
+	}
+}
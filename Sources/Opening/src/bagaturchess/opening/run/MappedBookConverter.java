@@ -0,0 +1,43 @@
+package bagaturchess.opening.run;
+
+
+import bagaturchess.opening.api.OpeningBook;
+import bagaturchess.opening.api.OpeningBookFactory;
+import bagaturchess.opening.impl.model.OpeningBookImpl_FullEntries;
+import bagaturchess.opening.impl.model.OpeningBookImpl_Mapped;
+
+
+/**
+ * Converts Java serialized books (w.ob and b.ob) to the memory mapped format of OpeningBookImpl_Mapped (w.obm and b.obm).
+ * Arguments: pairs of input and output files, by default ./data/w.ob ./data/w.obm ./data/b.ob ./data/b.obm
+ */
+public class MappedBookConverter {
+	
+	
+	public static void main(String args[]) {
+		
+		if (args.length == 0) {
+			args = new String[] {"./data/w.ob", "./data/w.obm", "./data/b.ob", "./data/b.obm"};
+		}
+		
+		try {
+			
+			for (int i = 0; i + 1 < args.length; i += 2) {
+				
+				String input = args[i];
+				String output = args[i + 1];
+				
+				OpeningBook ob = OpeningBookFactory.load(input);
+				
+				OpeningBookImpl_Mapped.write((OpeningBookImpl_FullEntries) ob, output);
+				
+				OpeningBookImpl_Mapped mapped = new OpeningBookImpl_Mapped(output);
+				
+				System.out.println(input + " -> " + output + ": " + ((OpeningBookImpl_FullEntries) ob).size() + " entries, " + mapped.size() + " entries converted");
+			}
+			
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -31,6 +31,7 @@ import bagaturchess.opening.impl.model.OpeningBookImpl_FullEntries;
 import bagaturchess.tools.opening.generator.impl.OpeningGamesIterator;
 import bagaturchess.tools.pgn.api.IGameIterator;
 import bagaturchess.tools.pgn.api.PGNParser;
+import bagaturchess.tools.pgn.api.PGNParser_Parallel;
 
 
 public class OpeningsGenerator {
@@ -49,7 +50,7 @@ public class OpeningsGenerator {
 		}
 		
 		try {
-			PGNParser parser = new PGNParser();
+			PGNParser parser = new PGNParser_Parallel();
 			
 			OpeningBook whiteOpenings = new OpeningBookImpl_FullEntries();
 			IGameIterator wgi = new OpeningGamesIterator(Figures.COLOUR_WHITE, whiteOpenings);
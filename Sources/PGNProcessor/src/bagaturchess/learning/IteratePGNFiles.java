@@ -27,6 +27,7 @@ import java.io.File;
 
 import bagaturchess.tools.pgn.api.IGameIterator;
 import bagaturchess.tools.pgn.api.PGNParser;
+import bagaturchess.tools.pgn.api.PGNParser_Parallel;
 
 
 public class IteratePGNFiles {
@@ -41,7 +42,7 @@ public class IteratePGNFiles {
 			while (true) {
 				System.out.println("ITERATION " + iteration);
 				IGameIterator iter = new GameAndPlyIterator();
-				PGNParser parser = new PGNParser();
+				PGNParser parser = new PGNParser_Parallel();
 				parser.importPGNGamesInDir(new File(pgnFile), iter);
 				iteration++;
 			}
@@ -24,7 +24,6 @@ package bagaturchess.tools.pgn.api;
 
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.Enumeration;
 import java.util.List;
@@ -43,7 +42,7 @@ import bagaturchess.learning.goldmiddle.impl1.cfg.BoardConfigImpl_V17;
 import bagaturchess.tools.pgn.impl.ExcludedGames;
 import bagaturchess.tools.pgn.impl.PGNConstants;
 import bagaturchess.tools.pgn.impl.PGNGame;
-import bagaturchess.tools.pgn.impl.PGNInputStream;
+import bagaturchess.tools.pgn.impl.PGNInputStream_NIO;
 import bagaturchess.tools.pgn.impl.PGNTurn;
 import bagaturchess.tools.pgn.impl.PGNUtils;
 
@@ -51,14 +50,19 @@ import bagaturchess.tools.pgn.impl.PGNUtils;
 public class PGNParser {
 	
 	
-	private IBoard bitboard;
+	protected IBoard bitboard;
 	
 	
 	public PGNParser() {
+		bitboard = createBoard();
+	}
+	
+	
+	protected static IBoard createBoard() {
 		//bitboard = BoardUtils.createBoard_WithPawnsCache();
-		bitboard = BoardUtils.createBoard_WithPawnsCache(Constants.INITIAL_BOARD, BagaturPawnsEvalFactory.class.getName(), new BoardConfigImpl_V17(), 10000);
 		//bitboard = new Board3();
 		//bitboard.setAttacksSupport(EngineConfig.getSingleton().getFieldsStatesSupport(), EngineConfig.getSingleton().getFieldsStatesSupport());
+		return BoardUtils.createBoard_WithPawnsCache(Constants.INITIAL_BOARD, BagaturPawnsEvalFactory.class.getName(), new BoardConfigImpl_V17(), 10000);
 	}
 	
 	public void importPGNGamesInDir(File pgnFileDir, IGameIterator gi) throws Exception {
@@ -112,8 +116,8 @@ public class PGNParser {
 		System.out.println("Processing " + lTempFileName + " ... ");
 		if (lTempFileName.endsWith(PGNConstants.FILE_PGN_SUFFIX)) {
 			//try {
-				InputStream pgnFileIS = new FileInputStream(pFile);
-				importSinglePGNFile(pgnFileIS, pFile, gi, ignoreErrors);
+				PGNInputStream_NIO pgnIS = new PGNInputStream_NIO(pFile.getAbsolutePath());
+				importSinglePGNFile(pgnIS, pFile, gi, ignoreErrors);
 			//} catch (java.lang.Throwable ioe) {
 			//	ioe.printStackTrace();
 			//}
@@ -132,7 +136,7 @@ public class PGNParser {
 							.toLowerCase()
 							.endsWith(PGNConstants.FILE_PGN_SUFFIX)) {
 							InputStream pgnFileIS = lZip.getInputStream(lEntry);
-							importSinglePGNFile(pgnFileIS, pFile, gi, ignoreErrors);
+							importSinglePGNFile(new PGNInputStream_NIO(pgnFileIS), pFile, gi, ignoreErrors);
 						}
 					}
 				}
@@ -142,11 +146,9 @@ public class PGNParser {
 		}
 	}
 
-	private void importSinglePGNFile(InputStream pPGNFileIS, File file, IGameIterator[] gi, boolean ignoreErrors)
+	protected void importSinglePGNFile(PGNInputStream_NIO pgnIS, File file, IGameIterator[] gi, boolean ignoreErrors)
 		throws Exception {
 		
-		PGNInputStream pgnIS = new PGNInputStream(pPGNFileIS);
-		
 		PGNGame pgnGame = null;
 		int gameCount = 0;
 		boolean hasGames = true;
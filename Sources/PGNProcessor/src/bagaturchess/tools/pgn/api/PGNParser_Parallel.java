@@ -0,0 +1,423 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.tools.pgn.api;
+
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import bagaturchess.bitboard.api.IBoard;
+import bagaturchess.bitboard.impl.Figures;
+import bagaturchess.tools.pgn.impl.ExcludedGames;
+import bagaturchess.tools.pgn.impl.PGNGame;
+import bagaturchess.tools.pgn.impl.PGNInputStream_NIO;
+import bagaturchess.tools.pgn.impl.PGNTurn;
+import bagaturchess.tools.pgn.impl.PGNUtils;
+
+
+/**
+ * Pipelined version of PGNParser.
+ * The calling thread walks the files and zip entries and splits them into games (PGNInputStream_NIO.readGameSource).
+ * The games are given round robin to N workers, each one is a single thread executor with its own board,
+ * which parses the game and translates its PGN moves (the expensive part of the import).
+ * 
+ * There are two ways to use the iterators:
+ * 1. importPGNGamesInDir(..., IGameIterator[] ...) - the iterators are shared and are called only by the calling thread,
+ *    in the order of the games in the files, with the same calls as PGNParser. The output is the same as the sequential one.
+ * 2. importPGNGamesInDir(..., IGameIteratorFactory ...) - each worker has its own iterator, called by the worker thread with the worker's board.
+ *    The games of a worker are in file order and the distribution of the games is fixed, so the merge result is deterministic.
+ *    An excluded game (ExcludedGames) is skipped, while PGNParser stops the reading of its file.
+ */
+public class PGNParser_Parallel extends PGNParser {
+	
+	
+	//Maximal count of the games in the pipeline per worker
+	private static final int MAX_PENDING_GAMES_PER_WORKER = 256;
+	
+	
+	private IBoard[] workersBoards;
+	private ExecutorService[] workers;
+	
+	//Not null only in thread confined mode
+	private IGameIterator[] workersIterators;
+	
+	private long gamesCounter;
+	
+	
+	public PGNParser_Parallel() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	
+	public PGNParser_Parallel(int threadsCount) {
+		
+		super();
+		
+		if (threadsCount < 1) {
+			throw new IllegalStateException("threadsCount=" + threadsCount);
+		}
+		
+		workersBoards = new IBoard[threadsCount];
+		for (int i = 0; i < workersBoards.length; i++) {
+			workersBoards[i] = createBoard();
+		}
+	}
+	
+	
+	@Override
+	public void importPGNGamesInDir(File pgnFileDir, IGameIterator[] gi, boolean ignoreErrors) throws Exception {
+		
+		startWorkers();
+		
+		try {
+			super.importPGNGamesInDir(pgnFileDir, gi, ignoreErrors);
+		} finally {
+			stopWorkers();
+		}
+	}
+	
+	
+	public void importPGNGamesInDir(File pgnFileDir, IGameIteratorFactory factory) throws Exception {
+		importPGNGamesInDir(pgnFileDir, factory, false);
+	}
+	
+	
+	public void importPGNGamesInDir(File pgnFileDir, IGameIteratorFactory factory, boolean ignoreErrors) throws Exception {
+		
+		workersIterators = new IGameIterator[workersBoards.length];
+		for (int i = 0; i < workersIterators.length; i++) {
+			workersIterators[i] = factory.create(i);
+			workersIterators[i].preIteration(workersBoards[i]);
+		}
+		
+		startWorkers();
+		
+		try {
+			super.importPGNGamesInDir(pgnFileDir, (IGameIterator[]) null, ignoreErrors);
+		} finally {
+			stopWorkers();
+		}
+		
+		for (int i = 0; i < workersIterators.length; i++) {
+			workersIterators[i].postIteration();
+		}
+		
+		factory.merge(workersIterators);
+		
+		workersIterators = null;
+	}
+	
+	
+	@Override
+	protected void importSinglePGNFile(PGNInputStream_NIO pgnIS, File file, IGameIterator[] gi, boolean ignoreErrors) throws Exception {
+		
+		ArrayDeque<Future<GameTask>> pending = new ArrayDeque<Future<GameTask>>();
+		int maxPending = MAX_PENDING_GAMES_PER_WORKER * workers.length;
+		
+		//The moves are translated only if they will be played
+		boolean translate = workersIterators != null || hasPlyIterator(gi);
+		
+		boolean excluded = false;
+		int gameCount = 0;
+		
+		try {
+			
+			String source;
+			while ((source = pgnIS.readGameSource()) != null) {
+				
+				gameCount++;
+				
+				int workerIndex = (int) (gamesCounter++ % workers.length);
+				GameTask task = new GameTask(gameCount, source, file, workerIndex, translate, ignoreErrors);
+				pending.add(workers[workerIndex].submit(task));
+				
+				while (pending.size() >= maxPending) {
+					excluded = processGame(pending.poll(), gi, ignoreErrors, excluded);
+				}
+			}
+			
+			while (!pending.isEmpty()) {
+				excluded = processGame(pending.poll(), gi, ignoreErrors, excluded);
+			}
+			
+		} finally {
+			
+			for (Future<GameTask> future: pending) {
+				future.cancel(false);
+			}
+			
+			pgnIS.close();
+		}
+	}
+	
+	
+	/**
+	 * Called by the calling thread in the order of the games.
+	 * @return true if an excluded game was reached in the current file, all the next games of the file are ignored as in PGNParser
+	 */
+	private boolean processGame(Future<GameTask> future, IGameIterator[] gi, boolean ignoreErrors, boolean excluded) throws Exception {
+		
+		GameTask task = get(future);
+		
+		if (excluded || workersIterators != null) {
+			//The game is already processed by the worker
+			return excluded;
+		}
+		
+		if (ExcludedGames.isExcluded(task.pgnGameID)) {
+			return true;
+		}
+		
+		if (gi != null) {
+			for (int i = 0; i < gi.length; i++) {
+				gi[i].preGame(task.gameCount, task.pgnGame, task.pgnGameID, bitboard);
+			}
+		}
+		
+		if (gi != null) {
+			boolean played = false;
+			for (int i = 0; i < gi.length; i++) {
+				if (gi[i] instanceof IPlyIterator) {
+					if (played) {
+						bitboard.revert();
+					}
+					played = true;
+					playMoves(task, bitboard, (IPlyIterator) gi[i]);
+					if (task.error != null) {
+						if (ignoreErrors) {
+							task.error.printStackTrace();
+						} else {
+							throw task.error;
+						}
+					}
+				}
+			}
+		}
+		
+		if (gi != null) {
+			for (int i = 0; i < gi.length; i++) {
+				gi[i].postGame();
+			}
+		}
+		
+		bitboard.revert();
+		
+		return false;
+	}
+	
+	
+	private void startWorkers() {
+		workers = new ExecutorService[workersBoards.length];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = Executors.newFixedThreadPool(1);
+		}
+		gamesCounter = 0;
+	}
+	
+	
+	private void stopWorkers() {
+		for (int i = 0; i < workers.length; i++) {
+			workers[i].shutdownNow();
+		}
+		workers = null;
+	}
+	
+	
+	private static boolean hasPlyIterator(IGameIterator[] gi) {
+		if (gi != null) {
+			for (int i = 0; i < gi.length; i++) {
+				if (gi[i] instanceof IPlyIterator) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	
+	private static GameTask get(Future<GameTask> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
+		}
+	}
+	
+	
+	/**
+	 * Translates the PGN moves of the game on the given board, with the same rules as PGNParser:
+	 * stops at the first wrong move or after a move which ends the game.
+	 */
+	private static void translateMoves(GameTask task, IBoard bitboard) {
+		
+		List<PGNTurn> pgnMoves = task.pgnGame.getTurns();
+		task.moves = new int[2 * pgnMoves.size()];
+		
+		try {
+			for (int i = 0; i < pgnMoves.size(); i++) {
+				
+				PGNTurn pgnMove = pgnMoves.get(i);
+				
+				String whitePly = pgnMove.getWhitePly();
+				if (whitePly == null || !translateMove(task, bitboard, Figures.COLOUR_WHITE, whitePly)) {
+					break;
+				}
+				
+				String blackPly = pgnMove.getBlackPly();
+				if (blackPly == null || !translateMove(task, bitboard, Figures.COLOUR_BLACK, blackPly)) {
+					break;
+				}
+			}
+		} catch (Exception e) {
+			//The moves before the error are still played, as in PGNParser
+			task.error = e;
+		}
+		
+		bitboard.revert();
+	}
+	
+	
+	/**
+	 * @return true if the game continues
+	 */
+	private static boolean translateMove(GameTask task, IBoard bitboard, int colour, String ply) {
+		
+		int move = PGNUtils.translatePGNMove(bitboard, colour, ply, false, task.pgnGame);
+		if (move == -1) {
+			return false;//Wrong move
+		}
+		
+		task.moves[task.movesCount++] = move;
+		bitboard.makeMoveForward(move);
+		
+		if (bitboard.isInCheck()) {
+			return bitboard.hasMoveInCheck();
+		} else {
+			return bitboard.hasMoveInNonCheck();
+		}
+	}
+	
+	
+	private static void playMoves(GameTask task, IBoard bitboard, IPlyIterator pi) {
+		
+		int colour = Figures.COLOUR_WHITE;
+		
+		for (int i = 0; i < task.movesCount; i++) {
+			
+			int move = task.moves[i];
+			
+			pi.preMove(colour, move, bitboard, i + 1);
+			bitboard.makeMoveForward(move);
+			pi.postMove();
+			
+			colour = Figures.OPPONENT_COLOUR[colour];
+		}
+	}
+	
+	
+	private class GameTask implements Callable<GameTask> {
+		
+		
+		private int gameCount;
+		private String source;
+		private File file;
+		private int workerIndex;
+		private boolean translate;
+		private boolean ignoreErrors;
+		
+		private PGNGame pgnGame;
+		private String pgnGameID;
+		private int[] moves;
+		private int movesCount;
+		private Exception error;
+		
+		
+		private GameTask(int _gameCount, String _source, File _file, int _workerIndex, boolean _translate, boolean _ignoreErrors) {
+			gameCount = _gameCount;
+			source = _source;
+			file = _file;
+			workerIndex = _workerIndex;
+			translate = _translate;
+			ignoreErrors = _ignoreErrors;
+		}
+		
+		
+		@Override
+		public GameTask call() throws Exception {
+			
+			IBoard bitboard = workersBoards[workerIndex];
+			
+			pgnGame = new PGNGame();
+			pgnGame.load(source);
+			pgnGame.setArchiveFileName(file.getAbsolutePath());
+			pgnGameID = pgnGame.getStringIdentification().trim();
+			source = null;
+			
+			IGameIterator gi = workersIterators == null ? null : workersIterators[workerIndex];
+			
+			if (gi != null && ExcludedGames.isExcluded(pgnGameID)) {
+				return this;
+			}
+			
+			if (translate && (gi == null || gi instanceof IPlyIterator)) {
+				translateMoves(this, bitboard);
+			}
+			
+			if (gi != null) {
+				
+				gi.preGame(gameCount, pgnGame, pgnGameID, bitboard);
+				
+				if (gi instanceof IPlyIterator) {
+					playMoves(this, bitboard, (IPlyIterator) gi);
+					if (error != null) {
+						if (ignoreErrors) {
+							error.printStackTrace();
+						} else {
+							throw error;
+						}
+					}
+				}
+				
+				gi.postGame();
+				
+				bitboard.revert();
+				
+				//Not needed anymore, the calling thread only waits for the end of the task
+				pgnGame = null;
+				moves = null;
+			}
+			
+			return this;
+		}
+	}
+}
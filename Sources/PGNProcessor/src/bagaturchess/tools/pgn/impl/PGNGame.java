@@ -46,6 +46,14 @@ public class PGNGame {
 	
 	
 	public void load(StringBuffer aPGNGameAsStringBuffer) throws IOException {
+		load(aPGNGameAsStringBuffer.toString());
+	}
+	
+	
+	/**
+	 * The parsing is done over String, because the charAt calls of StringBuffer are synchronized.
+	 */
+	public void load(String aPGNGameAsStringBuffer) throws IOException {
 		int lastValueEndIndex = PGNGameParseHelper.initGameProperties(this,aPGNGameAsStringBuffer);
 		boolean mIsReducedFormat = PGNGameParseHelper.initReducedFormatFlags(this,aPGNGameAsStringBuffer, lastValueEndIndex);
 		
@@ -63,7 +71,7 @@ public class PGNGame {
 		}
 		
 		gameID = createID();
-		gameSource = aPGNGameAsStringBuffer.toString();
+		gameSource = aPGNGameAsStringBuffer;
 	}
 	
 	private String createID() {
@@ -25,7 +25,7 @@ package bagaturchess.tools.pgn.impl;
 public class PGNGameParseHelper {
 
 	
-	static int initGameProperties(PGNGame game,StringBuffer aPGNGameAsStringBuffer) {
+	static int initGameProperties(PGNGame game,String aPGNGameAsStringBuffer) {
 		//Get game properties
 		int curKeyStartIndex = -1;
 		int curKeyEndIndex = -1;
@@ -94,7 +94,7 @@ public class PGNGameParseHelper {
 		return curValueEndIndex;
 	}
 
-	private static void createProperty(PGNGame game, StringBuffer aPGNGameAsStringBuffer, int aKeyStartIndex, int aKeyEndIndex, int aValueStartIndex, int aValueEndIndex) {
+	private static void createProperty(PGNGame game, String aPGNGameAsStringBuffer, int aKeyStartIndex, int aKeyEndIndex, int aValueStartIndex, int aValueEndIndex) {
 		String tagName = aPGNGameAsStringBuffer.substring(aKeyStartIndex, aKeyEndIndex);
 		String tagValue = aPGNGameAsStringBuffer.substring(aValueStartIndex, aValueEndIndex);
 		game.addProperty(tagName, tagValue);
@@ -103,7 +103,7 @@ public class PGNGameParseHelper {
 	
 	private static boolean isIntBufferEqualsToStringBuffer(
 			int[] aAscii,
-			StringBuffer aStrBuf,
+			String aStrBuf,
 			int aFromIndex,
 			int aEndIndex) {
 			boolean result = false;
@@ -127,7 +127,7 @@ public class PGNGameParseHelper {
 		}
 
 		private static boolean isStringBufferEndsWithString(
-			StringBuffer aStrBuf,
+			String aStrBuf,
 			int pBufEndIndex,
 			String aStr) {
 			boolean result = false;
@@ -144,7 +144,7 @@ public class PGNGameParseHelper {
 		}
 
 		private static boolean isStringBufferEndsWithGameTerminationMarker(
-			StringBuffer pStrBuf,
+			String pStrBuf,
 			int pBufEndIndex) {
 			return isStringBufferEndsWithString(
 				pStrBuf,
@@ -166,7 +166,7 @@ public class PGNGameParseHelper {
 
 		private static void getSingleTurn(PGNGame game,
 			int aNumber,
-			StringBuffer aTurnAsStrBuf,
+			String aTurnAsStrBuf,
 			int aStartIndex,
 			int aEndIndex) {
 			//System.out.println( "'"+aTurnAsStrBuf.substring( aStartIndex, aEndIndex ) +"'");
@@ -174,7 +174,7 @@ public class PGNGameParseHelper {
 			game.add(curTurn);
 		}
 	  
-		private static PGNTurn getMove( int aNumber, StringBuffer aTurnAsStrBuf, int aStartIndex, int aEndIndex ) {
+		private static PGNTurn getMove( int aNumber, String aTurnAsStrBuf, int aStartIndex, int aEndIndex ) {
 			 	int moveNumber = aNumber;
 			
 		    int curEndIndex = aStartIndex;
@@ -196,7 +196,7 @@ public class PGNGameParseHelper {
 		}
 		
 		static boolean initReducedFormatFlags(PGNGame game,
-				StringBuffer aPGNGameAsStringBuffer,
+				String aPGNGameAsStringBuffer,
 				int aStartIndex) {
 				boolean mHasCommentary = false;
 				boolean mHasRAV = false;
@@ -234,7 +234,7 @@ public class PGNGameParseHelper {
 			}
 		
 		static boolean initReducedFormatFlags_ignoreCommentsAndVariants(PGNGame game,
-				StringBuffer aPGNGameAsStringBuffer,
+				String aPGNGameAsStringBuffer,
 				int aStartIndex) {
 				boolean mHasCommentary = false;
 				boolean mHasRAV = false;
@@ -272,7 +272,7 @@ public class PGNGameParseHelper {
 			}
 		
 		static void extractGameTurns(PGNGame game,
-				StringBuffer aPGNGameAsStringBuffer,
+				String aPGNGameAsStringBuffer,
 				int aStartIndex) {
 				int curCountOfDots = 0;
 				int curTurnStartIndex = -1;
@@ -344,10 +344,10 @@ public class PGNGameParseHelper {
 			}
 		
 		static void extractGameTurns_ignoreCommentsAndVariants(PGNGame game,
-				StringBuffer aPGNGameAsStringBuffer_withCommentsAndVariants,
+				String aPGNGameAsStringBuffer_withCommentsAndVariants,
 				int aStartIndex) {
 				
-				StringBuffer aPGNGameAsStringBuffer = new StringBuffer(aPGNGameAsStringBuffer_withCommentsAndVariants.length());
+				StringBuilder aPGNGameAsStringBuilder = new StringBuilder(aPGNGameAsStringBuffer_withCommentsAndVariants.length());
 				//boolean[] ignored = new boolean[aPGNGameAsStringBuffer.length()];
 				int curIndex = 0;
 				int openedBrackets = 0;
@@ -363,7 +363,7 @@ public class PGNGameParseHelper {
 					
 					if (openedBrackets == 0) {
 						//ignored[curIndex] = true;
-						aPGNGameAsStringBuffer.append(curChar);
+						aPGNGameAsStringBuilder.append(curChar);
 					}
 					
 					if (curChar == PGNConstants.CHAR_COMMENT_SUFFIX) openedBrackets--;
@@ -372,6 +372,8 @@ public class PGNGameParseHelper {
 					curIndex++;
 				}
 				
+				String aPGNGameAsStringBuffer = aPGNGameAsStringBuilder.toString();
+				
 				int curCountOfDots = 0;
 				int curTurnStartIndex = -1;
 				int curTurnEndIndex = -1;
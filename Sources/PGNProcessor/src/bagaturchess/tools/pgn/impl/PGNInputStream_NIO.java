@@ -0,0 +1,301 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.tools.pgn.impl;
+
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+
+/**
+ * Replacement of PGNInputStream, which reads the PGN data in large chunks instead of byte by byte.
+ * PGN files are memory mapped in windows of MAP_WINDOW bytes, other streams (e.g. zip entries) are read in BUFFER_SIZE chunks.
+ * The line ends are found 8 bytes at a time (SWAR search inside a long) and the game boundaries are detected per line:
+ * a game starts with a '[' line after an empty line and ends with the first empty line which doesn't follow a tag line.
+ * The game is collected as bytes and converted to a String only once, which is parsed directly by PGNGame.load(String).
+ * Both CRLF and LF files are accepted, the lines are always joined with CRLF, because PGNGame.load expects it.
+ */
+public class PGNInputStream_NIO {
+	
+	
+	private static final int MAP_WINDOW 		= 1 << 26;
+	private static final int BUFFER_SIZE 		= 1 << 20;
+	
+	private static final long SWAR_NEW_LINE 	= 0x0A0A0A0A0A0A0A0AL;
+	private static final long SWAR_LOW_BITS 	= 0x0101010101010101L;
+	private static final long SWAR_HIGH_BITS 	= 0x8080808080808080L;
+	
+	private static final byte CR 				= 13;
+	private static final byte LF 				= 10;
+	private static final byte TAG_PREFIX 		= '[';
+	private static final byte TAG_SUFFIX 		= ']';
+	
+	
+	//Not null if the file is memory mapped
+	private FileChannel fileChannel;
+	private long fileSize;
+	private long bufferFileOffset;
+	private int mapWindow = MAP_WINDOW;
+	
+	//Not null if the data is read through a stream
+	private ReadableByteChannel streamChannel;
+	
+	private ByteBuffer buffer;
+	private int pos;
+	private boolean eof;
+	
+	private boolean prevLineEmpty = true;
+	private boolean prevLineEndsWithTag;
+	
+	private byte[] game = new byte[1 << 14];
+	private int gameSize;
+	
+	private long readBytes;
+	
+	
+	public PGNInputStream_NIO(String pAbsoluteFilePathToPGN) throws IOException {
+		fileChannel = new FileInputStream(pAbsoluteFilePathToPGN).getChannel();
+		fileSize = fileChannel.size();
+		buffer = ByteBuffer.allocate(0);
+	}
+	
+	
+	public PGNInputStream_NIO(InputStream pPGNFileInputStream) {
+		streamChannel = Channels.newChannel(pPGNFileInputStream);
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		buffer.limit(0);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	
+	public PGNGame readGame() throws IOException {
+		
+		String source = readGameSource();
+		if (source == null) {
+			return null;
+		}
+		
+		PGNGame result = new PGNGame();
+		result.load(source);
+		return result;
+	}
+	
+	
+	/**
+	 * Splits the next game without parsing it, so that PGNGame.load(String) can be called by another thread.
+	 * @return the text of the next game or null if there are no more games
+	 */
+	public String readGameSource() throws IOException {
+		
+		gameSize = 0;
+		boolean inGame = false;
+		
+		while (true) {
+			
+			int lineEnd = indexOfNewLine(buffer, pos, buffer.limit());
+			int nextPos;
+			if (lineEnd == -1) {
+				if (!eof) {
+					refill();
+					continue;
+				}
+				if (pos >= buffer.limit()) {
+					break;
+				}
+				//Last line without line end
+				lineEnd = buffer.limit();
+				nextPos = lineEnd;
+			} else {
+				nextPos = lineEnd + 1;
+			}
+			
+			int contentEnd = lineEnd;
+			if (contentEnd > pos && buffer.get(contentEnd - 1) == CR) {
+				contentEnd--;
+			}
+			boolean empty = contentEnd == pos;
+			
+			boolean finished = false;
+			if (!inGame) {
+				if (prevLineEmpty && !empty && buffer.get(pos) == TAG_PREFIX) {
+					inGame = true;
+					append(pos, contentEnd);
+				}
+			} else if (empty && !prevLineEndsWithTag) {
+				finished = true;
+			} else {
+				appendLineEnd();
+				append(pos, contentEnd);
+			}
+			
+			prevLineEmpty = empty;
+			prevLineEndsWithTag = !empty && buffer.get(contentEnd - 1) == TAG_SUFFIX;
+			pos = nextPos;
+			
+			if (finished) {
+				break;
+			}
+		}
+		
+		if (gameSize == 0) {
+			return null;
+		}
+		
+		return toString(game, gameSize);
+	}
+	
+	
+	/**
+	 * @return the count of the bytes read or mapped so far
+	 */
+	public long getReadBytes() {
+		return readBytes;
+	}
+	
+	
+	public void close() throws IOException {
+		if (fileChannel != null) {
+			fileChannel.close();
+		}
+		if (streamChannel != null) {
+			streamChannel.close();
+		}
+	}
+	
+	
+	/**
+	 * Makes the unprocessed bytes (from pos) the beginning of the buffer and adds the next bytes after them.
+	 */
+	private void refill() throws IOException {
+		if (fileChannel != null) {
+			
+			long offset = bufferFileOffset + pos;
+			int remaining = buffer.limit() - pos;
+			if (remaining >= mapWindow) {
+				//The line is longer than the window
+				mapWindow *= 2;
+			}
+			
+			int size = (int) Math.min(mapWindow, fileSize - offset);
+			buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			readBytes += size - remaining;
+			bufferFileOffset = offset;
+			pos = 0;
+			eof = offset + size >= fileSize;
+			
+		} else {
+			
+			buffer.position(pos);
+			buffer.compact();
+			if (!buffer.hasRemaining()) {
+				//The line is longer than the buffer
+				ByteBuffer bigger = ByteBuffer.allocate(2 * buffer.capacity());
+				bigger.order(ByteOrder.LITTLE_ENDIAN);
+				buffer.flip();
+				bigger.put(buffer);
+				buffer = bigger;
+			}
+			
+			while (buffer.hasRemaining()) {
+				int count = streamChannel.read(buffer);
+				if (count == -1) {
+					eof = true;
+					break;
+				}
+				readBytes += count;
+			}
+			buffer.flip();
+			pos = 0;
+		}
+	}
+	
+	
+	private void appendLineEnd() {
+		ensureGameCapacity(2);
+		game[gameSize++] = CR;
+		game[gameSize++] = LF;
+	}
+	
+	
+	private void append(int from, int to) {
+		int len = to - from;
+		ensureGameCapacity(len);
+		buffer.position(from);
+		buffer.get(game, gameSize, len);
+		gameSize += len;
+	}
+	
+	
+	private void ensureGameCapacity(int len) {
+		if (gameSize + len > game.length) {
+			byte[] bigger = new byte[Math.max(2 * game.length, gameSize + len)];
+			System.arraycopy(game, 0, bigger, 0, gameSize);
+			game = bigger;
+		}
+	}
+	
+	
+	/**
+	 * The buffer must be in little endian order, so that the lowest matched byte of a long is the first one in the buffer.
+	 * @return the index of the first LF byte in [from, to) or -1
+	 */
+	static int indexOfNewLine(ByteBuffer buffer, int from, int to) {
+		
+		int i = from;
+		
+		for (; i + 8 <= to; i += 8) {
+			long word = buffer.getLong(i) ^ SWAR_NEW_LINE;
+			//Only the bytes equal to LF become zero, the high bit marks the first zero byte exactly
+			long zeros = (word - SWAR_LOW_BITS) & ~word & SWAR_HIGH_BITS;
+			if (zeros != 0) {
+				return i + (Long.numberOfTrailingZeros(zeros) >>> 3);
+			}
+		}
+		
+		for (; i < to; i++) {
+			if (buffer.get(i) == LF) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+	
+	
+	private static String toString(byte[] bytes, int size) {
+		try {
+			//Each byte is one char, as in PGNInputStream
+			return new String(bytes, 0, size, "ISO-8859-1");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -33,7 +33,13 @@ import bagaturchess.bitboard.impl.movelist.IMoveList;
 public class PGNUtils implements PGNConstants {
 
 	
-	private static IMoveList movesBuffer = new BaseMoveList(150);
+	//One buffer per thread, because the games can be translated in parallel (PGNParser_Parallel)
+	private static final ThreadLocal<IMoveList> movesBuffers = new ThreadLocal<IMoveList>() {
+		@Override
+		protected IMoveList initialValue() {
+			return new BaseMoveList(150);
+		}
+	};
 	
 	
 	public static int translatePGNMove(IBoard bitboard, int colour, String pPGNTurn, boolean validateChechAndMate, PGNGame pgnGame) {
@@ -64,6 +70,7 @@ public class PGNUtils implements PGNConstants {
 		
 		boolean founded = false;
 		
+		IMoveList movesBuffer = movesBuffers.get();
 		movesBuffer.clear();
 		bitboard.genAllMoves(movesBuffer);
 		
@@ -94,6 +101,7 @@ public class PGNUtils implements PGNConstants {
 		
 		boolean founded = false;
 		
+		IMoveList movesBuffer = movesBuffers.get();
 		movesBuffer.clear();
 		bitboard.genAllMoves(movesBuffer);
 		
@@ -223,6 +231,7 @@ public class PGNUtils implements PGNConstants {
 		
 		boolean founded = false;
 		
+		IMoveList movesBuffer = movesBuffers.get();
 		movesBuffer.clear();
 		if (bitboard.isInCheck()) {
 			bitboard.genKingEscapes(movesBuffer);
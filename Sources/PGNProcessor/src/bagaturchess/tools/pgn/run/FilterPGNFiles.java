@@ -27,6 +27,7 @@ import java.io.File;
 
 import bagaturchess.tools.pgn.api.IGameIterator;
 import bagaturchess.tools.pgn.api.PGNParser;
+import bagaturchess.tools.pgn.api.PGNParser_Parallel;
 
 
 public class FilterPGNFiles {
@@ -48,7 +49,7 @@ public class FilterPGNFiles {
 		//IGameIterator biter = new GameIterator_ExtractWinners("../WorkDir/black_winners.pgn", "0-1", -1, 2600);
 		//IGameIterator dummy = new DummyGameIterator();
 		
-		PGNParser parser = new PGNParser();
+		PGNParser parser = new PGNParser_Parallel();
 		try {
 			//parser.importPGNGamesInDir(new File(pgnFile), dummy);
 			parser.importPGNGamesInDir(new File(pgnFile), new IGameIterator[] {witer, biter});
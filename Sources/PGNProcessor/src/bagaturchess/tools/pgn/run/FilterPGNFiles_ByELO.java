@@ -27,6 +27,7 @@ import java.io.File;
 
 import bagaturchess.tools.pgn.api.IGameIterator;
 import bagaturchess.tools.pgn.api.PGNParser;
+import bagaturchess.tools.pgn.api.PGNParser_Parallel;
 
 
 public class FilterPGNFiles_ByELO {
@@ -46,7 +47,7 @@ public class FilterPGNFiles_ByELO {
 		IGameIterator biter = new GameIterator_ExtractWinners("black_winners.pgn", "0-1", -1, -1);
 		//IGameIterator dummy = new DummyGameIterator();
 		
-		PGNParser parser = new PGNParser();
+		PGNParser parser = new PGNParser_Parallel();
 		try {
 			//parser.importPGNGamesInDir(new File(pgnFile), dummy);
 			//parser.importPGNGamesInDir(new File(pgnFile), iter);
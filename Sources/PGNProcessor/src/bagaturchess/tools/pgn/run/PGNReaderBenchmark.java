@@ -0,0 +1,91 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.tools.pgn.run;
+
+
+import java.io.File;
+import java.io.IOException;
+
+import bagaturchess.tools.pgn.impl.PGNGame;
+import bagaturchess.tools.pgn.impl.PGNInputStream;
+import bagaturchess.tools.pgn.impl.PGNInputStream_NIO;
+
+
+/**
+ * Measures the reading throughput in MB/s of PGNInputStream and PGNInputStream_NIO over the same PGN file (args[0]).
+ * Both readers produce PGNGame instances, so the time includes PGNGame.load.
+ * PGNInputStream is run over a raw FileInputStream, as it is used by PGNParser.
+ */
+public class PGNReaderBenchmark {
+	
+	
+	public static void main(String[] args) {
+		
+		String pgnFile = args.length > 0 ? args[0] : "./all.pgn";
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		
+		double fileMB = new File(pgnFile).length() / (double) (1024 * 1024);
+		
+		try {
+			for (int i = 0; i < rounds; i++) {
+				
+				long start = System.currentTimeMillis();
+				int games = readAll(new PGNInputStream_NIO(pgnFile));
+				long time_nio = Math.max(1, System.currentTimeMillis() - start);
+				
+				start = System.currentTimeMillis();
+				int games_old = readAll(new PGNInputStream(pgnFile));
+				long time_old = Math.max(1, System.currentTimeMillis() - start);
+				
+				System.out.println("PGNReaderBenchmark: round " + (i + 1)
+						+ ", PGNInputStream_NIO " + (int) (1000 * fileMB / time_nio) + " MB/s (" + games + " games, " + time_nio + " ms)"
+						+ ", PGNInputStream " + (int) (1000 * fileMB / time_old) + " MB/s (" + games_old + " games, " + time_old + " ms)"
+						+ ", speedup " + (time_old / (double) time_nio));
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	
+	private static int readAll(PGNInputStream_NIO is) throws IOException {
+		int count = 0;
+		PGNGame game;
+		while ((game = is.readGame()) != null) {
+			count += game.getTurns().size() > 0 ? 1 : 0;
+		}
+		is.close();
+		return count;
+	}
+	
+	
+	private static int readAll(PGNInputStream is) throws IOException {
+		int count = 0;
+		PGNGame game;
+		while ((game = is.readGame()) != null) {
+			count += game.getTurns().size() > 0 ? 1 : 0;
+		}
+		is.close();
+		return count;
+	}
+}
@@ -56,4 +56,5 @@ public interface IRootSearchConfig {
 	public double getTPTUsagePercent();
 	public double getEvalCacheUsagePercent();
 	public double getPawnsCacheUsagePercent();
+	public boolean isTPTOffHeap();
 }
@@ -130,16 +130,10 @@ public interface ISearchConfig_AB {
 	 */
 	public boolean randomizeMoveLists();
 	public boolean sortMoveLists();
-	public int getOrderingWeight_CASTLING();
 	public int getOrderingWeight_COUNTER();
 	public int getOrderingWeight_EQ_CAP();
-	public int getOrderingWeight_KILLER();
 	public int getOrderingWeight_LOSE_CAP();
-	public int getOrderingWeight_MATE_KILLER();
-	public int getOrderingWeight_MATE_MOVE();
-	public int getOrderingWeight_PASSER_PUSH();
 	public int getOrderingWeight_PREV_BEST_MOVE();
-	public int getOrderingWeight_PREVPV_MOVE();
 	public int getOrderingWeight_TPT_MOVE();
 	public int getOrderingWeight_WIN_CAP();
 	
@@ -45,6 +45,7 @@ public interface ISearch {
 	public void setup(IBitBoard bitboard);
 	public SearchEnv getEnv();
 	public int getTPTUsagePercent();
+	public void setExcludedRootMoves(int[] moves, int count);
 	
 	public int pv_search(ISearchMediator mediator, PVManager pvman, ISearchInfo info,
 			int initial_maxdepth, int maxdepth, int depth, int alpha_org, int beta,
@@ -66,6 +66,10 @@ public abstract class SearchImpl extends SearchUtils implements ISearch {
 	protected GTBProbeInput temp_input = new GTBProbeInput();
 	protected ITTEntry[] tt_entries_per_ply = new ITTEntry[ISearch.MAX_DEPTH];
 	
+	protected int[] excluded_root_moves = new int[0];
+	protected int excluded_root_moves_count;
+	protected long excluded_root_moves_hashkey;
+	
 	
 	public void setup(IBitBoard bitboardForSetup) {
 		env.getBitboard().revert();
@@ -157,6 +161,32 @@ public abstract class SearchImpl extends SearchUtils implements ISearch {
 		}
 		
 		getEnv().getEval().beforeSearch();
+		
+		setExcludedRootMoves(excluded_root_moves, 0);
+	}
+	
+	
+	@Override
+	public void setExcludedRootMoves(int[] moves, int count) {
+		
+		excluded_root_moves = moves;
+		excluded_root_moves_count = count;
+		
+		//The root node gets different TT entries for each set of excluded moves
+		excluded_root_moves_hashkey = 0;
+		for (int i = 0; i < count; i++) {
+			excluded_root_moves_hashkey ^= (((long) moves[i]) + 1) * 0x9E3779B97F4A7C15L;
+		}
+	}
+	
+	
+	protected boolean isExcludedRootMove(int move) {
+		for (int i = 0; i < excluded_root_moves_count; i++) {
+			if (excluded_root_moves[i] == move) {
+				return true;
+			}
+		}
+		return false;
 	}
 	
 	
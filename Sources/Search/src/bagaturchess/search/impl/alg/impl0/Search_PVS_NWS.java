@@ -160,6 +160,9 @@ public class Search_PVS_NWS extends SearchImpl {
 		if (backtrackingInfo.excluded_move != 0) {
 			backtrackingInfo.hash_key ^= ((long) backtrackingInfo.excluded_move);
 		}
+		if (depth == 0) {
+			backtrackingInfo.hash_key ^= excluded_root_moves_hashkey;
+		}
 		backtrackingInfo.static_eval = lazyEval(depth, alpha_org, beta, rootColour);
 		
 		
@@ -337,6 +340,11 @@ public class Search_PVS_NWS extends SearchImpl {
 				}
 				
 				
+				if (depth == 0 && isExcludedRootMove(cur_move)) {
+					continue;
+				}
+				
+				
 				if (searchedCount > 0 && cur_move == tpt_move) {
 					continue;
 				}
@@ -531,6 +539,9 @@ public class Search_PVS_NWS extends SearchImpl {
 		if (backtrackingInfo.excluded_move != 0) {
 			backtrackingInfo.hash_key ^= ((long) backtrackingInfo.excluded_move);
 		}
+		if (depth == 0) {
+			backtrackingInfo.hash_key ^= excluded_root_moves_hashkey;
+		}
 		backtrackingInfo.static_eval = lazyEval(depth, alpha_org, beta, rootColour);
 		
 		
@@ -776,6 +787,11 @@ public class Search_PVS_NWS extends SearchImpl {
 				}
 				
 				
+				if (depth == 0 && isExcludedRootMove(cur_move)) {
+					continue;
+				}
+				
+				
 				if (searchedCount > 0 && cur_move == tpt_move) {
 					continue;
 				}
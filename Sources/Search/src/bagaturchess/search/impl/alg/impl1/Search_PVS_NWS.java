@@ -212,6 +212,7 @@ public class Search_PVS_NWS extends SearchImpl {
 			}
 			
 			cb.doMove(cur_move);
+			env.getTPT().prefetch(cb.zobristKey);
 			movesPerformed++;
 			
 			int score;
@@ -336,6 +337,9 @@ public class Search_PVS_NWS extends SearchImpl {
 		if (excludedMove != 0) {
 			hashkey ^= (((long)excludedMove) << 16);
 		}
+		if (ply == 0) {
+			hashkey ^= excluded_root_moves_hashkey;
+		}
 		
 		int tpt_depth = 0;
 		int ttMove = 0;
@@ -624,6 +628,10 @@ public class Search_PVS_NWS extends SearchImpl {
 					continue;
 				}
 				
+				if (ply == 0 && isExcludedRootMove(move)) {
+					continue;
+				}
+				
 				//For now the singular move extension is disabled
 				/*if (move == excludedMove) {
 					continue;
@@ -711,6 +719,7 @@ public class Search_PVS_NWS extends SearchImpl {
 				}
 				
 				cb.doMove(move);
+				env.getTPT().prefetch(cb.zobristKey);
 				if (MoveUtil.isQuiet(move)) {
 					movesPerformed_quiet++;
 				} else {
@@ -974,6 +983,7 @@ public class Search_PVS_NWS extends SearchImpl {
 				}
 				
 				cb.doMove(move);
+				env.getTPT().prefetch(cb.zobristKey);
 				
 				final int score = -qsearch(mediator, pvman, evaluator, info, cb, moveGen, -beta, -alpha, ply + 1, isPv);
 				
@@ -1,6 +1,7 @@
 package bagaturchess.search.impl.env;
 
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.List;
@@ -17,11 +18,13 @@ import bagaturchess.opening.api.OpeningBook;
 import bagaturchess.opening.api.OpeningBookFactory;
 import bagaturchess.search.api.IRootSearchConfig;
 import bagaturchess.search.impl.eval.cache.EvalCache_Impl1;
-import bagaturchess.search.impl.eval.cache.EvalCache_Impl2;
+import bagaturchess.search.impl.eval.cache.EvalCache_Impl3;
 import bagaturchess.search.impl.eval.cache.IEvalCache;
+import bagaturchess.search.impl.eval.cache.PawnsCache_Impl1;
 import bagaturchess.search.impl.tpt.ITTable;
 import bagaturchess.search.impl.tpt.TTable_Impl1;
-import bagaturchess.search.impl.tpt.TTable_Impl2;
+import bagaturchess.search.impl.tpt.TTable_Impl3;
+import bagaturchess.search.impl.tpt.TTable_Impl4;
 import bagaturchess.uci.api.ChannelManager;
 import bagaturchess.uci.api.IChannel;
 
@@ -32,12 +35,16 @@ public class MemoryConsumers {
 	private static int JVMDLL_MEMORY_CONSUMPTION 						= 20 * 1024 * 1024;
 	private static int MIN_MEMORY_BUFFER 								= 0;
 	private static double MEMORY_USAGE_PERCENT 							= 0; 
+	private static boolean TPT_OFF_HEAP 								= false;
 	
 	private static final int SIZE_MIN_ENTRIES_MULTIPLIER				= 111;
 	private static final int SIZE_MIN_ENTRIES_TPT						= 8;
 	private static final int SIZE_MIN_ENTRIES_EC						= 4;
 	private static final int SIZE_MIN_ENTRIES_PEC						= 1 * SIZE_MIN_ENTRIES_MULTIPLIER;
 	
+	//4 entries of 16 bytes are 64 bytes, one cache line if the table is aligned (the off-heap table)
+	private static final int TPT_BUCKET_SIZE							= 4;
+	
 	
 	public static void set_JVMDLL_MEMORY_CONSUMPTION(int val) {
 		JVMDLL_MEMORY_CONSUMPTION = val;	
@@ -51,9 +58,17 @@ public class MemoryConsumers {
 		MEMORY_USAGE_PERCENT = val;	
 	}
 	
+	public static void set_TPT_OFF_HEAP(boolean val) {
+		TPT_OFF_HEAP = val;	
+	}
+	
 	
 	static {
 		try {
+			if (OpeningBookFactory.getBook() == null && new File("./data/w.obm").exists() && new File("./data/b.obm").exists()) {
+				//The memory mapped book is opened without deserialization
+				OpeningBookFactory.initBook_Mapped("./data/w.obm", "./data/b.obm");
+			}
 			if (OpeningBookFactory.getBook() == null) {
 				InputStream is_w_openning_book = new FileInputStream("./data/w.ob");
 				InputStream is_b_openning_book = new FileInputStream("./data/b.ob");
@@ -72,7 +87,12 @@ public class MemoryConsumers {
 	
 	private List<IEvalCache> evalCache;
 	private List<PawnsEvalCache> pawnsCache;
+	private List<PawnsCache_Impl1> pawnsStructureCache;
 	private List<ITTable> tpt;
+	//The tpt list is emptied by the searchers, so the table is kept here as well
+	private ITTable ttable;
+	//The evalCache list is emptied by the searchers as well
+	private IEvalCache ecache;
 	
 	private IChannel channel;
 	
@@ -215,6 +235,12 @@ public class MemoryConsumers {
 		int size_pc = SIZE_MIN_ENTRIES_PEC;
 		ChannelManager.getChannel().dump("Pawns Eval Cache size is " + size_pc + " entries.");
 		
+		//One per thread, the MultiPV search uses the searchers of the normal search
+		int searchersCount = engineConfiguration.getThreadsCount();
+		
+		int size_psc = Math.max(1, getPowerOf2SizeInMegabytes(engineConfiguration.getPawnsCacheUsagePercent(), availableMemory_in_MB) / searchersCount);
+		ChannelManager.getChannel().dump("Pawns Structure Cache size is " + size_psc + "MB per thread");
+		
 		/*int size_gtb_out = 0;
 		if (GTBProbing_NativeWrapper.tryToCreateInstance() != null) {
 			size_gtb_out = Math.max(SIZE_MIN_ENTRIES_GTB, getGTBEntrySize_OUT(availableMemory, 	Math.max(test_size1, SIZE_MIN_ENTRIES_GTB)));
@@ -225,13 +251,21 @@ public class MemoryConsumers {
 		
 		evalCache 		= new Vector<IEvalCache>();
 		pawnsCache		= new Vector<PawnsEvalCache>();
+		pawnsStructureCache	= new Vector<PawnsCache_Impl1>();
 		tpt 			= new Vector<ITTable>();
 		
-		ITTable ttable = new TTable_Impl2(size_tpt);
-		IEvalCache ecache = new EvalCache_Impl2(size_ec);
+		//The off-heap table is outside of the java heap, but it is still limited by -XX:MaxDirectMemorySize, which is -Xmx by default
+		boolean offHeap = TPT_OFF_HEAP || engineConfiguration.isTPTOffHeap();
+		int size_tpt_max = offHeap ? TTable_Impl4.MAX_SIZE_IN_MB : TTable_Impl3.MAX_SIZE_IN_MB;
+		if (size_tpt > size_tpt_max) {
+			size_tpt = size_tpt_max;
+			ChannelManager.getChannel().dump("Transposition Table size is limited to " + size_tpt + "MB");
+		}
+		ttable = offHeap ? new TTable_Impl4(size_tpt, TPT_BUCKET_SIZE) : new TTable_Impl3(size_tpt, TPT_BUCKET_SIZE);
+		ChannelManager.getChannel().dump("Transposition Table is " + (offHeap ? "off-heap" : "in the java heap"));
+		ecache = new EvalCache_Impl3(size_ec);
 		
-		int threadsCount = engineConfiguration.getThreadsCount();
-		for (int i=0; i<threadsCount; i++) {
+		for (int i=0; i<searchersCount; i++) {
 			
 			tpt.add(ttable);
 			
@@ -239,6 +273,8 @@ public class MemoryConsumers {
 			
 			DataObjectFactory<PawnsModelEval> pawnsCacheFactory = (DataObjectFactory<PawnsModelEval>) ReflectionUtils.createObjectByClassName_NoArgsConstructor(engineConfiguration.getEvalConfig().getPawnsCacheFactoryClassName());
 			pawnsCache.add(new PawnsEvalCache(pawnsCacheFactory, size_pc, false, new BinarySemaphore_Dummy()));
+			
+			pawnsStructureCache.add(new PawnsCache_Impl1(size_psc));
 		}		
 	}
 
@@ -292,18 +328,42 @@ public class MemoryConsumers {
 	}
 	
 	
+	public ITTable getTTable() {
+		return ttable;
+	}
+	
+	
 	public List<IEvalCache> getEvalCache() {
 		return evalCache;
 	}
 
 
+	//The cache, which is shared by all searchers
+	public IEvalCache getSharedEvalCache() {
+		return ecache;
+	}
+
+
 	public List<PawnsEvalCache> getPawnsCache() {
 		return pawnsCache;
 	}
 	
+	
+	public List<PawnsCache_Impl1> getPawnsStructureCache() {
+		return pawnsStructureCache;
+	}
+	
 	public void clear() {
-		if (tpt != null) tpt.clear();
+		if (tpt != null) {
+			tpt.clear();
+		}
+		if (ttable instanceof TTable_Impl4) {
+			((TTable_Impl4) ttable).free();
+		}
+		ttable = null;
 		if (evalCache != null) evalCache.clear();
+		ecache = null;
 		if (pawnsCache != null) pawnsCache.clear();
+		if (pawnsStructureCache != null) pawnsStructureCache.clear();
 	}
 }
@@ -32,7 +32,9 @@ import bagaturchess.search.api.IEvaluator;
 import bagaturchess.search.api.IRootSearchConfig;
 import bagaturchess.search.api.ISearchConfig_AB;
 import bagaturchess.search.api.internal.ISearchMoveListFactory;
+import bagaturchess.search.impl.eval.BaseEvaluator;
 import bagaturchess.search.impl.eval.cache.IEvalCache;
+import bagaturchess.search.impl.eval.cache.PawnsCache_Impl1;
 import bagaturchess.search.impl.history.HistoryTable_PieceTo;
 import bagaturchess.search.impl.history.IHistoryTable;
 import bagaturchess.search.impl.movelists.OrderingStatistics;
@@ -52,6 +54,7 @@ public class SearchEnv {
 	
 	private IEvalCache evalCache;
 	private PawnsEvalCache pawnsCache;
+	private PawnsCache_Impl1 pawnsStructureCache;
 	private ITTable tpt;
 
 	
@@ -107,6 +110,13 @@ public class SearchEnv {
 		return pawnsCache;
 	}
 	
+	public PawnsCache_Impl1 getPawnsStructureCache() {
+		if (pawnsStructureCache == null) {
+			pawnsStructureCache = shared.getAndRemovePawnsStructureCache();
+		}
+		return pawnsStructureCache;
+	}
+	
 	public int getTPTUsagePercent() {
 		if (tpt == null) {
 			return 0;
@@ -146,6 +156,9 @@ public class SearchEnv {
 	public IEvaluator getEval() {
 		if (eval == null) {
 			eval = shared.getEvaluatorFactory().create(bitboard, getEvalCache(), shared.getEngineConfiguration().getEvalConfig());
+			if (eval instanceof BaseEvaluator) {
+				((BaseEvaluator) eval).setPawnsStructureCache(getPawnsStructureCache());
+			}
 		}
 		return eval;
 	}
@@ -180,6 +193,7 @@ public class SearchEnv {
 		//result += shared.toString();
 		result += "Eval Cache HIT RATE is: " + getEvalCache().getHitRate();
 		result += "; Pawn Cache HIT RATE is: " + getPawnsCache().getHitRate();
+		result += "; Pawns Structure Cache HIT RATE is: " + getPawnsStructureCache().getHitRate();
 		result += "\r\nMOVE ORDERING STATISTICS\r\n" + getMoveListFactory().toString();
 		
 		return result;
@@ -29,6 +29,7 @@ import bagaturchess.search.api.IEvaluatorFactory;
 import bagaturchess.search.api.IRootSearchConfig;
 import bagaturchess.search.api.ISearchConfig_AB;
 import bagaturchess.search.impl.eval.cache.IEvalCache;
+import bagaturchess.search.impl.eval.cache.PawnsCache_Impl1;
 import bagaturchess.search.impl.tpt.ITTable;
 import bagaturchess.uci.api.IChannel;
 
@@ -84,16 +85,36 @@ public class SharedData {
 	}
 	
 	
+	//The table, which is shared by all searchers
+	public ITTable getTPT() {
+		return memoryConsumers.getTTable();
+	}
+	
+	
 	public PawnsEvalCache getAndRemovePawnsCache() {
 		return memoryConsumers.getPawnsCache().remove(0);
 	}
 
 	
+	public PawnsCache_Impl1 getAndRemovePawnsStructureCache() {
+		return memoryConsumers.getPawnsStructureCache().remove(0);
+	}
+	
+	
 	public IEvalCache getAndRemoveEvalCache() {
 		return memoryConsumers.getEvalCache().remove(0);
 	}
 	
 	
+	/**
+	 * @return the hit rate of the eval cache shared by all searchers or -1 if there is no such cache
+	 */
+	public int getEvalCacheHitRate() {
+		IEvalCache ecache = memoryConsumers == null ? null : memoryConsumers.getSharedEvalCache();
+		return ecache == null ? -1 : ecache.getHitRate();
+	}
+	
+	
 	@Override
 	public String toString() {
 		String msg = "";//"TPT HIT RATE is: " + getTPT().getHitRate();
@@ -15,6 +15,7 @@ import bagaturchess.search.api.internal.ISearch;
 import bagaturchess.search.impl.eval.cache.EvalEntry_BaseImpl;
 import bagaturchess.search.impl.eval.cache.IEvalCache;
 import bagaturchess.search.impl.eval.cache.IEvalEntry;
+import bagaturchess.search.impl.eval.cache.PawnsCache_Impl1;
 
 
 public abstract class BaseEvaluator implements IEvaluator {
@@ -58,6 +59,8 @@ public abstract class BaseEvaluator implements IEvaluator {
 	private IEvalCache evalCache;
 	private IEvalEntry cached = new EvalEntry_BaseImpl();
 	
+	private PawnsCache_Impl1 pawnsStructureCache;
+	
 	
 	public BaseEvaluator(IBitBoard _bitboard, IEvalCache _evalCache, IEvalConfig _evalConfig) {
 		
@@ -83,6 +86,17 @@ public abstract class BaseEvaluator implements IEvaluator {
 	}
 	
 	
+	public void setPawnsStructureCache(PawnsCache_Impl1 _pawnsStructureCache) {
+		pawnsStructureCache = _pawnsStructureCache;
+	}
+	
+	
+	//Could be null
+	protected PawnsCache_Impl1 getPawnsStructureCache() {
+		return pawnsStructureCache;
+	}
+	
+	
 	protected abstract double phase1();
 	
 	protected abstract double phase2();
@@ -0,0 +1,181 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.search.impl.eval.cache;
+
+
+import bagaturchess.bitboard.impl1.internal.Util;
+
+
+/**
+ * Thread safe version of EvalCache_Impl2, which is shared between all searcher threads.
+ * The entries are grouped in buckets of 2 or 4 entries. Each entry is a [key ^ value, value] pair of longs,
+ * so torn writes from other threads are rejected by the xor check without any locking.
+ * The value keeps the eval and the lazy eval level, which is returned by get, so the lazy evals are not reported as full evals.
+ * The statistics are counted per thread stripe and summed only when getHitRate is called.
+ */
+public class EvalCache_Impl3 implements IEvalCache {
+	
+	
+	private static final int LEVEL = 32;
+	
+	//Each stripe is on its own cache line (8 longs), in order to avoid false sharing between the threads
+	private static final int STRIPES = 64;
+	private static final int STRIPE_PADDING = 8;
+	
+	
+	private final int bucketSize;
+	private final int bucketShifts;
+	public final int maxEntries;
+	
+	//[key ^ value, value] pairs
+	private final long[] entries;
+	
+	//The counters are not atomic. Two threads with the same stripe may lose some counts, which is acceptable for statistics.
+	private final long[] counters_tries;
+	private final long[] counters_hits;
+	
+	
+	public EvalCache_Impl3(int sizeInMB) {
+		this(sizeInMB, 2);
+	}
+	
+	
+	public EvalCache_Impl3(int sizeInMB, int _bucketSize) {
+		
+		if (_bucketSize != 2 && _bucketSize != 4) {
+			throw new IllegalStateException("bucketSize=" + _bucketSize);
+		}
+		
+		bucketSize = _bucketSize;
+		
+		//The same count of entries as EvalCache_Impl2, which has 16 bytes per entry as well
+		int POWER_2_ENTRIES = (int) (Math.log(sizeInMB) / Math.log(2) + 16);
+		int POWER_2_BUCKET = Integer.numberOfTrailingZeros(bucketSize);
+		bucketShifts = 64 - (POWER_2_ENTRIES - POWER_2_BUCKET);
+		maxEntries = (int) Util.POWER_LOOKUP[POWER_2_ENTRIES];
+		
+		entries = new long[2 * maxEntries];
+		counters_tries = new long[STRIPES * STRIPE_PADDING];
+		counters_hits = new long[STRIPES * STRIPE_PADDING];
+	}
+	
+	
+	@Override
+	public void get(long key, IEvalEntry entry) {
+		
+		final int stripe = getStripe();
+		
+		counters_tries[stripe]++;
+		
+		entry.setIsEmpty(true);
+		
+		final int index = getIndex(key);
+		
+		for (int i = index; i < index + 2 * bucketSize; i += 2) {
+			final long value = entries[i + 1];
+			if (value != 0 && (entries[i] ^ value) == key) {
+				counters_hits[stripe]++;
+				entry.setIsEmpty(false);
+				entry.setEval(getEval(value));
+				entry.setLevel((byte) getLevel(value));
+				return;
+			}
+		}
+	}
+	
+	
+	@Override
+	public void put(long key, int level, double eval) {
+		
+		final int index = getIndex(key);
+		
+		int replacedIndex = index;
+		int replacedLevel = Integer.MAX_VALUE;
+		
+		for (int i = index; i < index + 2 * bucketSize; i += 2) {
+			
+			final long currentValue = entries[i + 1];
+			
+			if (currentValue == 0 || (entries[i] ^ currentValue) == key) {
+				replacedIndex = i;
+				break;
+			}
+			
+			//The lazy evals are replaced before the full evals
+			int currentLevel = getLevel(currentValue);
+			if (currentLevel < replacedLevel) {
+				replacedIndex = i;
+				replacedLevel = currentLevel;
+			}
+		}
+		
+		final long value = createValue((int) eval, level);
+		entries[replacedIndex] = key ^ value;
+		entries[replacedIndex + 1] = value;
+	}
+	
+	
+	@Override
+	public int getHitRate() {
+		
+		long tries = 0;
+		long hits = 0;
+		for (int i = 0; i < STRIPES; i++) {
+			tries += counters_tries[i * STRIPE_PADDING];
+			hits += counters_hits[i * STRIPE_PADDING];
+		}
+		
+		if (tries == 0) {
+			return 0;
+		}
+		
+		return (int) (hits * 100 / tries);
+	}
+	
+	
+	private static int getStripe() {
+		return (int) (Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_PADDING;
+	}
+	
+	
+	//Index of the first long of the bucket
+	private int getIndex(final long key) {
+		return (int) (key >>> bucketShifts) * bucketSize * 2;
+	}
+	
+	
+	//The level is always greater than 0, so the value of a used entry is never 0
+	private static long createValue(final int eval, final int level) {
+		return ((long) level << LEVEL) | (eval & 0xffffffffL);
+	}
+	
+	
+	private static int getEval(final long value) {
+		return (int) value;
+	}
+	
+	
+	private static int getLevel(final long value) {
+		return (int) (value >>> LEVEL);
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.search.impl.eval.cache;
+
+
+import bagaturchess.bitboard.impl1.internal.Util;
+
+
+/**
+ * Pawns structure cache, without objects. Each entry is 4 longs in one array:
+ * the inverted white pawns (so an empty entry never matches), the black pawns, the opening and endgame scores (as 2 floats) and one more long with evaluator specific data (e.g. passers).
+ * The index is taken from the pawns hash key and the entry is verified with the pawns bitboards, so there are no wrong hits.
+ * Not thread safe, each searcher has its own instance.
+ */
+public class PawnsCache_Impl1 {
+	
+	
+	private static final int ENTRY_SIZE = 4;
+	
+	
+	private final int keyShifts;
+	public final int maxEntries;
+	
+	private final long[] entries;
+	
+	private long counter_tries;
+	private long counter_hits;
+	
+	
+	public PawnsCache_Impl1(int sizeInMB) {
+		
+		//32 bytes per entry
+		int POWER_2_ENTRIES = (int) (Math.log(sizeInMB) / Math.log(2) + 15);
+		
+		keyShifts = 64 - POWER_2_ENTRIES;
+		maxEntries = (int) Util.POWER_LOOKUP[POWER_2_ENTRIES];
+		
+		entries = new long[ENTRY_SIZE * maxEntries];
+	}
+	
+	
+	/**
+	 * @return the index of the entry or -1 if there is no entry for these pawns
+	 */
+	public int get(final long pawnsKey, final long w_pawns, final long b_pawns) {
+		
+		counter_tries++;
+		
+		final int index = getIndex(pawnsKey);
+		if (entries[index] == ~w_pawns && entries[index + 1] == b_pawns) {
+			counter_hits++;
+			return index;
+		}
+		
+		return -1;
+	}
+	
+	
+	public double getScore_o(final int index) {
+		return Float.intBitsToFloat((int) (entries[index + 2] >>> 32));
+	}
+	
+	
+	public double getScore_e(final int index) {
+		return Float.intBitsToFloat((int) entries[index + 2]);
+	}
+	
+	
+	public long getData(final int index) {
+		return entries[index + 3];
+	}
+	
+	
+	public void put(final long pawnsKey, final long w_pawns, final long b_pawns, final double score_o, final double score_e, final long data) {
+		
+		final int index = getIndex(pawnsKey);
+		
+		entries[index] = ~w_pawns;
+		entries[index + 1] = b_pawns;
+		entries[index + 2] = ((long) Float.floatToRawIntBits((float) score_o) << 32) | (Float.floatToRawIntBits((float) score_e) & 0xffffffffL);
+		entries[index + 3] = data;
+	}
+	
+	
+	public int getHitRate() {
+		if (counter_tries == 0) {
+			return 0;
+		}
+		return (int) (counter_hits * 100 / counter_tries);
+	}
+	
+	
+	public long getTries() {
+		return counter_tries;
+	}
+	
+	
+	public long getHits() {
+		return counter_hits;
+	}
+	
+	
+	private int getIndex(final long key) {
+		return ENTRY_SIZE * (int) (key >>> keyShifts);
+	}
+}
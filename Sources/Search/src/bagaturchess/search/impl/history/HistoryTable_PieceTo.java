@@ -154,4 +154,18 @@ public class HistoryTable_PieceTo implements IHistoryTable {
 		
 		return false;
 	}
+	
+	
+	@Override
+	public int getCounterMove(int last_move) {
+		
+		if (last_move == 0) {
+			return 0;
+		}
+		
+		int pid = board.getMoveOps().getFigurePID(last_move);
+		int to = board.getMoveOps().getToFieldID(last_move);
+		
+		return counters[pid][to][0];
+	}
 }
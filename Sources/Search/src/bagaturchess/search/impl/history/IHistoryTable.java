@@ -36,4 +36,5 @@ public interface IHistoryTable {
 	//Counter moves
 	public void addCounterMove(int last_move, int counter_move);
 	public boolean isCounterMove(int last_move, int move);
+	public int getCounterMove(int last_move);//Returns the last added counter move or 0
 }
@@ -31,36 +31,24 @@ import bagaturchess.search.api.internal.ISearchMoveList;
 import bagaturchess.search.impl.env.SearchEnv;
 
 
+/*
+ * Staged move picker: TT move, good captures (SEE >= 0), refutations (mate, prev pv, killer and counter move),
+ * quiet moves and at the end the bad captures.
+ * The quiet moves are generated only if there was no beta cutoff before that.
+ */
 public class ListAll implements ISearchMoveList {
-	
-	
-	private final int ORD_VAL_TPT_MOVE;
-	private final int ORD_VAL_MATE_MOVE;
-	private final int ORD_VAL_WIN_CAP;
-	private final int ORD_VAL_EQ_CAP;
-	private final int ORD_VAL_COUNTER;
-	private final int ORD_VAL_PREV_BEST_MOVE;
-	private final int ORD_VAL_CASTLING;
-	private final int ORD_VAL_MATE_KILLER;
-	private final int ORD_VAL_PASSER_PUSH;
-	private final int ORD_VAL_KILLER;
-	private final int ORD_VAL_PREVPV_MOVE;
-	private final int ORD_VAL_LOSE_CAP;
-	
-	
-	/*private static final int ORD_VAL_TPT_MOVE        = 10000;
-	private static final int ORD_VAL_WIN_CAP         =  7000;
-	private static final int ORD_VAL_EQ_CAP          =  6000;
-	private static final int ORD_VAL_PREV_BEST_MOVE  =  5000;
-	private static final int ORD_VAL_PASSER_PUSH 	 =  4000;
-	private static final int ORD_VAL_KILLER          =  3000;
-	private static final int ORD_VAL_PREVPV_MOVE     =  2000;
-	private static final int ORD_VAL_CASTLING 	 	 =  1000;
-	private static final int ORD_VAL_MATE_KILLER     =  0;
-	private static final int ORD_VAL_COUNTER         =  0;
-	private static final int ORD_VAL_LOSE_CAP        =  -2000;*/
-	
-	
+
+
+	private static final int STAGE_TPT_MOVE 		= 1;
+	private static final int STAGE_CAPTURE_INIT 	= 2;
+	private static final int STAGE_GOOD_CAPTURE 	= 3;
+	private static final int STAGE_REFUTATION 		= 4;
+	private static final int STAGE_QUIET_INIT 		= 5;
+	private static final int STAGE_QUIET 			= 6;
+	private static final int STAGE_BAD_CAPTURE 		= 7;
+	private static final int STAGE_END 				= 8;
+
+
 	/* results after EPD with 300
 	TPT        :	3401018	3399999	0.9997003838262544
 	WINCAP     :	12984646	7094787	0.5463981844402998
@@ -77,312 +65,380 @@ public class ListAll implements ISearchMoveList {
 	HISTORY    :	14665489	3057408	0.20847639972392426
 	PST        :	14665489	2241164	0.15281896839549955
 	*/
-	
-	
-	private long[] moves; 
+
+
+	private int stage;
+
+	//The ordering value of the captures is their SEE score
+	private long[] caps;
+	private int caps_size;
+	private int caps_cur;
+
+	//The ordering value of the quiet moves is their history score
+	private long[] quiets;
+	private int quiets_size;
+	private int quiets_cur;
+
+	private int[] refutations;
+	private int refutations_size;
+	private int refutations_cur;
+
 	private int size;
-	private int cur;
-	
-	private boolean generated;
-	private boolean revalue;
-	
-	private boolean tptTried;
+
 	private boolean tptPlied;
 	private int tptMove = 0;
-	
+
 	private int prevBestMove = 0;
 	private int prevPvMove = 0;
 	private int mateMove = 0;
-	
+
+	//The last returned capture and its SEE score, used by the statistics
+	private int lastCapture;
+	private int lastCaptureSEE;
+
 	private SearchEnv env;
-	
+
 	private OrderingStatistics orderingStatistics;
-	
-	private boolean reuse_moves = false;
-	
-	
-	public ListAll(SearchEnv _env, OrderingStatistics _orderingStatistics) { 
+
+
+	public ListAll(SearchEnv _env, OrderingStatistics _orderingStatistics) {
 		env = _env;
-		moves = new long[256];
+		caps = new long[256];
+		quiets = new long[256];
+		refutations = new int[4];
 		orderingStatistics = _orderingStatistics;
-		
-		ORD_VAL_TPT_MOVE        = env.getSearchConfig().getOrderingWeight_TPT_MOVE();
-		ORD_VAL_MATE_MOVE       = env.getSearchConfig().getOrderingWeight_MATE_MOVE();
-		ORD_VAL_WIN_CAP         = env.getSearchConfig().getOrderingWeight_WIN_CAP();
-		ORD_VAL_EQ_CAP          = env.getSearchConfig().getOrderingWeight_EQ_CAP();
-		ORD_VAL_COUNTER         = env.getSearchConfig().getOrderingWeight_COUNTER();
-		ORD_VAL_PREV_BEST_MOVE  = env.getSearchConfig().getOrderingWeight_PREV_BEST_MOVE();
-		ORD_VAL_CASTLING 	 	= env.getSearchConfig().getOrderingWeight_CASTLING();
-		ORD_VAL_MATE_KILLER     = env.getSearchConfig().getOrderingWeight_MATE_KILLER();
-		ORD_VAL_PASSER_PUSH 	= env.getSearchConfig().getOrderingWeight_PASSER_PUSH();
-		ORD_VAL_KILLER          = env.getSearchConfig().getOrderingWeight_KILLER();
-		ORD_VAL_PREVPV_MOVE     = env.getSearchConfig().getOrderingWeight_PREVPV_MOVE();
-		ORD_VAL_LOSE_CAP        = env.getSearchConfig().getOrderingWeight_LOSE_CAP();
 	}
-	
+
 	public void clear() {
-		cur = 0;
+		stage = STAGE_TPT_MOVE;
+
+		caps_size = 0;
+		caps_cur = 0;
+		quiets_size = 0;
+		quiets_cur = 0;
+		refutations_size = 0;
+		refutations_cur = 0;
 		size = 0;
-		
-		generated = false;
-		revalue 	= false;
-		
-		tptTried = false;
+
 		tptPlied = false;
-		
+
 		tptMove = 0;
 		prevBestMove = 0;
 		prevPvMove = 0;
 		mateMove = 0;
+
+		lastCapture = 0;
 	}
-	
+
 	@Override
 	public String toString() {
 		String msg = "";
-		
+
 		msg += orderingStatistics.toString();
-		
+
 		return msg;
 	}
-	
+
 	private boolean isOk(int move) {
 		return !env.getBitboard().getMoveOps().isCastling(move) && !env.getBitboard().getMoveOps().isEnpassant(move);
 	}
-	
+
+	@SuppressWarnings("fallthrough")
 	public int next() {
-		
-		if (!tptTried) {
-			tptTried = true;
-			if (tptMove != 0 && isOk(tptMove) && env.getBitboard().isPossible(tptMove)) {
-				tptPlied = true;
-				return tptMove;
-			}
-		}
-		
-		if (revalue) {
-			
-			for (int i = 0; i < size; i++) {
-				int move = (int) moves[i]; 
-				
-				if (!env.getBitboard().isPossible(move)) {
+
+		switch (stage) {
+
+			case STAGE_TPT_MOVE:
+
+				stage++;
+
+				if (tptMove != 0 && isOk(tptMove) && env.getBitboard().isPossible(tptMove)) {
+					tptPlied = true;
+					return tptMove;
+				}
+
+			//$FALL-THROUGH$
+			case STAGE_CAPTURE_INIT:
+
+				if (env.getBitboard().isInCheck()) {
 					throw new IllegalStateException();
 				}
-				
-				long ordval = genOrdVal(move);
-				moves[i] = MoveInt.addOrderingValue(move, ordval);
-				
-				//Move best move on top
-				if (moves[i] > moves[0]) {
-					long best_move = moves[i];
-					moves[i] = moves[0];
-					moves[0] = best_move;
+
+				stage++;
+
+				if (genOpeningBookMoves()) {
+					stage = STAGE_QUIET;
+					return next();
 				}
-			}
-			
-			revalue = false;
-			
-		} else if (!generated) {
-			genMoves();							
-		}
-		
-		if (cur < size) {
-			
-			//int SORT_INDEX = 1;
-			//int SORT_INDEX = 2;
-			int SORT_INDEX = 3;
-			//int SORT_INDEX = (int) Math.max(1, Math.sqrt(size) / 2);
-			
-			if (SORT_INDEX <= 0) {
-				throw new IllegalStateException();
-			}
-			
-			if (cur == 0) {
-				//Already sorted in reserved_add
-			} else if (cur == SORT_INDEX) {
-				if (env.getSearchConfig().randomizeMoveLists()) Utils.randomize(moves, cur, size);
-				if (env.getSearchConfig().sortMoveLists()) Utils.bubbleSort(cur, size, moves);
-			} else if (cur < SORT_INDEX) {
-				for (int i = cur; i < size; i++) {					
-					//Move best move on top
-					if (moves[i] > moves[cur]) {
-						long best_move = moves[i];
-						moves[i] = moves[cur];
-						moves[cur] = best_move;
+
+				env.getBitboard().genCapturePromotionMoves(this);
+
+				if (env.getSearchConfig().randomizeMoveLists()) Utils.randomize(caps, 0, caps_size);
+
+			//$FALL-THROUGH$
+			case STAGE_GOOD_CAPTURE:
+
+				if (caps_cur < caps_size) {
+
+					if (env.getSearchConfig().sortMoveLists()) {
+						selectBest(caps, caps_cur, caps_size);
+					} else {
+						selectFirst(caps, caps_cur, caps_size, 0);
+					}
+
+					long best = caps[caps_cur];
+					if (MoveInt.getOrderingValue(best) >= 0) {
+						caps_cur++;
+						lastCapture = (int) best;
+						lastCaptureSEE = MoveInt.getOrderingValue(best);
+						return lastCapture;
 					}
 				}
-			}
-			
-			int move = (int) moves[cur++];
-			
-			return move;
-			
-		} else {
-			
-			return 0;
+
+				stage++;
+
+				genRefutations();
+
+			//$FALL-THROUGH$
+			case STAGE_REFUTATION:
+
+				if (refutations_cur < refutations_size) {
+					return refutations[refutations_cur++];
+				}
+
+				stage++;
+
+			//$FALL-THROUGH$
+			case STAGE_QUIET_INIT:
+
+				stage++;
+
+				env.getBitboard().genNonCaptureNonPromotionMoves(this);
+
+				if (env.getSearchConfig().randomizeMoveLists()) Utils.randomize(quiets, 0, quiets_size);
+				if (env.getSearchConfig().sortMoveLists()) partialInsertionSort(quiets, 0, quiets_size, 1);
+
+			//$FALL-THROUGH$
+			case STAGE_QUIET:
+
+				if (quiets_cur < quiets_size) {
+					return (int) quiets[quiets_cur++];
+				}
+
+				stage++;
+
+			//$FALL-THROUGH$
+			case STAGE_BAD_CAPTURE:
+
+				if (caps_cur < caps_size) {
+
+					if (env.getSearchConfig().sortMoveLists()) selectBest(caps, caps_cur, caps_size);
+
+					long best = caps[caps_cur++];
+					lastCapture = (int) best;
+					lastCaptureSEE = MoveInt.getOrderingValue(best);
+					return lastCapture;
+				}
+
+				stage++;
+
+			//$FALL-THROUGH$
+			case STAGE_END:
+
+				return 0;
 		}
+
+		throw new IllegalStateException("stage=" + stage);
 	}
-	
-	
-	public void genMoves() {
-		
-		if (env.getBitboard().isInCheck()) {
-			throw new IllegalStateException();
-		}
-		
-		boolean gen = true;
-		
-		if (env.getOpeningBook() != null) {
-			
-			IOpeningEntry entry = env.getOpeningBook().getEntry(env.getBitboard().getHashKey(), env.getBitboard().getColourToMove());
-			if (entry != null && entry.getWeight() >= OpeningBook.OPENNING_BOOK_MIN_MOVES) {
-				
-				int[] ob_moves = entry.getMoves();
-				int[] ob_counts = entry.getCounts();
-				
-				for (int i=0; i<ob_moves.length; i++) {
-					
-					//if (env.getSearchConfig().getOpenningBook_Mode() == ISearchConfig_AB.OPENNING_BOOK_MODE_POWER2) {
-						//Most played first strategy - use ord val
-						long move_ord = MoveInt.addOrderingValue(ob_moves[i], ob_counts == null ? 1 : ob_counts[i]);
-						add(move_ord);
-						
-					//} else {
-					//	//Random move - in addition randomize naturally without using ordval scores
-					//	add(ob_moves[i]);
-					//}
-				}
-				
-				
-				gen = false;
-			}
+
+
+	private boolean genOpeningBookMoves() {
+
+		if (env.getOpeningBook() == null) {
+			return false;
 		}
-		
-		if (gen) {
-			env.getBitboard().genAllMoves(this);
+
+		IOpeningEntry entry = env.getOpeningBook().getEntry(env.getBitboard().getHashKey(), env.getBitboard().getColourToMove());
+		if (entry == null || entry.getWeight() < OpeningBook.OPENNING_BOOK_MIN_MOVES) {
+			return false;
+		}
+
+		int[] ob_moves = entry.getMoves();
+		int[] ob_counts = entry.getCounts();
+
+		for (int i=0; i<ob_moves.length; i++) {
+
+			if (tptPlied && ob_moves[i] == tptMove) {
+				continue;
+			}
+
+			//Most played first strategy - use ord val
+			quiets[quiets_size++] = MoveInt.addOrderingValue(ob_moves[i], ob_counts == null ? 1 : ob_counts[i]);
+			size++;
 		}
-		
-		generated = true;
+
+		partialInsertionSort(quiets, 0, quiets_size, Integer.MIN_VALUE);
+
+		return true;
 	}
-	
-	public int size() {
-		return size;
+
+
+	private void genRefutations() {
+		addRefutation(mateMove);
+		addRefutation(prevPvMove);
+		addRefutation(prevBestMove);
+		addRefutation(env.getHistory_All().getCounterMove(env.getBitboard().getLastMove()));
 	}
-	
-	public void reserved_add(int move) {
-		
-		if (!env.getSearchConfig().sortMoveLists()) {
-			add(move);
+
+
+	private void addRefutation(int move) {
+
+		if (move == 0 || move == tptMove || isRefutation(move)) {
+			return;
 		}
-		
-		if (move == tptMove) {
-			if (tptPlied) {
-				return;
-			}
+
+		//The captures are already tried
+		if (env.getBitboard().getMoveOps().isCaptureOrPromotion(move)) {
+			return;
+		}
+
+		if (isOk(move) && env.getBitboard().isPossible(move)) {
+			refutations[refutations_size++] = move;
+			size++;
 		}
-		
-		long ordval = genOrdVal(move);
-		
-		long move_ord = MoveInt.addOrderingValue(move, ordval);
-		
-		add(move_ord);
 	}
-	
-	
-	private static long counter = 0;
-	
-	
-	private long genOrdVal(int move) {
-		
-		counter++;
-		
-		if (counter % 1000000 == 0) {
-			//System.out.println(orderingStatistics);
-		}
-		
-		long ordval = 10000;
-		
-		
-		if (move == tptMove) {
-			ordval += ORD_VAL_TPT_MOVE * orderingStatistics.getOrdVal_TPT();
+
+
+	private boolean isRefutation(int move) {
+		for (int i = 0; i < refutations_size; i++) {
+			if (refutations[i] == move) {
+				return true;
+			}
 		}
-		
-		
-		if (move == prevPvMove) {
-			ordval += ORD_VAL_PREVPV_MOVE * orderingStatistics.getOrdVal_PREVPV();
+		return false;
+	}
+
+
+	/**
+	 * Moves the best move from the interval [from, to) to the position from.
+	 * In most of the nodes there is a beta cutoff after the first few moves, so a full sort is not necessary.
+	 */
+	private static void selectBest(long[] moves, int from, int to) {
+		for (int i = from + 1; i < to; i++) {
+			if (moves[i] > moves[from]) {
+				long best_move = moves[i];
+				moves[i] = moves[from];
+				moves[from] = best_move;
+			}
 		}
-		
-		
-		if (move == prevBestMove) {
-			ordval += ORD_VAL_PREV_BEST_MOVE * orderingStatistics.getOrdVal_PREVBEST();
+	}
+
+
+	/**
+	 * Moves the first move with ordering value greater or equal to limit from the interval [from, to) to the position from.
+	 * Used instead of selectBest when the move lists are not sorted, the other moves keep their generation order.
+	 */
+	private static void selectFirst(long[] moves, int from, int to, int limit) {
+		for (int i = from; i < to; i++) {
+			if (MoveInt.getOrderingValue(moves[i]) >= limit) {
+				long first_move = moves[i];
+				System.arraycopy(moves, from, moves, from + 1, i - from);
+				moves[from] = first_move;
+				return;
+			}
 		}
-		
-		
-		if (move == mateMove) {
-			ordval += ORD_VAL_MATE_MOVE * orderingStatistics.getOrdVal_MATEMOVE();
+	}
+
+
+	/**
+	 * Sorts in descending order only the moves which have ordering value greater or equal to limit.
+	 * They are placed at the beginning of the interval [from, to), the rest stay unsorted after them.
+	 */
+	private static void partialInsertionSort(long[] moves, int from, int to, int limit) {
+		int sorted_end = from;
+		for (int i = from; i < to; i++) {
+			long move = moves[i];
+			if (MoveInt.getOrderingValue(move) >= limit) {
+				moves[i] = moves[sorted_end];
+				int j = sorted_end;
+				while (j > from && moves[j - 1] < move) {
+					moves[j] = moves[j - 1];
+					j--;
+				}
+				moves[j] = move;
+				sorted_end++;
+			}
 		}
-		
-		
-		if (env.getBitboard().getMoveOps().isCastling(move)) {
-			ordval += ORD_VAL_CASTLING * orderingStatistics.getOrdVal_CASTLING();
+	}
+
+
+	public int size() {
+		return size;
+	}
+
+	public void reserved_add(int move) {
+
+		if (tptPlied && move == tptMove) {
+			return;
 		}
-		
-		
-		if (env.getBitboard().getMoveOps().isCaptureOrPromotion(move)) {
-			
+
+		if (stage == STAGE_GOOD_CAPTURE) {
+
 			int see = env.getBitboard().getSEEScore(move);
-			
-			if (see > 0) {
-				ordval += ORD_VAL_WIN_CAP * orderingStatistics.getOrdVal_WINCAP() + see;
-			} else if (see == 0) {
-				ordval += ORD_VAL_EQ_CAP * orderingStatistics.getOrdVal_EQCAP();
-			} else {
-				ordval += ORD_VAL_LOSE_CAP * orderingStatistics.getOrdVal_LOSECAP() + see / 100;
+			caps[caps_size++] = MoveInt.addOrderingValue(move, see);
+
+		} else {
+
+			if (isRefutation(move)) {
+				return;
 			}
+
+			long ordval = (long) (OrderingStatistics.MAX_VAL * env.getHistory_All().getScores(move));
+			quiets[quiets_size++] = MoveInt.addOrderingValue(move, ordval);
 		}
-		
-		if (env.getHistory_All().isCounterMove(env.getBitboard().getLastMove(), move)) {
-			ordval += ORD_VAL_COUNTER * orderingStatistics.getOrdVal_COUNTER();
-		}
-		
-		ordval += env.getHistory_All().getScores(move) * orderingStatistics.getOrdVal_HISTORY();
-		
-		//ordval += env.getBitboard().getBaseEvaluation().getPSTMoveGoodPercent(move) * orderingStatistics.getOrdVal_PST();
-		
-		
-		return ordval;
+
+		size++;
+	}
+
+
+	private int getSEEScore(int move) {
+		if (move == lastCapture) {
+			return lastCaptureSEE;
+		}
+		return env.getBitboard().getSEEScore(move);
 	}
-	
-	
+
+
 	public void countTotal(int move) {
-		
+
 		if (move == tptMove) {
 			orderingStatistics.tpt_count++;
 		}
-		
+
 		if (move == prevPvMove) {
 			orderingStatistics.prevpv_count++;
 		}
-		
+
 		if (move == prevBestMove) {
 			orderingStatistics.prevbest_count++;
 		}
-		
+
 		if (move == mateMove) {
 			orderingStatistics.matemove_count++;
 		}
-		
+
 		/*if (env.getBitboard().isPasserPush(move)) {
 			orderingStatistics.passer_count++;
 		}*/
-		
+
 		if (env.getBitboard().getMoveOps().isCastling(move)) {
 			orderingStatistics.castling_count++;
 		}
-		
+
 		if (env.getBitboard().getMoveOps().isCaptureOrPromotion(move)) {
-			
-			int see = env.getBitboard().getSEEScore(move);
-			
+
+			int see = getSEEScore(move);
+
 			if (see > 0) {
 				orderingStatistics.wincap_count++;
 			} else if (see == 0) {
@@ -391,46 +447,46 @@ public class ListAll implements ISearchMoveList {
 				orderingStatistics.losecap_count++;
 			}
 		}
-		
+
 		if (env.getHistory_All().isCounterMove(env.getBitboard().getLastMove(), move)) {
 			orderingStatistics.counter_count++;
 		}
 	}
-	
-	
+
+
 	public void countSuccess(int bestmove) {
 		if (bestmove == 0) {
 			return;
 		}
-		
+
 		if (bestmove == tptMove) {
 			orderingStatistics.tpt_best++;
 		}
-		
+
 		if (bestmove == prevPvMove) {
 			orderingStatistics.prevpv_best++;
 		}
-		
+
 		if (bestmove == prevBestMove) {
 			orderingStatistics.prevbest_best++;
 		}
-		
+
 		if (bestmove == mateMove) {
 			orderingStatistics.matemove_best++;
 		}
-		
+
 		/*if (env.getBitboard().isPasserPush(bestmove)) {
 			orderingStatistics.passer_best++;
 		}*/
-		
+
 		if (env.getBitboard().getMoveOps().isCastling(bestmove)) {
 			orderingStatistics.castling_best++;
 		}
-		
+
 		if (env.getBitboard().getMoveOps().isCaptureOrPromotion(bestmove)) {
-			
-			int see = env.getBitboard().getSEEScore(bestmove);
-			
+
+			int see = getSEEScore(bestmove);
+
 			if (see > 0) {
 				orderingStatistics.wincap_best++;
 			} else if (see == 0) {
@@ -439,117 +495,91 @@ public class ListAll implements ISearchMoveList {
 				orderingStatistics.losecap_best++;
 			}
 		}
-		
+
 		if (env.getHistory_All().isCounterMove(env.getBitboard().getLastMove(), bestmove)) {
 			orderingStatistics.counter_best++;
 		}
-		
+
 		orderingStatistics.history_best += env.getHistory_All().getScores(bestmove);
 		orderingStatistics.history_count += 1;
-		
+
 		//orderingStatistics.pst_best += env.getBitboard().getBaseEvaluation().getPSTMoveGoodPercent(bestmove);
 		//orderingStatistics.pst_count += 1;
 	}
-	
-	private void add(long move) {	
-		if (size == 0) {
-			moves[0] = move;
-		} else {
-			if (move > moves[0]) {
-				moves[size] = moves[0];
-				moves[0] = move;
-			} else {
-				moves[size] = move;
-			}
-		}
-		size++;
-	}
-	
-	
+
+
 	public boolean isGoodMove(int move) {
-		
+
 		if (move == tptMove) {
 			return true;
 		}
-		
+
 		if (move == prevPvMove) {
 			return true;
 		}
-		
+
 		if (move == prevBestMove) {
 			return true;
 		}
-		
+
 		if (move == mateMove) {
 			return true;
 		}
-		
+
 		if (env.getHistory_All().isCounterMove(env.getBitboard().getLastMove(), move)) {
 			return true;
 		}
-		
+
 		if( env.getHistory_All().getScores(move) >= 0.5 ) {
 			return true;
 		}
-		
+
 		return false;
 	}
-	
-	
+
+
 	/**
-	 * Unsupported operations 
+	 * Unsupported operations
 	 */
-	
+
 	public void reserved_clear() {
 		throw new IllegalStateException();
 	}
-	
+
 	public int reserved_getCurrentSize() {
 		throw new IllegalStateException();
 	}
-	
+
 	public int[] reserved_getMovesBuffer() {
 		throw new IllegalStateException();
 	}
-	
+
 	public void reserved_removeLast() {
 		throw new IllegalStateException();
 	}
-	
+
 	public void setPrevBestMove(int prevBestMove) {
 		this.prevBestMove = prevBestMove;
 	}
-	
+
 	public void setMateMove(int mateMove) {
 		this.mateMove = mateMove;
 	}
-	
+
 	public void setTptMove(int tptMove) {
 		this.tptMove = tptMove;
 	}
-	
+
 	public void setPrevpvMove(int prevpvMove) {
 		this.prevPvMove = prevpvMove;
 	}
-	
+
 	@Override
 	public void newSearch() {
 	}
 
 	@Override
 	public void reset() {
-		
-		if (reuse_moves) {
-			
-			cur = 0;
-			
-			revalue = true;
-			
-			tptTried = false;
-			tptPlied = false;
-			
-		} else {
-			clear();
-		}
+		clear();
 	}
 }
@@ -97,7 +97,10 @@ public class ListCapsProm implements ISearchMoveList {
 		if (cur < caps_size) {
 			if (cur == 1) {
 				if (env.getSearchConfig().randomizeMoveLists()) Utils.randomize(caps, 1, caps_size);
-				if (env.getSearchConfig().sortMoveLists()) Utils.bubbleSort(1, caps_size, caps);
+			}
+			if (cur > 0) {
+				//Select the best of the rest instead of sorting all, usually there is a cutoff after the first few captures
+				if (env.getSearchConfig().sortMoveLists()) selectBest(cur, caps_size);
 			}
 			return (int) caps[cur++];
 		} else {
@@ -154,6 +157,16 @@ public class ListCapsProm implements ISearchMoveList {
 		//}
 	}
 
+	private void selectBest(int from, int to) {
+		for (int i = from + 1; i < to; i++) {
+			if (caps[i] > caps[from]) {
+				long best_move = caps[i];
+				caps[i] = caps[from];
+				caps[from] = best_move;
+			}
+		}
+	}
+	
 	private void add(long move) {
 		
 		if (caps_size == 0) {
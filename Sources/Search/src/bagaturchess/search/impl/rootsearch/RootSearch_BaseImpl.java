@@ -23,6 +23,9 @@
 package bagaturchess.search.impl.rootsearch;
 
 
+import java.util.ArrayList;
+import java.util.List;
+
 import bagaturchess.bitboard.api.BoardUtils;
 import bagaturchess.bitboard.api.IBitBoard;
 import bagaturchess.bitboard.common.Utils;
@@ -31,6 +34,7 @@ import bagaturchess.bitboard.impl1.BoardImpl;
 import bagaturchess.bitboard.impl1.internal.MoveWrapper;
 import bagaturchess.search.api.IRootSearch;
 import bagaturchess.search.api.IRootSearchConfig;
+import bagaturchess.search.api.internal.ISearch;
 import bagaturchess.search.api.internal.ISearchMediator;
 import bagaturchess.search.api.internal.ISearchStopper;
 import bagaturchess.search.api.internal.SearchInfoUtils;
@@ -59,6 +63,15 @@ public abstract class RootSearch_BaseImpl implements IRootSearch {
 	
 	
 	public void createBoard(IBitBoard _bitboardForSetup) {
+		bitboardForSetup = copyBoard(_bitboardForSetup);
+	}
+	
+	
+	/**
+	 * Creates new board with the same start position and played moves.
+	 * The given board is reverted and replayed during the copy.
+	 */
+	protected IBitBoard copyBoard(IBitBoard _bitboardForSetup) {
 		
 		int movesCount = _bitboardForSetup.getPlayedMovesCount();
 		int[] moves = Utils.copy(_bitboardForSetup.getPlayedMoves());
@@ -68,15 +81,17 @@ public abstract class RootSearch_BaseImpl implements IRootSearch {
 		//bitboardForSetup = new Board3_Adapter(_bitboardForSetup.toEPD(), getRootSearchConfig().getBoardConfig());
 		//bitboardForSetup = new Board(_bitboardForSetup.toEPD(), getRootSearchConfig().getBoardConfig());
 		
-		bitboardForSetup = BoardUtils.createBoard_WithPawnsCache(_bitboardForSetup.toEPD(),
+		IBitBoard copy = BoardUtils.createBoard_WithPawnsCache(_bitboardForSetup.toEPD(),
 				getRootSearchConfig().getEvalConfig().getPawnsCacheFactoryClassName(),
 				getRootSearchConfig().getBoardConfig(),
 				10000);
 		
 		for (int i=0; i<movesCount; i++) {
 			_bitboardForSetup.makeMoveForward(moves[i]);
-			bitboardForSetup.makeMoveForward(moves[i]);
+			copy.makeMoveForward(moves[i]);
 		}
+		
+		return copy;
 	}
 	
 	
@@ -104,6 +119,15 @@ public abstract class RootSearch_BaseImpl implements IRootSearch {
 	}
 	
 	
+	/**
+	 * @return the searchers of this root search (one per thread), which could be used by another root search while this one is stopped (e.g. MultiPVRootSearch).
+	 * The list is empty if the searchers are not created yet or are in other processes.
+	 */
+	public List<ISearch> getSearchers() {
+		return new ArrayList<ISearch>();
+	}
+	
+	
 	protected void setupBoard(IBitBoard _bitboardForSetup) {
 		bitboardForSetup.revert();
 		int movesCount = _bitboardForSetup.getPlayedMovesCount();
@@ -150,7 +174,7 @@ public abstract class RootSearch_BaseImpl implements IRootSearch {
 	
 	protected class Stopper implements ISearchStopper {
 		
-		private boolean stopped;
+		private volatile boolean stopped;
 		
 		public Stopper() {
 		}
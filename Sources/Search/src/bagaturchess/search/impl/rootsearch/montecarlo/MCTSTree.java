@@ -0,0 +1,364 @@
+/**
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see http://www.eclipse.org/legal/epl-v10.html
+ *
+ */
+package bagaturchess.search.impl.rootsearch.montecarlo;
+
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Monte-Carlo search tree stored in a pool of primitive arrays, shared by all search threads.
+ * The children of a node are allocated as one contiguous block.
+ * The statistics are updated with atomic operations only, without locks.
+ * 
+ * The value of a node is the expected score (0 = loss, 1 = win) from the point of view of the side,
+ * which has played the move leading to the node.
+ */
+public class MCTSTree {
+	
+	
+	public static final int STATE_LEAF 				= 0;
+	public static final int STATE_EXPANDING 		= 1;
+	public static final int STATE_EXPANDED 			= 2;
+	public static final int STATE_TERMINAL 			= 3;
+	
+	//Each thread, which passes through a node, counts as this number of lost games until its result is back propagated
+	private static final int VIRTUAL_LOSS 			= 3;
+	
+	private static final double VALUE_SCALE 		= 1 << 20;
+	
+	private static final double CPUCT 				= 1.5;
+	
+	//moves, firstChild, childrenCount, states, visits, priors, staticValues - 4 bytes each, valueSums - 8 bytes
+	public static final int BYTES_PER_NODE 			= 7 * 4 + 8;
+	
+	
+	private final int capacity;
+	private final AtomicInteger nextFree;
+	private int root;
+	
+	private Pool pool;
+	private Pool spare;
+	
+	
+	public MCTSTree(int _capacity) {
+		capacity = _capacity;
+		nextFree = new AtomicInteger();
+		pool = new Pool(capacity);
+		spare = new Pool(capacity);
+		clear();
+	}
+	
+	
+	/**
+	 * Drops all nodes and creates a new not expanded root
+	 */
+	public void clear() {
+		root = 0;
+		pool.init(root, 0, 0.5f, 0.5f, STATE_LEAF);
+		nextFree.set(1);
+	}
+	
+	
+	public int getRoot() {
+		return root;
+	}
+	
+	
+	public int getNodesCount() {
+		return nextFree.get();
+	}
+	
+	
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	
+	public int getMove(int node) {
+		return pool.moves[node];
+	}
+	
+	
+	public int getState(int node) {
+		return pool.states.get(node);
+	}
+	
+	
+	public boolean tryStartExpansion(int node) {
+		return pool.states.compareAndSet(node, STATE_LEAF, STATE_EXPANDING);
+	}
+	
+	
+	public void cancelExpansion(int node) {
+		pool.states.set(node, STATE_LEAF);
+	}
+	
+	
+	/**
+	 * @return the index of the first node of the block or -1 if the pool is full
+	 */
+	public int allocate(int count) {
+		while (true) {
+			int first = nextFree.get();
+			if (first + count > capacity) {
+				return -1;
+			}
+			if (nextFree.compareAndSet(first, first + count)) {
+				return first;
+			}
+		}
+	}
+	
+	
+	public void initChild(int node, int move, float prior, float staticValue, boolean terminal) {
+		pool.init(node, move, prior, staticValue, terminal ? STATE_TERMINAL : STATE_LEAF);
+	}
+	
+	
+	/**
+	 * Publishes the already initialized children. The state is written last, so that the other threads see the children completely.
+	 */
+	public void finishExpansion(int node, int firstChild, int childrenCount) {
+		pool.firstChild[node] = firstChild;
+		pool.childrenCount[node] = childrenCount;
+		pool.states.set(node, STATE_EXPANDED);
+	}
+	
+	
+	public void setTerminal(int node, float staticValue) {
+		pool.staticValues[node] = staticValue;
+		pool.states.set(node, STATE_TERMINAL);
+	}
+	
+	
+	public int getFirstChild(int node) {
+		return pool.firstChild[node];
+	}
+	
+	
+	public int getChildrenCount(int node) {
+		return pool.childrenCount[node];
+	}
+	
+	
+	public float getStaticValue(int node) {
+		return pool.staticValues[node];
+	}
+	
+	
+	public int getVisits(int node) {
+		return pool.visits.get(node);
+	}
+	
+	
+	/**
+	 * @return the average value of the node or its static value if it is not visited yet
+	 */
+	public double getValue(int node) {
+		int visits = pool.visits.get(node);
+		if (visits <= 0) {
+			return pool.staticValues[node];
+		}
+		return pool.valueSums.get(node) / (VALUE_SCALE * visits);
+	}
+	
+	
+	/**
+	 * PUCT selection. The virtual losses of the other threads are included in the visits,
+	 * so that they are directed to different parts of the tree.
+	 */
+	public int selectChild(int node) {
+		
+		int first = pool.firstChild[node];
+		int count = pool.childrenCount[node];
+		
+		double sqrt_visits = Math.sqrt(Math.max(1, pool.visits.get(node)));
+		
+		int best = -1;
+		double best_score = Double.NEGATIVE_INFINITY;
+		for (int child = first; child < first + count; child++) {
+			int visits = pool.visits.get(child);
+			double value = visits <= 0 ? pool.staticValues[child] : pool.valueSums.get(child) / (VALUE_SCALE * visits);
+			double score = value + CPUCT * pool.priors[child] * sqrt_visits / (1 + visits);
+			if (score > best_score) {
+				best_score = score;
+				best = child;
+			}
+		}
+		
+		return best;
+	}
+	
+	
+	public void addVirtualLoss(int node) {
+		pool.visits.addAndGet(node, VIRTUAL_LOSS);
+	}
+	
+	
+	/**
+	 * Replaces the virtual loss added during the selection with the real result.
+	 */
+	public void update(int node, double value) {
+		pool.valueSums.addAndGet(node, (long) (value * VALUE_SCALE));
+		pool.visits.addAndGet(node, 1 - VIRTUAL_LOSS);
+	}
+	
+	
+	/**
+	 * @return the most visited child or -1 if the node is not expanded
+	 */
+	public int getBestChild(int node) {
+		
+		if (pool.states.get(node) != STATE_EXPANDED) {
+			return -1;
+		}
+		
+		int first = pool.firstChild[node];
+		int count = pool.childrenCount[node];
+		
+		int best = -1;
+		int best_visits = -1;
+		double best_value = Double.NEGATIVE_INFINITY;
+		for (int child = first; child < first + count; child++) {
+			int visits = pool.visits.get(child);
+			double value = getValue(child);
+			if (visits > best_visits || (visits == best_visits && value > best_value)) {
+				best_visits = visits;
+				best_value = value;
+				best = child;
+			}
+		}
+		
+		return best;
+	}
+	
+	
+	/**
+	 * @return the child with the given move or -1 if the node is not expanded or there is no such move
+	 */
+	public int findChild(int node, int move) {
+		
+		if (pool.states.get(node) != STATE_EXPANDED) {
+			return -1;
+		}
+		
+		int first = pool.firstChild[node];
+		int count = pool.childrenCount[node];
+		for (int child = first; child < first + count; child++) {
+			if (pool.moves[child] == move) {
+				return child;
+			}
+		}
+		
+		return -1;
+	}
+	
+	
+	/**
+	 * Makes the given node a root and drops all other nodes.
+	 * The subtree is copied in breadth first order into the spare pool, which then becomes the current one,
+	 * so the free space is again contiguous. Must not be called while a search is running.
+	 */
+	public void reroot(int newRoot) {
+		
+		Pool from = pool;
+		Pool to = spare;
+		
+		to.copy(0, from, newRoot);
+		
+		int used = 1;
+		for (int node = 0; node < used; node++) {
+			
+			if (to.states.get(node) != STATE_EXPANDED) {
+				//Half expanded nodes of a stopped search are discarded
+				if (to.states.get(node) == STATE_EXPANDING) {
+					to.states.set(node, STATE_LEAF);
+				}
+				continue;
+			}
+			
+			int first = to.firstChild[node];
+			int count = to.childrenCount[node];
+			for (int i = 0; i < count; i++) {
+				to.copy(used + i, from, first + i);
+			}
+			to.firstChild[node] = used;
+			used += count;
+		}
+		
+		pool = to;
+		spare = from;
+		root = 0;
+		nextFree.set(used);
+	}
+	
+	
+	private static final class Pool {
+		
+		
+		private final int[] moves;
+		private final int[] firstChild;
+		private final int[] childrenCount;
+		private final float[] priors;
+		private final float[] staticValues;
+		private final AtomicIntegerArray states;
+		private final AtomicIntegerArray visits;
+		private final AtomicLongArray valueSums;
+		
+		
+		private Pool(int capacity) {
+			moves = new int[capacity];
+			firstChild = new int[capacity];
+			childrenCount = new int[capacity];
+			priors = new float[capacity];
+			staticValues = new float[capacity];
+			states = new AtomicIntegerArray(capacity);
+			visits = new AtomicIntegerArray(capacity);
+			valueSums = new AtomicLongArray(capacity);
+		}
+		
+		
+		private void init(int node, int move, float prior, float staticValue, int state) {
+			moves[node] = move;
+			firstChild[node] = -1;
+			childrenCount[node] = 0;
+			priors[node] = prior;
+			staticValues[node] = staticValue;
+			visits.set(node, 0);
+			valueSums.set(node, 0);
+			states.set(node, state);
+		}
+		
+		
+		private void copy(int node, Pool from, int from_node) {
+			moves[node] = from.moves[from_node];
+			firstChild[node] = from.firstChild[from_node];
+			childrenCount[node] = from.childrenCount[from_node];
+			priors[node] = from.priors[from_node];
+			staticValues[node] = from.staticValues[from_node];
+			visits.set(node, from.visits.get(from_node));
+			valueSums.set(node, from.valueSums.get(from_node));
+			states.set(node, from.states.get(from_node));
+		}
+	}
+}
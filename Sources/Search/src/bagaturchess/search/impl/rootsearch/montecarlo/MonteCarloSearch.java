@@ -20,37 +20,81 @@
 package bagaturchess.search.impl.rootsearch.montecarlo;
 
 
-import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import bagaturchess.bitboard.api.IBitBoard;
-import bagaturchess.bitboard.impl.utils.BinarySemaphore_Dummy;
+import bagaturchess.bitboard.api.IGameStatus;
+import bagaturchess.bitboard.common.Utils;
+import bagaturchess.bitboard.impl.movelist.BaseMoveList;
+import bagaturchess.bitboard.impl.movelist.IMoveList;
 import bagaturchess.search.api.IEvaluator;
 import bagaturchess.search.api.IFinishCallback;
 import bagaturchess.search.api.internal.ISearchInfo;
 import bagaturchess.search.api.internal.ISearchMediator;
+import bagaturchess.search.api.internal.ISearchStopper;
 import bagaturchess.search.api.internal.SearchInterruptedException;
-import bagaturchess.search.impl.eval.cache.EvalCache_Impl1;
-import bagaturchess.search.impl.eval.cache.EvalCache_Impl2;
 import bagaturchess.search.impl.info.SearchInfoFactory;
 import bagaturchess.search.impl.rootsearch.RootSearch_BaseImpl;
 import bagaturchess.search.impl.uci_adaptor.timemanagement.ITimeController;
+import bagaturchess.search.impl.utils.SearchUtils;
 import bagaturchess.uci.api.ChannelManager;
 import bagaturchess.uci.impl.commands.Go;
 
 
+/**
+ * Parallel Monte-Carlo tree search. All threads expand the same MCTSTree and are spread over it by virtual losses.
+ * The leaves are evaluated with one ply of static evaluations (the same heuristic used by the MonteCarlo playouts),
+ * which also gives the PUCT priors of the children. The subtree of the new position is reused between the moves.
+ */
 public class MonteCarloSearch extends RootSearch_BaseImpl {
 	
 	
+	//The current and the spare nodes pool use together at most this part of the free memory
+	private static final double MEMORY_USAGE_PERCENT 	= 0.25;
+	private static final int MIN_NODES 					= 1 << 16;
+	private static final int MAX_NODES 					= 1 << 24;
+	
+	//Evaluation difference in centipawns, which makes the prior probability e times bigger
+	private static final double PRIOR_TEMPERATURE 		= 100;
+	private static final int MAX_PRIOR_EVAL 			= 2000;
+	
+	private static final int MAX_PATH_LENGTH 			= 256;
+	private static final int MAX_REUSED_PLIES 			= 4;
+	private static final int INFO_INTERVAL_MS 			= 1000;
+	
+	
 	private ExecutorService executor;
-	private MonteCarlo monteCarlo;
+	private MCTSThread[] threads;
+	private MCTSTree tree;
+	
+	private long treeHashKey;
+	private int treeMovesCount = -1;
+	
+	private final AtomicInteger runningThreads 			= new AtomicInteger(0);
 	
 	
 	public MonteCarloSearch(Object[] args) {
+		
 		super(args);
 		
-		executor = Executors.newFixedThreadPool(1);
+		threads = new MCTSThread[getRootSearchConfig().getThreadsCount()];
+		executor = Executors.newFixedThreadPool(threads.length);
+	}
+	
+	
+	@Override
+	public void createBoard(IBitBoard _bitboardForSetup) {
+		
+		super.createBoard(_bitboardForSetup);
+		
+		for (int i = 0; i < threads.length; i++) {
+			
+			threads[i] = new MCTSThread(copyBoard(getBitboardForSetup()));
+		}
+		
+		treeMovesCount = -1;
 	}
 	
 	
@@ -60,82 +104,267 @@ public class MonteCarloSearch extends RootSearch_BaseImpl {
 			Go go) {
 		
 		if (stopper != null) {
-			throw new IllegalStateException("MTDSequentialSearch started whithout beeing stopped");
+			throw new IllegalStateException("MonteCarloSearch started whithout beeing stopped");
 		}
 		stopper = new Stopper();
 		
 		
 		setupBoard(bitboardForSetup);
 		
-		IEvaluator evaluator = getSharedData().getEvaluatorFactory().create(
-				getBitboardForSetup(),
-				//new EvalCache_Impl1(100, true, new BinarySemaphore_Dummy()),
-				new EvalCache_Impl2(2),
-				getRootSearchConfig().getEvalConfig());
+		//Created with the first search, when the memory of the other caches is already allocated
+		if (tree == null) {
+			tree = new MCTSTree(getNodesCapacity());
+			ChannelManager.getChannel().dump("MonteCarloSearch: " + threads.length + " threads, " + tree.getCapacity() + " nodes");
+		}
+		
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].setup(getBitboardForSetup());
+		}
+		
+		prepareTree();
 		
-		monteCarlo = new MonteCarlo(getBitboardForSetup(), evaluator);
+		if (tree.tryStartExpansion(tree.getRoot())) {
+			threads[0].expand(tree.getRoot());
+		}
+		
+		final int maxDepth = (go.getDepth() == Go.UNDEF_DEPTH) ? Integer.MAX_VALUE : go.getDepth();
+		final ISearchStopper helpers_stopper = stopper;
+		final int colour = getBitboardForSetup().getColourToMove();
+		
+		runningThreads.set(threads.length);
 		
-		executor.execute(new Runnable() {
-			@Override
-			public void run() {
-				try {
-					monteCarlo.play_iterations(100, mediator.getStopper(), new IMonteCarloListener() {
+		for (int i = 0; i < threads.length; i++) {
+			
+			final MCTSThread thread = threads[i];
+			final boolean main = (i == 0);
+			
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
 						
-						@Override
-						public void newData(Map<Integer, GamesResult> global_map, int gamesCount) {
-							ISearchInfo info = SearchInfoFactory.getFactory().createSearchInfo();
+						if (main) {
+							
+							long lastInfoTime = System.currentTimeMillis();
+							int lastDepth = 0;
+							sendInfo(mediator);
 							
-							int best_move = 0;
-							double best_rate = Integer.MIN_VALUE;
-							for (Integer cur_move: global_map.keySet()) {
-								if (best_rate < global_map.get(cur_move).getRate()) {
-									best_rate = global_map.get(cur_move).getRate();
-									best_move = cur_move;
-									//System.out.println(gamesCount + " > " + MoveInt.moveToString(best_move) + " " + best_rate);
+							while (!helpers_stopper.isStopped()) {
+								
+								thread.playout();
+								
+								if ((thread.playouts & 63) == 0) {
+									
+									//Only the main thread checks the time, the helpers are stopped by the main thread through the stopper
+									mediator.getStopper().stopIfNecessary(10, colour, Integer.MIN_VALUE, Integer.MAX_VALUE);
+									
+									int depth = getDepth();
+									long now = System.currentTimeMillis();
+									if (depth > lastDepth || now - lastInfoTime >= INFO_INTERVAL_MS) {
+										sendInfo(mediator);
+										lastDepth = depth;
+										lastInfoTime = now;
+									}
+									
+									if (depth >= maxDepth) {
+										break;
+									}
 								}
 							}
 							
-							info.setEval((int) (best_rate * 1000));
-							info.setDepth(gamesCount);
-							info.setSelDepth(gamesCount);
-							info.setBestMove(best_move);
-							info.setPV(new int[] {best_move});
-							
-							mediator.changedMajor(info);
+						} else {
 							
+							while (!helpers_stopper.isStopped()) {
+								thread.playout();
+							}
+						}
+						
+					} catch (SearchInterruptedException sie) {
+						//Do nothing
+					} catch(Throwable t) {
+						ChannelManager.getChannel().dump(t);
+					} finally {
+						
+						if (main) {
+							helpers_stopper.markStopped();
+						}
+						
+						if (runningThreads.decrementAndGet() == 0) {
+							finishSearch(mediator, finishCallback);
 						}
-					});
-				} catch (SearchInterruptedException sie) {
-					//Do nothing
-				}
-				
-				if (!isStopped()) {
-					
-					ChannelManager.getChannel().dump("MTDSequentialSearch not stopped - stopping searcher ...");
-					
-					if (stopper == null) {
-						throw new IllegalStateException();
-					}
-					stopper.markStopped();
-					stopper = null;
-					
-					if (finishCallback == null) {//Non multiPV search
-						ChannelManager.getChannel().dump("MTDSequentialSearch calling final_mediator.getBestMoveSender().sendBestMove()");
-						mediator.getBestMoveSender().sendBestMove();
-					} else {
-						//MultiPV search
-						finishCallback.ready();
 					}
 				}
+			});
+		}
+	}
+	
+	
+	private void finishSearch(ISearchMediator mediator, IFinishCallback finishCallback) {
+		
+		sendInfo(mediator);
+		
+		ChannelManager.getChannel().dump("MonteCarloSearch: playouts " + getPlayouts()
+				+ ", tree nodes " + tree.getNodesCount() + "/" + tree.getCapacity());
+		
+		if (stopper == null) {
+			throw new IllegalStateException();
+		}
+		stopper.markStopped();
+		stopper = null;
+		
+		if (finishCallback == null) {//Non multiPV search
+			mediator.getBestMoveSender().sendBestMove();
+		} else {
+			//MultiPV search
+			finishCallback.ready();
+		}
+	}
+	
+	
+	/**
+	 * Keeps the subtree of the current position, if it is reachable from the root of the previous search with a few moves.
+	 * Otherwise starts with an empty tree.
+	 */
+	private void prepareTree() {
+		
+		IBitBoard board = getBitboardForSetup();
+		
+		int count = board.getPlayedMovesCount();
+		int[] moves = Utils.copy(board.getPlayedMoves());
+		
+		int node = -1;
+		if (treeMovesCount != -1 && count >= treeMovesCount && count - treeMovesCount <= MAX_REUSED_PLIES) {
+			
+			for (int i = count - 1; i >= treeMovesCount; i--) {
+				board.makeMoveBackward(moves[i]);
 			}
-		});
+			boolean samePosition = board.getHashKey() == treeHashKey;
+			for (int i = treeMovesCount; i < count; i++) {
+				board.makeMoveForward(moves[i]);
+			}
+			
+			if (samePosition) {
+				node = tree.getRoot();
+				for (int i = treeMovesCount; i < count && node != -1; i++) {
+					node = tree.findChild(node, moves[i]);
+				}
+			}
+		}
+		
+		if (node == -1) {
+			tree.clear();
+		} else if (node != tree.getRoot()) {
+			tree.reroot(node);
+		}
+		
+		treeHashKey = board.getHashKey();
+		treeMovesCount = count;
+	}
+	
+	
+	private void sendInfo(ISearchMediator mediator) {
+		
+		int root = tree.getRoot();
+		int best = tree.getBestChild(root);
+		if (best == -1) {
+			return;
+		}
+		
+		int[] pv = new int[MAX_PATH_LENGTH];
+		int pv_length = 0;
+		for (int node = best; node != -1 && pv_length < pv.length; node = tree.getBestChild(node)) {
+			pv[pv_length++] = tree.getMove(node);
+		}
+		int[] pv_copy = new int[pv_length];
+		System.arraycopy(pv, 0, pv_copy, 0, pv_length);
+		
+		int eval;
+		if (tree.getState(best) == MCTSTree.STATE_TERMINAL && tree.getStaticValue(best) == 1) {
+			eval = SearchUtils.getMateVal(1);
+		} else {
+			eval = toEval(tree.getValue(best));
+		}
+		
+		ISearchInfo info = SearchInfoFactory.getFactory().createSearchInfo();
+		info.setEval(eval);
+		info.setDepth(Math.max(1, getDepth()));
+		info.setSelDepth(getSelDepth());
+		info.setBestMove(tree.getMove(best));
+		info.setPV(pv_copy);
+		info.setSearchedNodes(getSearchedNodes());
+		
+		mediator.changedMajor(info);
+	}
+	
+	
+	/**
+	 * @return the average length of the selected paths
+	 */
+	private int getDepth() {
+		long playouts = 0;
+		long depths = 0;
+		for (int i = 0; i < threads.length; i++) {
+			playouts += threads[i].playouts;
+			depths += threads[i].depths;
+		}
+		return playouts == 0 ? 0 : (int) (depths / playouts);
+	}
+	
+	
+	private int getSelDepth() {
+		int result = 0;
+		for (int i = 0; i < threads.length; i++) {
+			result = Math.max(result, threads[i].seldepth);
+		}
+		return result;
+	}
+	
+	
+	private long getPlayouts() {
+		long result = 0;
+		for (int i = 0; i < threads.length; i++) {
+			result += threads[i].playouts;
+		}
+		return result;
+	}
+	
+	
+	private long getSearchedNodes() {
+		long result = 0;
+		for (int i = 0; i < threads.length; i++) {
+			result += threads[i].nodes;
+		}
+		return result;
+	}
+	
+	
+	private static float toScore(double eval) {
+		return (float) (1 / (1 + Math.pow(10, -eval / 400)));
+	}
+	
+	
+	private static int toEval(double score) {
+		score = Math.max(0.0001, Math.min(0.9999, score));
+		return (int) (-400 * Math.log10(1 / score - 1));
+	}
+	
+	
+	private static int getNodesCapacity() {
+		Runtime runtime = Runtime.getRuntime();
+		long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		long nodes = Long.highestOneBit(Math.max(1, (long) (MEMORY_USAGE_PERCENT * free) / (2 * MCTSTree.BYTES_PER_NODE)));
+		return (int) Math.max(MIN_NODES, Math.min(MAX_NODES, nodes));
 	}
 	
 	
 	@Override
 	public int getTPTUsagePercent() {
-		//Do nothing
-		return 0;
+		
+		if (tree == null) {//Not yet initialized
+			return 0;
+		}
+		
+		return (int) (100L * tree.getNodesCount() / tree.getCapacity());
 	}
 	
 	
@@ -155,4 +384,208 @@ public class MonteCarloSearch extends RootSearch_BaseImpl {
 			//Do nothing
 		}
 	}
+	
+	
+	private class MCTSThread {
+		
+		
+		private final IBitBoard board;
+		private IEvaluator evaluator;
+		
+		private final IMoveList movesBuffer 	= new BaseMoveList(333);
+		private final int[] path 				= new int[MAX_PATH_LENGTH];
+		private final int[] moves 				= new int[333];
+		private final double[] evals 			= new double[333];
+		private final float[] values 			= new float[333];
+		private final boolean[] terminals 		= new boolean[333];
+		
+		private volatile long playouts;
+		private volatile long depths;
+		private volatile long nodes;
+		private volatile int seldepth;
+		
+		
+		MCTSThread(IBitBoard _board) {
+			board = _board;
+		}
+		
+		
+		void setup(IBitBoard bitboardForSetup) {
+			
+			//The eval cache is available only after the memory consumers are initialized
+			if (evaluator == null) {
+				evaluator = getSharedData().getEvaluatorFactory().create(
+						board,
+						getSharedData().getAndRemoveEvalCache(),
+						getRootSearchConfig().getEvalConfig());
+			}
+			
+			board.revert();
+			int movesCount = bitboardForSetup.getPlayedMovesCount();
+			int[] moves = bitboardForSetup.getPlayedMoves();
+			for (int i = 0; i < movesCount; i++) {
+				board.makeMoveForward(moves[i]);
+			}
+			
+			playouts = 0;
+			depths = 0;
+			nodes = 0;
+			seldepth = 0;
+		}
+		
+		
+		/**
+		 * Selects a path with PUCT, expands its leaf and back propagates the result.
+		 */
+		void playout() {
+			
+			int node = tree.getRoot();
+			int length = 0;
+			path[length++] = node;
+			tree.addVirtualLoss(node);
+			
+			//From the point of view of the side, which has played the move to the last node of the path
+			double value;
+			while (true) {
+				
+				int state = tree.getState(node);
+				
+				if (state == MCTSTree.STATE_EXPANDED && length < path.length) {
+					node = tree.selectChild(node);
+					board.makeMoveForward(tree.getMove(node));
+					path[length++] = node;
+					tree.addVirtualLoss(node);
+					continue;
+				}
+				
+				if (state == MCTSTree.STATE_LEAF && tree.tryStartExpansion(node)) {
+					value = 1 - expand(node);
+				} else {
+					//Terminal, expanded by another thread at the moment or too deep
+					value = tree.getStaticValue(node);
+				}
+				break;
+			}
+			
+			for (int i = length - 1; i >= 0; i--) {
+				tree.update(path[i], value);
+				value = 1 - value;
+			}
+			
+			for (int i = length - 1; i >= 1; i--) {
+				board.makeMoveBackward(tree.getMove(path[i]));
+			}
+			
+			playouts++;
+			depths += length - 1;
+			if (length - 1 > seldepth) {
+				seldepth = length - 1;
+			}
+		}
+		
+		
+		/**
+		 * Evaluates all children of the node, which must be in expanding state.
+		 * @return the best value of the children from the point of view of the side to move
+		 */
+		float expand(int node) {
+			
+			movesBuffer.clear();
+			if (board.isInCheck()) {
+				board.genKingEscapes(movesBuffer);
+			} else {
+				board.genAllMoves(movesBuffer);
+			}
+			
+			int count = 0;
+			int cur_move = 0;
+			while ((cur_move = movesBuffer.next()) != 0) {
+				moves[count++] = cur_move;
+			}
+			
+			if (count == 0) {
+				float value = board.isInCheck() ? 0 : 0.5f;
+				tree.setTerminal(node, 1 - value);
+				return value;
+			}
+			
+			float best_value = 0;
+			double max_eval = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < count; i++) {
+				evaluate(i);
+				best_value = Math.max(best_value, values[i]);
+				max_eval = Math.max(max_eval, evals[i]);
+			}
+			
+			int first = tree.allocate(count);
+			if (first == -1) {
+				//The pool is full
+				tree.cancelExpansion(node);
+				return best_value;
+			}
+			
+			double sum = 0;
+			for (int i = 0; i < count; i++) {
+				evals[i] = Math.exp((evals[i] - max_eval) / PRIOR_TEMPERATURE);
+				sum += evals[i];
+			}
+			
+			for (int i = 0; i < count; i++) {
+				tree.initChild(first + i, moves[i], (float) (evals[i] / sum), values[i], terminals[i]);
+			}
+			tree.finishExpansion(node, first, count);
+			
+			return best_value;
+		}
+		
+		
+		/**
+		 * Static evaluation of the move with the given index, from the point of view of the side to move.
+		 * The material of a capture is replaced by its static exchange evaluation, as in MonteCarlo.selectMove.
+		 */
+		private void evaluate(int index) {
+			
+			int move = moves[index];
+			
+			int seeMove = board.getSEEScore(move);
+			int seeField = -board.getSEEFieldScore(board.getMoveOps().getFromFieldID(move));
+			
+			board.makeMoveForward(move);
+			nodes++;
+			
+			IGameStatus status = board.getStatus();
+			
+			if (status == IGameStatus.MATE_WHITE_WIN || status == IGameStatus.MATE_BLACK_WIN) {
+				
+				evals[index] = MAX_PRIOR_EVAL;
+				values[index] = 1;
+				terminals[index] = true;
+				
+			} else if (status == IGameStatus.DRAW_3_STATES_REPETITION
+					|| status == IGameStatus.DRAW_50_MOVES_RULE
+					|| status == IGameStatus.STALEMATE_WHITE_NO_MOVES
+					|| status == IGameStatus.STALEMATE_BLACK_NO_MOVES
+					|| status == IGameStatus.NO_SUFFICIENT_MATERIAL) {
+				
+				evals[index] = 0;
+				values[index] = 0.5f;
+				terminals[index] = true;
+				
+			} else {
+				
+				double eval = -evaluator.fullEval(0, IEvaluator.MIN_EVAL, IEvaluator.MAX_EVAL, board.getColourToMove());
+				if (board.getMoveOps().isCapture(move)) {
+					eval -= board.getBaseEvaluation().getMaterial(board.getMoveOps().getCapturedFigureType(move));
+				}
+				eval += seeMove;
+				eval += seeField / 10;
+				
+				evals[index] = Math.max(-MAX_PRIOR_EVAL, Math.min(MAX_PRIOR_EVAL, eval));
+				values[index] = toScore(eval);
+				terminals[index] = false;
+			}
+			
+			board.makeMoveBackward(move);
+		}
+	}
 }
@@ -1,29 +1,30 @@
 package bagaturchess.search.impl.rootsearch.multipv;
 
 
-import bagaturchess.bitboard.impl.movegen.MoveInt;
 import bagaturchess.search.api.internal.ISearchInfo;
 
 
+/**
+ * One line of the MultiPV search. The lines are ordered by evaluation, the best one first.
+ */
 public class MultiPVEntry implements Comparable<MultiPVEntry> {
 	
 	
-	private int move;
 	private ISearchInfo info;
 	
 	
-	MultiPVEntry(int _move) {
-		move = _move;
+	MultiPVEntry() {
 	}
 	
 	
 	public int getMove() {
-		return move;
+		if (info == null) return 0;
+		return info.getBestMove();
 	}
 	
 	
 	public int getEval() {
-		if (info == null) return 0; 
+		if (info == null) return 0;
 		return info.getEval();
 	}
 	
@@ -42,15 +43,6 @@ public class MultiPVEntry implements Comparable<MultiPVEntry> {
 			throw new IllegalStateException("info.getPV() is null");
 		}
 		
-		int[] new_pv = new int[] {move};
-		new_pv = new int[info.getPV().length + 1];
-		new_pv[0] = move;
-		System.arraycopy(info.getPV(), 0, new_pv, 1, info.getPV().length);
-		
-		info.setPV(new_pv);
-		info.setBestMove(move);
-		info.setEval(-info.getEval());
-		
 		this.info = info;
 	}
 	
@@ -58,37 +50,25 @@ public class MultiPVEntry implements Comparable<MultiPVEntry> {
 	@Override
 	public int compareTo(MultiPVEntry o) {
 		
-		if (move == o.move) {
-			return 0;
+		//Lines without info go to the end
+		if (info == null || o.info == null) {
+			return (info == null ? 1 : 0) - (o.info == null ? 1 : 0);
 		}
 		
-		int delta = o.getEval() - getEval();
-		if (delta == 0) {
+		if (getEval() > o.getEval()) {
+			return -1;
+		} else if (getEval() < o.getEval()) {
 			return 1;
-		} else {
-			return delta;
 		}
-	}
-	
-	
-	@Override
-	public boolean equals(Object o) {
-		MultiPVEntry other = (MultiPVEntry) o;
-		return move == other.move;
-	}
-	
-	
-	@Override
-	public int hashCode() {
-		return move;
+		
+		return 0;
 	}
 	
 	
 	@Override
 	public String toString() {
 		String result = "[MultiPVEntry]: ";
-		//result += MoveInt.moveToString(move);
-		//result += ", eval = " + getEval() + ", pv = " + /*MoveInt.moveToString(move) +*/ ", " + MoveInt.movesToString(info.getPV());
+		result += "move = " + getMove() + ", eval = " + getEval();
 		return result;
 	}
 }
@@ -1,12 +1,12 @@
 /*
  *  BagaturChess (UCI chess engine and tools)
  *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
- *  
+ *
  *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
  *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
  *
  *  This file is part of BagaturChess program.
- * 
+ *
  *  BagaturChess is open software: you can redistribute it and/or modify
  *  it under the terms of the Eclipse Public License version 1.0 as published by
  *  the Eclipse Foundation.
@@ -23,113 +23,399 @@
 package bagaturchess.search.impl.rootsearch.multipv;
 
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.bitboard.impl.movelist.BaseMoveList;
+import bagaturchess.bitboard.impl.movelist.IMoveList;
+import bagaturchess.bitboard.impl.utils.ReflectionUtils;
 import bagaturchess.search.api.IFinishCallback;
 import bagaturchess.search.api.IRootSearch;
 import bagaturchess.search.api.IRootSearchConfig;
+import bagaturchess.search.api.internal.CompositeStopper;
+import bagaturchess.search.api.internal.ISearch;
+import bagaturchess.search.api.internal.ISearchInfo;
 import bagaturchess.search.api.internal.ISearchMediator;
 import bagaturchess.search.api.internal.ISearchStopper;
+import bagaturchess.search.api.internal.SearchInfoUtils;
+import bagaturchess.search.api.internal.SearchInterruptedException;
+import bagaturchess.search.impl.info.SearchInfoFactory;
+import bagaturchess.search.impl.pv.PVManager;
+import bagaturchess.search.impl.pv.PVNode;
 import bagaturchess.search.impl.rootsearch.RootSearch_BaseImpl;
+import bagaturchess.search.impl.rootsearch.sequential.NPSCollectorMediator;
+import bagaturchess.search.impl.rootsearch.sequential.mtd.Mediator_AlphaAndBestMoveWindow;
 import bagaturchess.search.impl.uci_adaptor.timemanagement.ITimeController;
+import bagaturchess.search.impl.utils.DEBUGSearch;
+import bagaturchess.search.impl.utils.SearchMediatorProxy;
 import bagaturchess.uci.api.ChannelManager;
 import bagaturchess.uci.impl.commands.Go;
 
 
+/**
+ * Searches the best MultiPV lines in one iterative deepening loop.
+ * On each iteration the lines are searched one after another from the root position,
+ * each one with its own aspiration window and with the best moves of the previous lines excluded in the root node.
+ * 
+ * The searchers (one per thread) are borrowed from the wrapped root search, which never runs at the same time, so there are no additional boards and caches.
+ * The first searcher reports the lines. The others search the same lines (the odd ones one depth ahead), only to fill the shared transposition table,
+ * in the same way as the helper threads of LazySMPSearch_ThreadsImpl.
+ */
 public class MultiPVRootSearch extends RootSearch_BaseImpl {
 	
 	
+	private static final int ASPIRATION_WINDOW = 20;
+	
+	
 	private ExecutorService executor;
 	private IRootSearch rootSearch;
-	private MultiPVMediator current_mediator_multipv;
-	private ISearchStopper current_stopper;
+	
+	//Used only if the searchers of the wrapped root search are not in this process
+	private ISearch ownSearcher;
+	
+	private final AtomicInteger runningThreads = new AtomicInteger(0);
+	private final AtomicLong helpersNodes = new AtomicLong(0);
 	
 	
 	public MultiPVRootSearch(IRootSearchConfig _engineConfiguration, IRootSearch _rootSearch) {
 		super(new Object[] {_engineConfiguration, _rootSearch.getSharedData()});
 		rootSearch = _rootSearch;
-		executor = Executors.newFixedThreadPool(1);
+		executor = Executors.newFixedThreadPool(Math.max(1, _engineConfiguration.getThreadsCount()));
 	}
 	
 	
-	@Override
-	public void createBoard(IBitBoard _bitboardForSetup) {
-		super.createBoard(_bitboardForSetup); //Keep it for multipv mediator
+	private List<ISearch> getLinesSearchers() {
+		
+		List<ISearch> result = (rootSearch instanceof RootSearch_BaseImpl) ?
+				((RootSearch_BaseImpl) rootSearch).getSearchers() : new ArrayList<ISearch>();
+		
+		if (result.isEmpty()) {
+			
+			if (ownSearcher == null) {
+				ownSearcher = (ISearch) ReflectionUtils.createObjectByClassName_ObjectsConstructor(
+						getRootSearchConfig().getSearchClassName(),
+						new Object[] {copyBoard(getBitboardForSetup()), getRootSearchConfig(), getSharedData()}
+					);
+			}
+			
+			result.add(ownSearcher);
+		}
 		
-		rootSearch.createBoard(_bitboardForSetup);
+		return result;
 	}
-
-
+	
+	
 	@Override
-	public void negamax(IBitBoard _bitboardForSetup, final ISearchMediator mediator, ITimeController timeController, IFinishCallback finishCallback, Go go) {
+	public void negamax(IBitBoard _bitboardForSetup, ISearchMediator mediator, ITimeController timeController,
+			final IFinishCallback multiPVCallback, final Go go) {
 		
-		if (current_mediator_multipv != null) {
+		if (stopper != null) {
 			throw new IllegalStateException("MultiPV search started without beeing stopped.");
 		}
+		stopper = new Stopper();
 		
-		setupBoard(_bitboardForSetup);
 		
-		//!!!Do not setup the board of rootSearch. multiPV mediator will set it up for each move
-		//rootSearch.setupBoard(_bitboardForSetup);
+		setupBoard(_bitboardForSetup);
 		
-		//adjust go: startIteration - 1, maxIterations - 1, //Should be -1, because it plays each move and than search with depth=maxIterations
-		int max_depth = Go.UNDEF_DEPTH;
-		if (go.getDepth() != Go.UNDEF_DEPTH) {
-			max_depth = go.getDepth() - 1;
-			if (max_depth <= 0) {//Doesnt'work with 0, because getMateScores(0) throws exception
-				max_depth = 1;
-			}
-			go.setDepth(max_depth);
+		List<ISearch> searchers = getLinesSearchers();
+		for (int i = 0; i < searchers.size(); i++) {
+			searchers.get(i).newSearch();
+			searchers.get(i).setup(getBitboardForSetup());
 		}
-		if (go.getStartDepth() != Go.UNDEF_STARTDEPTH) {
-			if (go.getStartDepth() <= 0) {//Doesnt'work with 0, because getMateScores(0) throws exception
-				go.setStartDepth(1);
-			} else {
-				go.setStartDepth(go.getStartDepth() - 1);
-			}
+		
+		
+		final int startIteration = (go.getStartDepth() == Go.UNDEF_STARTDEPTH) ? 1 : Math.max(1, go.getStartDepth());
+		int maxIterations_tmp = (go.getDepth() == Go.UNDEF_DEPTH) ? ISearch.MAX_DEPTH : go.getDepth();
+		if (maxIterations_tmp > ISearch.MAX_DEPTH) {
+			maxIterations_tmp = ISearch.MAX_DEPTH;
+			go.setDepth(maxIterations_tmp);
 		}
+		final int maxIterations = maxIterations_tmp;
 		
-		current_mediator_multipv = new MultiPVMediator(getRootSearchConfig(), rootSearch,
-				getBitboardForSetup(), mediator,
-				go);
 		
-		current_stopper = mediator.getStopper();
+		//There are no more lines than root moves
+		IMoveList moves = new BaseMoveList();
+		int movesCount = getBitboardForSetup().isInCheck() ?
+				getBitboardForSetup().genKingEscapes(moves) :
+				getBitboardForSetup().genAllMoves(moves);
+		final int linesCount = Math.max(1, Math.min(getRootSearchConfig().getMultiPVsCount(), movesCount));
 		
-		current_mediator_multipv.ready();
+		if (DEBUGSearch.DEBUG_MODE) ChannelManager.getChannel().dump("MultiPVRootSearch started from depth " + startIteration + " to depth " + maxIterations
+				+ " with " + linesCount + " lines and " + searchers.size() + " threads");
 		
 		
-		final int final_max_depth = max_depth;
+		//Original mediator should be an instance of UCISearchMediatorImpl_Base
+		mediator = new NPSCollectorMediator(new Mediator_AlphaAndBestMoveWindow(mediator));
+		mediator.setStopper(new CompositeStopper(new ISearchStopper[] {mediator.getStopper(), stopper}, true ));
 		
-		executor.execute(new Runnable() {
+		final ISearchMediator final_mediator = mediator;
+		final ISearchStopper helpers_stopper = stopper;
+		final long startTime = System.currentTimeMillis();
+		
+		helpersNodes.set(0);
+		runningThreads.set(searchers.size());
+		
+		for (int i = 0; i < searchers.size(); i++) {
 			
-			@Override
-			public void run() {
-				try {
-					while (!current_stopper.isStopped()
-							&& current_mediator_multipv.getCurrentDepth() <= final_max_depth
-							) {
+			final int index = i;
+			final ISearch searcher = searchers.get(i);
+			
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
 						
-						try {
-							Thread.sleep(15);
-						} catch (InterruptedException e) {}
+						if (index == 0) {
+							searchMain(searcher, final_mediator, startIteration, maxIterations, linesCount, startTime, go);
+						} else {
+							//The helpers are stopped by the main thread
+							searchHelper(searcher, new HelperMediator(final_mediator, helpers_stopper),
+									startIteration + index % 2, maxIterations, linesCount, go);
+						}
+						
+					} catch(Throwable t) {
+						ChannelManager.getChannel().dump(t);
+						ChannelManager.getChannel().dump(t.getMessage());
+					} finally {
+						
+						if (index == 0) {
+							helpers_stopper.markStopped();
+						}
+						
+						if (runningThreads.decrementAndGet() == 0) {
+							finishSearch(final_mediator, multiPVCallback);
+						}
 					}
-					
-					stopSearchAndWait();
-					
-					mediator.getBestMoveSender().sendBestMove();
-					
-				} catch(Throwable t) {
-					ChannelManager.getChannel().dump(t);
+				}
+			});
+		}
+	}
+	
+	
+	private void searchMain(ISearch searcher, ISearchMediator mediator, int startIteration, int maxIterations, int linesCount, long startTime, Go go) {
+		
+		MultiPVEntry[] lines = new MultiPVEntry[linesCount];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = new MultiPVEntry();
+		}
+		
+		int[] excludedMoves = new int[linesCount];
+		
+		long searchedNodes = 0;
+		
+		for (int maxdepth = startIteration; maxdepth <= maxIterations; maxdepth++) {
+			
+			ISearchInfo info = SearchInfoFactory.getFactory().createSearchInfo();
+			mediator.registerInfoObject(info);
+			info.setDepth(maxdepth);
+			info.setSelDepth(maxdepth);
+			
+			int lines_count;
+			
+			try {
+				
+				lines_count = searchLines(searcher, mediator, info, maxdepth, lines, excludedMoves, go, true);
+				
+			} catch(SearchInterruptedException sie) {
+				//The time is over and the sendBestMove method will be called in the end
+				break;
+			}
+			
+			searchedNodes += info.getSearchedNodes();
+			
+			for (int i = 0; i < lines_count; i++) {
+				
+				ISearchInfo line = lines[i].getInfo();
+				line.setSearchedNodes(searchedNodes + helpersNodes.get());
+				line.setSelDepth(info.getSelDepth());
+				
+				String message = SearchInfoUtils.buildMajorInfoCommand_multipv(i + 1, line,
+						startTime, getTPTUsagePercent(), 0, getBitboardForSetup());
+				mediator.send(message);
+			}
+			
+			if (mediator.getStopper().isStopped()) {
+				break;
+			}
+		}
+	}
+	
+	
+	private void searchHelper(ISearch searcher, ISearchMediator mediator, int startIteration, int maxIterations, int linesCount, Go go) {
+		
+		MultiPVEntry[] lines = new MultiPVEntry[linesCount];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = new MultiPVEntry();
+		}
+		
+		int[] excludedMoves = new int[linesCount];
+		
+		try {
+			
+			for (int maxdepth = startIteration; maxdepth <= maxIterations; maxdepth++) {
+				
+				ISearchInfo info = SearchInfoFactory.getFactory().createSearchInfo();
+				info.setDepth(maxdepth);
+				info.setSelDepth(maxdepth);
+				
+				try {
+					searchLines(searcher, mediator, info, maxdepth, lines, excludedMoves, go, false);
+				} finally {
+					helpersNodes.addAndGet(info.getSearchedNodes());
+				}
+				
+				if (mediator.getStopper().isStopped()) {
+					break;
+				}
+			}
+			
+		} catch(SearchInterruptedException sie) {
+			//Stopped by the main thread
+		}
+	}
+	
+	
+	/**
+	 * Searches all lines on the given depth and stores them in lines, sorted by evaluation.
+	 * @return the count of the searched lines
+	 */
+	private int searchLines(ISearch searcher, ISearchMediator mediator, ISearchInfo info, int maxdepth,
+			MultiPVEntry[] lines, int[] excludedMoves, Go go, boolean isMain) {
+		
+		MultiPVEntry[] lines_cur = new MultiPVEntry[lines.length];
+		int lines_cur_count = 0;
+		
+		try {
+			
+			for (int pvnum = 0; pvnum < lines.length; pvnum++) {
+				
+				searcher.setExcludedRootMoves(excludedMoves, pvnum);
+				
+				ISearchInfo line = searchLine(searcher, mediator, info, maxdepth, lines[pvnum], go);
+				
+				int move = line.getBestMove();
+				if (move == 0 || isExcluded(excludedMoves, pvnum, move)) {
+					//The search implementation doesn't support the exclusion of root moves
+					break;
+				}
+				excludedMoves[pvnum] = move;
+				
+				MultiPVEntry entry = new MultiPVEntry();
+				entry.setInfo(line);
+				lines_cur[lines_cur_count++] = entry;
+				
+				if (isMain && pvnum == 0) {
+					//The first line is the result of the normal search
+					mediator.changedMajor(line);
 				}
 			}
-		});
+			
+		} finally {
+			searcher.setExcludedRootMoves(excludedMoves, 0);
+		}
+		
+		//The next lines may have better evaluation than the first ones, because of the search instabilities
+		MultiPVEntry first = lines_cur[0];
+		Arrays.sort(lines_cur, 0, lines_cur_count);
+		if (isMain && lines_cur_count > 0 && lines_cur[0] != first) {
+			mediator.changedMajor(lines_cur[0].getInfo());
+		}
+		
+		for (int i = 0; i < lines_cur_count; i++) {
+			lines[i] = lines_cur[i];
+		}
+		
+		return lines_cur_count;
+	}
+	
+	
+	private ISearchInfo searchLine(ISearch searcher, ISearchMediator mediator, ISearchInfo info, int maxdepth, MultiPVEntry prevLine, Go go) {
+		
+		int eval = prevLine.getEval();
+		//Full window for the first iteration
+		int window = prevLine.getInfo() == null ? ISearch.MAX : ASPIRATION_WINDOW;
+		int multiplier = 2;
+		int alpha;
+		int beta;
+		
+		PVManager pvman = new PVManager(ISearch.MAX_DEPTH);
+		
+		do {
+			
+			alpha = Math.max(ISearch.MIN, eval - window);
+			beta = Math.min(ISearch.MAX, eval + window);
+			
+			eval = searcher.pv_search(mediator,
+					pvman, info,
+					ISearch.PLY * maxdepth, ISearch.PLY * maxdepth, 0,
+					alpha, beta,
+					0, 0, null,
+					false, 0, searcher.getEnv().getBitboard().getColourToMove(),
+					0, 0, false, 0, !go.isPonder());
+			
+			window *= multiplier;
+		
+		} while ((eval <= alpha && alpha > ISearch.MIN) || (eval >= beta && beta < ISearch.MAX));
+		
+		ISearchInfo line = SearchInfoFactory.getFactory().createSearchInfo();
+		line.setDepth(maxdepth);
+		line.setSelDepth(info.getSelDepth());
+		
+		List<Integer> pv_buffer = new ArrayList<Integer>();
+		line.setPV(PVNode.convertPV(pvman.load(0), pv_buffer));
+		if (line.getPV().length > 0) {
+			line.setBestMove(line.getPV()[0]);
+		}
+		line.setEval(eval);
+		
+		return line;
+	}
+	
+	
+	private void finishSearch(ISearchMediator mediator, IFinishCallback multiPVCallback) {
+		
+		if (stopper == null) {
+			throw new IllegalStateException();
+		}
+		stopper.markStopped();
+		stopper = null;
+		
+		
+		if (multiPVCallback == null) {
+			mediator.getBestMoveSender().sendBestMove();
+		} else {
+			multiPVCallback.ready();
+		}
+	}
+	
+	
+	private static boolean isExcluded(int[] excludedMoves, int count, int move) {
+		for (int i = 0; i < count; i++) {
+			if (excludedMoves[i] == move) {
+				return true;
+			}
+		}
+		return false;
 	}
 	
 	
 	@Override
 	public void shutDown() {
+		try {
+			
+			executor.shutdownNow();
+			ownSearcher = null;
+		
+		} catch(Throwable t) {
+			//Do nothing
+		}
+		
 		rootSearch.shutDown();
 	}
 	
@@ -146,17 +432,45 @@ public class MultiPVRootSearch extends RootSearch_BaseImpl {
 	}
 	
 	
-	@Override
-	public void stopSearchAndWait() {
+	private static class HelperMediator extends SearchMediatorProxy {
 		
-		if (current_stopper != null) {
-			
-			current_stopper.markStopped();
-			
-			rootSearch.stopSearchAndWait();
-			
-			current_mediator_multipv = null;
-			current_stopper = null;
+		
+		private ISearchStopper helper_stopper;
+		
+		
+		HelperMediator(ISearchMediator _parent, ISearchStopper _helper_stopper) {
+			super(_parent);
+			helper_stopper = _helper_stopper;
+		}
+		
+		
+		@Override
+		public void changedMajor(ISearchInfo info) {
+			//Do nothing, only the main thread sends infos
+		}
+		
+		
+		@Override
+		public void changedMinor(ISearchInfo info) {
+			//Do nothing, only the main thread sends infos
+		}
+		
+		
+		@Override
+		public void registerInfoObject(ISearchInfo info) {
+			//Do nothing, the nodes are collected by the helper
+		}
+		
+		
+		@Override
+		public ISearchStopper getStopper() {
+			return helper_stopper;
+		}
+		
+		
+		@Override
+		public void setStopper(ISearchStopper _stopper) {
+			helper_stopper = _stopper;
 		}
 	}
 }
@@ -0,0 +1,520 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ *
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.search.impl.rootsearch.parallel;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import bagaturchess.bitboard.api.BoardUtils;
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.bitboard.impl.utils.ReflectionUtils;
+import bagaturchess.search.api.IFinishCallback;
+import bagaturchess.search.api.internal.CompositeStopper;
+import bagaturchess.search.api.internal.ISearch;
+import bagaturchess.search.api.internal.ISearchInfo;
+import bagaturchess.search.api.internal.ISearchMediator;
+import bagaturchess.search.api.internal.ISearchStopper;
+import bagaturchess.search.api.internal.SearchInterruptedException;
+import bagaturchess.search.impl.info.SearchInfoFactory;
+import bagaturchess.search.impl.pv.PVManager;
+import bagaturchess.search.impl.pv.PVNode;
+import bagaturchess.search.impl.rootsearch.RootSearch_BaseImpl;
+import bagaturchess.search.impl.rootsearch.sequential.mtd.Mediator_AlphaAndBestMoveWindow;
+import bagaturchess.search.impl.uci_adaptor.timemanagement.ITimeController;
+import bagaturchess.search.impl.utils.DEBUGSearch;
+import bagaturchess.search.impl.utils.SearchMediatorProxy;
+import bagaturchess.uci.api.ChannelManager;
+import bagaturchess.uci.impl.commands.Go;
+
+
+/**
+ * Lazy SMP: all threads run their own iterative deepening on the same root position
+ * and communicate only through the shared transposition table (the same ITTable instance is given to each thread by MemoryConsumers).
+ * The main thread (index 0) searches all depths and controls the end of the search,
+ * the helper threads skip some depths (by the skip tables bellow), so they are most of the time one or two depths ahead.
+ * The info of the deepest completed iteration is send, no matter which thread has completed it.
+ * There is no polling thread and no synchronization inside the search itself.
+ */
+public class LazySMPSearch_ThreadsImpl extends RootSearch_BaseImpl {
+
+
+	private static final int[] SKIP_SIZE 			= { 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4 };
+	private static final int[] SKIP_PHASE 			= { 0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7 };
+
+	private static final int ASPIRATION_WINDOW 		= 20;
+
+
+	private ExecutorService executor;
+	private SearchThread[] threads;
+
+	private final AtomicInteger runningThreads 		= new AtomicInteger(0);
+	private final Object synch_Infos 				= new Object();
+	private int lastSentDepth;
+
+
+	public LazySMPSearch_ThreadsImpl(Object[] args) {
+
+		super(args);
+
+		threads = new SearchThread[getRootSearchConfig().getThreadsCount()];
+		executor = Executors.newFixedThreadPool(threads.length);
+	}
+
+
+	@Override
+	public void createBoard(IBitBoard _bitboardForSetup) {
+
+		super.createBoard(_bitboardForSetup);
+
+		for (int i = 0; i < threads.length; i++) {
+
+			IBitBoard thread_board = copyBoard(getBitboardForSetup());
+
+			ISearch searcher = (ISearch) ReflectionUtils.createObjectByClassName_ObjectsConstructor(
+					getRootSearchConfig().getSearchClassName(),
+					new Object[] {thread_board, getRootSearchConfig(), getSharedData()}
+				);
+
+			threads[i] = new SearchThread(i, searcher);
+		}
+
+		ChannelManager.getChannel().dump("LazySMPSearch_ThreadsImpl: " + threads.length + " searchers created");
+	}
+
+
+	@Override
+	public void negamax(IBitBoard _bitboardForSetup, ISearchMediator mediator, ITimeController timeController,
+			final IFinishCallback multiPVCallback, final Go go) {
+
+		if (stopper != null) {
+			throw new IllegalStateException("LazySMPSearch_ThreadsImpl started whithout beeing stopped");
+		}
+		stopper = new Stopper();
+
+
+		setupBoard(_bitboardForSetup);
+
+
+		final int startIteration = (go.getStartDepth() == Go.UNDEF_STARTDEPTH) ? 1 : go.getStartDepth();
+		int maxIterations_tmp = (go.getDepth() == Go.UNDEF_DEPTH) ? ISearch.MAX_DEPTH : go.getDepth();
+		Integer initialValue = (go.getBeta() == Go.UNDEF_BETA) ? null : go.getBeta();
+		final int[] prevPV = BoardUtils.getMoves(go.getPv(), _bitboardForSetup);
+
+		if (maxIterations_tmp > ISearch.MAX_DEPTH) {
+			maxIterations_tmp = ISearch.MAX_DEPTH;
+			go.setDepth(maxIterations_tmp);
+		}
+		final int maxIterations = maxIterations_tmp;
+		final int final_initialValue = initialValue == null ? 0 : initialValue;
+
+		if (DEBUGSearch.DEBUG_MODE) ChannelManager.getChannel().dump("LazySMPSearch_ThreadsImpl started from depth " + startIteration + " to depth " + maxIterations);
+
+
+		//The nodes are accumulated by the threads' mediators, so NPSCollectorMediator is not used here
+		mediator = new Mediator_AlphaAndBestMoveWindow(mediator);
+		mediator.setStopper(new CompositeStopper(new ISearchStopper[] {mediator.getStopper(), stopper}, true ));
+
+		final ISearchMediator final_mediator = mediator;
+		final ISearchStopper helpers_stopper = stopper;
+
+
+		synchronized (synch_Infos) {
+			lastSentDepth = 0;
+		}
+
+		runningThreads.set(threads.length);
+
+		for (int i = 0; i < threads.length; i++) {
+
+			final SearchThread thread = threads[i];
+
+			thread.searcher.newSearch();
+			thread.searcher.setup(getBitboardForSetup());
+
+			//Only the main thread checks the time, the helpers are stopped by the main thread through the stopper
+			final ISearchMediator thread_mediator = thread.index == 0 ?
+					new ThreadMediator(final_mediator, final_mediator.getStopper(), true) :
+					new ThreadMediator(final_mediator, helpers_stopper, false);
+
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+
+						thread.iterativeDeepening(thread_mediator, startIteration, maxIterations, final_initialValue, prevPV, !go.isPonder());
+
+					} catch(Throwable t) {
+						ChannelManager.getChannel().dump(t);
+					} finally {
+
+						if (thread.index == 0) {
+							helpers_stopper.markStopped();
+						}
+
+						if (runningThreads.decrementAndGet() == 0) {
+							finishSearch(final_mediator, multiPVCallback);
+						}
+					}
+				}
+			});
+		}
+	}
+
+
+	private void finishSearch(ISearchMediator final_mediator, IFinishCallback multiPVCallback) {
+
+		for (int i = 0; i < threads.length; i++) {
+			ChannelManager.getChannel().dump("LazySMPSearch_ThreadsImpl: thread " + i
+					+ " nodes " + threads[i].getSearchedNodes()
+					+ " nps " + threads[i].getNPS());
+		}
+
+		if (stopper == null) {
+			throw new IllegalStateException();
+		}
+		stopper.markStopped();
+		stopper = null;
+
+
+		if (multiPVCallback == null) {//Non multiPV search
+			final_mediator.getBestMoveSender().sendBestMove();
+		} else {
+			//MultiPV search
+			multiPVCallback.ready();
+		}
+	}
+
+
+	private void sendInfo(ISearchMediator final_mediator, ISearchInfo info) {
+
+		synchronized (synch_Infos) {
+
+			if (info.getDepth() <= lastSentDepth) {
+				return;
+			}
+
+			lastSentDepth = info.getDepth();
+
+			ISearchInfo toSend = SearchInfoFactory.getFactory().createSearchInfo();
+			toSend.setDepth(info.getDepth());
+			toSend.setSelDepth(getSelDepth());
+			toSend.setEval(info.getEval());
+			toSend.setBestMove(info.getBestMove());
+			toSend.setPV(info.getPV());
+			toSend.setLowerBound(info.isLowerBound());
+			toSend.setUpperBound(info.isUpperBound());
+			toSend.setSearchedNodes(getSearchedNodes());
+
+			final_mediator.changedMajor(toSend);
+		}
+	}
+
+
+	/**
+	 * @return searched nodes per thread, indexed by thread number (0 is the main thread)
+	 */
+	public long[] getThreadsSearchedNodes() {
+		long[] result = new long[threads.length];
+		for (int i = 0; i < threads.length; i++) {
+			result[i] = threads[i] == null ? 0 : threads[i].getSearchedNodes();
+		}
+		return result;
+	}
+
+
+	/**
+	 * @return nodes per second per thread for the current (or the last) search, indexed by thread number (0 is the main thread)
+	 */
+	public long[] getThreadsNPS() {
+		long[] result = new long[threads.length];
+		for (int i = 0; i < threads.length; i++) {
+			result[i] = threads[i] == null ? 0 : threads[i].getNPS();
+		}
+		return result;
+	}
+
+
+	public long getSearchedNodes() {
+		long result = 0;
+		for (int i = 0; i < threads.length; i++) {
+			if (threads[i] != null) {
+				result += threads[i].getSearchedNodes();
+			}
+		}
+		return result;
+	}
+
+
+	private int getSelDepth() {
+		int result = 0;
+		for (int i = 0; i < threads.length; i++) {
+			if (threads[i] != null && threads[i].seldepth > result) {
+				result = threads[i].seldepth;
+			}
+		}
+		return result;
+	}
+
+
+	@Override
+	public void shutDown() {
+		try {
+
+			executor.shutdownNow();
+
+			for (int i = 0; i < threads.length; i++) {
+				threads[i] = null;
+			}
+
+		} catch(Throwable t) {
+			//Do nothing
+		}
+	}
+
+
+	@Override
+	public List<ISearch> getSearchers() {
+		List<ISearch> result = new ArrayList<ISearch>();
+		for (int i = 0; i < threads.length; i++) {
+			if (threads[i] != null) {
+				result.add(threads[i].searcher);
+			}
+		}
+		return result;
+	}
+
+
+	@Override
+	public int getTPTUsagePercent() {
+
+		if (threads[0] == null) {//Not yet initialized
+			return 0;
+		}
+
+		//The transposition table is shared
+		return threads[0].searcher.getTPTUsagePercent();
+	}
+
+
+	@Override
+	public void decreaseTPTDepths(int reduction) {
+
+		if (threads[0] == null) {//Not yet initialized
+			return;
+		}
+
+		//The transposition table is shared
+		threads[0].searcher.getEnv().getTPT().correctAllDepths(reduction);
+	}
+
+
+	private static boolean skipDepth(int thread_index, int depth) {
+
+		if (thread_index == 0) {
+			return false;
+		}
+
+		int i = (thread_index - 1) % SKIP_SIZE.length;
+
+		return ((depth + SKIP_PHASE[i]) / SKIP_SIZE[i]) % 2 != 0;
+	}
+
+
+	private class SearchThread {
+
+
+		private final int index;
+		private final ISearch searcher;
+
+		private volatile long nodes_completed;
+		private volatile ISearchInfo info_current;
+		private volatile int seldepth;
+		private volatile long start_time;
+		private volatile long end_time;
+
+
+		SearchThread(int _index, ISearch _searcher) {
+			index = _index;
+			searcher = _searcher;
+		}
+
+
+		void iterativeDeepening(ISearchMediator mediator, int startIteration, int maxIterations, int initialValue,
+				int[] prevPV, boolean useMateDistancePrunning) {
+
+			nodes_completed = 0;
+			info_current = null;
+			seldepth = 0;
+			start_time = System.currentTimeMillis();
+			end_time = 0;
+
+			int prevEval = initialValue;
+
+			try {
+
+				for (int maxdepth = startIteration; maxdepth <= maxIterations; maxdepth++) {
+
+					if (skipDepth(index, maxdepth)) {
+						continue;
+					}
+
+					ISearchInfo info = SearchInfoFactory.getFactory().createSearchInfo();
+					info.setDepth(maxdepth);
+					info.setSelDepth(maxdepth);
+					info_current = info;
+
+					try {
+
+						int eval = prevEval;
+						int window = ASPIRATION_WINDOW;
+						int alpha;
+						int beta;
+
+						PVManager pvman = new PVManager(ISearch.MAX_DEPTH);
+
+						do {
+
+							alpha = Math.max(ISearch.MIN, eval - window);
+							beta = Math.min(ISearch.MAX, eval + window);
+
+							eval = searcher.pv_search(mediator,
+									pvman, info,
+									ISearch.PLY * maxdepth, ISearch.PLY * maxdepth, 0,
+									alpha, beta,
+									0, 0, prevPV,
+									false, 0, searcher.getEnv().getBitboard().getColourToMove(),
+									0, 0, false, 0, useMateDistancePrunning);
+
+							window *= 2;
+
+						} while (eval <= alpha || eval >= beta);
+
+						prevEval = eval;
+
+						List<Integer> pv_buffer = new ArrayList<Integer>();
+						info.setPV(PVNode.convertPV(pvman.load(0), pv_buffer));
+						if (info.getPV().length > 0) {
+							info.setBestMove(info.getPV()[0]);
+						}
+						info.setEval(eval);
+
+					} finally {
+						nodes_completed += info.getSearchedNodes();
+						if (info.getSelDepth() > seldepth) {
+							seldepth = info.getSelDepth();
+						}
+						info_current = null;
+					}
+
+					mediator.changedMajor(info);
+
+					if (mediator.getStopper().isStopped()) {
+						break;
+					}
+				}
+
+			} catch(SearchInterruptedException sie) {
+				//The search is stopped
+			} finally {
+				end_time = System.currentTimeMillis();
+			}
+		}
+
+
+		long getSearchedNodes() {
+			ISearchInfo cur = info_current;
+			return nodes_completed + (cur == null ? 0 : cur.getSearchedNodes());
+		}
+
+
+		long getNPS() {
+			long end = end_time == 0 ? System.currentTimeMillis() : end_time;
+			long time = Math.max(1, end - start_time);
+			return 1000 * getSearchedNodes() / time;
+		}
+	}
+
+
+	private class ThreadMediator extends SearchMediatorProxy {
+
+
+		private final ISearchMediator final_mediator;
+		private ISearchStopper thread_stopper;
+		private final boolean sendMinorInfos;
+
+
+		ThreadMediator(ISearchMediator _final_mediator, ISearchStopper _thread_stopper, boolean _sendMinorInfos) {
+			super(_final_mediator);
+			final_mediator = _final_mediator;
+			thread_stopper = _thread_stopper;
+			sendMinorInfos = _sendMinorInfos;
+		}
+
+
+		@Override
+		public void changedMajor(ISearchInfo info) {
+			sendInfo(final_mediator, info);
+		}
+
+
+		@Override
+		public void changedMinor(ISearchInfo info) {
+
+			//Only the main thread sends the current move
+			if (!sendMinorInfos) {
+				return;
+			}
+
+			ISearchInfo minor = SearchInfoFactory.getFactory().createSearchInfo();
+			minor.setDepth(info.getDepth());
+			minor.setSelDepth(getSelDepth());
+			minor.setCurrentMove(info.getCurrentMove());
+			minor.setCurrentMoveNumber(info.getCurrentMoveNumber());
+			minor.setSearchedNodes(getSearchedNodes());
+
+			final_mediator.changedMinor(minor);
+		}
+
+
+		@Override
+		public void registerInfoObject(ISearchInfo info) {
+			//Do nothing, the nodes are collected by the threads
+		}
+
+
+		@Override
+		public ISearchStopper getStopper() {
+			return thread_stopper;
+		}
+
+
+		@Override
+		public void setStopper(ISearchStopper _stopper) {
+			thread_stopper = _stopper;
+		}
+	}
+}
@@ -645,6 +645,19 @@ public abstract class MTDParallelSearch_BaseImpl extends RootSearch_BaseImpl {
 	}
 	
 	
+	@Override
+	public List<ISearch> getSearchers() {
+		List<ISearch> result = new ArrayList<ISearch>();
+		for (int i = 0; i < searchers_ready.size(); i++) {
+			IRootSearch searcher = searchers_ready.get(i);
+			if (searcher instanceof RootSearch_BaseImpl) {
+				result.addAll(((RootSearch_BaseImpl) searcher).getSearchers());
+			}
+		}
+		return result;
+	}
+	
+	
 	@Override
 	public int getTPTUsagePercent() {
 		
@@ -28,7 +28,7 @@ import bagaturchess.bitboard.impl.utils.ReflectionUtils;
 import bagaturchess.search.api.IFinishCallback;
 import bagaturchess.search.api.IRootSearch;
 import bagaturchess.search.api.internal.ISearchMediator;
-import bagaturchess.search.impl.rootsearch.remote.SequentialSearch_SeparateProcess;
+import bagaturchess.search.impl.rootsearch.remote.SequentialSearch_SeparateProcess_BinaryProtocol;
 import bagaturchess.search.impl.rootsearch.sequential.mtd.Mediator_AlphaAndBestMoveWindow;
 import bagaturchess.search.impl.uci_adaptor.timemanagement.ITimeController;
 import bagaturchess.uci.api.ChannelManager;
@@ -63,8 +63,8 @@ public class MTDParallelSearch_ProcessesImpl extends MTDParallelSearch_BaseImpl
 			try {
 				if (i < count_started_sequentially) {//Start first searcher sequentially
 					
-					SequentialSearch_SeparateProcess searcher = (SequentialSearch_SeparateProcess)
-							ReflectionUtils.createObjectByClassName_ObjectsConstructor(SequentialSearch_SeparateProcess.class.getName(), new Object[] {getRootSearchConfig(), getSharedData()});
+					SequentialSearch_SeparateProcess_BinaryProtocol searcher = (SequentialSearch_SeparateProcess_BinaryProtocol)
+							ReflectionUtils.createObjectByClassName_ObjectsConstructor(SequentialSearch_SeparateProcess_BinaryProtocol.class.getName(), new Object[] {getRootSearchConfig(), getSharedData()});
 					
 					addSearcher(searcher);
 					
@@ -74,8 +74,8 @@ public class MTDParallelSearch_ProcessesImpl extends MTDParallelSearch_BaseImpl
 						
 						//@Override
 						public void run() {
-							SequentialSearch_SeparateProcess searcher = (SequentialSearch_SeparateProcess)
-									ReflectionUtils.createObjectByClassName_ObjectsConstructor(SequentialSearch_SeparateProcess.class.getName(), new Object[] {getRootSearchConfig(), getSharedData()});
+							SequentialSearch_SeparateProcess_BinaryProtocol searcher = (SequentialSearch_SeparateProcess_BinaryProtocol)
+									ReflectionUtils.createObjectByClassName_ObjectsConstructor(SequentialSearch_SeparateProcess_BinaryProtocol.class.getName(), new Object[] {getRootSearchConfig(), getSharedData()});
 							
 							if (!isTerminated()) {
 								addSearcher(searcher);
@@ -107,7 +107,7 @@ public class MTDParallelSearch_ProcessesImpl extends MTDParallelSearch_BaseImpl
 	protected void sequentialSearchers_Negamax(IRootSearch searcher, IBitBoard _bitboardForSetup, ISearchMediator mediator, ITimeController timeController,
 			final IFinishCallback multiPVCallback, Go go, boolean dont_wrap_mediator) {
 		
-		((SequentialSearch_SeparateProcess)searcher).negamax(_bitboardForSetup, mediator, timeController, multiPVCallback, go);
+		((SequentialSearch_SeparateProcess_BinaryProtocol)searcher).negamax(_bitboardForSetup, mediator, timeController, multiPVCallback, go);
 	}
 	
 	
@@ -0,0 +1,306 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.search.impl.rootsearch.remote;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.search.api.internal.ISearchInfo;
+import bagaturchess.uci.impl.commands.Go;
+
+
+/**
+ * Binary protocol between the master process and the worker processes of the process based SMP search.
+ * It replaces the text UCI commands and info lines, so nothing is formatted and parsed on each iteration.
+ * 
+ * Each message is one frame: [int payload length][byte type][payload].
+ * The moves are sent as ints of the board implementation, so the master and the worker have to use the same board config.
+ * The positions are sent as deltas: the count of the moves which are the same as in the previous position and the new moves after them.
+ */
+public class BinaryProtocol {
+	
+	
+	//Master to worker
+	public static final byte MSG_POSITION 		= 1;
+	public static final byte MSG_MOVES 			= 2;
+	public static final byte MSG_GO 			= 3;
+	public static final byte MSG_STOP 			= 4;
+	public static final byte MSG_QUIT 			= 5;
+	
+	//Worker to master
+	public static final byte MSG_READY 			= 10;
+	public static final byte MSG_INFO 			= 11;
+	public static final byte MSG_INFO_MINOR 	= 12;
+	public static final byte MSG_BESTMOVE 		= 13;
+	
+	
+	private static final int FLAG_LOWERBOUND 	= 1;
+	private static final int FLAG_UPPERBOUND 	= 2;
+	
+	
+	private final DataInputStream in;
+	private final DataOutputStream out;
+	
+	private final ByteArrayOutputStream frame_bytes;
+	private final DataOutputStream frame;
+	
+	private byte[] payload_bytes;
+	private DataInputStream payload;
+	
+	
+	public BinaryProtocol(InputStream _in, OutputStream _out) {
+		
+		in = new DataInputStream(new BufferedInputStream(_in));
+		out = new DataOutputStream(new BufferedOutputStream(_out));
+		
+		frame_bytes = new ByteArrayOutputStream(1024);
+		frame = new DataOutputStream(frame_bytes);
+		
+		payload_bytes = new byte[1024];
+	}
+	
+	
+	/**
+	 * Blocks until the next frame is received.
+	 * @return the type of the frame, its payload is read by the read* methods
+	 */
+	public byte readFrame() throws IOException {
+		
+		int length = in.readInt();
+		byte type = in.readByte();
+		
+		if (length > payload_bytes.length) {
+			payload_bytes = new byte[Math.max(length, 2 * payload_bytes.length)];
+		}
+		in.readFully(payload_bytes, 0, length);
+		
+		payload = new DataInputStream(new ByteArrayInputStream(payload_bytes, 0, length));
+		
+		return type;
+	}
+	
+	
+	public synchronized void sendPosition(String fen, int[] moves, int count) throws IOException {
+		frame.writeUTF(fen);
+		writeMoves(moves, 0, count);
+		flushFrame(MSG_POSITION);
+	}
+	
+	
+	public synchronized void sendMoves(int commonCount, int[] moves, int count) throws IOException {
+		frame.writeInt(commonCount);
+		writeMoves(moves, commonCount, count);
+		flushFrame(MSG_MOVES);
+	}
+	
+	
+	public synchronized void sendGo(Go go, int[] pv) throws IOException {
+		frame.writeBoolean(go.isPonder());
+		frame.writeBoolean(go.isAnalyzingMode());
+		frame.writeLong(go.getWtime());
+		frame.writeLong(go.getBtime());
+		frame.writeLong(go.getWinc());
+		frame.writeLong(go.getBinc());
+		frame.writeInt(go.getMovestogo());
+		frame.writeLong(go.getMovetime());
+		frame.writeLong(go.hasNodes() ? go.getNodes() : -1);
+		frame.writeInt(go.hasDepth() ? go.getDepth() : -1);
+		frame.writeInt(go.getStartDepth());
+		frame.writeInt(go.getBeta());
+		writeMoves(pv, 0, pv == null ? 0 : pv.length);
+		flushFrame(MSG_GO);
+	}
+	
+	
+	public synchronized void sendStop() throws IOException {
+		flushFrame(MSG_STOP);
+	}
+	
+	
+	public synchronized void sendQuit() throws IOException {
+		flushFrame(MSG_QUIT);
+	}
+	
+	
+	public synchronized void sendReady() throws IOException {
+		flushFrame(MSG_READY);
+	}
+	
+	
+	public synchronized void sendInfo(ISearchInfo info) throws IOException {
+		frame.writeInt(info.getDepth());
+		frame.writeInt(info.getSelDepth());
+		frame.writeInt(info.getEval());
+		frame.writeLong(info.getSearchedNodes());
+		frame.writeByte((info.isLowerBound() ? FLAG_LOWERBOUND : 0) | (info.isUpperBound() ? FLAG_UPPERBOUND : 0));
+		writeMoves(info.getPV(), 0, info.getPV() == null ? 0 : info.getPV().length);
+		flushFrame(MSG_INFO);
+	}
+	
+	
+	public synchronized void sendInfoMinor(ISearchInfo info, int hashfull) throws IOException {
+		frame.writeInt(info.getDepth());
+		frame.writeInt(info.getSelDepth());
+		frame.writeLong(info.getSearchedNodes());
+		frame.writeInt(info.getCurrentMove());
+		frame.writeInt(info.getCurrentMoveNumber());
+		frame.writeInt(hashfull);
+		flushFrame(MSG_INFO_MINOR);
+	}
+	
+	
+	public synchronized void sendBestMove(int bestmove, int pondermove) throws IOException {
+		frame.writeInt(bestmove);
+		frame.writeInt(pondermove);
+		flushFrame(MSG_BESTMOVE);
+	}
+	
+	
+	//The FEN of MSG_POSITION, it is followed by the moves
+	public String readPositionFEN() throws IOException {
+		return payload.readUTF();
+	}
+	
+	
+	public int readInt() throws IOException {
+		return payload.readInt();
+	}
+	
+	
+	public int[] readMoves() throws IOException {
+		int count = payload.readInt();
+		int[] moves = new int[count];
+		for (int i = 0; i < count; i++) {
+			moves[i] = payload.readInt();
+		}
+		return moves;
+	}
+	
+	
+	/**
+	 * Reads MSG_GO and creates the same Go command. The pv moves are converted to strings with the given board.
+	 */
+	public String readGoCommandLine(IBitBoard board) throws IOException {
+		
+		boolean ponder 		= payload.readBoolean();
+		boolean infinite 	= payload.readBoolean();
+		long wtime 			= payload.readLong();
+		long btime 			= payload.readLong();
+		long winc 			= payload.readLong();
+		long binc 			= payload.readLong();
+		int movestogo 		= payload.readInt();
+		long movetime 		= payload.readLong();
+		long nodes 			= payload.readLong();
+		int depth 			= payload.readInt();
+		int startdepth 		= payload.readInt();
+		int beta 			= payload.readInt();
+		int[] pv 			= readMoves();
+		
+		//The depth is before the startdepth, because Go finds the depth with indexOf("depth")
+		StringBuilder result = new StringBuilder(128);
+		result.append("go");
+		if (wtime != Long.MAX_VALUE) result.append(" wtime " + wtime);
+		if (btime != Long.MAX_VALUE) result.append(" btime " + btime);
+		if (winc != 0) result.append(" winc " + winc);
+		if (binc != 0) result.append(" binc " + binc);
+		if (movestogo != -1) result.append(" movestogo " + movestogo);
+		if (movetime != -1) result.append(" movetime " + movetime);
+		if (nodes != -1) result.append(" nodes " + nodes);
+		if (depth != -1) result.append(" depth " + depth);
+		if (infinite) result.append(" infinite");
+		if (ponder) result.append(" ponder");
+		if (startdepth != Go.UNDEF_STARTDEPTH) result.append(" startdepth " + startdepth);
+		if (beta != Go.UNDEF_BETA) result.append(" beta " + beta);
+		
+		if (pv.length > 0) {
+			result.append(" pv");
+			for (int i = 0; i < pv.length; i++) {
+				result.append(" " + board.getMoveOps().moveToString(pv[i]));
+				board.makeMoveForward(pv[i]);
+			}
+			for (int i = pv.length - 1; i >= 0; i--) {
+				board.makeMoveBackward(pv[i]);
+			}
+		}
+		
+		return result.toString();
+	}
+	
+	
+	public void readInfo(ISearchInfo info) throws IOException {
+		info.setDepth(payload.readInt());
+		info.setSelDepth(payload.readInt());
+		info.setEval(payload.readInt());
+		info.setSearchedNodes(payload.readLong());
+		int flags = payload.readByte();
+		info.setLowerBound((flags & FLAG_LOWERBOUND) != 0);
+		info.setUpperBound((flags & FLAG_UPPERBOUND) != 0);
+		int[] pv = readMoves();
+		info.setPV(pv);
+		if (pv.length > 0) {
+			info.setBestMove(pv[0]);
+		}
+	}
+	
+	
+	/**
+	 * @return the hashfull of the worker
+	 */
+	public int readInfoMinor(ISearchInfo info) throws IOException {
+		info.setDepth(payload.readInt());
+		info.setSelDepth(payload.readInt());
+		info.setSearchedNodes(payload.readLong());
+		info.setCurrentMove(payload.readInt());
+		info.setCurrentMoveNumber(payload.readInt());
+		return payload.readInt();
+	}
+	
+	
+	private void writeMoves(int[] moves, int from, int to) throws IOException {
+		frame.writeInt(to - from);
+		for (int i = from; i < to; i++) {
+			frame.writeInt(moves[i]);
+		}
+	}
+	
+	
+	private void flushFrame(byte type) throws IOException {
+		try {
+			out.writeInt(frame_bytes.size());
+			out.writeByte(type);
+			frame_bytes.writeTo(out);
+			out.flush();
+		} finally {
+			frame_bytes.reset();
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.search.impl.rootsearch.remote;
+
+
+import java.io.IOException;
+
+import bagaturchess.search.api.IRootSearch;
+import bagaturchess.search.api.internal.ISearchInfo;
+import bagaturchess.search.impl.uci_adaptor.UCISearchMediatorImpl_NormalSearch;
+import bagaturchess.search.impl.uci_adaptor.timemanagement.ITimeController;
+import bagaturchess.uci.api.BestMoveSender;
+import bagaturchess.uci.api.IChannel;
+import bagaturchess.uci.impl.commands.Go;
+
+
+/**
+ * Mediator of the worker process. The infos and the best move are sent to the master process over the BinaryProtocol instead of the UCI channel.
+ */
+public class SearchMediator_BinaryProtocol extends UCISearchMediatorImpl_NormalSearch implements BestMoveSender {
+	
+	
+	private BinaryProtocol protocol;
+	
+	
+	public SearchMediator_BinaryProtocol(IChannel _channel, BinaryProtocol _protocol, Go _go, ITimeController _timeController, int _colourToMove, IRootSearch _rootSearch) {
+		super(_channel, _go, _timeController, _colourToMove, null, _rootSearch, false);
+		protocol = _protocol;
+	}
+	
+	
+	@Override
+	public BestMoveSender getBestMoveSender() {
+		return this;
+	}
+	
+	
+	@Override
+	public void changedMajor(ISearchInfo info) {
+		
+		super.changedMajor(info);
+		
+		//The master uses only the infos with pv
+		if (info.isUpperBound() || info.getPV() == null || info.getPV().length == 0) {
+			return;
+		}
+		
+		try {
+			protocol.sendInfo(info);
+		} catch (IOException e) {
+			dump(e);
+		}
+	}
+	
+	
+	@Override
+	public void changedMinor(ISearchInfo info) {
+		try {
+			protocol.sendInfoMinor(info, rootSearch.getTPTUsagePercent());
+		} catch (IOException e) {
+			dump(e);
+		}
+	}
+	
+	
+	@Override
+	public void send(String messageToGUI) {
+		//The stdout of the worker process is not read by the master process
+	}
+	
+	
+	@Override
+	public void sendBestMove() {
+		
+		int bestmove = 0;
+		int pondermove = 0;
+		
+		ISearchInfo info = getLastInfo();
+		if (info != null && info.getPV() != null) {
+			if (info.getPV().length > 0) bestmove = info.getPV()[0];
+			if (info.getPV().length > 1) pondermove = info.getPV()[1];
+		}
+		
+		try {
+			protocol.sendBestMove(bestmove, pondermove);
+		} catch (IOException e) {
+			dump(e);
+		}
+	}
+}
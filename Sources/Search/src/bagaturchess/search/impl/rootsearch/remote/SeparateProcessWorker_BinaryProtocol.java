@@ -0,0 +1,172 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.search.impl.rootsearch.remote;
+
+
+import java.io.EOFException;
+import java.net.Socket;
+
+import bagaturchess.bitboard.api.BoardUtils;
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.bitboard.impl.utils.ReflectionUtils;
+import bagaturchess.search.api.IRootSearch;
+import bagaturchess.search.api.IRootSearchConfig;
+import bagaturchess.search.api.internal.ISearchStopper;
+import bagaturchess.search.impl.env.SharedData;
+import bagaturchess.search.impl.uci_adaptor.timemanagement.ITimeController;
+import bagaturchess.search.impl.uci_adaptor.timemanagement.TimeControllerFactory;
+import bagaturchess.search.impl.uci_adaptor.timemanagement.controllers.TimeController_Infinite;
+import bagaturchess.uci.api.ChannelManager;
+import bagaturchess.uci.api.IUCIOptionsProvider;
+import bagaturchess.uci.impl.Channel_Console;
+import bagaturchess.uci.impl.commands.Go;
+import bagaturchess.uci.impl.commands.options.UCIOptionString;
+
+
+/**
+ * Main class of the worker process started by SequentialSearch_SeparateProcess_BinaryProtocol.
+ * It connects to the master process on the local port given as first argument and runs its root search by the received BinaryProtocol messages.
+ * 
+ * Arguments: port, root search class, root search config class, search class, search config class, board config class, eval config class, syzygy path
+ */
+public class SeparateProcessWorker_BinaryProtocol {
+	
+	
+	public static void main(String[] args) {
+		
+		ChannelManager.setChannel(new Channel_Console(System.in, System.out, System.out));
+		
+		try {
+			
+			//Connect first, so if the initialization fails, the master process gets EOF instead of waiting for the connection
+			Socket socket = new Socket("127.0.0.1", Integer.parseInt(args[0]));
+			socket.setTcpNoDelay(true);
+			
+			BinaryProtocol protocol = new BinaryProtocol(socket.getInputStream(), socket.getOutputStream());
+			
+			IRootSearchConfig cfg = (IRootSearchConfig) ReflectionUtils.createObjectByClassName_StringsConstructor(args[2],
+					new String[] {args[3], args[4], args[5], args[6]});
+			
+			if (cfg instanceof IUCIOptionsProvider) {
+				((IUCIOptionsProvider) cfg).applyOption(new UCIOptionString("SyzygyPath", args[7], ""));
+			}
+			
+			SharedData sharedData = new SharedData(ChannelManager.getChannel(), cfg);
+			IRootSearch search = (IRootSearch) ReflectionUtils.createObjectByClassName_ObjectsConstructor(args[1], new Object[] {cfg, sharedData});
+			
+			protocol.sendReady();
+			
+			run(protocol, cfg, search);
+			
+			search.shutDown();
+			socket.close();
+			
+		} catch (EOFException e) {
+			ChannelManager.getChannel().dump("SeparateProcessWorker_BinaryProtocol: the master process has closed the connection");
+		} catch (Throwable t) {
+			ChannelManager.getChannel().dump(t);
+		}
+		
+		System.exit(0);
+	}
+	
+	
+	private static void run(BinaryProtocol protocol, IRootSearchConfig cfg, IRootSearch search) throws Exception {
+		
+		IBitBoard board = null;
+		ISearchStopper stopper = null;
+		
+		while (true) {
+			
+			byte type = protocol.readFrame();
+			
+			switch (type) {
+				
+				case BinaryProtocol.MSG_POSITION:
+					
+					String fen = protocol.readPositionFEN();
+					int[] moves = protocol.readMoves();
+					
+					board = BoardUtils.createBoard_WithPawnsCache(fen,
+							cfg.getEvalConfig().getPawnsCacheFactoryClassName(),
+							cfg.getBoardConfig(),
+							10000);
+					for (int i = 0; i < moves.length; i++) {
+						board.makeMoveForward(moves[i]);
+					}
+					
+					search.createBoard(board);
+					
+					break;
+					
+				case BinaryProtocol.MSG_MOVES:
+					
+					int commonCount = protocol.readInt();
+					int[] newMoves = protocol.readMoves();
+					
+					while (board.getPlayedMovesCount() > commonCount) {
+						board.makeMoveBackward(board.getLastMove());
+					}
+					for (int i = 0; i < newMoves.length; i++) {
+						board.makeMoveForward(newMoves[i]);
+					}
+					
+					break;
+					
+				case BinaryProtocol.MSG_GO:
+					
+					Go go = new Go(ChannelManager.getChannel(), protocol.readGoCommandLine(board));
+					
+					//The master process manages the time of the tournament time controls and sends MSG_STOP
+					ITimeController timeController = (go.isAnalyzingMode() || go.hasDepth() || go.hasNodes() || go.getMovetime() != -1) ?
+							TimeControllerFactory.createTimeController(null, board.getColourToMove(), go) : new TimeController_Infinite();
+					
+					SearchMediator_BinaryProtocol mediator = new SearchMediator_BinaryProtocol(ChannelManager.getChannel(), protocol,
+							go, timeController, board.getColourToMove(), search);
+					
+					//The root search replaces the stopper of the mediator with a composite one, so the original is kept for MSG_STOP
+					stopper = mediator.getStopper();
+					
+					search.negamax(board, mediator, timeController, go);
+					
+					break;
+					
+				case BinaryProtocol.MSG_STOP:
+					
+					if (stopper != null) {
+						stopper.markStopped();
+						stopper = null;
+					}
+					
+					break;
+					
+				case BinaryProtocol.MSG_QUIT:
+					
+					return;
+					
+				default:
+					throw new IllegalStateException("Unknown message type " + type);
+			}
+		}
+	}
+}
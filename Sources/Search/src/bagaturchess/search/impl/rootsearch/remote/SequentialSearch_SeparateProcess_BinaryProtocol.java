@@ -0,0 +1,429 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.search.impl.rootsearch.remote;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+
+import bagaturchess.bitboard.api.BoardUtils;
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.bitboard.common.Utils;
+import bagaturchess.search.api.IFinishCallback;
+import bagaturchess.search.api.internal.ISearchInfo;
+import bagaturchess.search.api.internal.ISearchMediator;
+import bagaturchess.search.impl.info.SearchInfoFactory;
+import bagaturchess.search.impl.rootsearch.RootSearch_BaseImpl;
+import bagaturchess.search.impl.rootsearch.sequential.SequentialSearch_MTD;
+import bagaturchess.search.impl.uci_adaptor.SearchStopScheduler;
+import bagaturchess.search.impl.uci_adaptor.timemanagement.ITimeController;
+import bagaturchess.search.impl.utils.DEBUGSearch;
+import bagaturchess.uci.api.ChannelManager;
+import bagaturchess.uci.impl.commands.Go;
+
+
+/**
+ * Version of SequentialSearch_SeparateProcess, which communicates with the worker process over the BinaryProtocol (on a local socket) instead of UCI.
+ * Only the new moves are sent on each search and the infos are received as ints, so there is no formatting and parsing of UCI lines.
+ * The worker process (SeparateProcessWorker_BinaryProtocol) is started with the same configuration classes as this root search,
+ * so both processes use the same board implementation and the moves could be sent as ints.
+ */
+public class SequentialSearch_SeparateProcess_BinaryProtocol extends RootSearch_BaseImpl {
+	
+	
+	private static final String WORKER_ROOT_SEARCH_CONFIG = "bagaturchess.engines.cfg.base.RootSearchConfig_BaseImpl_1Core";
+	private static final int WORKER_CONNECT_TIMEOUT = 60000;
+	
+	private static final SearchStopScheduler.ICondition<SequentialSearch_SeparateProcess_BinaryProtocol> STOP_CONDITION = new SearchStopScheduler.ICondition<SequentialSearch_SeparateProcess_BinaryProtocol>() {
+		@Override
+		public boolean check(SequentialSearch_SeparateProcess_BinaryProtocol search) {
+			return search.sendStopIfNecessary();
+		}
+	};
+	
+	
+	private ExecutorService executor;
+	
+	private Process process;
+	private Socket socket;
+	private BinaryProtocol protocol;
+	
+	//The moves of the position, which the worker has
+	private int[] sentMoves;
+	private int sentMovesCount;
+	
+	private volatile int hashfull;
+	
+	private final Object sync_stop = new Object();
+	
+	//Mediator of the current search and the check, which sends the stop to the worker when it is stopped
+	private volatile ISearchMediator currentMediator;
+	private ScheduledFuture<?> stopCheck;
+	
+	
+	public SequentialSearch_SeparateProcess_BinaryProtocol(Object[] args) {
+		
+		super(args);
+		
+		executor = Executors.newSingleThreadExecutor();
+		
+		sentMoves = new int[0];
+		
+		try {
+			
+			ServerSocket server = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+			server.setSoTimeout(WORKER_CONNECT_TIMEOUT);
+			
+			try {
+				
+				process = startWorker(server.getLocalPort());
+				
+				socket = server.accept();
+				socket.setTcpNoDelay(true);
+				
+			} finally {
+				server.close();
+			}
+			
+			protocol = new BinaryProtocol(socket.getInputStream(), socket.getOutputStream());
+			
+			if (protocol.readFrame() != BinaryProtocol.MSG_READY) {
+				throw new IllegalStateException("The worker process is not ready");
+			}
+			
+			ChannelManager.getChannel().dump("SequentialSearch_SeparateProcess_BinaryProtocol: worker process is ready on port " + socket.getPort());
+			
+		} catch (Throwable t) {
+			
+			ChannelManager.getChannel().dump(t);
+			
+			//The engine can not search without the worker, so it must not start
+			shutDown();
+			
+			throw new IllegalStateException("SequentialSearch_SeparateProcess_BinaryProtocol: unable to start the worker process", t);
+		}
+	}
+	
+	
+	private Process startWorker(int port) throws IOException {
+		
+		List<String> command = new ArrayList<String>();
+		command.add(getJavaPath());
+		command.add("-Xmx" + getRootSearchConfig().getThreadMemory_InMegabytes() + "M");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(SeparateProcessWorker_BinaryProtocol.class.getName());
+		command.add(String.valueOf(port));
+		command.add(SequentialSearch_MTD.class.getName());
+		command.add(WORKER_ROOT_SEARCH_CONFIG);
+		command.add(getRootSearchConfig().getSearchClassName());
+		command.add(getRootSearchConfig().getSearchConfig().getClass().getName());
+		command.add(getRootSearchConfig().getBoardConfig().getClass().getName());
+		command.add(getRootSearchConfig().getEvalConfig().getClass().getName());
+		command.add(getRootSearchConfig().getTbPath());
+		
+		ChannelManager.getChannel().dump("SequentialSearch_SeparateProcess_BinaryProtocol: starting worker process " + command);
+		
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.directory(new File("."));
+		builder.redirectErrorStream(true);
+		
+		final Process result = builder.start();
+		
+		//The output of the worker is only logging, but it has to be read, otherwise the worker blocks when the pipe is full
+		Thread dummper = new Thread() {
+			public void run() {
+				try {
+					InputStream is = result.getInputStream();
+					byte[] buffer = new byte[4096];
+					while (is.read(buffer) != -1) {
+						//Do nothing
+					}
+				} catch (IOException e) {
+					//Do nothing, the process is destroyed
+				}
+			}
+		};
+		dummper.setDaemon(true);
+		dummper.start();
+		
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				result.destroy();
+			}
+		});
+		
+		return result;
+	}
+	
+	
+	private static String getJavaPath() {
+		
+		File java = new File(new File(System.getProperty("java.home"), "bin"), "java");
+		
+		String os = System.getProperty("os.name", "generic").toLowerCase(Locale.ENGLISH);
+		if (os.contains("win")) {
+			java = new File(java.getParentFile(), "java.exe");
+		}
+		
+		return java.getAbsolutePath();
+	}
+	
+	
+	@Override
+	public void createBoard(IBitBoard _bitboardForSetup) {
+		
+		super.createBoard(_bitboardForSetup);
+		
+		try {
+			
+			IBitBoard bitboard = getBitboardForSetup();
+			
+			int movesCount = bitboard.getPlayedMovesCount();
+			int[] moves = Utils.copy(bitboard.getPlayedMoves());
+			
+			bitboard.revert();
+			String initialFEN = bitboard.toEPD();
+			for (int i = 0; i < movesCount; i++) {
+				bitboard.makeMoveForward(moves[i]);
+			}
+			
+			protocol.sendPosition(initialFEN, moves, movesCount);
+			
+			sentMoves = moves;
+			sentMovesCount = movesCount;
+			
+		} catch (Throwable t) {
+			ChannelManager.getChannel().dump(t);
+		}
+	}
+	
+	
+	/**
+	 * Sends only the moves after the last move, which is the same in the current and the previous position of the worker.
+	 */
+	private void sendMovesDelta() throws IOException {
+		
+		IBitBoard bitboard = getBitboardForSetup();
+		
+		int movesCount = bitboard.getPlayedMovesCount();
+		int[] moves = bitboard.getPlayedMoves();
+		
+		int commonCount = 0;
+		while (commonCount < sentMovesCount && commonCount < movesCount && sentMoves[commonCount] == moves[commonCount]) {
+			commonCount++;
+		}
+		
+		if (commonCount != sentMovesCount || commonCount != movesCount) {
+			
+			protocol.sendMoves(commonCount, moves, movesCount);
+			
+			if (sentMoves.length < movesCount) {
+				sentMoves = new int[2 * movesCount];
+			}
+			System.arraycopy(moves, 0, sentMoves, 0, movesCount);
+			sentMovesCount = movesCount;
+		}
+	}
+	
+	
+	@Override
+	public void shutDown() {
+		try {
+			
+			if (protocol != null) protocol.sendQuit();
+			
+			if (socket != null) socket.close();
+			
+		} catch(Throwable t) {
+			//Do nothing
+		}
+		
+		if (process != null) process.destroy();
+		
+		executor.shutdownNow();
+	}
+	
+	
+	/**
+	 * Called by the SearchStopScheduler thread, which also stops the search when the time is over.
+	 * @return true if the check is not necessary anymore
+	 */
+	private boolean sendStopIfNecessary() {
+		
+		synchronized (sync_stop) {
+			
+			if (isStopped()) {//The best move is already received by the InboundQueueProcessor
+				return true;
+			}
+			
+			if (!currentMediator.getStopper().isStopped() //If the time is over, than stop the engine
+					&& !stopper.isStopped()) {
+				return false;
+			}
+			
+			if (DEBUGSearch.DEBUG_MODE) ChannelManager.getChannel().dump(Thread.currentThread().getName() + " " + "SequentialSearch_SeparateProcess_BinaryProtocol: stopping engine");
+			
+			try {
+				protocol.sendStop();
+			} catch(Throwable t) {
+				ChannelManager.getChannel().dump(t);
+			}
+			
+			return true;
+		}
+	}
+	
+	
+	@Override
+	public void negamax(IBitBoard bitboardForSetup, ISearchMediator mediator, ITimeController timeController, final IFinishCallback multiPVCallback, Go go) {
+		
+		if (stopper != null) {
+			throw new IllegalStateException(Thread.currentThread().getName() + " " + "SequentialSearch_SeparateProcess_BinaryProtocol: started whithout beeing stopped");
+		}
+		stopper = new Stopper();
+		
+		
+		setupBoard(bitboardForSetup);
+		
+		
+		try {
+			
+			sendMovesDelta();
+			
+			protocol.sendGo(go, BoardUtils.getMoves(go.getPv(), getBitboardForSetup()));
+			
+			
+			final ISearchMediator final_mediator = mediator;
+			
+			//The stop is sent by the SearchStopScheduler thread, there is no thread waiting for it
+			synchronized (sync_stop) {
+				currentMediator = mediator;
+				stopCheck = SearchStopScheduler.schedule(this, STOP_CONDITION);
+			}
+			
+			
+			//InboundQueueProcessor
+			executor.execute(new Runnable() {
+				
+				@Override
+				public void run() {
+					try {
+						
+						while (true) {
+							
+							byte type = protocol.readFrame();
+							
+							if (type == BinaryProtocol.MSG_INFO) {
+								
+								ISearchInfo info = SearchInfoFactory.getFactory().createSearchInfo();
+								protocol.readInfo(info);
+								
+								final_mediator.changedMajor(info);
+								
+							} else if (type == BinaryProtocol.MSG_INFO_MINOR) {
+								
+								ISearchInfo info = SearchInfoFactory.getFactory().createSearchInfo();
+								hashfull = protocol.readInfoMinor(info);
+								
+								final_mediator.changedMinor(info);
+								
+							} else if (type == BinaryProtocol.MSG_BESTMOVE) {
+								
+								break;
+								
+							} else {
+								throw new IllegalStateException("Unexpected message type " + type);
+							}
+						}
+						
+						finishSearch(final_mediator, multiPVCallback);
+						
+					} catch(Throwable t) {
+						
+						ChannelManager.getChannel().dump(t);
+						
+						//The worker process is dead or the protocol is broken, the search is finished with the last received info
+						finishSearch(final_mediator, multiPVCallback);
+					}
+				}
+			});
+			
+		} catch (Throwable t) {
+			
+			ChannelManager.getChannel().dump(t);
+			
+			finishSearch(mediator, multiPVCallback);
+		}
+	}
+	
+	
+	/**
+	 * Called by the InboundQueueProcessor when the best move is received or the reading fails.
+	 * Also called if the go command could not be sent.
+	 */
+	private void finishSearch(ISearchMediator mediator, IFinishCallback multiPVCallback) {
+		
+		synchronized (sync_stop) {
+			
+			if (stopCheck != null) {
+				stopCheck.cancel(false);
+			}
+			
+			if (!isStopped()) {//Not stopped from the UI. Otherwise the best move is already send from the InboundQueueProcessor above
+				
+				stopper.markStopped();
+				stopper = null;
+				
+				if (multiPVCallback == null) {//Non multiPV search
+					mediator.getBestMoveSender().sendBestMove();
+				} else {
+					//MultiPV search
+					multiPVCallback.ready();
+				}
+			}
+		}
+	}
+	
+	
+	@Override
+	public int getTPTUsagePercent() {
+		return hashfull;
+	}
+	
+	
+	@Override
+	public void decreaseTPTDepths(int reduction) {
+		//Do nothing
+	}
+}
@@ -43,7 +43,6 @@ import bagaturchess.search.impl.info.SearchInfoFactory;
 import bagaturchess.search.impl.pv.PVManager;
 import bagaturchess.search.impl.pv.PVNode;
 import bagaturchess.search.impl.rootsearch.RootSearch_BaseImpl;
-import bagaturchess.search.impl.rootsearch.multipv.MultiPVMediator;
 import bagaturchess.search.impl.rootsearch.sequential.mtd.Mediator_AlphaAndBestMoveWindow;
 import bagaturchess.search.impl.uci_adaptor.timemanagement.ITimeController;
 import bagaturchess.search.impl.utils.DEBUGSearch;
@@ -125,9 +124,7 @@ public class SequentialSearch_Classic extends RootSearch_BaseImpl {
 		
 		if (!dont_wrap_mediator) {
 			//Original mediator should be an instance of UCISearchMediatorImpl_Base
-			mediator = (mediator instanceof MultiPVMediator) ?
-					new Mediator_AlphaAndBestMoveWindow(mediator) :
-					new NPSCollectorMediator(new Mediator_AlphaAndBestMoveWindow(mediator));
+			mediator = new NPSCollectorMediator(new Mediator_AlphaAndBestMoveWindow(mediator));
 		}
 		
 		//final ISearchStopper stopper = new MTDStopper(getBitboardForSetup().getColourToMove(), distribution);
@@ -252,6 +249,16 @@ public class SequentialSearch_Classic extends RootSearch_BaseImpl {
 	}
 
 
+	@Override
+	public List<ISearch> getSearchers() {
+		List<ISearch> result = new ArrayList<ISearch>();
+		if (searcher != null) {
+			result.add(searcher);
+		}
+		return result;
+	}
+	
+	
 	@Override
 	public int getTPTUsagePercent() {
 		return searcher.getTPTUsagePercent();
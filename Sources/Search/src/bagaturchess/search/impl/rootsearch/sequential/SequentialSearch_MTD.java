@@ -23,6 +23,8 @@
 package bagaturchess.search.impl.rootsearch.sequential;
 
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -39,7 +41,6 @@ import bagaturchess.search.api.internal.ISearchMediator;
 import bagaturchess.search.api.internal.ISearchStopper;
 import bagaturchess.search.impl.eval.cache.EvalCache_Impl2;
 import bagaturchess.search.impl.rootsearch.RootSearch_BaseImpl;
-import bagaturchess.search.impl.rootsearch.multipv.MultiPVMediator;
 import bagaturchess.search.impl.rootsearch.sequential.mtd.Mediator_AlphaAndBestMoveWindow;
 import bagaturchess.search.impl.rootsearch.sequential.mtd.NullwinSearchTask;
 import bagaturchess.search.impl.rootsearch.sequential.mtd.SearchManager;
@@ -130,9 +131,7 @@ public class SequentialSearch_MTD extends RootSearch_BaseImpl {
 		
 		if (!dont_wrap_mediator) {
 			//Original mediator should be an instance of UCISearchMediatorImpl_Base
-			mediator = (mediator instanceof MultiPVMediator) ?
-					new Mediator_AlphaAndBestMoveWindow(mediator) :
-					new NPSCollectorMediator(new Mediator_AlphaAndBestMoveWindow(mediator));
+			mediator = new NPSCollectorMediator(new Mediator_AlphaAndBestMoveWindow(mediator));
 		}
 		
 		final SearchManager distribution = new SearchManager(mediator, startIteration, maxIterations, initialValue);
@@ -208,6 +207,16 @@ public class SequentialSearch_MTD extends RootSearch_BaseImpl {
 	}
 
 
+	@Override
+	public List<ISearch> getSearchers() {
+		List<ISearch> result = new ArrayList<ISearch>();
+		if (searcher != null) {
+			result.add(searcher);
+		}
+		return result;
+	}
+	
+	
 	@Override
 	public int getTPTUsagePercent() {
 		return searcher.getTPTUsagePercent();
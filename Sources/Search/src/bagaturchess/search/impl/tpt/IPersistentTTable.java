@@ -0,0 +1,52 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.search.impl.tpt;
+
+
+import java.nio.LongBuffer;
+
+
+/**
+ * Transposition table which could be saved to and loaded from a file (see TTablePersistence).
+ * The content is seen as an array of longs with length getDataLength().
+ */
+public interface IPersistentTTable extends ITTable {
+	
+	//Identifies the index scheme and the entries layout, tables with different schemes are not compatible
+	public int getHashScheme();
+	public int getBucketSize();
+	public int getEntriesCount();
+	public long getDataLength();
+	
+	//Copies the longs [from, from + out.remaining()) to the buffer
+	public void save(LongBuffer out, long from);
+	
+	//Copies in.remaining() longs from the buffer, starting at index from
+	public void load(LongBuffer in, long from);
+	
+	//Generation (search number) used for the aging of the entries, it is saved in the file header
+	public int getGeneration();
+	
+	//Called after the data is loaded, the usage counters are reset
+	public void setGeneration(int generation);
+}
@@ -29,5 +29,9 @@ public interface ITTable {
 	public void put(long hashkey, int depth, int eval, int alpha, int beta, int bestmove);
 	public void correctAllDepths(int reduction);
 	public int getUsage();
+	/**
+	 * Hint that the entry of the given key will be accessed soon (e.g. the child position right after a move is made).
+	 */
+	public void prefetch(long key);
 
 }
\ No newline at end of file
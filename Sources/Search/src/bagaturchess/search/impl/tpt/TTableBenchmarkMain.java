@@ -0,0 +1,135 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.search.impl.tpt;
+
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Compares the on-heap tables (TTable_Impl2, TTable_Impl3) with the off-heap one (TTable_Impl4).
+ * For each table prints the used heap, the average time of put and get (random keys) and the time of full GCs, while the table is alive.
+ * args[0] is the size of the tables in MB (default 256).
+ */
+public class TTableBenchmarkMain {
+	
+	
+	private static final int PROBES = 10000000;
+	private static final int GC_RUNS = 3;
+	
+	
+	public static void main(String[] args) {
+		
+		int sizeInMB = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+		
+		for (int i = 0; i < 2; i++) {//The first round is warm up
+			
+			System.out.println("Round " + (i + 1));
+			
+			run(sizeInMB, "TTable_Impl2 (on-heap)", 2);
+			run(sizeInMB, "TTable_Impl3 (on-heap)", 3);
+			run(sizeInMB, "TTable_Impl4 (off-heap)", 4);
+		}
+	}
+	
+	
+	private static void run(int sizeInMB, String name, int impl) {
+		
+		gc();
+		long heap_before = getUsedHeap();
+		
+		ITTable table = impl == 2 ? new TTable_Impl2(sizeInMB) : (impl == 3 ? new TTable_Impl3(sizeInMB) : new TTable_Impl4(sizeInMB));
+		
+		long heap = getUsedHeap() - heap_before;
+		
+		Random rand = new Random(1);
+		ITTEntry entry = new TTEntry_BaseImpl();
+		
+		long start = System.nanoTime();
+		for (int i = 0; i < PROBES; i++) {
+			table.put(rand.nextLong(), 1 + rand.nextInt(20), rand.nextInt(2000) - 1000, -1000, 1000, 1 + rand.nextInt(100000));
+		}
+		long put_time = System.nanoTime() - start;
+		
+		//Half of the keys are the same as in the puts
+		rand = new Random(1);
+		Random rand_miss = new Random(2);
+		int hits = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < PROBES; i++) {
+			long key = (i & 1) == 0 ? rand.nextLong() : rand_miss.nextLong();
+			if ((i & 1) == 0) {
+				rand.nextInt(); rand.nextInt(); rand.nextInt();
+			}
+			table.get(key, entry);
+			if (!entry.isEmpty()) {
+				hits++;
+			}
+		}
+		long get_time = System.nanoTime() - start;
+		
+		long gc_time_before = getGCTime();
+		long gc_start = System.currentTimeMillis();
+		for (int i = 0; i < GC_RUNS; i++) {
+			gc();
+		}
+		long gc_wall_time = System.currentTimeMillis() - gc_start;
+		long gc_time = getGCTime() - gc_time_before;
+		
+		System.out.println(name
+				+ ": heap " + (heap / (1024 * 1024)) + "MB"
+				+ ", put " + (put_time / PROBES) + "ns"
+				+ ", get " + (get_time / PROBES) + "ns"
+				+ ", hits " + hits
+				+ ", usage " + table.getUsage() + "%"
+				+ ", full gc " + (gc_time / GC_RUNS) + "ms (wall " + (gc_wall_time / GC_RUNS) + "ms)");
+		
+		if (table instanceof TTable_Impl4) {
+			((TTable_Impl4) table).free();
+		}
+	}
+	
+	
+	private static void gc() {
+		System.gc();
+		System.gc();
+	}
+	
+	
+	private static long getUsedHeap() {
+		return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+	}
+	
+	
+	private static long getGCTime() {
+		long time = 0;
+		List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+		for (GarbageCollectorMXBean bean : beans) {
+			time += Math.max(0, bean.getCollectionTime());
+		}
+		return time;
+	}
+}
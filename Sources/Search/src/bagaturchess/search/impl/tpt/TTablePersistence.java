@@ -0,0 +1,140 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.search.impl.tpt;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * Saves the transposition table to a file and loads it back, through memory mapped buffers.
+ * The file starts with a header (magic, version, hash scheme, bucket size, entries count, data length and generation),
+ * followed by the data of the table as it is in the memory.
+ * A file could be loaded only in a table with the same hash scheme and size.
+ * 
+ * The data is copied with bulk LongBuffer operations by TTable_Impl2 and TTable_Impl4.
+ * TTable_Impl3 (the default table) is in AtomicLongArrays, which have no bulk access, so it copies the longs one by one.
+ */
+public class TTablePersistence {
+	
+	
+	private static final long MAGIC = 0x4241474154545054L; //"BAGATTPT"
+	private static final int VERSION = 3;
+	
+	private static final int HEADER_SIZE = 64;
+	
+	//Bytes per mapped buffer
+	private static final int CHUNK_SIZE = 1 << 30;
+	
+	
+	public static void save(IPersistentTTable table, String fileName) throws IOException {
+		
+		long size = HEADER_SIZE + 8L * table.getDataLength();
+		
+		RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+		try {
+			
+			file.setLength(size);
+			FileChannel channel = file.getChannel();
+			
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			header.putLong(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(table.getHashScheme());
+			header.putInt(table.getBucketSize());
+			header.putInt(table.getEntriesCount());
+			header.putLong(table.getDataLength());
+			header.putInt(table.getGeneration());
+			header.force();
+			
+			for (long position = HEADER_SIZE; position < size; position += CHUNK_SIZE) {
+				
+				int length = (int) Math.min(CHUNK_SIZE, size - position);
+				
+				MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE, position, length);
+				chunk.order(ByteOrder.LITTLE_ENDIAN);
+				table.save(chunk.asLongBuffer(), (position - HEADER_SIZE) / 8);
+				chunk.force();
+			}
+			
+		} finally {
+			file.close();
+		}
+	}
+	
+	
+	/**
+	 * @return false if the file doesn't exist or is created by a table with different hash scheme or size
+	 */
+	public static boolean load(IPersistentTTable table, String fileName) throws IOException {
+		
+		if (!new File(fileName).exists()) {
+			return false;
+		}
+		
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		try {
+			
+			FileChannel channel = file.getChannel();
+			long size = HEADER_SIZE + 8L * table.getDataLength();
+			if (channel.size() != size) {
+				return false;
+			}
+			
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getLong() != MAGIC
+					|| header.getInt() != VERSION
+					|| header.getInt() != table.getHashScheme()
+					|| header.getInt() != table.getBucketSize()
+					|| header.getInt() != table.getEntriesCount()
+					|| header.getLong() != table.getDataLength()) {
+				return false;
+			}
+			int generation = header.getInt();
+			
+			for (long position = HEADER_SIZE; position < size; position += CHUNK_SIZE) {
+				
+				int length = (int) Math.min(CHUNK_SIZE, size - position);
+				
+				MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				chunk.order(ByteOrder.LITTLE_ENDIAN);
+				table.load(chunk.asLongBuffer(), (position - HEADER_SIZE) / 8);
+			}
+			
+			//The loaded entries are seen as entries from the previous search, so they are replaced before the entries of the next search
+			table.setGeneration(generation + 1);
+			
+			return true;
+			
+		} finally {
+			file.close();
+		}
+	}
+}
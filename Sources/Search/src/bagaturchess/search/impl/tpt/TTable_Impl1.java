@@ -121,6 +121,12 @@ public class TTable_Impl1 extends LRUMapLongObject<TTable_Impl1.TPTEntry> implem
 	}
 	
 	
+	@Override
+	public void prefetch(long key) {
+		//Do nothing, the entries are in the java heap
+	}
+	
+	
 	private static class TPTEntryFactory implements DataObjectFactory<TPTEntry> {
 		public TPTEntry createObject() {
 			return new TPTEntry();
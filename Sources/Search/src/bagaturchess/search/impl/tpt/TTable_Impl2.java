@@ -23,13 +23,15 @@
 package bagaturchess.search.impl.tpt;
 
 
+import java.nio.LongBuffer;
+
 import bagaturchess.bitboard.impl1.internal.Assert;
 import bagaturchess.bitboard.impl1.internal.EngineConstants;
 import bagaturchess.bitboard.impl1.internal.MoveUtil;
 import bagaturchess.bitboard.impl1.internal.Util;
 
 
-public class TTable_Impl2 implements ITTable {
+public class TTable_Impl2 implements IPersistentTTable {
 	
 	
 	// ///////////////////// DEPTH //12 bits
@@ -102,6 +104,82 @@ public class TTable_Impl2 implements ITTable {
 	}
 	
 	
+	@Override
+	public void prefetch(long key) {
+		//Do nothing, the entries are in the java heap
+	}
+	
+	
+	@Override
+	public int getHashScheme() {
+		return 2;
+	}
+	
+	
+	@Override
+	public int getBucketSize() {
+		return 4;
+	}
+	
+	
+	@Override
+	public int getEntriesCount() {
+		return maxEntries;
+	}
+	
+	
+	//All keys, followed by all values
+	@Override
+	public long getDataLength() {
+		return 2L * maxEntries;
+	}
+	
+	
+	@Override
+	public void save(LongBuffer out, long from) {
+		long to = from + out.remaining();
+		if (from < maxEntries) {
+			out.put(keys, (int) from, (int) (Math.min(to, maxEntries) - from));
+		}
+		if (to > maxEntries) {
+			long start = Math.max(from, maxEntries);
+			out.put(values, (int) (start - maxEntries), (int) (to - start));
+		}
+	}
+	
+	
+	@Override
+	public void load(LongBuffer in, long from) {
+		long to = from + in.remaining();
+		if (from < maxEntries) {
+			in.get(keys, (int) from, (int) (Math.min(to, maxEntries) - from));
+		}
+		if (to > maxEntries) {
+			long start = Math.max(from, maxEntries);
+			in.get(values, (int) (start - maxEntries), (int) (to - start));
+		}
+		usageCounter = 0;
+		for (int i = 0; i < maxEntries; i++) {
+			if (keys[i] != 0) {
+				usageCounter++;
+			}
+		}
+	}
+	
+	
+	//There is no aging in this table
+	@Override
+	public int getGeneration() {
+		return 0;
+	}
+	
+	
+	@Override
+	public void setGeneration(int generation) {
+		//Do nothing
+	}
+	
+	
 	private long getTTValue(final long key) {
 
 		final int index = getIndex(key);
@@ -0,0 +1,392 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.search.impl.tpt;
+
+
+import java.nio.LongBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import bagaturchess.bitboard.impl1.internal.Assert;
+import bagaturchess.bitboard.impl1.internal.EngineConstants;
+import bagaturchess.bitboard.impl1.internal.Util;
+
+
+/**
+ * Thread safe version of TTable_Impl2, which could be shared between all searcher threads.
+ * The key and the value of each entry are stored next to each other in AtomicLongArrays of up to 1 GB (the key is xor-ed with the value),
+ * so torn writes from other threads are rejected by the xor check.
+ * A bucket of 4 entries is 64 bytes, but the arrays are in the java heap and are not aligned to the cache line size,
+ * so a bucket is usually in two cache lines. TTable_Impl4 has aligned buckets.
+ * The replacement is based on depth and generation (age). The generation is increased by correctAllDepths, which is called once per move.
+ */
+public class TTable_Impl3 implements IPersistentTTable {
+	
+	
+	// ///////////////////// DEPTH //8 bits
+	private static final int AGE = 8; // 4
+	private static final int FLAG = 12; // 2
+	private static final int MOVE = 14; // 22
+	private static final int SCORE = 48; // 16
+	
+	private static final int AGE_MASK = 0xf;
+	private static final int AGE_WEIGHT = 8;
+	
+	//Each stripe is on its own cache line (8 longs), in order to avoid false sharing between the threads
+	private static final int STRIPES = 64;
+	private static final int STRIPE_PADDING = 8;
+	
+	//Longs per segment (1 GB), the buckets never cross the segment boundaries
+	private static final int SEGMENT_SHIFT = 27;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+	
+	//2^30 entries, the entries count is an int
+	public static final int MAX_SIZE_IN_MB = 16384;
+	
+	
+	private final int bucketSize;
+	private final int bucketShifts;
+	public final int maxEntries;
+	
+	//[key ^ value, value] pairs
+	private final AtomicLongArray[] entries;
+	
+	//Count of the entries written in the current generation
+	private final AtomicLongArray usageCounters;
+	
+	private volatile int generation;
+	
+	
+	public TTable_Impl3(int sizeInMB) {
+		this(sizeInMB, 4);
+	}
+	
+	
+	public TTable_Impl3(int sizeInMB, int _bucketSize) {
+		
+		if (_bucketSize != 2 && _bucketSize != 4 && _bucketSize != 8) {
+			throw new IllegalStateException("bucketSize=" + _bucketSize);
+		}
+		
+		if (sizeInMB > MAX_SIZE_IN_MB) {
+			throw new IllegalStateException("Transposition Table size is " + sizeInMB + "MB, but the maximum is " + MAX_SIZE_IN_MB + "MB");
+		}
+		
+		bucketSize = _bucketSize;
+		
+		int POWER_2_ENTRIES = (int) (Math.log(sizeInMB) / Math.log(2) + 16);
+		int POWER_2_BUCKET = Integer.numberOfTrailingZeros(bucketSize);
+		bucketShifts = 64 - (POWER_2_ENTRIES - POWER_2_BUCKET);
+		maxEntries = (int) Util.POWER_LOOKUP[POWER_2_ENTRIES];
+		
+		long dataLength = 2L * maxEntries;
+		int segmentLength = (int) Math.min(dataLength, 1L << SEGMENT_SHIFT);
+		
+		entries = new AtomicLongArray[(int) (dataLength / segmentLength)];
+		for (int i = 0; i < entries.length; i++) {
+			entries[i] = new AtomicLongArray(segmentLength);
+		}
+		
+		usageCounters = new AtomicLongArray(STRIPES * STRIPE_PADDING);
+		generation = 0;
+	}
+	
+	
+	/**
+	 * The reduction is not used. Instead of decreasing the depths of all entries, a new generation is started.
+	 * If nothing is written in the current generation (e.g. many searchers share this table and all of them call this method), the generation stays the same.
+	 */
+	@Override
+	public synchronized void correctAllDepths(final int reduction) {
+		
+		if (getUsageCount() == 0) {
+			return;
+		}
+		
+		for (int i = 0; i < STRIPES; i++) {
+			usageCounters.set(i * STRIPE_PADDING, 0);
+		}
+		
+		generation = (generation + 1) & AGE_MASK;
+	}
+	
+	
+	@Override
+	public void get(long key, ITTEntry entry) {
+		
+		entry.setIsEmpty(true);
+		
+		long value = getTTValue(key);
+		
+		if (value != 0) {
+			entry.setIsEmpty(false);
+			entry.setDepth(getDepth(value));
+			entry.setFlag(getFlag(value));
+			entry.setEval(getScore(value));
+			entry.setBestMove(getMove(value));
+		}
+	}
+	
+	
+	@Override
+	public void put(long hashkey, int depth, int eval, int alpha, int beta, int bestmove) {
+		int flag = ITTEntry.FLAG_EXACT;
+		if (eval >= beta) {
+			flag = ITTEntry.FLAG_LOWER;
+		} else if (eval <= alpha) {
+			flag = ITTEntry.FLAG_UPPER;
+		}
+		addValue(hashkey, eval, depth, flag, bestmove);
+	}
+	
+	
+	@Override
+	public int getUsage() {
+		return (int) Math.min(100, getUsageCount() * 100 / maxEntries);
+	}
+	
+	
+	@Override
+	public void prefetch(long key) {
+		//Do nothing, the entries are in the java heap
+	}
+	
+	
+	@Override
+	public int getHashScheme() {
+		return 3;
+	}
+	
+	
+	@Override
+	public int getBucketSize() {
+		return bucketSize;
+	}
+	
+	
+	@Override
+	public int getEntriesCount() {
+		return maxEntries;
+	}
+	
+	
+	@Override
+	public long getDataLength() {
+		return 2L * maxEntries;
+	}
+	
+	
+	@Override
+	public void save(LongBuffer out, long from) {
+		long to = from + out.remaining();
+		while (from < to) {
+			AtomicLongArray segment = getSegment(from);
+			int start = getOffset(from);
+			int end = (int) Math.min(segment.length(), start + (to - from));
+			for (int i = start; i < end; i++) {
+				out.put(segment.get(i));
+			}
+			from += end - start;
+		}
+	}
+	
+	
+	@Override
+	public void load(LongBuffer in, long from) {
+		while (in.hasRemaining()) {
+			AtomicLongArray segment = getSegment(from);
+			int start = getOffset(from);
+			int end = Math.min(segment.length(), start + in.remaining());
+			for (int i = start; i < end; i++) {
+				segment.set(i, in.get());
+			}
+			from += end - start;
+		}
+	}
+	
+	
+	@Override
+	public int getGeneration() {
+		return generation;
+	}
+	
+	
+	@Override
+	public synchronized void setGeneration(int _generation) {
+		
+		for (int i = 0; i < STRIPES; i++) {
+			usageCounters.set(i * STRIPE_PADDING, 0);
+		}
+		
+		generation = _generation & AGE_MASK;
+	}
+	
+	
+	private long getUsageCount() {
+		long count = 0;
+		for (int i = 0; i < STRIPES; i++) {
+			count += usageCounters.get(i * STRIPE_PADDING);
+		}
+		return count;
+	}
+	
+	
+	private void incUsageCounter() {
+		int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+		usageCounters.incrementAndGet(stripe * STRIPE_PADDING);
+	}
+	
+	
+	private long getTTValue(final long key) {
+		
+		final long index = getIndex(key);
+		final AtomicLongArray segment = getSegment(index);
+		final int start = getOffset(index);
+		
+		for (int i = start; i < start + 2 * bucketSize; i += 2) {
+			long value = segment.get(i + 1);
+			if ((segment.get(i) ^ value) == key) {
+				return value;
+			}
+		}
+		
+		return 0;
+	}
+	
+	
+	//Index of the first long of the bucket
+	private long getIndex(final long key) {
+		return (key >>> bucketShifts) * bucketSize * 2;
+	}
+	
+	
+	private AtomicLongArray getSegment(final long index) {
+		return entries[(int) (index >>> SEGMENT_SHIFT)];
+	}
+	
+	
+	//Index inside the segment
+	private static int getOffset(final long index) {
+		return (int) (index & SEGMENT_MASK);
+	}
+	
+	
+	private void addValue(final long key, int score, final int depth, final int flag, final int move) {
+		
+		if (EngineConstants.ASSERT) {
+			Assert.isTrue(depth >= 0);
+			Assert.isTrue(score >= Util.SHORT_MIN && score <= Util.SHORT_MAX);
+		}
+		
+		final int currentGeneration = generation;
+		
+		final long index = getIndex(key);
+		final AtomicLongArray segment = getSegment(index);
+		final int start = getOffset(index);
+		int replacedScore = Integer.MAX_VALUE;
+		int replacedIndex = start;
+		int replacedAge = 0;
+		boolean replacedEmpty = false;
+		
+		for (int i = start; i < start + 2 * bucketSize; i += 2) {
+			
+			long currentValue = segment.get(i + 1);
+			long currentKey = segment.get(i);
+			
+			if (currentKey == 0 && currentValue == 0) {
+				replacedIndex = i;
+				replacedEmpty = true;
+				break;
+			}
+			
+			int currentDepth = getDepth(currentValue);
+			int currentAge = (currentGeneration - getAge(currentValue)) & AGE_MASK;
+			
+			if ((currentKey ^ currentValue) == key) {
+				if (currentAge == 0 && currentDepth > depth) {
+					return;
+				}
+				replacedIndex = i;
+				replacedAge = currentAge;
+				break;
+			}
+			
+			// replace the lowest depth, the entries from older searches are replaced first
+			int currentScore = currentDepth - AGE_WEIGHT * currentAge;
+			if (currentScore < replacedScore) {
+				replacedIndex = i;
+				replacedAge = currentAge;
+				replacedScore = currentScore;
+			}
+		}
+		
+		if (replacedEmpty || replacedAge != 0) {
+			incUsageCounter();
+		}
+		
+		final long value = createValue(score, move, flag, depth, currentGeneration);
+		//The value is written after the key, so a reader which sees the new key together with the old value fails on the xor check
+		segment.lazySet(replacedIndex, key ^ value);
+		segment.lazySet(replacedIndex + 1, value);
+	}
+	
+	
+	private static int getScore(final long value) {
+		int score = (int) (value >> SCORE);
+		
+		if (EngineConstants.ASSERT) {
+			Assert.isTrue(score >= Util.SHORT_MIN && score <= Util.SHORT_MAX);
+		}
+		
+		return score;
+	}
+	
+	
+	private static int getDepth(final long value) {
+		return (int) (value & 0xff);
+	}
+	
+	
+	private static int getAge(final long value) {
+		return (int) (value >>> AGE & AGE_MASK);
+	}
+	
+	
+	private static int getFlag(final long value) {
+		return (int) (value >>> FLAG & 3);
+	}
+	
+	
+	private static int getMove(final long value) {
+		return (int) (value >>> MOVE & 0x3fffff);
+	}
+	
+	
+	// SCORE,MOVE,FLAG,AGE,DEPTH
+	private static long createValue(final long score, final long move, final long flag, final long depth, final long age) {
+		if (EngineConstants.ASSERT) {
+			Assert.isTrue(score >= Util.SHORT_MIN && score <= Util.SHORT_MAX);
+			Assert.isTrue(depth <= 255);
+		}
+		return score << SCORE | move << MOVE | flag << FLAG | age << AGE | depth;
+	}
+}
@@ -0,0 +1,490 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.search.impl.tpt;
+
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import bagaturchess.bitboard.impl1.internal.Assert;
+import bagaturchess.bitboard.impl1.internal.EngineConstants;
+import bagaturchess.bitboard.impl1.internal.Util;
+
+
+/**
+ * Off-heap version of TTable_Impl3, the entries layout, the replacement and the aging are the same.
+ * The entries are in direct buffers (segments) of up to 1 GB, because a direct buffer could not be larger than 2 GB.
+ * Each segment is aligned to the cache line size. The segments are not visible for the garbage collector.
+ * The memory is released with free(), without waiting for the garbage collector.
+ * A direct buffer has no atomic operations, so a torn entry (written by another thread at the same time) is rejected only by the xor check.
+ */
+public class TTable_Impl4 implements IPersistentTTable {
+	
+	
+	// ///////////////////// DEPTH //8 bits
+	private static final int AGE = 8; // 4
+	private static final int FLAG = 12; // 2
+	private static final int MOVE = 14; // 22
+	private static final int SCORE = 48; // 16
+	
+	private static final int AGE_MASK = 0xf;
+	private static final int AGE_WEIGHT = 8;
+	
+	//Each stripe is on its own cache line (8 longs), in order to avoid false sharing between the threads
+	private static final int STRIPES = 64;
+	private static final int STRIPE_PADDING = 8;
+	
+	private static final int CACHE_LINE_SIZE = 64;
+	
+	//Longs per segment (1 GB), the buckets never cross the segment boundaries
+	private static final int SEGMENT_SHIFT = 27;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+	
+	//2^30 entries, the entries count is an int
+	public static final int MAX_SIZE_IN_MB = 16384;
+	
+	
+	private final int bucketSize;
+	private final int bucketShifts;
+	public final int maxEntries;
+	
+	private ByteBuffer[] memory;
+	//[key ^ value, value] pairs
+	private LongBuffer[] entries;
+	
+	//Count of the entries written in the current generation
+	private final AtomicLongArray usageCounters;
+	
+	private volatile int generation;
+	
+	
+	public TTable_Impl4(int sizeInMB) {
+		this(sizeInMB, 4);
+	}
+	
+	
+	public TTable_Impl4(int sizeInMB, int _bucketSize) {
+		
+		if (_bucketSize != 2 && _bucketSize != 4 && _bucketSize != 8) {
+			throw new IllegalStateException("bucketSize=" + _bucketSize);
+		}
+		
+		if (sizeInMB > MAX_SIZE_IN_MB) {
+			throw new IllegalStateException("Transposition Table size is " + sizeInMB + "MB, but the maximum is " + MAX_SIZE_IN_MB + "MB");
+		}
+		
+		bucketSize = _bucketSize;
+		
+		int POWER_2_ENTRIES = (int) (Math.log(sizeInMB) / Math.log(2) + 16);
+		int POWER_2_BUCKET = Integer.numberOfTrailingZeros(bucketSize);
+		bucketShifts = 64 - (POWER_2_ENTRIES - POWER_2_BUCKET);
+		maxEntries = (int) Util.POWER_LOOKUP[POWER_2_ENTRIES];
+		
+		long dataLength = 2L * maxEntries;
+		int segmentLength = (int) Math.min(dataLength, 1L << SEGMENT_SHIFT);
+		int segmentsCount = (int) (dataLength / segmentLength);
+		
+		memory = new ByteBuffer[segmentsCount];
+		entries = new LongBuffer[segmentsCount];
+		
+		for (int i = 0; i < segmentsCount; i++) {
+			
+			memory[i] = ByteBuffer.allocateDirect(8 * segmentLength + CACHE_LINE_SIZE);
+			
+			int offset = getAlignmentOffset(memory[i]);
+			int start = offset == 0 ? 0 : CACHE_LINE_SIZE - offset;
+			memory[i].position(start);
+			memory[i].limit(start + 8 * segmentLength);
+			entries[i] = memory[i].slice().order(ByteOrder.nativeOrder()).asLongBuffer();
+			memory[i].clear();
+		}
+		
+		usageCounters = new AtomicLongArray(STRIPES * STRIPE_PADDING);
+		generation = 0;
+	}
+	
+	
+	/**
+	 * The reduction is not used. Instead of decreasing the depths of all entries, a new generation is started.
+	 */
+	@Override
+	public synchronized void correctAllDepths(final int reduction) {
+		
+		if (getUsageCount() == 0) {
+			return;
+		}
+		
+		for (int i = 0; i < STRIPES; i++) {
+			usageCounters.set(i * STRIPE_PADDING, 0);
+		}
+		
+		generation = (generation + 1) & AGE_MASK;
+	}
+	
+	
+	@Override
+	public void get(long key, ITTEntry entry) {
+		
+		entry.setIsEmpty(true);
+		
+		long value = getTTValue(key);
+		
+		if (value != 0) {
+			entry.setIsEmpty(false);
+			entry.setDepth(getDepth(value));
+			entry.setFlag(getFlag(value));
+			entry.setEval(getScore(value));
+			entry.setBestMove(getMove(value));
+		}
+	}
+	
+	
+	@Override
+	public void put(long hashkey, int depth, int eval, int alpha, int beta, int bestmove) {
+		int flag = ITTEntry.FLAG_EXACT;
+		if (eval >= beta) {
+			flag = ITTEntry.FLAG_LOWER;
+		} else if (eval <= alpha) {
+			flag = ITTEntry.FLAG_UPPER;
+		}
+		addValue(hashkey, eval, depth, flag, bestmove);
+	}
+	
+	
+	@Override
+	public int getUsage() {
+		return (int) Math.min(100, getUsageCount() * 100 / maxEntries);
+	}
+	
+	
+	/**
+	 * Loads the bucket of the given key in the CPU cache.
+	 * Should be called some time before the get or put for this key (e.g. for a child position, right after the move is made).
+	 * Java has no prefetch instruction, so the first long of the bucket is just read.
+	 */
+	@Override
+	public void prefetch(final long key) {
+		final long index = getIndex(key);
+		long first = getSegment(index).get(getOffset(index));
+		//Practically never true, but keeps the read from being removed by the JIT
+		if (first == key) {
+			prefetched = first;
+		}
+	}
+	
+	
+	private long prefetched;
+	
+	
+	@Override
+	public int getHashScheme() {
+		return 3;
+	}
+	
+	
+	@Override
+	public int getBucketSize() {
+		return bucketSize;
+	}
+	
+	
+	@Override
+	public int getEntriesCount() {
+		return maxEntries;
+	}
+	
+	
+	@Override
+	public long getDataLength() {
+		return 2L * maxEntries;
+	}
+	
+	
+	@Override
+	public void save(LongBuffer out, long from) {
+		long to = from + out.remaining();
+		while (from < to) {
+			LongBuffer src = getSegment(from).duplicate();
+			int start = getOffset(from);
+			int length = (int) Math.min(to - from, src.capacity() - start);
+			src.position(start);
+			src.limit(start + length);
+			out.put(src);
+			from += length;
+		}
+	}
+	
+	
+	@Override
+	public void load(LongBuffer in, long from) {
+		while (in.hasRemaining()) {
+			LongBuffer dest = getSegment(from).duplicate();
+			int start = getOffset(from);
+			int length = Math.min(in.remaining(), dest.capacity() - start);
+			LongBuffer src = in.duplicate();
+			src.limit(src.position() + length);
+			dest.position(start);
+			dest.put(src);
+			in.position(in.position() + length);
+			from += length;
+		}
+	}
+	
+	
+	@Override
+	public int getGeneration() {
+		return generation;
+	}
+	
+	
+	@Override
+	public synchronized void setGeneration(int _generation) {
+		
+		for (int i = 0; i < STRIPES; i++) {
+			usageCounters.set(i * STRIPE_PADDING, 0);
+		}
+		
+		generation = _generation & AGE_MASK;
+	}
+	
+	
+	/**
+	 * Releases the native memory. The table could not be used after that.
+	 */
+	public void free() {
+		
+		if (memory == null) {
+			return;
+		}
+		
+		ByteBuffer[] buffers = memory;
+		memory = null;
+		entries = null;
+		
+		for (int i = 0; i < buffers.length; i++) {
+			releaseDirectBuffer(buffers[i]);
+		}
+	}
+	
+	
+	private long getUsageCount() {
+		long count = 0;
+		for (int i = 0; i < STRIPES; i++) {
+			count += usageCounters.get(i * STRIPE_PADDING);
+		}
+		return count;
+	}
+	
+	
+	private void incUsageCounter() {
+		int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+		usageCounters.incrementAndGet(stripe * STRIPE_PADDING);
+	}
+	
+	
+	private long getTTValue(final long key) {
+		
+		final long index = getIndex(key);
+		final LongBuffer segment = getSegment(index);
+		final int start = getOffset(index);
+		
+		for (int i = start; i < start + 2 * bucketSize; i += 2) {
+			long value = segment.get(i + 1);
+			if ((segment.get(i) ^ value) == key) {
+				return value;
+			}
+		}
+		
+		return 0;
+	}
+	
+	
+	//Index of the first long of the bucket
+	private long getIndex(final long key) {
+		return (key >>> bucketShifts) * bucketSize * 2;
+	}
+	
+	
+	private LongBuffer getSegment(final long index) {
+		return entries[(int) (index >>> SEGMENT_SHIFT)];
+	}
+	
+	
+	//Index inside the segment
+	private static int getOffset(final long index) {
+		return (int) (index & SEGMENT_MASK);
+	}
+	
+	
+	private void addValue(final long key, int score, final int depth, final int flag, final int move) {
+		
+		if (EngineConstants.ASSERT) {
+			Assert.isTrue(depth >= 0);
+			Assert.isTrue(score >= Util.SHORT_MIN && score <= Util.SHORT_MAX);
+		}
+		
+		final int currentGeneration = generation;
+		
+		final long index = getIndex(key);
+		final LongBuffer segment = getSegment(index);
+		final int start = getOffset(index);
+		int replacedScore = Integer.MAX_VALUE;
+		int replacedIndex = start;
+		int replacedAge = 0;
+		boolean replacedEmpty = false;
+		
+		for (int i = start; i < start + 2 * bucketSize; i += 2) {
+			
+			long currentValue = segment.get(i + 1);
+			long currentKey = segment.get(i);
+			
+			if (currentKey == 0 && currentValue == 0) {
+				replacedIndex = i;
+				replacedEmpty = true;
+				break;
+			}
+			
+			int currentDepth = getDepth(currentValue);
+			int currentAge = (currentGeneration - getAge(currentValue)) & AGE_MASK;
+			
+			if ((currentKey ^ currentValue) == key) {
+				if (currentAge == 0 && currentDepth > depth) {
+					return;
+				}
+				replacedIndex = i;
+				replacedAge = currentAge;
+				break;
+			}
+			
+			// replace the lowest depth, the entries from older searches are replaced first
+			int currentScore = currentDepth - AGE_WEIGHT * currentAge;
+			if (currentScore < replacedScore) {
+				replacedIndex = i;
+				replacedAge = currentAge;
+				replacedScore = currentScore;
+			}
+		}
+		
+		if (replacedEmpty || replacedAge != 0) {
+			incUsageCounter();
+		}
+		
+		final long value = createValue(score, move, flag, depth, currentGeneration);
+		segment.put(replacedIndex, key ^ value);
+		segment.put(replacedIndex + 1, value);
+	}
+	
+	
+	private static int getScore(final long value) {
+		int score = (int) (value >> SCORE);
+		
+		if (EngineConstants.ASSERT) {
+			Assert.isTrue(score >= Util.SHORT_MIN && score <= Util.SHORT_MAX);
+		}
+		
+		return score;
+	}
+	
+	
+	private static int getDepth(final long value) {
+		return (int) (value & 0xff);
+	}
+	
+	
+	private static int getAge(final long value) {
+		return (int) (value >>> AGE & AGE_MASK);
+	}
+	
+	
+	private static int getFlag(final long value) {
+		return (int) (value >>> FLAG & 3);
+	}
+	
+	
+	private static int getMove(final long value) {
+		return (int) (value >>> MOVE & 0x3fffff);
+	}
+	
+	
+	// SCORE,MOVE,FLAG,AGE,DEPTH
+	private static long createValue(final long score, final long move, final long flag, final long depth, final long age) {
+		if (EngineConstants.ASSERT) {
+			Assert.isTrue(score >= Util.SHORT_MIN && score <= Util.SHORT_MAX);
+			Assert.isTrue(depth <= 255);
+		}
+		return score << SCORE | move << MOVE | flag << FLAG | age << AGE | depth;
+	}
+	
+	
+	//ByteBuffer.alignmentOffset exists since Java 9, with older versions the address field of the buffer is used
+	private static int getAlignmentOffset(ByteBuffer buffer) {
+		
+		try {
+			Method alignmentOffset = ByteBuffer.class.getMethod("alignmentOffset", int.class, int.class);
+			return (Integer) alignmentOffset.invoke(buffer, 0, CACHE_LINE_SIZE);
+		} catch (Throwable t) {
+			//Do nothing
+		}
+		
+		try {
+			Field address = java.nio.Buffer.class.getDeclaredField("address");
+			address.setAccessible(true);
+			return (int) (address.getLong(buffer) & (CACHE_LINE_SIZE - 1));
+		} catch (Throwable t) {
+			//Not aligned
+		}
+		
+		return 0;
+	}
+	
+	
+	//sun.misc.Unsafe.invokeCleaner exists since Java 9, with older versions the cleaner of the buffer is used
+	private static void releaseDirectBuffer(ByteBuffer buffer) {
+		
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			return;
+		} catch (Throwable t) {
+			//Do nothing
+		}
+		
+		try {
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			Method clean = cleaner.getClass().getMethod("clean");
+			clean.setAccessible(true);
+			clean.invoke(cleaner);
+		} catch (Throwable t) {
+			//The memory will be released by the garbage collector
+		}
+	}
+}
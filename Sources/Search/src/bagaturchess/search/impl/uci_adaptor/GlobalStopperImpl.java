@@ -23,27 +23,75 @@
 package bagaturchess.search.impl.uci_adaptor;
 
 
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
 import bagaturchess.search.api.internal.ISearchStopper;
 import bagaturchess.search.api.internal.SearchInterruptedException;
 import bagaturchess.search.impl.uci_adaptor.timemanagement.ITimeController;
 
 
+/**
+ * The time is checked by the SearchStopScheduler thread, which publishes the stop flag.
+ * The searchers count their nodes in own counters and add them to the shared count only every few nodes.
+ */
 public class GlobalStopperImpl implements ISearchStopper {
 	
 	
-	private ITimeController timeController;
-	private long nodes;
+	private static final int NODES_CHECK_INTERVAL = 1024;
+	
+	private static final SearchStopScheduler.ICondition<GlobalStopperImpl> TIME_CONDITION = new SearchStopScheduler.ICondition<GlobalStopperImpl>() {
+		@Override
+		public boolean check(GlobalStopperImpl stopper) {
+			if (stopper.stopped) {
+				return true;
+			}
+			if (!stopper.timeController.hasTime()) {
+				stopper.markStopped();
+				return true;
+			}
+			return false;
+		}
+	};
+	
+	
+	private final ITimeController timeController;
+	
+	private final long maxNodes;
+	private final boolean hasNodesLimit;
+	private final int nodesCheckInterval;
+	private final AtomicLong nodes = new AtomicLong();
+	private final ThreadLocal<long[]> nodesOfThread = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[1];
+		}
+	};
+	
+	private volatile boolean stopped;
 	
-	private boolean stopped;
+	private final ScheduledFuture<?> timeCheck;
 	
 	
 	GlobalStopperImpl(ITimeController _timeController, long _nodes) {
+		
 		timeController = _timeController;
-		nodes = _nodes;
+		
+		maxNodes = _nodes;
+		//The go command has Integer.MAX_VALUE nodes if they are not given
+		hasNodesLimit = _nodes < Integer.MAX_VALUE;
+		//Small limits are checked more often to not exceed them too much
+		nodesCheckInterval = (int) Math.max(1, Math.min(NODES_CHECK_INTERVAL, _nodes / 16));
+		
+		timeCheck = SearchStopScheduler.schedule(this, TIME_CONDITION);
 	}
 	
+	
 	public void markStopped() {
 		stopped = true;
+		if (timeCheck != null) {
+			timeCheck.cancel(false);
+		}
 	}
 	
 	
@@ -57,21 +105,21 @@ public class GlobalStopperImpl implements ISearchStopper {
 			throw new SearchInterruptedException();
 		}
 		
-		nodes--;
-		if (nodes <= 0) {
-			markStopped();
-			throw new SearchInterruptedException();
-		}
-		
-		if (!timeController.hasTime()) {
-			markStopped();
-			throw new SearchInterruptedException();
+		if (hasNodesLimit) {
+			long[] counter = nodesOfThread.get();
+			if (++counter[0] >= nodesCheckInterval) {
+				long total = nodes.addAndGet(counter[0]);
+				counter[0] = 0;
+				if (total >= maxNodes) {
+					markStopped();
+					throw new SearchInterruptedException();
+				}
+			}
 		}
 	}
 	
 	
 	public boolean isStopped() {
-		if (stopped) return true; 
-		return false;
+		return stopped;
 	}
 }
@@ -0,0 +1,93 @@
+package bagaturchess.search.impl.uci_adaptor;
+
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import bagaturchess.uci.api.ChannelManager;
+
+
+/**
+ * Single daemon thread, which evaluates the stop conditions of all running searches at fixed intervals.
+ * This keeps the clock calls out of the search, which only reads the published stop flag.
+ */
+public class SearchStopScheduler {
+	
+	
+	//Less than 1 ms stop latency
+	private static final long CHECK_INTERVAL_MICROS = 500;
+	
+	
+	private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "SearchStopScheduler");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MAX_PRIORITY);
+			return thread;
+		}
+	});
+	
+	
+	private SearchStopScheduler() {
+	}
+	
+	
+	/**
+	 * Evaluates the condition at fixed intervals until it returns true or the owner is garbage collected.
+	 * The scheduler holds the owner only weakly, so an abandoned search does not keep its check running.
+	 */
+	public static <T> ScheduledFuture<?> schedule(T owner, ICondition<T> condition) {
+		CheckTask<T> task = new CheckTask<T>(owner, condition);
+		task.future = scheduler.scheduleAtFixedRate(task, CHECK_INTERVAL_MICROS, CHECK_INTERVAL_MICROS, TimeUnit.MICROSECONDS);
+		return task.future;
+	}
+	
+	
+	public static interface ICondition<T> {
+		/**
+		 * @return true if the check is done and must not be scheduled anymore
+		 */
+		public boolean check(T owner);
+	}
+	
+	
+	private static final class CheckTask<T> implements Runnable {
+		
+		
+		private final WeakReference<T> owner;
+		private final ICondition<T> condition;
+		
+		private volatile ScheduledFuture<?> future;
+		
+		
+		private CheckTask(T _owner, ICondition<T> _condition) {
+			owner = new WeakReference<T>(_owner);
+			condition = _condition;
+		}
+		
+		
+		@Override
+		public void run() {
+			
+			T current = owner.get();
+			
+			boolean done;
+			try {
+				done = current == null || condition.check(current);
+			} catch (Throwable t) {
+				ChannelManager.getChannel().dump(t);
+				done = true;
+			}
+			
+			//The future is null only if the first run is before the end of the scheduling, it is cancelled on the next run
+			if (done && future != null) {
+				future.cancel(false);
+			}
+		}
+	}
+}
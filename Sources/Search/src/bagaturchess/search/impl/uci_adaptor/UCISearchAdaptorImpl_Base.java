@@ -23,6 +23,8 @@
 package bagaturchess.search.impl.uci_adaptor;
 
 
+import java.io.IOException;
+
 import bagaturchess.bitboard.api.IBitBoard;
 import bagaturchess.bitboard.impl.utils.ReflectionUtils;
 import bagaturchess.search.api.IRootSearch;
@@ -32,6 +34,9 @@ import bagaturchess.search.api.internal.ISearchMediator;
 import bagaturchess.search.impl.env.MemoryConsumers;
 import bagaturchess.search.impl.env.SharedData;
 import bagaturchess.search.impl.rootsearch.multipv.MultiPVRootSearch;
+import bagaturchess.search.impl.tpt.IPersistentTTable;
+import bagaturchess.search.impl.tpt.ITTable;
+import bagaturchess.search.impl.tpt.TTablePersistence;
 import bagaturchess.search.impl.uci_adaptor.timemanagement.ITimeController;
 import bagaturchess.uci.api.BestMoveSender;
 import bagaturchess.uci.api.ChannelManager;
@@ -101,22 +106,26 @@ public abstract class UCISearchAdaptorImpl_Base implements IUCISearchAdaptor {
 		
 		try {
 			
-			sharedData.clear();
-			
 			ChannelManager.getChannel().sendLogToGUI("UCISearchAdaptorImpl_Base: shutdown IRootSearch searchers ...");
 			
 			if (searcherNormal != null) {
+				if (!searcherNormal.isStopped()) searcherNormal.stopSearchAndWait();
 				searcherNormal.shutDown();
 			}
 			
 			if (searcherNormalMultiPV != null) {
+				if (!searcherNormalMultiPV.isStopped()) searcherNormalMultiPV.stopSearchAndWait();
 				searcherNormalMultiPV.shutDown();
 			}
 			
 			if (searcherPonder != null) {
+				if (!searcherPonder.isStopped()) searcherPonder.stopSearchAndWait();
 				searcherPonder.shutDown();
 			}
 			
+			//After the searchers are stopped, because the memory of the off-heap caches is released
+			sharedData.clear();
+			
 			ChannelManager.getChannel().sendLogToGUI("UCISearchAdaptorImpl_Base: shutdown OK");
 			
 		} catch(Throwable t) {
@@ -125,6 +134,49 @@ public abstract class UCISearchAdaptorImpl_Base implements IUCISearchAdaptor {
 		}
 	}
 	
+	@Override
+	public synchronized boolean saveTPT(String fileName) throws IOException {
+		
+		IPersistentTTable tpt = getPersistentTPT();
+		if (tpt == null) {
+			return false;
+		}
+		
+		TTablePersistence.save(tpt, fileName);
+		
+		return true;
+	}
+	
+	
+	@Override
+	public synchronized boolean loadTPT(String fileName) throws IOException {
+		
+		IPersistentTTable tpt = getPersistentTPT();
+		if (tpt == null) {
+			return false;
+		}
+		
+		return TTablePersistence.load(tpt, fileName);
+	}
+	
+	
+	private IPersistentTTable getPersistentTPT() {
+		
+		if (!searcherNormal.isStopped() || !searcherPonder.isStopped()) {
+			ChannelManager.getChannel().dump("UCISearchAdaptorImpl_Base: the transposition table is not saved/loaded, because the search is running");
+			return null;
+		}
+		
+		ITTable tpt = sharedData.getTPT();
+		if (!(tpt instanceof IPersistentTTable)) {
+			ChannelManager.getChannel().dump("UCISearchAdaptorImpl_Base: the transposition table " + tpt + " could not be saved/loaded");
+			return null;
+		}
+		
+		return (IPersistentTTable) tpt;
+	}
+	
+	
 	protected SharedData getSharedData() {
 		return sharedData;
 	}
@@ -140,11 +192,11 @@ public abstract class UCISearchAdaptorImpl_Base implements IUCISearchAdaptor {
 	
 	protected void goSearch(boolean ponderSearch, ITimeController timeController) {
 		
-		/*if (ponderSearch) {
+		if (ponderSearch) {
 			getSearcherNormal().decreaseTPTDepths(1);
 		} else {
 			getSearcherNormal().decreaseTPTDepths(2);
-		}*/
+		}
 		
 		
 		IRootSearch searcher = getSearcher(ponderSearch);
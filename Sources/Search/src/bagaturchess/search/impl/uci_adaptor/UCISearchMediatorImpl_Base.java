@@ -30,6 +30,7 @@ import bagaturchess.search.api.internal.ISearchInfo;
 import bagaturchess.search.api.internal.ISearchMediator;
 import bagaturchess.search.api.internal.ISearchStopper;
 import bagaturchess.search.api.internal.SearchInfoUtils;
+import bagaturchess.search.impl.env.SharedData;
 import bagaturchess.uci.api.BestMoveSender;
 import bagaturchess.uci.api.IChannel;
 import bagaturchess.uci.impl.commands.Go;
@@ -117,6 +118,12 @@ public abstract class UCISearchMediatorImpl_Base implements ISearchMediator {
 		String message = SearchInfoUtils.buildMajorInfoCommand(info, getStartTime(), rootSearch.getTPTUsagePercent(), 0, rootSearch.getBitboardForSetup());
 		send(message);
 		
+		SharedData sharedData = rootSearch.getSharedData();
+		int evalCacheHitRate = sharedData == null ? -1 : sharedData.getEvalCacheHitRate();
+		if (evalCacheHitRate != -1) {
+			send("info string evalcache hitrate " + evalCacheHitRate + "%");
+		}
+		
 		//stopIfMateIsFound();
 	}
 	
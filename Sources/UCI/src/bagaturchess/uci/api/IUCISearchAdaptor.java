@@ -23,6 +23,8 @@
 package bagaturchess.uci.api;
 
 
+import java.io.IOException;
+
 import bagaturchess.uci.impl.commands.Go;
 
 
@@ -31,4 +33,6 @@ public interface IUCISearchAdaptor {
 	public void ponderHit();
 	public int[] stopSearch(); // returns best move and ponder move in array
 	public void shutDown();
+	public boolean saveTPT(String fileName) throws IOException; // returns false if the transposition table could not be saved
+	public boolean loadTPT(String fileName) throws IOException; // returns false if the file is missing or not compatible
 }
@@ -76,6 +76,15 @@ public class EngineProcess {
 	}
 	
 	
+	/**
+	 * Creates a new, not yet started, process definition with the same name, command line and working directory.
+	 * Used when the same engine has to play several games in parallel.
+	 */
+	public EngineProcess copy() {
+		return new EngineProcess(getName(), startCommand, props, workDir);
+	}
+	
+	
 	public void setDummperMode(boolean enabled) {
 		if (enabled) {
 			dummper.enabled();
@@ -121,7 +130,9 @@ public class EngineProcess {
 		
 		//ChannelManager.getChannel().sendLogToGUI("EngineProcess: destroy OK");
 		
-		dummper.interrupt();
+		if (dummper != null) {
+			dummper.interrupt();
+		}
 	}
 	
 	public boolean supportsUCI() throws IOException {
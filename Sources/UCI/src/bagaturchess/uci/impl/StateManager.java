@@ -58,6 +58,14 @@ public class StateManager extends Protocol implements BestMoveSender {
 	
 	private String lastFEN;
 	
+	/*
+	 * The search adaptor is re-created when the start position changes (e.g. after ucinewgame and a new position fen)
+	 * or when some options are changed, which clears the transposition table.
+	 * The loaded hash file is kept until the first search and loaded again in the new search adaptor.
+	 */
+	private String loadedHashFile;
+	private IUCISearchAdaptor loadedHashAdaptor;
+	
 	
 	public StateManager(IUCIConfig _engineBootCfg) {
 		engineBootCfg = _engineBootCfg;
@@ -168,6 +176,7 @@ public class StateManager extends Protocol implements BestMoveSender {
 							if (searchAdaptor == null) {
 								createSearchAdaptor();
 							}
+							reloadHash();
 							goSearch(fromGUILine);
 							break;
 						case COMMAND_TO_ENGINE_PONDERHIT:
@@ -189,6 +198,19 @@ public class StateManager extends Protocol implements BestMoveSender {
 								channel.sendLogToGUI("StateManager: command stop skiped, because searchadpator is null");
 							}
 							break;
+						case COMMAND_TO_ENGINE_SAVEHASH:
+							if (searchAdaptor != null) {
+								saveHash(fromGUILine);
+							} else {
+								channel.sendLogToGUI("StateManager: command savehash skiped, because searchadpator is null");
+							}
+							break;
+						case COMMAND_TO_ENGINE_LOADHASH:
+							if (searchAdaptor == null) {
+								createSearchAdaptor();
+							}
+							loadHash(fromGUILine);
+							break;
 						case COMMAND_TO_ENGINE_QUIT:
 							channel.sendLogToGUI("StateManager: System.exit(0), because of QUIT command");
 							Thread.sleep(333);//Wait to write the log
@@ -356,6 +378,77 @@ public class StateManager extends Protocol implements BestMoveSender {
 	}
 	
 	
+	private void saveHash(String fromGUILine) throws IOException {
+		String fileName = getCommandArgument(fromGUILine);
+		if (fileName == null) {
+			channel.sendCommandToGUI("info string usage: " + COMMAND_TO_ENGINE_SAVEHASH_STR + " <file>");
+			return;
+		}
+		channel.sendLogToGUI("StateManager: saveHash called with file " + fileName);
+		
+		long startTime = System.currentTimeMillis();
+		boolean saved = searchAdaptor.saveTPT(fileName);
+		
+		channel.sendCommandToGUI("info string hash " + (saved ? "saved to " : "not saved to ") + fileName
+				+ " in " + (System.currentTimeMillis() - startTime) + "ms");
+	}
+	
+	
+	private void loadHash(String fromGUILine) throws IOException {
+		String fileName = getCommandArgument(fromGUILine);
+		if (fileName == null) {
+			channel.sendCommandToGUI("info string usage: " + COMMAND_TO_ENGINE_LOADHASH_STR + " <file>");
+			return;
+		}
+		channel.sendLogToGUI("StateManager: loadHash called with file " + fileName);
+		
+		boolean loaded = loadHashFile(fileName);
+		
+		loadedHashFile = loaded ? fileName : null;
+		loadedHashAdaptor = loaded ? searchAdaptor : null;
+	}
+	
+	
+	//Loads the hash file again, if the search adaptor is re-created after the loadhash command
+	private void reloadHash() throws IOException {
+		
+		if (loadedHashFile == null) {
+			return;
+		}
+		
+		if (loadedHashAdaptor != searchAdaptor) {
+			channel.sendLogToGUI("StateManager: search adaptor is re-created after loadhash, loading " + loadedHashFile + " again");
+			loadHashFile(loadedHashFile);
+		}
+		
+		loadedHashFile = null;
+		loadedHashAdaptor = null;
+	}
+	
+	
+	private boolean loadHashFile(String fileName) throws IOException {
+		
+		long startTime = System.currentTimeMillis();
+		boolean loaded = searchAdaptor.loadTPT(fileName);
+		
+		channel.sendCommandToGUI("info string hash " + (loaded ? "loaded from " : "not loaded from ") + fileName
+				+ " in " + (System.currentTimeMillis() - startTime) + "ms");
+		
+		return loaded;
+	}
+	
+	
+	//Returns null if the argument is missing
+	private String getCommandArgument(String fromGUILine) {
+		int index = fromGUILine.indexOf(' ');
+		if (index == -1) {
+			return null;
+		}
+		String argument = fromGUILine.substring(index + 1).trim();
+		return argument.length() == 0 ? null : argument;
+	}
+	
+	
 	private void ponderHit(String fromGUILine) throws IOException {
 		channel.sendLogToGUI("StateManager: Ponder hit -> switching search");
 		if (searchAdaptor != null) searchAdaptor.ponderHit();
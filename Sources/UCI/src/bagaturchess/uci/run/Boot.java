@@ -108,6 +108,7 @@ public class Boot {
 							customActions.add(new UCIOptionAction_RecreateSearchAdaptor(manager, "SMP Threads"));
 							customActions.add(new UCIOptionAction_RecreateSearchAdaptor(manager, "Thread Memory (MB)"));
 							customActions.add(new UCIOptionAction_RecreateSearchAdaptor(manager, "SyzygyPath"));
+							customActions.add(new UCIOptionAction_RecreateSearchAdaptor(manager, "Off-heap Hash"));
 							
 							OptionsManager optionsManager = new OptionsManager(communicationChanel, (IUCIOptionsProvider) optionsRegistry, customActions);
 							manager.setOptionsManager(optionsManager);
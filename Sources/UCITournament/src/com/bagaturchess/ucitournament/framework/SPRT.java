@@ -0,0 +1,142 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package com.bagaturchess.ucitournament.framework;
+
+
+/**
+ * Sequential probability ratio test for a match between two engines.
+ * H0: the elo difference is elo0, H1: the elo difference is elo1 (logistic elo, from the tested engine's point of view).
+ * The log-likelihood ratio is computed with the normal approximation of the trinomial (win/draw/loss) model,
+ * the same one used by fishtest and cutechess-cli.
+ */
+public class SPRT {
+	
+	
+	private double elo0;
+	private double elo1;
+	private double lowerBound;
+	private double upperBound;
+	
+	private int wins;
+	private int draws;
+	private int losses;
+	
+	
+	public SPRT(double _elo0, double _elo1, double alpha, double beta) {
+		
+		if (_elo0 >= _elo1) {
+			throw new IllegalStateException("elo0=" + _elo0 + " should be less than elo1=" + _elo1);
+		}
+		if (alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1) {
+			throw new IllegalStateException("alpha=" + alpha + ", beta=" + beta);
+		}
+		
+		elo0 = _elo0;
+		elo1 = _elo1;
+		lowerBound = Math.log(beta / (1 - alpha));
+		upperBound = Math.log((1 - beta) / alpha);
+	}
+	
+	
+	/**
+	 * @param result 1 for a win, 0 for a draw and -1 for a loss of the tested engine
+	 */
+	public synchronized void addResult(int result) {
+		if (result == 1) {
+			wins++;
+		} else if (result == -1) {
+			losses++;
+		} else if (result == 0) {
+			draws++;
+		} else {
+			throw new IllegalStateException("result=" + result);
+		}
+	}
+	
+	
+	public synchronized double getLLR() {
+		
+		int games = wins + draws + losses;
+		if (games == 0 || wins + losses == 0) {
+			return 0;
+		}
+		
+		double w = wins / (double) games;
+		double d = draws / (double) games;
+		
+		double score = w + d / 2;
+		double variance = w + d / 4 - score * score;
+		if (variance <= 0) {
+			return 0;
+		}
+		
+		double score0 = getExpectedScore(elo0);
+		double score1 = getExpectedScore(elo1);
+		
+		return games * (score1 - score0) * (2 * score - score0 - score1) / (2 * variance);
+	}
+	
+	
+	/**
+	 * @return true if H1 is accepted (the tested engine is at least elo1 stronger)
+	 */
+	public boolean isAcceptedH1() {
+		return getLLR() >= upperBound;
+	}
+	
+	
+	/**
+	 * @return true if H0 is accepted (the tested engine is not stronger than elo0)
+	 */
+	public boolean isAcceptedH0() {
+		return getLLR() <= lowerBound;
+	}
+	
+	
+	public boolean isFinished() {
+		double llr = getLLR();
+		return llr >= upperBound || llr <= lowerBound;
+	}
+	
+	
+	public double getLowerBound() {
+		return lowerBound;
+	}
+	
+	
+	public double getUpperBound() {
+		return upperBound;
+	}
+	
+	
+	private static double getExpectedScore(double elo) {
+		return 1 / (1 + Math.pow(10, -elo / 400));
+	}
+	
+	
+	@Override
+	public synchronized String toString() {
+		return "SPRT(" + elo0 + ", " + elo1 + "): W=" + wins + " D=" + draws + " L=" + losses
+				+ " LLR=" + String.format("%.3f", getLLR()) + " [" + String.format("%.3f", lowerBound) + ", " + String.format("%.3f", upperBound) + "]";
+	}
+}
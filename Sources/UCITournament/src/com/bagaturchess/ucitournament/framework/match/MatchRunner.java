@@ -48,7 +48,23 @@ public abstract class MatchRunner {
 	protected abstract void afterGo(int colourToMove);
 	protected abstract int getRemainingTime(int colourToMove);
 	
+	/**
+	 * Returns a new runner with the same time control and its own per-game state,
+	 * so that several games can be played in parallel.
+	 */
+	public abstract MatchRunner copy();
+	
+	
 	public int execute(EngineProcess white, EngineProcess black) throws IOException {
+		return execute(white, black, null);
+	}
+	
+	
+	/**
+	 * Plays one game starting from the initial position after the given opening moves.
+	 * openingMoves is a space separated list of moves in UCI notation and could be null or empty.
+	 */
+	public int execute(EngineProcess white, EngineProcess black, String openingMoves) throws IOException {
 		
 		//white.start();
 		white.supportsUCI();
@@ -58,12 +74,12 @@ public abstract class MatchRunner {
 		black.supportsUCI();
 		black.isReady();
 		
-		int result = playGame(white, black);
+		int result = playGame(white, black, openingMoves);
 		return result;
 	}
 	
 	
-	private int playGame(EngineProcess white, EngineProcess black) throws IOException {
+	private int playGame(EngineProcess white, EngineProcess black, String openingMoves) throws IOException {
 		
 		int result = 0;
 		
@@ -72,14 +88,31 @@ public abstract class MatchRunner {
 		
 		IBitBoard bitboard  = BoardUtils.createBoard_WithPawnsCache();//new Board();
 		
-		EngineProcess engine = white;
+		//The moves are appended ply by ply instead of rebuilding the whole list from the board each time
+		StringBuilder position = new StringBuilder(2048);
+		position.append("startpos moves ");
+		
+		if (openingMoves != null) {
+			String[] moves = openingMoves.trim().split("\\s+");
+			for (int i = 0; i < moves.length; i++) {
+				if (moves[i].length() == 0) {
+					continue;
+				}
+				int move = bitboard.getMoveOps().stringToMove(moves[i]);
+				bitboard.makeMoveForward(move);
+				position.append(bitboard.getMoveOps().moveToString(move)).append(' ');
+				if (!gameIsOk(bitboard)) {
+					return getResult(bitboard.getStatus());
+				}
+			}
+		}
+		
+		EngineProcess engine = bitboard.getColourToMove() == Figures.COLOUR_WHITE ? white : black;
 		while (gameIsOk(bitboard)) {
 			
 			//System.out.println("pinko");
 			
-			String allMovesStr = BoardUtils.getPlayedMoves(bitboard);
-			
-			engine.setupPossition("startpos moves " + allMovesStr);
+			engine.setupPossition(position.toString());
 			
 			//System.out.println("STARTING ENGINE " + engine.getName());
 			
@@ -122,6 +155,7 @@ public abstract class MatchRunner {
 			
 			int best_move = bitboard.getMoveOps().stringToMove(infoObj.getPv()[0]);
 			bitboard.makeMoveForward(best_move);
+			position.append(bitboard.getMoveOps().moveToString(best_move)).append(' ');
 			if (!gameIsOk(bitboard)) {
 				result = getResult(bitboard.getStatus());
 				break;
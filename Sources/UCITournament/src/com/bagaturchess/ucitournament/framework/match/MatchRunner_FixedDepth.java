@@ -39,6 +39,11 @@ public class MatchRunner_FixedDepth extends MatchRunner {
 		depth = _depth;
 	}
 	
+	@Override
+	public MatchRunner copy() {
+		return new MatchRunner_FixedDepth(depth);
+	}
+	
 	@Override
 	protected void go(EngineProcess engine) throws IOException {
 		engine.go_FixedDepth(depth);
@@ -39,6 +39,11 @@ public class MatchRunner_FixedNodes extends MatchRunner {
 		nodes = _nodes;
 	}
 	
+	@Override
+	public MatchRunner copy() {
+		return new MatchRunner_FixedNodes(nodes);
+	}
+	
 	@Override
 	protected void go(EngineProcess engine) throws IOException {
 		engine.go_FixedNodes(nodes);
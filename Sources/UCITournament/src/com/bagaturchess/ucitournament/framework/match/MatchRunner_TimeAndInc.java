@@ -52,6 +52,11 @@ public class MatchRunner_TimeAndInc extends MatchRunner {
 		org_binc_InMilis = _binc_InMilis;
 	}
 	
+	@Override
+	public MatchRunner copy() {
+		return new MatchRunner_TimeAndInc(org_wtime_InMilis, org_btime_InMilis, org_winc_InMilis, org_binc_InMilis);
+	}
+	
 	
 	@Override
 	public void newGame() {
@@ -38,6 +38,11 @@ public class MatchRunner_TimePerMove extends MatchRunner {
 		timeInMilis = _timeInMilis;
 	}
 	
+	@Override
+	public MatchRunner copy() {
+		return new MatchRunner_TimePerMove(timeInMilis);
+	}
+	
 	@Override
 	protected void go(EngineProcess engine) throws IOException {
 		engine.go_TimePerMove(timeInMilis);
@@ -44,7 +44,7 @@ public class TournamentResult {
 		}
 	}
 	
-	public void addResult(String whiteEngineName, String blackEngineName, int result) {
+	public synchronized void addResult(String whiteEngineName, String blackEngineName, int result) {
 		//System.out.println("" + whiteEngineName + " vs " + blackEngineName + " -> " + result);
 		
 		if (result == 1) {
@@ -60,7 +60,7 @@ public class TournamentResult {
 	}
 	
 	@Override
-	public String toString() {
+	public synchronized String toString() {
 		String result = "";
 		
 		for (String name: map.keySet()) {
@@ -0,0 +1,252 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package com.bagaturchess.ucitournament.single;
+
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import bagaturchess.uci.engine.EngineProcess;
+
+import com.bagaturchess.ucitournament.framework.Pair;
+import com.bagaturchess.ucitournament.framework.SPRT;
+import com.bagaturchess.ucitournament.framework.match.MatchRunner;
+import com.bagaturchess.ucitournament.single.schedule.ITournamentSchedule;
+
+
+/**
+ * Plays the games of the schedule on a pool of worker threads.
+ * Each worker starts its own copies of all engines once and reuses them for all its games,
+ * so the engines are not started and stopped serially per game.
+ * If SPRT is set, the tournament stops as soon as one of the hypotheses is accepted.
+ */
+public class Tournament_Concurrent {
+	
+	
+	private ITournamentSchedule schedule;
+	private MatchRunner matchRunner;
+	private List<String> engineOptions;
+	private List<String> openings;
+	private int threadsCount;
+	
+	private SPRT sprt;
+	private String sprtEngineName;
+	
+	private Pair[] games;
+	private AtomicInteger nextGame;
+	private AtomicInteger playedGames;
+	private volatile boolean stopped;
+	private TournamentResult tournamentResult;
+	
+	
+	/**
+	 * @param _engineOptions setoption commands sent to each engine after it is started, could be null
+	 * @param _openings each element is a space separated list of moves in UCI notation, could be null.
+	 * 			The opening of the game with index i is _openings[(i / 2) % size], so with schedules which alternate the colours
+	 * 			each opening is played by both engines with white and black.
+	 */
+	public Tournament_Concurrent(ITournamentSchedule _schedule, MatchRunner _matchRunner, List<String> _engineOptions, List<String> _openings, int _threadsCount) {
+		
+		if (_threadsCount < 1) {
+			throw new IllegalStateException("threadsCount=" + _threadsCount);
+		}
+		
+		schedule = _schedule;
+		matchRunner = _matchRunner;
+		engineOptions = _engineOptions;
+		openings = _openings;
+		threadsCount = _threadsCount;
+	}
+	
+	
+	/**
+	 * Enables the SPRT stop rule. The results are counted from the point of view of the given engine
+	 * and only the games, in which it participates, are counted.
+	 */
+	public void setSPRT(SPRT _sprt, String _sprtEngineName) {
+		sprt = _sprt;
+		sprtEngineName = _sprtEngineName;
+	}
+	
+	
+	public TournamentResult start() throws IOException, InterruptedException {
+		
+		System.out.println((new Date()));
+		System.out.println(schedule);
+		
+		List<Pair> all = new ArrayList<Pair>();
+		for (int round = 0; round < schedule.getRounds(); round++) {
+			Pair[] pairs = schedule.getPairsByRound(round);
+			for (int pair = 0; pair < pairs.length; pair++) {
+				all.add(pairs[pair]);
+			}
+		}
+		
+		games = all.toArray(new Pair[0]);
+		nextGame = new AtomicInteger();
+		playedGames = new AtomicInteger();
+		stopped = false;
+		tournamentResult = new TournamentResult();
+		
+		List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < threadsCount; i++) {
+			workers.add(new Worker());
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+		try {
+			List<Future<Void>> results = executor.invokeAll(workers);
+			for (Future<Void> result: results) {
+				try {
+					result.get();
+				} catch (ExecutionException e) {
+					e.getCause().printStackTrace();
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		
+		System.out.println("\r\nRESULT: " + (new Date()) + " " + playedGames.get() + " games\r\n" + tournamentResult);
+		if (sprt != null) {
+			System.out.println(sprt);
+		}
+		
+		return tournamentResult;
+	}
+	
+	
+	private void gameFinished(Pair pair, int result) {
+		
+		String whiteName = pair.getWhiteEngine().getName();
+		String blackName = pair.getBlackEngine().getName();
+		
+		tournamentResult.addResult(whiteName, blackName, result);
+		int count = playedGames.incrementAndGet();
+		
+		String msg = "Game " + count + "/" + games.length + " " + pair + " finished. Result is " + result + "\r\n" + tournamentResult;
+		
+		if (sprt != null) {
+			if (whiteName.equals(sprtEngineName)) {
+				sprt.addResult(result);
+			} else if (blackName.equals(sprtEngineName)) {
+				sprt.addResult(-result);
+			}
+			msg += sprt;
+			if (sprt.isFinished()) {
+				stopped = true;
+				msg += "\r\nSPRT finished: " + (sprt.isAcceptedH1() ? "H1" : "H0") + " accepted";
+			}
+		}
+		
+		System.out.println(msg);
+	}
+	
+	
+	public static List<String> readOpenings(String fileName) throws IOException {
+		List<String> result = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(fileName));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.length() > 0 && !line.startsWith("#")) {
+					result.add(line);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return result;
+	}
+	
+	
+	private class Worker implements Callable<Void> {
+		
+		
+		@Override
+		public Void call() throws Exception {
+			
+			MatchRunner runner = matchRunner.copy();
+			
+			Map<String, EngineProcess> engines = new HashMap<String, EngineProcess>();
+			try {
+				
+				EngineProcess[] all = schedule.getEngines();
+				for (int i = 0; i < all.length; i++) {
+					EngineProcess engine = all[i].copy();
+					engines.put(engine.getName(), engine);
+					engine.start();
+					if (engineOptions != null) {
+						engine.setOptions(engineOptions);
+					}
+				}
+				
+				while (!stopped) {
+					
+					int index = nextGame.getAndIncrement();
+					if (index >= games.length) {
+						break;
+					}
+					
+					Pair pair = games[index];
+					EngineProcess white = engines.get(pair.getWhiteEngine().getName());
+					EngineProcess black = engines.get(pair.getBlackEngine().getName());
+					
+					String opening = null;
+					if (openings != null && openings.size() > 0) {
+						opening = openings.get((index / 2) % openings.size());
+					}
+					
+					runner.newGame();
+					int result = runner.execute(white, black, opening);
+					
+					gameFinished(pair, result);
+				}
+				
+			} finally {
+				for (EngineProcess engine: engines.values()) {
+					try {
+						engine.destroy();
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			}
+			
+			return null;
+		}
+	}
+}
@@ -31,12 +31,14 @@ import bagaturchess.uci.engine.EngineProcess;
 import bagaturchess.uci.engine.EngineProcess_BagaturImpl_WorkspaceImpl;
 import bagaturchess.uci.impl.Channel_Console;
 
+import com.bagaturchess.ucitournament.framework.SPRT;
 import com.bagaturchess.ucitournament.framework.match.MatchRunner;
 import com.bagaturchess.ucitournament.framework.match.MatchRunner_FixedDepth;
 import com.bagaturchess.ucitournament.framework.match.MatchRunner_FixedNodes;
 import com.bagaturchess.ucitournament.framework.match.MatchRunner_TimeAndInc;
 import com.bagaturchess.ucitournament.framework.match.MatchRunner_TimePerMove;
 import com.bagaturchess.ucitournament.single.Tournament;
+import com.bagaturchess.ucitournament.single.Tournament_Concurrent;
 import com.bagaturchess.ucitournament.single.schedule.ITournamentSchedule;
 import com.bagaturchess.ucitournament.single.schedule.TournamentSchedule_2Engines;
 import com.bagaturchess.ucitournament.single.schedule.TournamentSchedule_EvenScores;
@@ -134,9 +136,6 @@ public class TournamentRunner {
 			
 			ChannelManager.setChannel(new Channel_Console());
 			
-			engine1.start();
-			engine2.start();
-			
 			List<String> options = new ArrayList<String>();
 			//options.add("setoption name Logging Policy value multiple files");
 			options.add("setoption name Ponder value false");
@@ -146,9 +145,6 @@ public class TournamentRunner {
 			options.add("setoption name Time Control Optimizations value for 1/1");
 			options.add("setoption name SyzygyPath value tbd");//C:/Users/i027638/OneDrive - SAP SE/DATA/OWN/chess/EGTB/syzygy
 			
-			engine1.setOptions(options);
-			engine2.setOptions(options);
-			
 			ITournamentSchedule schedule = new TournamentSchedule_2Engines(engines, 100000);
 			
 			//MatchRunner matchRunner = new MatchRunner_TimePerMove(50);
@@ -161,7 +157,18 @@ public class TournamentRunner {
 			MatchRunner matchRunner = new MatchRunner_TimeAndInc(5 * 1000, 5 * 1000, 50, 50);
 			//MatchRunner matchRunner = new MatchRunner_TimeAndInc(1 * 1000, 1 * 1000, 10, 10);
 			
-			Tournament tournament = new Tournament(schedule, matchRunner, false);
+			/*engine1.start();
+			engine2.start();
+			engine1.setOptions(options);
+			engine2.setOptions(options);
+			Tournament tournament = new Tournament(schedule, matchRunner, false);*/
+			
+			//Each thread plays its own games with its own copies of the engines
+			Tournament_Concurrent tournament = new Tournament_Concurrent(schedule, matchRunner, options, null, Runtime.getRuntime().availableProcessors());
+			//Tournament_Concurrent tournament = new Tournament_Concurrent(schedule, matchRunner, options, Tournament_Concurrent.readOpenings("./openings.txt"), Runtime.getRuntime().availableProcessors());
+			
+			//Stops as soon as it is clear whether engine1 is at least 5 elo stronger than engine2 or not
+			tournament.setSPRT(new SPRT(0, 5, 0.05, 0.05), engine1.getName());
 			
 			tournament.start();
 			
@@ -0,0 +1,193 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.ucitracker.api;
+
+
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import bagaturchess.bitboard.api.BoardUtils;
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.bitboard.api.IBoardConfig;
+import bagaturchess.bitboard.api.IGameStatus;
+import bagaturchess.bitboard.impl.Constants;
+import bagaturchess.bitboard.impl1.BoardImpl;
+import bagaturchess.bitboard.impl1.internal.ChessBoard;
+import bagaturchess.ucitracker.impl.packed.PackedPositions;
+
+
+/**
+ * Traverses the positions of a PackedPositions file (created by PackedPositionsConverter from a .cg file).
+ * The file is memory mapped and each position is set directly into the board, there are no moves to replay.
+ * With more visitors, the file is split into equal contiguous parts, one per visitor, and each part is traversed by its own thread and board.
+ * The visitors are called only by their threads (begin, visitPosition and end), so they don't need to be thread safe.
+ */
+public class PackedPositionsTraverser {
+	
+	
+	private static final long MAP_WINDOW_RECORDS = (1 << 30) / PackedPositions.RECORD_SIZE;
+	
+	
+	public static void traverseAll(String filePath, PositionsVisitor visitor, long maxPositionsCount, IBoardConfig boardConfig, String pawnsCacheFactoryClassName) throws Exception {
+		traverseAll(filePath, new PositionsVisitor[] {visitor}, maxPositionsCount, boardConfig, pawnsCacheFactoryClassName);
+	}
+	
+	
+	public static void traverseAll(String filePath, PositionsVisitor visitor) throws Exception {
+		traverseAll(filePath, visitor, Long.MAX_VALUE, null, null);
+	}
+	
+	
+	public static void traverseAll(String filePath, PositionsVisitor[] visitors, long maxPositionsCount, IBoardConfig boardConfig, String pawnsCacheFactoryClassName) throws Exception {
+		
+		FileInputStream fis = new FileInputStream(filePath);
+		
+		try {
+			
+			final FileChannel channel = fis.getChannel();
+			
+			long count = Math.min(readCount(channel), maxPositionsCount);
+			
+			//The boards are created by the current thread, because their creation initialises static data (e.g. EvalConstants.initPSQT)
+			IBitBoard[] bitboards = new IBitBoard[visitors.length];
+			for (int i = 0; i < visitors.length; i++) {
+				bitboards[i] = createBoard(boardConfig, pawnsCacheFactoryClassName);
+			}
+			
+			if (visitors.length == 1) {
+				traverseRange(channel, 0, count, visitors[0], bitboards[0]);
+				return;
+			}
+			
+			ExecutorService executor = Executors.newFixedThreadPool(visitors.length);
+			
+			try {
+				
+				Future<?>[] futures = new Future<?>[visitors.length];
+				for (int i = 0; i < visitors.length; i++) {
+					
+					final long from = count * i / visitors.length;
+					final long to = count * (i + 1) / visitors.length;
+					final PositionsVisitor visitor = visitors[i];
+					final IBitBoard bitboard = bitboards[i];
+					
+					futures[i] = executor.submit(new Callable<Object>() {
+						@Override
+						public Object call() throws Exception {
+							traverseRange(channel, from, to, visitor, bitboard);
+							return null;
+						}
+					});
+				}
+				
+				for (int i = 0; i < futures.length; i++) {
+					try {
+						futures[i].get();
+					} catch (ExecutionException e) {
+						Throwable cause = e.getCause();
+						if (cause instanceof Exception) {
+							throw (Exception) cause;
+						}
+						throw e;
+					}
+				}
+				
+			} finally {
+				executor.shutdownNow();
+			}
+			
+		} finally {
+			fis.close();
+		}
+	}
+	
+	
+	/**
+	 * @return the count of the positions in the file
+	 */
+	public static long readCount(FileChannel channel) throws Exception {
+		
+		ByteBuffer header = ByteBuffer.allocate(PackedPositions.HEADER_SIZE);
+		header.order(ByteOrder.LITTLE_ENDIAN);
+		while (header.hasRemaining()) {
+			if (channel.read(header, header.position()) == -1) {
+				throw new IllegalStateException("Not a packed positions file (no header)");
+			}
+		}
+		
+		int magic = header.getInt(0);
+		int version = header.getInt(4);
+		if (magic != PackedPositions.MAGIC || version != PackedPositions.VERSION) {
+			throw new IllegalStateException("Not a packed positions file: magic=" + magic + ", version=" + version);
+		}
+		
+		return header.getLong(8);
+	}
+	
+	
+	private static void traverseRange(FileChannel channel, long from, long to, PositionsVisitor visitor, IBitBoard bitboard) throws Exception {
+		
+		if (!(bitboard instanceof BoardImpl)) {
+			throw new IllegalStateException("Only " + BoardImpl.class.getName() + " is supported, bitboard is " + bitboard.getClass().getName());
+		}
+		
+		ChessBoard cb = ((BoardImpl) bitboard).getChessBoard();
+		long[][] pieces = new long[2][7];
+		
+		visitor.begin(bitboard);
+		
+		for (long window_start = from; window_start < to; window_start += MAP_WINDOW_RECORDS) {
+			
+			int records = (int) Math.min(MAP_WINDOW_RECORDS, to - window_start);
+			
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+					PackedPositions.HEADER_SIZE + window_start * PackedPositions.RECORD_SIZE,
+					(long) records * PackedPositions.RECORD_SIZE);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			
+			for (int i = 0; i < records; i++) {
+				int whitePlayerEval = PackedPositions.read(buffer, i * PackedPositions.RECORD_SIZE, cb, pieces);
+				visitor.visitPosition(bitboard, IGameStatus.NONE, whitePlayerEval);
+			}
+		}
+		
+		visitor.end();
+	}
+	
+	
+	private static IBitBoard createBoard(IBoardConfig boardConfig, String pawnsCacheFactoryClassName) {
+		if (pawnsCacheFactoryClassName != null) {
+			return BoardUtils.createBoard_WithPawnsCache(Constants.INITIAL_BOARD, pawnsCacheFactoryClassName, boardConfig, 1000);
+		} else {
+			return BoardUtils.createBoard_WithPawnsCache(boardConfig);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.ucitracker.impl.packed;
+
+
+import java.nio.ByteBuffer;
+
+import bagaturchess.bitboard.impl1.internal.ChessBoard;
+import bagaturchess.bitboard.impl1.internal.ChessBoardUtil;
+import bagaturchess.bitboard.impl1.internal.ChessConstants;
+
+
+/**
+ * Fixed size binary format of the training positions, written once from a .cg file by PackedPositionsConverter.
+ * 
+ * Header: int MAGIC, int VERSION, long positions count.
+ * Each position is one RECORD_SIZE bytes record (little endian):
+ * long occupancy, 16 bytes with one 4 bits piece code (colour * 8 + piece type) per occupied square in ascending square order,
+ * byte side to move | castling rights << 1, byte en-passant index, short reserved, int evaluation from the white player's point of view.
+ * The positions are only the ones with IGameStatus.NONE, as the visited positions of PositionsTraverser.
+ */
+public class PackedPositions {
+	
+	
+	public static final int MAGIC 			= 0x50505331; //PPS1
+	public static final int VERSION 		= 1;
+	
+	public static final int HEADER_SIZE 	= 16;
+	public static final int RECORD_SIZE 	= 32;
+	
+	private static final int OFFSET_PIECES 	= 8;
+	private static final int OFFSET_FLAGS 	= 24;
+	private static final int OFFSET_EP 		= 25;
+	private static final int OFFSET_EVAL 	= 28;
+	
+	
+	private PackedPositions() {
+	}
+	
+	
+	/**
+	 * Writes the position of the board as a record at the current position of the buffer.
+	 */
+	public static void write(ChessBoard cb, int whitePlayerEval, ByteBuffer buffer) {
+		
+		long occupancy = cb.allPieces;
+		
+		long codes_low = 0;
+		long codes_high = 0;
+		int index = 0;
+		long pieces = occupancy;
+		while (pieces != 0) {
+			int square = Long.numberOfTrailingZeros(pieces);
+			int colour = (cb.friendlyPieces[ChessConstants.WHITE] & (1L << square)) != 0 ? ChessConstants.WHITE : ChessConstants.BLACK;
+			long code = colour * 8 + cb.pieceIndexes[square];
+			if (index < 16) {
+				codes_low |= code << (4 * index);
+			} else {
+				codes_high |= code << (4 * (index - 16));
+			}
+			index++;
+			pieces &= pieces - 1;
+		}
+		
+		buffer.putLong(occupancy);
+		buffer.putLong(codes_low);
+		buffer.putLong(codes_high);
+		buffer.put((byte) (cb.colorToMove | (cb.castlingRights << 1)));
+		buffer.put((byte) cb.epIndex);
+		buffer.putShort((short) 0);
+		buffer.putInt(whitePlayerEval);
+	}
+	
+	
+	/**
+	 * Sets the position of the record at the given buffer index into the board.
+	 * @param pieces - temporary array with size [2][7], to avoid allocations
+	 * @return the evaluation from the white player's point of view
+	 */
+	public static int read(ByteBuffer buffer, int index, ChessBoard cb, long[][] pieces) {
+		
+		for (int colour = 0; colour < 2; colour++) {
+			for (int type = ChessConstants.PAWN; type <= ChessConstants.KING; type++) {
+				pieces[colour][type] = 0;
+			}
+		}
+		
+		long occupancy = buffer.getLong(index);
+		long codes_low = buffer.getLong(index + OFFSET_PIECES);
+		long codes_high = buffer.getLong(index + OFFSET_PIECES + 8);
+		
+		int count = 0;
+		while (occupancy != 0) {
+			long square_bit = occupancy & -occupancy;
+			int code = (int) ((count < 16 ? codes_low >>> (4 * count) : codes_high >>> (4 * (count - 16))) & 15);
+			pieces[code >>> 3][code & 7] |= square_bit;
+			count++;
+			occupancy &= occupancy - 1;
+		}
+		
+		int flags = buffer.get(index + OFFSET_FLAGS);
+		int epIndex = buffer.get(index + OFFSET_EP);
+		
+		ChessBoardUtil.setPosition(cb, pieces, flags & 1, (flags >>> 1) & 15, epIndex);
+		
+		return buffer.getInt(index + OFFSET_EVAL);
+	}
+}
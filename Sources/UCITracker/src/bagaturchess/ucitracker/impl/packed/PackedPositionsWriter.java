@@ -0,0 +1,128 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.ucitracker.impl.packed;
+
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import bagaturchess.bitboard.api.IBitBoard;
+import bagaturchess.bitboard.api.IGameStatus;
+import bagaturchess.bitboard.impl1.BoardImpl;
+import bagaturchess.ucitracker.api.PositionsVisitor;
+
+
+/**
+ * Writes the visited positions in the PackedPositions format.
+ */
+public class PackedPositionsWriter implements PositionsVisitor {
+	
+	
+	private static final int BUFFER_SIZE = PackedPositions.RECORD_SIZE * 32 * 1024;
+	
+	
+	private String outFileName;
+	
+	private FileChannel channel;
+	private ByteBuffer buffer;
+	private long count;
+	
+	
+	public PackedPositionsWriter(String _outFileName) {
+		outFileName = _outFileName;
+	}
+	
+	
+	@Override
+	public void begin(IBitBoard bitboard) throws Exception {
+		
+		if (!(bitboard instanceof BoardImpl)) {
+			throw new IllegalStateException("Only " + BoardImpl.class.getName() + " is supported, bitboard is " + bitboard.getClass().getName());
+		}
+		
+		channel = new FileOutputStream(outFileName).getChannel();
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		count = 0;
+		
+		//The header is written at the end, when the count is known
+		channel.position(PackedPositions.HEADER_SIZE);
+	}
+	
+	
+	@Override
+	public void visitPosition(IBitBoard bitboard, IGameStatus status, int whitePlayerEval) {
+		
+		if (status != IGameStatus.NONE) {
+			throw new IllegalStateException("status=" + status);
+		}
+		
+		try {
+			if (buffer.remaining() < PackedPositions.RECORD_SIZE) {
+				flush();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		
+		PackedPositions.write(((BoardImpl) bitboard).getChessBoard(), whitePlayerEval, buffer);
+		count++;
+	}
+	
+	
+	@Override
+	public void end() {
+		try {
+			
+			flush();
+			
+			buffer.putInt(PackedPositions.MAGIC);
+			buffer.putInt(PackedPositions.VERSION);
+			buffer.putLong(count);
+			buffer.flip();
+			channel.write(buffer, 0);
+			
+			channel.close();
+			
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	
+	public long getCount() {
+		return count;
+	}
+	
+	
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ *  BagaturChess (UCI chess engine and tools)
+ *  Copyright (C) 2005 Krasimir I. Topchiyski (k_topchiyski@yahoo.com)
+ *  
+ *  Open Source project location: http://sourceforge.net/projects/bagaturchess/develop
+ *  SVN repository https://bagaturchess.svn.sourceforge.net/svnroot/bagaturchess
+ *
+ *  This file is part of BagaturChess program.
+ * 
+ *  BagaturChess is open software: you can redistribute it and/or modify
+ *  it under the terms of the Eclipse Public License version 1.0 as published by
+ *  the Eclipse Foundation.
+ *
+ *  BagaturChess is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  Eclipse Public License for more details.
+ *
+ *  You should have received a copy of the Eclipse Public License version 1.0
+ *  along with BagaturChess. If not, see <http://www.eclipse.org/legal/epl-v10.html/>.
+ *
+ */
+package bagaturchess.ucitracker.run;
+
+
+import bagaturchess.ucitracker.api.PositionsTraverser;
+import bagaturchess.ucitracker.impl.packed.PackedPositionsWriter;
+
+
+/**
+ * One time conversion of a .cg file (GameModelWriter format) to the PackedPositions format, which is traversed by PackedPositionsTraverser.
+ * Arguments: input .cg file and output file, by default ./stockfish-12.cg and ./stockfish-12.pp
+ */
+public class PackedPositionsConverter {
+	
+	
+	public static void main(String[] args) {
+		
+		String inFile = args.length > 0 ? args[0] : "./stockfish-12.cg";
+		String outFile = args.length > 1 ? args[1] : "./stockfish-12.pp";
+		
+		long startTime = System.currentTimeMillis();
+		try {
+			
+			PackedPositionsWriter writer = new PackedPositionsWriter(outFile);
+			
+			PositionsTraverser.traverseAll(inFile, writer);
+			
+			System.out.println(inFile + " -> " + outFile + ": " + writer.getCount() + " positions");
+			
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		long endTime = System.currentTimeMillis();
+		System.out.println("OK " + ((endTime - startTime) / 1000) + "sec");
+	}
+}